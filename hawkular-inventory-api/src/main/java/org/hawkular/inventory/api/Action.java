@@ -16,7 +16,9 @@
  */
 package org.hawkular.inventory.api;
 
+import java.util.Collections;
 import java.util.IdentityHashMap;
+import java.util.List;
 
 import org.hawkular.inventory.api.model.AbstractElement;
 import org.hawkular.inventory.api.model.ContentHashable;
@@ -39,6 +41,7 @@ public final class Action<C, E> {
     private static final Action<?, ?> _SYNC_HASH_CHANGED = new Action<>();
     private static final Action<?, ?> _IDENTITY_HASH_CHANGED = new Action<>();
     private static final Action<?, ?> _CONTENT_HASH_CHANGED = new Action<>();
+    private static final Action<TransactionCommit, TransactionCommit> _COMMITTED = new Action<>();
 
     public static <E> Action<E, E> created() {
         return (Action<E, E>) _CREATED;
@@ -73,6 +76,15 @@ public final class Action<C, E> {
         return (Action<E, E>) _CONTENT_HASH_CHANGED;
     }
 
+    /**
+     * Sent out once per committed transaction, after all the notifications of the transaction, with the whole change
+     * set of the transaction. Use {@code Interest.in(Action.TransactionCommit.class).being(Action.committed())} to
+     * subscribe to it.
+     */
+    public static Action<TransactionCommit, TransactionCommit> committed() {
+        return _COMMITTED;
+    }
+
     private Action() {
 
     }
@@ -89,7 +101,7 @@ public final class Action<C, E> {
     public enum Enumerated {
         CREATED(_CREATED), UPDATED(_UPDATED), DELETED(_DELETED), COPIED(_COPIED), REGISTERED(_REGISTERED),
         SYNC_HASH_CHANGED(_SYNC_HASH_CHANGED), IDENTITY_HASH_CHANGED(_IDENTITY_HASH_CHANGED),
-        CONTENT_HASH_CHANGED(_CONTENT_HASH_CHANGED);
+        CONTENT_HASH_CHANGED(_CONTENT_HASH_CHANGED), COMMITTED(_COMMITTED);
 
         private static final IdentityHashMap<Action<?, ?>, Enumerated> map;
         static {
@@ -138,6 +150,54 @@ public final class Action<C, E> {
         }
     }
 
+    /**
+     * The change set of a committed transaction.
+     */
+    public static final class TransactionCommit {
+        private final List<Event<?, ?>> events;
+
+        public TransactionCommit(List<Event<?, ?>> events) {
+            this.events = Collections.unmodifiableList(events);
+        }
+
+        /**
+         * @return the events of the transaction in the order they were sent out
+         */
+        public List<Event<?, ?>> getEvents() {
+            return events;
+        }
+
+        /**
+         * A single event in the transaction, corresponding to one of the individual notifications sent out for it.
+         *
+         * @param <C> the type of the action context
+         * @param <E> the type of the entity the action has been performed upon
+         */
+        public static final class Event<C, E> {
+            private final Action<C, E> action;
+            private final E entity;
+            private final C actionContext;
+
+            public Event(Action<C, E> action, E entity, C actionContext) {
+                this.action = action;
+                this.entity = entity;
+                this.actionContext = actionContext;
+            }
+
+            public Action<C, E> getAction() {
+                return action;
+            }
+
+            public E getEntity() {
+                return entity;
+            }
+
+            public C getActionContext() {
+                return actionContext;
+            }
+        }
+    }
+
     public static final class Update<E, U> {
         private final E originalEntity;
 
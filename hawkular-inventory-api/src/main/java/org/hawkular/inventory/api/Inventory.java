@@ -21,6 +21,7 @@ import java.time.Instant;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -522,6 +523,53 @@ public interface Inventory extends AutoCloseable, Tenants.Container<Tenants.Read
         return new Page<>(Collections.emptyIterator(), new PageContext(0, 0, Order.unspecified()), 0);
     }
 
+    /**
+     * Executes the query but only returns the canonical paths of the results, which is much cheaper than loading the
+     * full elements if the backend supports it.
+     *
+     * <p><b>IMPORTANT:</b> The returned page object MUST be {@link Page#close() close()}'d once it's done with.
+     *
+     * @param query the query to execute
+     * @param pager the page of the results to return
+     * @return the page of the canonical paths of the results that {@link #execute(Query, Class, Pager)} would return
+     */
+    default Page<CanonicalPath> paths(Query query, Pager pager) {
+        return new Page<>(Collections.emptyIterator(), new PageContext(0, 0, Order.unspecified()), 0);
+    }
+
+    /**
+     * Counts the results of the query without loading them.
+     *
+     * @param query the query to count the results of
+     * @return the total number of the results that {@link #execute(Query, Class, Pager)} would return
+     */
+    default long count(Query query) {
+        return 0;
+    }
+
+    /**
+     * Explains how the query would be executed by {@link #execute(Query, Class, Pager)}.
+     *
+     * @param query   the query to explain
+     * @param pager   the page of the results the query would be executed for
+     * @param profile if true, the query is actually executed for the page and the explanation contains the statistics
+     *                of the execution
+     * @return the explanation of the query
+     */
+    default QueryExplanation explain(Query query, Pager pager, boolean profile) {
+        return new QueryExplanation(query.toString(), null, null, null);
+    }
+
+    /**
+     * The backends can be configured to record the queries that take too long to execute. This returns the most recent
+     * of them.
+     *
+     * @return the recently recorded slow queries, the oldest first, empty if the backend doesn't record them
+     */
+    default List<SlowQuery> getSlowQueries() {
+        return Collections.emptyList();
+    }
+
     /**
      * Converts the provided entity to a blueprint that would create the same entity.
      *
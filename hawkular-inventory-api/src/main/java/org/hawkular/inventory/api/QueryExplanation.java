@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.api;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes how the backend evaluates a query. Used to diagnose the slow queries.
+ *
+ * <p>The content of the explanation is backend specific. Only the {@link #getQuery() query} is always present, the
+ * rest is provided if the backend supports it.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+public final class QueryExplanation {
+    private final String query;
+    private final String translation;
+    private final String plan;
+    private final List<Step> profile;
+
+    /**
+     * @param query       the string representation of the (optimized) inventory query
+     * @param translation the backend-specific representation of the query as translated by the backend
+     * @param plan        the description of how the backend is going to execute the translated query
+     * @param profile     the per-step statistics of the actual execution of the query or null if the query was not
+     *                    profiled
+     */
+    public QueryExplanation(String query, String translation, String plan, List<Step> profile) {
+        this.query = query;
+        this.translation = translation;
+        this.plan = plan;
+        this.profile = profile == null ? null : Collections.unmodifiableList(profile);
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public String getTranslation() {
+        return translation;
+    }
+
+    public String getPlan() {
+        return plan;
+    }
+
+    public List<Step> getProfile() {
+        return profile;
+    }
+
+    /**
+     * The statistics of a single step of the execution of the query.
+     */
+    public static final class Step {
+        private final String name;
+        private final long count;
+        private final long traversers;
+        private final double durationMillis;
+        private final double percentDuration;
+        private final List<Step> nested;
+
+        /**
+         * @param name            the backend-specific description of the step
+         * @param count           the number of elements the step produced
+         * @param traversers      the number of traversers (i.e. the number of the elements with the duplicates
+         *                        merged) the step produced
+         * @param durationMillis  the time spent in the step
+         * @param percentDuration the percentage of the total time of the query spent in the step
+         * @param nested          the statistics of the steps nested in this step, may be null
+         */
+        public Step(String name, long count, long traversers, double durationMillis, double percentDuration,
+                    List<Step> nested) {
+            this.name = name;
+            this.count = count;
+            this.traversers = traversers;
+            this.durationMillis = durationMillis;
+            this.percentDuration = percentDuration;
+            this.nested = nested == null || nested.isEmpty() ? null : Collections.unmodifiableList(nested);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTraversers() {
+            return traversers;
+        }
+
+        public double getDurationMillis() {
+            return durationMillis;
+        }
+
+        public double getPercentDuration() {
+            return percentDuration;
+        }
+
+        public List<Step> getNested() {
+            return nested;
+        }
+    }
+}
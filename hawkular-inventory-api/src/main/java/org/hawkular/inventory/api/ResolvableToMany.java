@@ -20,9 +20,12 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import org.hawkular.inventory.api.model.AbstractElement;
 import org.hawkular.inventory.api.paging.Order;
 import org.hawkular.inventory.api.paging.Page;
 import org.hawkular.inventory.api.paging.Pager;
+import org.hawkular.inventory.api.paging.TransformingPage;
+import org.hawkular.inventory.paths.CanonicalPath;
 
 /**
  * Base interface for all browser interfaces over multiple entities.
@@ -53,6 +56,42 @@ public interface ResolvableToMany<Entity> {
         }
     }
 
+    /**
+     * Returns only the canonical paths of the entities on the current position in the inventory traversal. This is
+     * much cheaper than loading the entities if the backend supports it.
+     *
+     * <p><b>IMPORTANT:</b> The returned page object MUST be {@link Page#close() close()}'d once it's done with.
+     *
+     * @param pager the pager object describing the subset of the paths to return
+     * @return the page of the canonical paths of the entities that {@link #entities(Pager)} would return
+     */
+    default Page<CanonicalPath> paths(Pager pager) {
+        return new TransformingPage<>(entities(pager), e -> ((AbstractElement<?, ?>) e).getPath());
+    }
+
+    /**
+     * Same as {@link #paths(Pager)} but only returns the ids of the entities.
+     *
+     * <p><b>IMPORTANT:</b> The returned page object MUST be {@link Page#close() close()}'d once it's done with.
+     *
+     * @param pager the pager object describing the subset of the ids to return
+     * @return the page of the ids of the entities that {@link #entities(Pager)} would return
+     */
+    default Page<String> ids(Pager pager) {
+        return new TransformingPage<>(paths(pager), p -> p.getSegment().getElementId());
+    }
+
+    /**
+     * Counts the entities on the current position in the inventory traversal without loading them, if possible.
+     *
+     * @return the number of the entities that {@link #entities(Pager)} would return in total
+     */
+    default long count() {
+        try (Page<Entity> p = entities(Pager.single())) {
+            return p.getTotalSize();
+        }
+    }
+
     /**
      * @return true if there is at least 1 entity on the current position in the inventory traversal
      */
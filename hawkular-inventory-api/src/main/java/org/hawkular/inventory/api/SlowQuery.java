@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.api;
+
+/**
+ * A record of a query that took longer to execute than the configured threshold.
+ *
+ * <p>The backends keep only a limited number of the most recent slow queries.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+public final class SlowQuery {
+    private final long timestamp;
+    private final String tenantId;
+    private final String operation;
+    private final String query;
+    private final String pager;
+    private final String discriminator;
+    private final long resultCount;
+    private final double durationMillis;
+    private final String plan;
+
+    /**
+     * @param timestamp      the time the query finished at in milliseconds since epoch
+     * @param tenantId       the tenant the query was confined to or null if the query was not confined to one tenant
+     * @param operation      the name of the backend operation that executed the query
+     * @param query          the string representation of the query
+     * @param pager          the string representation of the pager used or null if the query was not paged
+     * @param discriminator  the string representation of the discriminator of the query
+     * @param resultCount    the total number of results the query produced
+     * @param durationMillis the time it took to execute the query
+     * @param plan           the backend-specific description of how the query was executed, the backends may include
+     *                       this only for a sample of the slow queries, so this can be null
+     */
+    public SlowQuery(long timestamp, String tenantId, String operation, String query, String pager,
+                     String discriminator, long resultCount, double durationMillis, String plan) {
+        this.timestamp = timestamp;
+        this.tenantId = tenantId;
+        this.operation = operation;
+        this.query = query;
+        this.pager = pager;
+        this.discriminator = discriminator;
+        this.resultCount = resultCount;
+        this.durationMillis = durationMillis;
+        this.plan = plan;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public String getPager() {
+        return pager;
+    }
+
+    public String getDiscriminator() {
+        return discriminator;
+    }
+
+    public long getResultCount() {
+        return resultCount;
+    }
+
+    public double getDurationMillis() {
+        return durationMillis;
+    }
+
+    public String getPlan() {
+        return plan;
+    }
+}
@@ -27,22 +27,19 @@ import static org.hawkular.inventory.paths.DataRole.ResourceType.connectionConfi
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
-import java.nio.charset.Charset;
-import java.nio.charset.CharsetEncoder;
-import java.nio.charset.CoderResult;
-import java.nio.charset.CodingErrorAction;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -108,8 +105,7 @@ final class ComputeHash {
 
     static Hashes of(InventoryStructure<?> inventory, CanonicalPath rootPath, boolean computeIdentity,
                      boolean computeContent, boolean computeSync) {
-        ComputeHash.HashConstructor ctor = new ComputeHash.HashConstructor(new ComputeHash.DigestComputingWriter(
-                ComputeHash.newDigest()));
+        ComputeHash.HashConstructor ctor = new ComputeHash.HashConstructor();
 
         IntermediateHashResult res =
                 ComputeHash.computeHash(rootPath, inventory.getRoot(), ComputeHash.HashableView.of(inventory), ctor,
@@ -123,9 +119,11 @@ final class ComputeHash {
                                          boolean computeContent, boolean computeSync,
                                          Consumer<IntermediateHashContext> onStartChild,
                                          BiConsumer<IntermediateHashContext, IntermediateHashResult> onEndChild) {
-        ComputeHash.DigestComputingWriter wrt = new ComputeHash.DigestComputingWriter(ComputeHash.newDigest());
+        ComputeHash.HashConstructor ctor = new ComputeHash.HashConstructor() {
+            @Override boolean isTracingChildren() {
+                return true;
+            }
 
-        ComputeHash.HashConstructor ctor = new ComputeHash.HashConstructor(wrt) {
             @Override public void startChild(ComputeHash.IntermediateHashContext context) {
                 super.startChild(context);
                 onStartChild.accept(context);
@@ -164,21 +162,37 @@ final class ComputeHash {
         boolean computeContent = compContent && contentHashable;
         boolean computeSync = compSync && syncable;
 
-        return entity.accept(new ElementBlueprintVisitor.Simple<IntermediateHashResult, IntermediateHashContext>() {
+        //the independent subtrees can only be computed in parallel if we can read the structure from multiple threads.
+        //If we need to report the individual children to the hash constructor, we need to record them and replay
+        //them once the computation is done, because the constructor expects them in the depth-first order.
+        boolean parallel = structure.isThreadSafe();
+        boolean recording = parallel && bld.isTracingChildren();
+
+        //the digest writers are only reused within this computation so that they can't outlive it
+        IntermediateHashContext rootContext = new IntermediateHashContext(RelativePath.empty().get(),
+                new WriterPool());
+
+        IntermediateHashResult result = entity.accept(new ElementBlueprintVisitor.Simple<IntermediateHashResult,
+                IntermediateHashContext>() {
             @Override
             public IntermediateHashResult visitData(DataEntity.Blueprint<?> data, IntermediateHashContext ctx) {
                 return wrap(data, ctx, (childContext) -> {
                     try {
-                        StringBuilder json = new StringBuilder();
-                        data.getValue().writeJSON(json);
-
                         if (computeIdentity) {
                             appendIdentity(data.getId(), childContext);
-                            appendIdentity(json.toString(), childContext);
+                        }
+
+                        //write the JSON directly into the digests instead of producing the string first
+                        Appendable json = computeIdentity
+                                ? (computeContent ? new TeeAppendable(childContext.identity, childContext.content)
+                                : childContext.identity)
+                                : (computeContent ? childContext.content : null);
+
+                        if (json != null) {
+                            data.getValue().writeJSON(json);
                         }
 
                         if (computeContent) {
-                            appendContent(json.toString(), childContext);
                             appendCommonContent(data, childContext);
                         }
 
@@ -258,9 +272,9 @@ final class ComputeHash {
             public IntermediateHashResult visitFeed(Feed.Blueprint feed, IntermediateHashContext ctx) {
                 return wrap(feed, ctx, (childContext) -> {
                     if (computeIdentity) {
-                        structure.getResourceTypes().forEach(b -> appendEntityIdentity(b, childContext));
+                        appendSubtreeIdentities(structure.getResourceTypes(), childContext);
                         structure.getMetricTypes().forEach(b -> appendEntityIdentity(b, childContext));
-                        structure.getFeedResources().forEach(b -> appendEntityIdentity(b, childContext));
+                        appendSubtreeIdentities(structure.getFeedResources(), childContext);
                         structure.getFeedMetrics().forEach(b -> appendEntityIdentity(b, childContext));
                         appendIdentity(feed.getId(), childContext);
                     }
@@ -303,8 +317,7 @@ final class ComputeHash {
                         appendEntityIdentity(structure.getConfiguration(context.root, resource), childContext);
                         appendEntityIdentity(structure.getConnectionConfiguration(context.root, resource),
                                 childContext);
-                        structure.getResources(context.root, resource)
-                                .forEach(b -> appendEntityIdentity(b, childContext));
+                        appendSubtreeIdentities(structure.getResources(context.root, resource), childContext);
                         structure.getResourceMetrics(context.root, resource)
                                 .forEach(b -> appendEntityIdentity(b, childContext));
                         appendIdentity(resource.getId(), childContext);
@@ -356,35 +369,39 @@ final class ComputeHash {
             private IntermediateHashResult wrap(Entity.Blueprint root, IntermediateHashContext context,
                                                 Consumer<IntermediateHashContext> hashComputation) {
                 IntermediateHashContext childCtx = context.progress(root);
-                bld.startChild(childCtx);
-                hashComputation.accept(childCtx);
 
                 String identityHash = null;
                 String contentHash = null;
                 String syncHash = null;
 
-                DigestComputingWriter digestor = bld.getDigestor();
-                if (computeIdentity) {
-                    digestor.reset();
-                    digestor.append(childCtx.identity);
-                    digestor.close();
-                    identityHash = digestor.digest();
-                }
+                try {
+                    if (!recording) {
+                        bld.startChild(childCtx);
+                    }
 
-                if (computeContent) {
-                    digestor.reset();
-                    digestor.append(childCtx.content);
-                    digestor.close();
-                    contentHash = digestor.digest();
-                }
+                    hashComputation.accept(childCtx);
+
+                    if (computeIdentity) {
+                        childCtx.identity.close();
+                        identityHash = childCtx.identity.digest();
+                    }
 
-                if (computeSync) {
-                    digestor.reset();
-                    digestor.append(identityHash);
-                    digestor.append(contentHash);
-                    digestor.append(childCtx.sync);
-                    digestor.close();
-                    syncHash = digestor.digest();
+                    if (computeContent) {
+                        childCtx.content.close();
+                        contentHash = childCtx.content.digest();
+                    }
+
+                    if (computeSync) {
+                        DigestComputingWriter digestor = childCtx.identity;
+                        digestor.reset();
+                        digestor.append(identityHash);
+                        digestor.append(contentHash);
+                        digestor.append(childCtx.sync);
+                        digestor.close();
+                        syncHash = digestor.digest();
+                    }
+                } finally {
+                    childCtx.release();
                 }
 
                 IntermediateHashResult ret;
@@ -395,7 +412,12 @@ final class ComputeHash {
                             syncHash);
                 }
 
-                bld.endChild(childCtx, ret);
+                if (recording) {
+                    childCtx.result = ret;
+                    context.addVisit(childCtx);
+                } else {
+                    bld.endChild(childCtx, ret);
+                }
 
                 return ret;
             }
@@ -403,7 +425,57 @@ final class ComputeHash {
             private void appendEntityIdentity(Entity.Blueprint child, IntermediateHashContext ctx) {
                 ctx.identity.append(child.accept(this, ctx).identityHash);
             }
-        }, new IntermediateHashContext(RelativePath.empty().get()));
+
+            /**
+             * Each of the children is the root of an independent subtree, so if possible, we compute them in parallel.
+             * The identity hashes of the children are still appended in the original order.
+             */
+            private void appendSubtreeIdentities(List<? extends Entity.Blueprint> children,
+                                                 IntermediateHashContext ctx) {
+                if (!parallel || children.size() < 2) {
+                    children.forEach(b -> appendEntityIdentity(b, ctx));
+                    return;
+                }
+
+                List<IntermediateHashContext> parents = new ArrayList<>(children.size());
+                List<ForkJoinTask<IntermediateHashResult>> tasks = new ArrayList<>(children.size());
+                for (Entity.Blueprint child : children) {
+                    //each task gets its own parent context so that the visits are recorded in the right order
+                    IntermediateHashContext parent = new IntermediateHashContext(ctx.root, ctx.pool);
+                    parents.add(parent);
+                    tasks.add(ForkJoinTask.adapt(() -> child.accept(this, parent)));
+                }
+
+                ForkJoinTask.invokeAll(tasks);
+
+                for (int i = 0; i < tasks.size(); ++i) {
+                    ctx.identity.append(tasks.get(i).join().identityHash);
+                    ctx.addVisits(parents.get(i));
+                }
+            }
+        }, rootContext);
+
+        if (recording) {
+            replay(rootContext, bld);
+        }
+
+        return result;
+    }
+
+    private static void replay(IntermediateHashContext context, HashConstructor bld) {
+        for (IntermediateHashContext child : context.getVisits()) {
+            bld.startChild(child);
+            replay(child, bld);
+            bld.endChild(child, child.result);
+        }
+    }
+
+    private static <B extends Entity.Blueprint> List<B> sorted(Stream<B> children) {
+        try (Stream<B> s = children) {
+            List<B> ret = s.collect(toList());
+            Collections.sort(ret, BLUEPRINT_COMPARATOR);
+            return ret;
+        }
     }
 
     static void appendIdentity(String data, IntermediateHashContext ctx) {
@@ -427,7 +499,7 @@ final class ComputeHash {
         sorted.putAll(props);
 
         for (Map.Entry<String, Object> e : sorted.entrySet()) {
-            ctx.content.append(e.getKey()).append(e.getValue());
+            ctx.content.append(e.getKey()).append(String.valueOf(e.getValue()));
         }
     }
 
@@ -533,8 +605,22 @@ final class ComputeHash {
             };
         }
 
+        /**
+         * The structures don't define the order of the children (and the different implementations iterate them in
+         * different orders), so the children are visited sorted by their ids. This way the hashes depend only on the
+         * contents of the structure, the same as its equality does.
+         *
+         * @param structure the structure to compute the hashes of
+         * @return the view of the structure
+         */
         static HashableView of(InventoryStructure<?> structure) {
             return new HashableView() {
+                @Override public boolean isThreadSafe() {
+                    //only compact structures are immutable - offline structures share their maps with the builders
+                    //obtained from asBuilder() and can therefore be modified while we're reading them
+                    return structure instanceof InventoryStructure.Compact;
+                }
+
                 @Override
                 public DataEntity.Blueprint<?> getConfiguration(RelativePath rootPath,
                                                                 Resource.Blueprint parentResource) {
@@ -580,32 +666,22 @@ final class ComputeHash {
                 }
 
                 @Override public List<Metric.Blueprint> getFeedMetrics() {
-                    try (Stream<Metric.Blueprint> s = structure.getChildren(RelativePath.empty().get(), Metric.class)) {
-                        return s.collect(toList());
-                    }
+                    return sorted(structure.getChildren(RelativePath.empty().get(), Metric.class));
                 }
 
                 @Override public List<Resource.Blueprint> getFeedResources() {
-                    try (Stream<Resource.Blueprint> s = structure.getChildren(RelativePath.empty().get(),
-                            Resource.class)) {
-                        return s.collect(toList());
-                    }
+                    return sorted(structure.getChildren(RelativePath.empty().get(), Resource.class));
                 }
 
                 @Override public List<MetricType.Blueprint> getMetricTypes() {
-                    try (Stream<MetricType.Blueprint> s = structure.getChildren(RelativePath.empty().get(),
-                            MetricType.class)) {
-                        return s.collect(toList());
-                    }
+                    return sorted(structure.getChildren(RelativePath.empty().get(), MetricType.class));
                 }
 
                 @Override public List<OperationType.Blueprint> getOperationTypes(ResourceType.Blueprint rt) {
                     RelativePath p = rt.equals(structure.getRoot()) ? RelativePath.empty().get()
                             : RelativePath.to().resourceType(rt.getId()).get();
 
-                    try (Stream<OperationType.Blueprint> s = structure.getChildren(p, OperationType.class)) {
-                        return s.collect(toList());
-                    }
+                    return sorted(structure.getChildren(p, OperationType.class));
                 }
 
                 @Override
@@ -626,9 +702,7 @@ final class ComputeHash {
                     RelativePath p = rootPath.modified().extend(SegmentType.r, parentResource.getId()).get()
                             .slide(1, 0);
 
-                    try (Stream<Metric.Blueprint> s = structure.getChildren(p, Metric.class)) {
-                        return s.collect(toList());
-                    }
+                    return sorted(structure.getChildren(p, Metric.class));
                 }
 
                 @Override
@@ -636,16 +710,11 @@ final class ComputeHash {
                     RelativePath p = rootPath.modified().extend(SegmentType.r, parentResource.getId()).get()
                             .slide(1, 0);
 
-                    try (Stream<Resource.Blueprint> s = structure.getChildren(p, Resource.class)) {
-                        return s.collect(toList());
-                    }
+                    return sorted(structure.getChildren(p, Resource.class));
                 }
 
                 @Override public List<ResourceType.Blueprint> getResourceTypes() {
-                    try (Stream<ResourceType.Blueprint> s = structure.getChildren(RelativePath.empty().get(),
-                            ResourceType.class)) {
-                        return s.collect(toList());
-                    }
+                    return sorted(structure.getChildren(RelativePath.empty().get(), ResourceType.class));
                 }
 
                 @Override public DataEntity.Blueprint<?> getReturnType(RelativePath rootResourceType,
@@ -661,6 +730,13 @@ final class ComputeHash {
             };
         }
 
+        /**
+         * @return true if this view can be concurrently accessed from multiple threads
+         */
+        default boolean isThreadSafe() {
+            return false;
+        }
+
         default List<ResourceType.Blueprint> getResourceTypes() {
             return Collections.emptyList();
         }
@@ -723,11 +799,27 @@ final class ComputeHash {
     }
 
     static class DigestComputingWriter implements Appendable, Closeable {
-        private final MessageDigest digester;
-        private final CharsetEncoder enc = Charset.forName("UTF-8").newEncoder().onMalformedInput(CodingErrorAction
-                .REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        /**
+         * The hex representations of the individual bytes. Note that these are NOT zero-padded, which is how
+         * the hashes have always been computed and changing that would change all the hashes.
+         */
+        private static final String[] HEX = new String[256];
+        static {
+            for (int i = 0; i < HEX.length; ++i) {
+                HEX[i] = Integer.toHexString(i);
+            }
+        }
 
-        private final ByteBuffer buffer = ByteBuffer.allocate(512);
+        /**
+         * The same replacement as the UTF-8 charset encoder uses for malformed input.
+         */
+        private static final byte REPLACEMENT = '?';
+
+        private final MessageDigest digester;
+        private final byte[] buffer = new byte[512];
+        private int position;
+        private boolean hasPendingHighSurrogate;
+        private char pendingHighSurrogate;
         private String digest;
 
         DigestComputingWriter(MessageDigest digester) {
@@ -736,24 +828,37 @@ final class ComputeHash {
 
         @Override
         public DigestComputingWriter append(CharSequence csq) {
-            consumeBuffer(CharBuffer.wrap(csq));
-            return this;
+            if (csq == null) {
+                csq = "null";
+            }
+
+            return append(csq, 0, csq.length());
         }
 
         @Override
         public DigestComputingWriter append(CharSequence csq, int start, int end) {
-            consumeBuffer(CharBuffer.wrap(csq, start, end));
+            if (csq == null) {
+                csq = "null";
+            }
+
+            for (int i = start; i < end; ++i) {
+                encode(csq.charAt(i));
+            }
             return this;
         }
 
         @Override
         public DigestComputingWriter append(char c) {
-            consumeBuffer(CharBuffer.wrap(new char[]{c}));
+            encode(c);
             return this;
         }
 
         @Override
         public void close() {
+            if (hasPendingHighSurrogate) {
+                hasPendingHighSurrogate = false;
+                put(REPLACEMENT);
+            }
             this.digest = runningDigest();
         }
 
@@ -764,11 +869,12 @@ final class ComputeHash {
          * @return the freshly computed digest of the data obtained so far
          */
         String runningDigest() {
+            flush();
             byte[] digest = digester.digest();
 
-            StringBuilder bld = new StringBuilder();
+            StringBuilder bld = new StringBuilder(2 * digest.length);
             for (byte b : digest) {
-                bld.append(Integer.toHexString(Byte.toUnsignedInt(b)));
+                bld.append(HEX[Byte.toUnsignedInt(b)]);
             }
 
             return bld.toString();
@@ -791,33 +897,177 @@ final class ComputeHash {
 
         public void reset() {
             digester.reset();
+            position = 0;
+            hasPendingHighSurrogate = false;
             digest = null;
         }
 
-        private void consumeBuffer(CharBuffer chars) {
-            CoderResult res;
-            do {
-                res = enc.encode(chars, buffer, true);
-                buffer.flip();
-                digester.update(buffer);
-                buffer.clear();
-            } while (res == CoderResult.OVERFLOW);
+        /**
+         * Encodes the character in UTF-8 directly into the buffer. The surrogate pairs are allowed to span several
+         * appends so that the result is the same as if the whole data were encoded at once.
+         */
+        private void encode(char c) {
+            if (hasPendingHighSurrogate) {
+                hasPendingHighSurrogate = false;
+                if (Character.isLowSurrogate(c)) {
+                    int cp = Character.toCodePoint(pendingHighSurrogate, c);
+                    put((byte) (0xF0 | (cp >> 18)));
+                    put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                    put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                    put((byte) (0x80 | (cp & 0x3F)));
+                    return;
+                } else {
+                    put(REPLACEMENT);
+                }
+            }
+
+            if (c < 0x80) {
+                put((byte) c);
+            } else if (c < 0x800) {
+                put((byte) (0xC0 | (c >> 6)));
+                put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c)) {
+                hasPendingHighSurrogate = true;
+                pendingHighSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                put(REPLACEMENT);
+            } else {
+                put((byte) (0xE0 | (c >> 12)));
+                put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+
+        private void put(byte b) {
+            if (position == buffer.length) {
+                flush();
+            }
+
+            buffer[position++] = b;
+        }
+
+        private void flush() {
+            digester.update(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    /**
+     * A bounded pool of the digest writers used during a single hash computation. The pool is shared by the tasks
+     * computing the independent subtrees in parallel and is discarded together with the computation.
+     */
+    static final class WriterPool {
+        private static final int MAX_SIZE = 64;
+
+        private final Deque<DigestComputingWriter> free = new ArrayDeque<>();
+
+        /**
+         * Obtains a writer from the pool or creates a new one if the pool is empty. The writer should be
+         * {@link #release(DigestComputingWriter) released} back to the pool once it is no longer needed.
+         *
+         * @return a reset writer
+         */
+        synchronized DigestComputingWriter acquire() {
+            DigestComputingWriter ret = free.poll();
+            return ret == null ? new DigestComputingWriter(newDigest()) : ret;
+        }
+
+        /**
+         * Resets the writer and returns it to the pool, unless the pool is already full.
+         *
+         * @param writer the writer that is no longer used
+         */
+        synchronized void release(DigestComputingWriter writer) {
+            writer.reset();
+            if (free.size() < MAX_SIZE) {
+                free.push(writer);
+            }
+        }
+    }
+
+    /**
+     * Appends the data to 2 appendables at the same time.
+     */
+    private static final class TeeAppendable implements Appendable {
+        private final Appendable first;
+        private final Appendable second;
+
+        TeeAppendable(Appendable first, Appendable second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override public Appendable append(CharSequence csq) throws IOException {
+            first.append(csq);
+            second.append(csq);
+            return this;
+        }
+
+        @Override public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            first.append(csq, start, end);
+            second.append(csq, start, end);
+            return this;
+        }
+
+        @Override public Appendable append(char c) throws IOException {
+            first.append(c);
+            second.append(c);
+            return this;
         }
     }
 
     static class IntermediateHashContext {
         final RelativePath root;
-        final StringBuilder identity = new StringBuilder();
-        final StringBuilder content = new StringBuilder();
+        final WriterPool pool;
         final StringBuilder sync = new StringBuilder();
+        DigestComputingWriter identity;
+        DigestComputingWriter content;
+        IntermediateHashResult result;
+        private List<IntermediateHashContext> visits;
 
-        IntermediateHashContext(RelativePath root) {
+        IntermediateHashContext(RelativePath root, WriterPool pool) {
             this.root = root;
+            this.pool = pool;
         }
 
         IntermediateHashContext progress(Entity.Blueprint bl) {
-            return new IntermediateHashContext(root.modified().extend(Blueprint.getSegmentTypeOf(bl),
-                    bl.getId()).get());
+            IntermediateHashContext ret = new IntermediateHashContext(root.modified().extend(
+                    Blueprint.getSegmentTypeOf(bl), bl.getId()).get(), pool);
+
+            ret.identity = pool.acquire();
+            ret.content = pool.acquire();
+
+            return ret;
+        }
+
+        /**
+         * Returns the digest writers of this context back to the pool.
+         */
+        void release() {
+            if (identity != null) {
+                pool.release(identity);
+                identity = null;
+            }
+
+            if (content != null) {
+                pool.release(content);
+                content = null;
+            }
+        }
+
+        void addVisit(IntermediateHashContext child) {
+            if (visits == null) {
+                visits = new ArrayList<>(2);
+            }
+            visits.add(child);
+        }
+
+        void addVisits(IntermediateHashContext other) {
+            other.getVisits().forEach(this::addVisit);
+        }
+
+        List<IntermediateHashContext> getVisits() {
+            return visits == null ? Collections.emptyList() : visits;
         }
     }
 
@@ -836,16 +1086,31 @@ final class ComputeHash {
     }
 
     static class HashConstructor {
-        private final DigestComputingWriter digestor;
+        private DigestComputingWriter digestor;
+
+        HashConstructor() {
+        }
 
         HashConstructor(DigestComputingWriter digestor) {
             this.digestor = digestor;
         }
 
         public DigestComputingWriter getDigestor() {
+            if (digestor == null) {
+                digestor = new DigestComputingWriter(newDigest());
+            }
             return digestor;
         }
 
+        /**
+         * @return true if this constructor needs to be notified about the individual children using the
+         * {@link #startChild(IntermediateHashContext)} and {@link #endChild(IntermediateHashContext,
+         * IntermediateHashResult)} methods.
+         */
+        boolean isTracingChildren() {
+            return false;
+        }
+
         public void startChild(IntermediateHashContext context) {
 //            System.out.println("start: " + context.root);
         }
@@ -856,4 +1121,3 @@ final class ComputeHash {
         }
     }
 }
-
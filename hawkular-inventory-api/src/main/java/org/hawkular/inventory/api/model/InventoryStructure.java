@@ -17,8 +17,13 @@
 package org.hawkular.inventory.api.model;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -587,6 +592,375 @@ public interface InventoryStructure<Root extends Entity.Blueprint> {
         }
     }
 
+    /**
+     * A compact, immutable, off-line representation of the inventory structure, more suitable for the large
+     * structures than {@link Offline}.
+     *
+     * <p>The structure is a trie of the entities, in which each entity keeps its children of each type in an array
+     * sorted by the ids of the children. The entities are therefore looked up segment by segment using binary search
+     * and the children of each type are always iterated in the order of their ids, regardless of the order in which
+     * the structure was built. Neither the full relative paths of the entities nor any hash maps are kept. The ids
+     * are not copied either, the ones in the blueprints are used.
+     * <p>
+     * This is not directly instantiable but rather is copied from another structure, merged from two structures or
+     * built using a {@link Compact.Builder}.
+     */
+    final class Compact<Root extends Entity.Blueprint> implements InventoryStructure<Root>, Serializable {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private final Node root;
+
+        private Compact(Node root) {
+            this.root = root;
+        }
+
+        /**
+         * @param other the structure to copy
+         * @param <R>   the type of the root blueprint
+         * @return the compact copy of the other structure
+         */
+        @SuppressWarnings("unchecked")
+        public static <R extends Entity.Blueprint> Compact<R> copy(InventoryStructure<R> other) {
+            if (other instanceof Compact) {
+                return (Compact<R>) other;
+            }
+
+            return new Compact<>(copy(other, RelativePath.empty().get(), other.getRoot(), Collections.emptySet()));
+        }
+
+        /**
+         * Merges the update into the current structure without creating any intermediate structure.
+         *
+         * <p>The entities present in the update take precedence over the current ones. The current entities that are
+         * not present in the update are kept in the result unless their type is among the replaced types.
+         *
+         * <p>The children of the entities present in both structures are merged in the same way. As with any other
+         * compact structure, the merged children are sorted by their ids.
+         *
+         * @param current       the current structure
+         * @param update        the structure to merge into the current one
+         * @param replacedTypes the types of the entities that the update replaces completely
+         * @param deep          if true, the entities of the replaced types are left out also from the subtrees of the
+         *                      current entities that are not present in the update. If false, such subtrees are kept
+         *                      in the result whole.
+         * @param <R>           the type of the root blueprint
+         * @return the compact merged structure
+         */
+        public static <R extends Entity.Blueprint> Compact<R> merge(InventoryStructure<R> current,
+                                                                    InventoryStructure<R> update,
+                                                                    Set<SegmentType> replacedTypes, boolean deep) {
+            return new Compact<>(merge(current, update, RelativePath.empty().get(), update.getRoot(), true,
+                    replacedTypes, deep));
+        }
+
+        /**
+         * Starts building a compact structure from scratch, for example while reading it from a stream. Only the
+         * entities on the path to the currently built one are kept on top of the already built parts of the structure,
+         * so there is no need to build another structure first and copy it.
+         *
+         * @param root the blueprint of the root entity
+         * @param <R>  the type of the root blueprint
+         * @return the new builder
+         */
+        public static <R extends Entity.Blueprint> Builder<R> builder(R root) {
+            return new Builder<>(root);
+        }
+
+        private static Node copy(InventoryStructure<?> other, RelativePath path, Entity.Blueprint blueprint,
+                                 Set<SegmentType> leftOutTypes) {
+            List<Node> childNodes = new ArrayList<>();
+            for (Entity.Blueprint child : children(other, path)) {
+                EntityType type = EntityType.ofBlueprint(child.getClass());
+                if (!leftOutTypes.contains(type.segmentType)) {
+                    RelativePath childPath = path.modified().extend(type.segmentType, child.getId()).get();
+                    childNodes.add(copy(other, childPath, child, leftOutTypes));
+                }
+            }
+
+            return Node.of(blueprint, childNodes);
+        }
+
+        private static Node merge(InventoryStructure<?> current, InventoryStructure<?> update, RelativePath path,
+                                  Entity.Blueprint blueprint, boolean inCurrent, Set<SegmentType> replacedTypes,
+                                  boolean deep) {
+            List<Entity.Blueprint> currentChildren = inCurrent ? children(current, path) : Collections.emptyList();
+
+            Set<Path.Segment> currentSegments = new HashSet<>();
+            for (Entity.Blueprint child : currentChildren) {
+                currentSegments.add(segment(child));
+            }
+
+            List<Node> childNodes = new ArrayList<>();
+
+            Set<Path.Segment> updatedSegments = new HashSet<>();
+            for (Entity.Blueprint child : children(update, path)) {
+                Path.Segment seg = segment(child);
+                updatedSegments.add(seg);
+
+                RelativePath childPath = path.modified().extend(seg.getElementType(), seg.getElementId()).get();
+                childNodes.add(merge(current, update, childPath, child, currentSegments.contains(seg), replacedTypes,
+                        deep));
+            }
+
+            for (Entity.Blueprint child : currentChildren) {
+                Path.Segment seg = segment(child);
+                if (updatedSegments.contains(seg) || replacedTypes.contains(seg.getElementType())) {
+                    continue;
+                }
+
+                RelativePath childPath = path.modified().extend(seg.getElementType(), seg.getElementId()).get();
+                childNodes.add(copy(current, childPath, child, deep ? replacedTypes : Collections.emptySet()));
+            }
+
+            return Node.of(blueprint, childNodes);
+        }
+
+        private static List<Entity.Blueprint> children(InventoryStructure<?> structure, RelativePath path) {
+            //eagerly collect the children before recursing, so that we don't nest the transactions if the structure
+            //is online (see Offline.copy())
+            try (Stream<Entity.Blueprint> s = structure.getAllChildren(path)) {
+                return s.collect(Collectors.toList());
+            }
+        }
+
+        private static Path.Segment segment(Entity.Blueprint blueprint) {
+            return new Path.Segment(Blueprint.getSegmentTypeOf(blueprint), blueprint.getId());
+        }
+
+        @SuppressWarnings("unchecked") @Override public Root getRoot() {
+            return (Root) root.blueprint;
+        }
+
+        @SuppressWarnings("unchecked") @Override
+        public <E extends Entity<? extends B, ?>, B extends Blueprint> Stream<B>
+        getChildren(RelativePath parent, Class<E> childType) {
+            Node node = find(parent);
+            EntityType type = EntityType.of(childType);
+            if (node == null || node.children == null || type == null) {
+                return Stream.empty();
+            }
+
+            return Stream.of(node.children[type.ordinal()]).map(n -> (B) n.blueprint);
+        }
+
+        @Override public Blueprint get(RelativePath path) {
+            Node node = find(path);
+            return node == null ? null : node.blueprint;
+        }
+
+        private Node find(RelativePath path) {
+            Node current = root;
+            for (Path.Segment seg : path.getPath()) {
+                EntityType type = EntityType.of(seg.getElementType());
+                if (type == null || current.children == null) {
+                    return null;
+                }
+
+                current = current.child(type, seg.getElementId());
+                if (current == null) {
+                    return null;
+                }
+            }
+
+            return current;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Compact<?> compact = (Compact<?>) o;
+
+            return root.equals(compact.root);
+        }
+
+        @Override public int hashCode() {
+            return root.hashCode();
+        }
+
+        /**
+         * Builds the compact structure depth first - each child is started, then its own children are added and then
+         * it is ended. The children of an entity can be added in any order, they are sorted by their ids once the
+         * entity is ended. If there are more children of the same type with the same id, the last one is kept.
+         *
+         * @param <Root> the type of the root blueprint
+         */
+        public static final class Builder<Root extends Entity.Blueprint> {
+            private final Root root;
+            private final Deque<OpenNode> open = new ArrayDeque<>();
+
+            private Builder(Root root) {
+                this.root = root;
+                open.push(new OpenNode(root, RelativePath.empty().get()));
+            }
+
+            /**
+             * Starts building a new child of the currently built entity.
+             *
+             * @param child the blueprint of the child
+             * @return this builder
+             * @throws IllegalArgumentException if the provided child cannot be contained in the currently built entity
+             * (i.e. a resource type cannot be contained in a resource for example).
+             */
+            public Builder<Root> startChild(Entity.Blueprint child) {
+                OpenNode parent = open.peek();
+
+                RelativePath.Extender extender = parent.path.modified();
+                SegmentType childSeg = Blueprint.getSegmentTypeOf(child);
+
+                if (!extender.canExtendTo(childSeg)) {
+                    throw new IllegalArgumentException("Cannot extend path " + parent.path + " with child of type "
+                            + Blueprint.getEntityTypeOf(child));
+                }
+
+                open.push(new OpenNode(child, extender.extend(childSeg, child.getId()).get()));
+
+                return this;
+            }
+
+            /**
+             * Ends the currently built child and continues with its parent.
+             *
+             * @return this builder
+             * @throws IllegalStateException if no child is being built
+             */
+            public Builder<Root> end() {
+                if (open.size() == 1) {
+                    throw new IllegalStateException("No child is being built.");
+                }
+
+                OpenNode child = open.pop();
+                open.peek().children.add(Node.of(child.blueprint, child.children));
+
+                return this;
+            }
+
+            /**
+             * @return the built structure
+             * @throws IllegalStateException if some of the children have not been ended
+             */
+            public Compact<Root> build() {
+                if (open.size() != 1) {
+                    throw new IllegalStateException("The child at " + open.peek().path + " has not been ended.");
+                }
+
+                return new Compact<>(Node.of(root, open.peek().children));
+            }
+
+            private static final class OpenNode {
+                final Entity.Blueprint blueprint;
+                final RelativePath path;
+                final List<Node> children = new ArrayList<>();
+
+                OpenNode(Entity.Blueprint blueprint, RelativePath path) {
+                    this.blueprint = blueprint;
+                    this.path = path;
+                }
+            }
+        }
+
+        private static final class Node implements Serializable {
+            private static final Comparator<Node> BY_ID = Comparator.comparing(n -> n.blueprint.getId());
+
+            final Entity.Blueprint blueprint;
+
+            /**
+             * The children indexed by the ordinal of their {@link EntityType} and sorted by id, or null if there are no
+             * children at all.
+             */
+            final Node[][] children;
+
+            private Node(Entity.Blueprint blueprint, Node[][] children) {
+                this.blueprint = blueprint;
+                this.children = children;
+            }
+
+            /**
+             * @param blueprint  the blueprint of the entity
+             * @param childNodes the children of the entity in any order
+             * @return the new node with the children sorted by their ids, keeping only the last of the children of the
+             * same type with the same id
+             */
+            static Node of(Entity.Blueprint blueprint, List<Node> childNodes) {
+                if (childNodes.isEmpty()) {
+                    return new Node(blueprint, null);
+                }
+
+                EntityType[] types = EntityType.values();
+                int[] counts = new int[types.length];
+                for (Node child : childNodes) {
+                    counts[EntityType.ofBlueprint(child.blueprint.getClass()).ordinal()]++;
+                }
+
+                Node[][] children = new Node[types.length][];
+                for (int i = 0; i < types.length; ++i) {
+                    children[i] = counts[i] == 0 ? NO_CHILDREN : new Node[counts[i]];
+                    counts[i] = 0;
+                }
+
+                for (Node child : childNodes) {
+                    int type = EntityType.ofBlueprint(child.blueprint.getClass()).ordinal();
+                    children[type][counts[type]++] = child;
+                }
+
+                for (int i = 0; i < types.length; ++i) {
+                    children[i] = sortUnique(children[i]);
+                }
+
+                return new Node(blueprint, children);
+            }
+
+            private static Node[] sortUnique(Node[] nodes) {
+                //the sort is stable, so the last of the nodes with the same id stays the last among them
+                Arrays.sort(nodes, BY_ID);
+
+                int last = 0;
+                for (int i = 1; i < nodes.length; ++i) {
+                    if (nodes[i].blueprint.getId().equals(nodes[last].blueprint.getId())) {
+                        nodes[last] = nodes[i];
+                    } else {
+                        nodes[++last] = nodes[i];
+                    }
+                }
+
+                return nodes.length == 0 || last == nodes.length - 1 ? nodes : Arrays.copyOf(nodes, last + 1);
+            }
+
+            Node child(EntityType type, String id) {
+                Node[] candidates = children[type.ordinal()];
+
+                int low = 0;
+                int high = candidates.length - 1;
+                while (low <= high) {
+                    int mid = (low + high) >>> 1;
+                    int cmp = candidates[mid].blueprint.getId().compareTo(id);
+                    if (cmp < 0) {
+                        low = mid + 1;
+                    } else if (cmp > 0) {
+                        high = mid - 1;
+                    } else {
+                        return candidates[mid];
+                    }
+                }
+
+                return null;
+            }
+
+            @Override public boolean equals(Object o) {
+                if (this == o) return true;
+                if (o == null || getClass() != o.getClass()) return false;
+
+                Node node = (Node) o;
+
+                return blueprint.equals(node.blueprint) && Arrays.deepEquals(children, node.children);
+            }
+
+            @Override public int hashCode() {
+                return 31 * blueprint.hashCode() + Arrays.deepHashCode(children);
+            }
+        }
+    }
+
     abstract class AbstractBuilder<This extends AbstractBuilder<?>> {
         protected RelativePath myPath;
         protected final Map<RelativePath, Map<EntityType, Set<Entity.Blueprint>>> children;
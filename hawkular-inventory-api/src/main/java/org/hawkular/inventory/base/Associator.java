@@ -53,7 +53,7 @@ class Associator<BE, E extends Entity<?, ?>> extends Traversal<BE, E> {
 
     static <BE> Relationship associate(TraversalContext<BE, ?> context, SegmentType sourceEntityType,
                                        Relationships.WellKnown relationship, Path id) {
-        return inTx(context, tx -> {
+        return inGroupableTx(context, tx -> {
             BE target = Util.find(context.discriminator(), tx, context.sourcePath, id);
 
             Query sourceQuery = context.sourcePath.extend().filter().with(type(sourceEntityType)).get();
@@ -77,7 +77,7 @@ class Associator<BE, E extends Entity<?, ?>> extends Traversal<BE, E> {
     static <BE> Relationship disassociate(TraversalContext<BE, ?> context,
                                           SegmentType sourceEntityType,
                                           Relationships.WellKnown relationship, Path id) {
-        return inTx(context, tx -> {
+        return inGroupableTx(context, tx -> {
             BE target = Util.find(context.discriminator(), tx, context.sourcePath, id);
 
             Query sourceQuery = context.sourcePath.extend().filter().with(type(sourceEntityType)).get();
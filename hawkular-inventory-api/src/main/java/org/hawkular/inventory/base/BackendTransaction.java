@@ -151,6 +151,13 @@ public class BackendTransaction<E> implements Transaction<E> {
         return backend.getTransitiveClosureOver(discriminator, startingPoint, direction, relationshipNames);
     }
 
+    @Override public Iterator<E> streamTransitiveClosureOver(Discriminator discriminator, E startingPoint,
+                                                             Relationships.Direction direction, int maxDepth,
+                                                             String... relationshipNames) {
+        return backend.streamTransitiveClosureOver(discriminator, startingPoint, direction, maxDepth,
+                relationshipNames);
+    }
+
     @Override public boolean hasRelationship(Discriminator discriminator, E entity, Relationships.Direction direction,
                                              String relationshipName) {
         return backend.hasRelationship(discriminator, entity, direction, relationshipName);
@@ -189,6 +196,10 @@ public class BackendTransaction<E> implements Transaction<E> {
         return backend.query(discriminator, query, pager, conversion, filter);
     }
 
+    @Override public long count(Discriminator discriminator, Query query) {
+        return backend.count(discriminator, query);
+    }
+
     @Override public E querySingle(Discriminator discriminator, Query query) {
         return backend.querySingle(discriminator, query);
     }
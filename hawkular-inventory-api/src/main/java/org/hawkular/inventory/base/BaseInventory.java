@@ -30,6 +30,7 @@ import org.hawkular.inventory.api.EntityNotFoundException;
 import org.hawkular.inventory.api.Interest;
 import org.hawkular.inventory.api.Inventory;
 import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.QueryExplanation;
 import org.hawkular.inventory.api.Relationships;
 import org.hawkular.inventory.api.Tenants;
 import org.hawkular.inventory.api.TransactionFrame;
@@ -66,12 +67,45 @@ public abstract class BaseInventory<E> implements Inventory {
             .withPropertyNameAndSystemProperty("hawkular.inventory.transaction.retries")
             .withEnvironmentVariables("HAWKULAR_INVENTORY_TRANSACTION_RETRIES").build();
 
+    /**
+     * The time in milliseconds to wait for the concurrent writes to be grouped into a single backend transaction.
+     * The group commit is disabled if this is not set or is not positive.
+     */
+    public static final Configuration.Property GROUP_COMMIT_WINDOW = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.transaction.groupCommit.window")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TRANSACTION_GROUP_COMMIT_WINDOW").build();
+
+    /**
+     * The maximum number of writes in a single group commit. Defaults to 32.
+     */
+    public static final Configuration.Property GROUP_COMMIT_MAX_SIZE = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.transaction.groupCommit.maxSize")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TRANSACTION_GROUP_COMMIT_MAX_SIZE").build();
+
+    /**
+     * The number of the canonical path segments identifying the subtree, the writes to which are serialized within
+     * this process (e.g. 2 for feeds and environments). The write locks are disabled if this is not set or is not
+     * positive.
+     */
+    public static final Configuration.Property WRITE_LOCK_DEPTH = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.transaction.writeLocks.depth")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TRANSACTION_WRITE_LOCKS_DEPTH").build();
+
+    /**
+     * The number of the write locks to distribute the subtrees over. Defaults to 64.
+     */
+    public static final Configuration.Property WRITE_LOCK_STRIPES = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.transaction.writeLocks.stripes")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TRANSACTION_WRITE_LOCKS_STRIPES").build();
+
     private InventoryBackend<E> backend;
     private final ObservableContext observableContext;
     private Configuration configuration;
     private TraversalContext<E, Tenant> tenantContext;
     private TraversalContext<E, Relationship> relationshipContext;
     private final TransactionConstructor<E> transactionConstructor;
+    private GroupCommit<E> groupCommit;
+    private WriteLocks writeLocks;
 
     /**
      * This is a sort of copy constructor.
@@ -91,6 +125,12 @@ public abstract class BaseInventory<E> implements Inventory {
         this.transactionConstructor = transactionConstructor == null
                 ? orig.transactionConstructor : transactionConstructor;
 
+        //the writes can only be grouped or locked in the "top-level" transactions, not in the transaction frames or in
+        //the inventories bound to some transaction, all of which use a different transaction constructor
+        boolean topLevel = this.transactionConstructor == orig.transactionConstructor;
+        this.groupCommit = topLevel ? orig.groupCommit : null;
+        this.writeLocks = topLevel ? orig.writeLocks : null;
+
         tenantContext = new TraversalContext<>(this, orig.tenantContext.declaredNow(), Query.empty(),
                 Query.path().with(With.type(Tenant.class)).get(), this.backend, Tenant.class, configuration,
                 observableContext, this.transactionConstructor);
@@ -145,6 +185,32 @@ public abstract class BaseInventory<E> implements Inventory {
         relationshipContext = new TraversalContext<>(this, null, Query.empty(), Query.path().get(), backend,
                 Relationship.class, configuration, observableContext, transactionConstructor);
         this.configuration = configuration;
+
+        long groupCommitWindow = Long.parseLong(configuration.getProperty(GROUP_COMMIT_WINDOW, "0"));
+        if (groupCommitWindow > 0) {
+            int maxSize = Integer.parseInt(configuration.getProperty(GROUP_COMMIT_MAX_SIZE, "32"));
+            groupCommit = new GroupCommit<>(groupCommitWindow, maxSize);
+        }
+
+        int writeLockDepth = Integer.parseInt(configuration.getProperty(WRITE_LOCK_DEPTH, "0"));
+        if (writeLockDepth > 0) {
+            int stripes = Integer.parseInt(configuration.getProperty(WRITE_LOCK_STRIPES, "64"));
+            writeLocks = new WriteLocks(writeLockDepth, stripes);
+        }
+    }
+
+    /**
+     * @return the group commit coordinator to run the writes with or null if the writes should not be grouped
+     */
+    GroupCommit<E> getGroupCommit() {
+        return groupCommit;
+    }
+
+    /**
+     * @return the locks to serialize the writes to the same subtrees with or null if the writes should not be locked
+     */
+    WriteLocks getWriteLocks() {
+        return writeLocks;
     }
 
     @Override
@@ -265,7 +331,7 @@ public abstract class BaseInventory<E> implements Inventory {
         InventoryBackend<E> tx = getBackend().startTransaction();
         try {
             return new TransformingPage<T, T>(tx.query(tenantContext.discriminator(), query, pager,
-                    e -> backend.convert(tenantContext.discriminator(), e, requestedEntity), null),
+                    e -> tx.convert(tenantContext.discriminator(), e, requestedEntity), null),
                     Function.identity()) {
                 @Override public void close() {
                     tx.rollback();
@@ -277,7 +343,43 @@ public abstract class BaseInventory<E> implements Inventory {
         }
     }
 
-    private static class TransactionIgnoringBackend<E> extends DelegatingInventoryBackend<E> {
+    @Override
+    public Page<CanonicalPath> paths(Query query, Pager pager) {
+        InventoryBackend<E> tx = getBackend().startTransaction();
+        try {
+            return new TransformingPage<CanonicalPath, CanonicalPath>(tx.query(tenantContext.discriminator(), query,
+                    pager, tx::extractCanonicalPath, null), Function.identity()) {
+                @Override public void close() {
+                    tx.rollback();
+                }
+            };
+        } catch (Throwable t) {
+            tx.rollback();
+            throw t;
+        }
+    }
+
+    @Override
+    public long count(Query query) {
+        InventoryBackend<E> tx = getBackend().startTransaction();
+        try {
+            return tx.count(tenantContext.discriminator(), query);
+        } finally {
+            tx.rollback();
+        }
+    }
+
+    @Override
+    public QueryExplanation explain(Query query, Pager pager, boolean profile) {
+        InventoryBackend<E> tx = getBackend().startTransaction();
+        try {
+            return tx.explain(tenantContext.discriminator(), query, pager, profile);
+        } finally {
+            tx.rollback();
+        }
+    }
+
+    static class TransactionIgnoringBackend<E> extends DelegatingInventoryBackend<E> {
 
         private final Runnable onCommit;
 
@@ -301,8 +403,8 @@ public abstract class BaseInventory<E> implements Inventory {
         }
     }
 
-    private static final class HidingPrecommit<E> extends Transaction.PreCommit.Simple<E> {
-        private HidingPrecommit() {
+    static final class HidingPrecommit<E> extends Transaction.PreCommit.Simple<E> {
+        HidingPrecommit() {
         }
 
         @Override public List<Consumer<Transaction<E>>> getActions() {
@@ -363,7 +465,7 @@ public abstract class BaseInventory<E> implements Inventory {
                         activePrecommit.initialize(boundInventory(), tx);
                         activePrecommit.getActions().forEach(a -> a.accept(tx));
                         activeBackend.commit();
-                        activePrecommit.getFinalNotifications().forEach(tenantContext::notifyAll);
+                        tenantContext.notifyCommitted(activePrecommit.getFinalNotifications());
 
                         return null;
                     },
@@ -383,7 +485,7 @@ public abstract class BaseInventory<E> implements Inventory {
                         activePrecommit.initialize(boundInventory(), tx);
                         activePrecommit.getActions().forEach(a -> a.accept(tx));
                         activeBackend.commit();
-                        activePrecommit.getFinalNotifications().forEach(tenantContext::notifyAll);
+                        tenantContext.notifyCommitted(activePrecommit.getFinalNotifications());
 
                         return null;
                     }, relationshipContext.getTransactionRetriesCount());
@@ -442,7 +544,7 @@ public abstract class BaseInventory<E> implements Inventory {
                 throw new CommitException(t);
             }
 
-            activePrecommit.getFinalNotifications().forEach(tenantContext::notifyAll);
+            tenantContext.notifyCommitted(activePrecommit.getFinalNotifications());
         }
 
         @Override public void rollback() {
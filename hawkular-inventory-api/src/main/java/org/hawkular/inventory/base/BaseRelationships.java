@@ -106,7 +106,7 @@ public final class BaseRelationships {
                 throw new IllegalArgumentException("targetOrSource was null");
             }
 
-            return inTx(tx -> {
+            return inGroupableTx(tx -> {
                 BE incidenceObject;
                 incidenceObject = Util.find(context.discriminator(), tx, context.sourcePath, targetOrSource);
 
@@ -152,7 +152,7 @@ public final class BaseRelationships {
         @Override
         public void update(String id, Relationship.Update update) throws RelationNotFoundException {
             //TODO this doesn't respect the current position in the graph
-            inTx(tx -> {
+            inGroupableTx(tx -> {
                 try {
                     BE relationshipObject = tx.find(context.discriminator(), CanonicalPath.of().relationship(id)
                             .get());
@@ -174,7 +174,7 @@ public final class BaseRelationships {
         @Override
         public void delete(String id) throws RelationNotFoundException {
             //TODO this doesn't respect the current position in the graph
-            inTx((tx) -> {
+            inGroupableTx((tx) -> {
                 try {
                     BE relationshipObject = tx.find(context.discriminator(), CanonicalPath.of().relationship(id).get());
 
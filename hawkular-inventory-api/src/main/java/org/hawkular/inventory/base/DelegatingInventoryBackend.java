@@ -24,6 +24,7 @@ import java.util.Set;
 import java.util.function.Function;
 
 import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.QueryExplanation;
 import org.hawkular.inventory.api.Relationships;
 import org.hawkular.inventory.api.model.AbstractElement;
 import org.hawkular.inventory.api.model.Blueprint;
@@ -177,6 +178,14 @@ public class DelegatingInventoryBackend<E> implements InventoryBackend<E> {
         return backend.getTransitiveClosureOver(discriminator, startingPoint, direction, relationshipNames);
     }
 
+    @Override
+    public Iterator<E> streamTransitiveClosureOver(Discriminator discriminator, E startingPoint,
+                                                   Relationships.Direction direction, int maxDepth,
+                                                   String... relationshipNames) {
+        return backend.streamTransitiveClosureOver(discriminator, startingPoint, direction, maxDepth,
+                relationshipNames);
+    }
+
     @Override
     public boolean hasRelationship(Discriminator discriminator, E entity, Relationships.Direction direction,
                                    String relationshipName) {
@@ -204,6 +213,16 @@ public class DelegatingInventoryBackend<E> implements InventoryBackend<E> {
         return backend.query(discriminator, query, pager);
     }
 
+    @Override
+    public long count(Discriminator discriminator, Query query) {
+        return backend.count(discriminator, query);
+    }
+
+    @Override
+    public QueryExplanation explain(Discriminator discriminator, Query query, Pager pager, boolean profile) {
+        return backend.explain(discriminator, query, pager, profile);
+    }
+
     @Override
     public <T> Page<T> query(Discriminator discriminator, Query query, Pager pager,
                              Function<E, T> conversion,
@@ -144,6 +144,13 @@ public class DelegatingTransaction<E> implements Transaction<E> {
         return tx.getTransitiveClosureOver(discriminator, startingPoint, direction, relationshipNames);
     }
 
+    @Override public Iterator<E> streamTransitiveClosureOver(Discriminator discriminator, E startingPoint,
+                                                             Relationships.Direction direction, int maxDepth,
+                                                             String... relationshipNames) {
+        return tx.streamTransitiveClosureOver(discriminator, startingPoint, direction, maxDepth,
+                relationshipNames);
+    }
+
     @Override public boolean hasRelationship(Discriminator discriminator, E entity, Relationships.Direction direction,
                                              String relationshipName) {
         return tx.hasRelationship(discriminator, entity, direction, relationshipName);
@@ -182,6 +189,10 @@ public class DelegatingTransaction<E> implements Transaction<E> {
         return tx.query(discriminator, query, pager, conversion, filter);
     }
 
+    @Override public long count(Discriminator discriminator, Query query) {
+        return tx.count(discriminator, query);
+    }
+
     @Override public E querySingle(Discriminator discriminator, Query query) {
         return tx.querySingle(discriminator, query);
     }
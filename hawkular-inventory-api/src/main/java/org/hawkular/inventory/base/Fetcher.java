@@ -29,6 +29,7 @@ import org.hawkular.inventory.api.paging.Page;
 import org.hawkular.inventory.api.paging.Pager;
 import org.hawkular.inventory.api.paging.TransformingPage;
 import org.hawkular.inventory.base.spi.CommitFailureException;
+import org.hawkular.inventory.paths.CanonicalPath;
 
 /**
  * A base class for all interface impls that need to resolve the entities.
@@ -167,6 +168,40 @@ abstract class Fetcher<BE, E extends AbstractElement<?, U>, U extends AbstractEl
         return loadEntities(pager, (b, e, tx) -> e);
     }
 
+    @Override
+    public long count() {
+        if (context.configuration.getResultFilter() != null) {
+            //the result filter needs to see the converted entities
+            return ResolvableToMany.super.count();
+        }
+
+        return inTx(tx -> tx.count(context.discriminator(), context.select().get()));
+    }
+
+    @Override
+    public Page<CanonicalPath> paths(Pager pager) {
+        if (context.configuration.getResultFilter() != null) {
+            //the result filter needs to see the converted entities
+            return ResolvableToMany.super.paths(pager);
+        }
+
+        return inCommittableTx(tx -> {
+            Page<CanonicalPath> paths = tx.query(context.discriminator(), context.select().get(), pager,
+                    tx::extractCanonicalPath, null);
+
+            return new TransformingPage<CanonicalPath, CanonicalPath>(paths, Function.identity()) {
+                @Override public void close() {
+                    try {
+                        tx.commit();
+                    } catch (CommitFailureException e) {
+                        throw new IllegalStateException("Failed to commit the read operation.", e);
+                    }
+                    super.close();
+                }
+            };
+        });
+    }
+
     /**
      * Loads the entities given the pager and converts them using the provided conversion function to the desired type.
      *
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.base;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+
+import org.hawkular.inventory.api.InventoryException;
+import org.hawkular.inventory.api.Log;
+import org.hawkular.inventory.base.spi.InventoryBackend;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.inventory.paths.Path;
+
+/**
+ * Merges the concurrently submitted independent write payloads into a single backend transaction.
+ *
+ * <p>The first thread to submit a payload while other writes are in progress becomes the leader of a new group. It
+ * waits for at most the configured window (or until the group is full) for other payloads to arrive and then runs all
+ * of them one after another in a single backend transaction, which it commits once. The other threads just wait for
+ * the outcome. The leader stops waiting as soon as there is no other write in progress that could join the group.
+ * A payload submitted while no other write is in progress is run on its own straight away.
+ *
+ * <p>The payloads in the group "think" they each run and commit in their own transaction, exactly like the payloads
+ * run within a {@link org.hawkular.inventory.api.TransactionFrame}. Their pre-commit actions and notifications are
+ * collected and processed only once the whole group is about to be committed.
+ *
+ * <p>Because the payloads of a group see each other's uncommitted changes, only the payloads writing to disjoint
+ * subtrees of the inventory are grouped together. A payload writing into the subtree of another payload in the forming
+ * group, or writing to a place that cannot be determined up front, is run on its own.
+ *
+ * <p>The {@link WriteLocks write locks} of the payloads are only taken once the group is formed and are held while
+ * the group runs.
+ *
+ * <p>If any of the payloads fails or the commit of the group fails, the group transaction is rolled back and each
+ * payload is run again on its own in the thread that submitted it (with the usual retries). This way a single failing
+ * payload only ever fails its own caller.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+final class GroupCommit<BE> {
+    private final long windowMillis;
+    private final int maxSize;
+    private final Executor<BE> executor;
+    private final Object lock = new Object();
+    private List<Member<?, BE>> forming;
+
+    /**
+     * The number of the payloads submitted and not yet finished, no matter whether they wait for a group, run in one
+     * or run on their own.
+     */
+    private int active;
+
+    /**
+     * @param windowMillis the maximum time in milliseconds to wait for other payloads to join a group
+     * @param maxSize      the maximum number of payloads in a group
+     */
+    GroupCommit(long windowMillis, int maxSize) {
+        this(windowMillis, maxSize, new BackendExecutor<>());
+    }
+
+    GroupCommit(long windowMillis, int maxSize, Executor<BE> executor) {
+        this.windowMillis = windowMillis;
+        this.maxSize = maxSize;
+        this.executor = executor;
+    }
+
+    /**
+     * Runs the payload either as a part of a group or, if that fails, individually.
+     *
+     * @param context the context to run the payload in
+     * @param payload the payload to run
+     * @param <R>     the type of the result of the payload
+     * @return the result of the payload together with the notifications sent out after its commit
+     * @throws InventoryException if the thread is interrupted while waiting for the other payloads to join its group.
+     *                            The payload is not run at all in that case.
+     */
+    <R> Traversal.ResultWithNofifications<R, BE> submit(TraversalContext<BE, ?> context,
+                                                        TransactionPayload.Committing<R, BE> payload) {
+        return submit(context, Util.resolvedPaths(context.select().get()), payload);
+    }
+
+    /**
+     * @param paths the paths of the subtrees the payload writes to or null if not known
+     * @see #submit(TraversalContext, TransactionPayload.Committing)
+     */
+    <R> Traversal.ResultWithNofifications<R, BE> submit(TraversalContext<BE, ?> context, CanonicalPath[] paths,
+                                                        TransactionPayload.Committing<R, BE> payload) {
+        Member<R, BE> member = new Member<>(context, paths, payload);
+
+        synchronized (lock) {
+            ++active;
+        }
+
+        try {
+            return run(member);
+        } finally {
+            synchronized (lock) {
+                --active;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private <R> Traversal.ResultWithNofifications<R, BE> run(Member<R, BE> member) {
+        List<Member<?, BE>> group = null;
+        boolean alone = false;
+
+        synchronized (lock) {
+            if (forming != null) {
+                if (forming.size() >= maxSize || member.paths == null || overlapsWithAny(member, forming)) {
+                    alone = true;
+                } else {
+                    forming.add(member);
+                    lock.notifyAll();
+                }
+            } else if (active == 1 || member.paths == null) {
+                //there's noone to form a group with
+                alone = true;
+            } else {
+                forming = new ArrayList<>();
+                forming.add(member);
+
+                try {
+                    awaitOthers();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    //the members that joined so far will run on their own
+                    forming.stream().filter(m -> m != member).forEach(m -> m.outcome.complete(null));
+                    forming = null;
+                    throw new InventoryException("Interrupted while waiting for other transactions to join a group.",
+                            e);
+                }
+
+                group = forming;
+                forming = null;
+            }
+        }
+
+        if (alone || (group != null && group.size() == 1)) {
+            return executor.runAlone(member.context, member.payload);
+        }
+
+        if (group != null) {
+            runGroup(group);
+        }
+
+        Traversal.ResultWithNofifications<R, BE> result = member.outcome.join();
+        return result == null ? executor.runAlone(member.context, member.payload) : result;
+    }
+
+    private void awaitOthers() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + windowMillis;
+        long remaining = windowMillis;
+        while (forming.size() < maxSize && active > forming.size() && remaining > 0) {
+            lock.wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+    }
+
+    private void runGroup(List<Member<?, BE>> group) {
+        List<EntityAndPendingNotifications<BE, ?>> notifications;
+        try {
+            notifications = Collections.unmodifiableList(executor.runTogether(group));
+        } catch (Throwable t) {
+            Log.LOGGER.debugf(t, "Commit of a group of %d transactions failed. Will run them individually.",
+                    group.size());
+
+            //the nulls make the members run the payloads on their own
+            group.forEach(m -> m.outcome.complete(null));
+            return;
+        }
+
+        try {
+            executor.notifyCommitted(group.get(0).context, notifications);
+        } finally {
+            group.forEach(m -> m.complete(notifications));
+        }
+    }
+
+    private static boolean overlapsWithAny(Member<?, ?> member, List<? extends Member<?, ?>> group) {
+        for (Member<?, ?> m : group) {
+            for (CanonicalPath a : m.paths) {
+                for (CanonicalPath b : member.paths) {
+                    if (isPrefix(a, b) || isPrefix(b, a)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isPrefix(CanonicalPath prefix, CanonicalPath path) {
+        List<Path.Segment> prefixSegments = prefix.getPath();
+        List<Path.Segment> segments = path.getPath();
+
+        return prefixSegments.size() <= segments.size()
+                && segments.subList(0, prefixSegments.size()).equals(prefixSegments);
+    }
+
+    /**
+     * Actually runs the payloads. The grouping doesn't depend on how that is done.
+     */
+    interface Executor<BE> {
+        /**
+         * Runs the payload on its own in a transaction, retrying on the commit failures.
+         */
+        <R> Traversal.ResultWithNofifications<R, BE> runAlone(TraversalContext<BE, ?> context,
+                                                              TransactionPayload.Committing<R, BE> payload);
+
+        /**
+         * Runs the payloads of the group one after another in a single transaction and commits it. The result of
+         * each of the payloads is {@link Member#setResult(Object) set} on its member.
+         *
+         * @return the notifications to send out about the committed changes
+         * @throws Exception if any of the payloads or the commit fails, in which case nothing is committed
+         */
+        List<EntityAndPendingNotifications<BE, ?>> runTogether(List<Member<?, BE>> group) throws Exception;
+
+        void notifyCommitted(TraversalContext<BE, ?> context,
+                             List<EntityAndPendingNotifications<BE, ?>> notifications);
+    }
+
+    static final class Member<R, BE> {
+        final TraversalContext<BE, ?> context;
+        final CanonicalPath[] paths;
+        final TransactionPayload.Committing<R, BE> payload;
+        final CompletableFuture<Traversal.ResultWithNofifications<R, BE>> outcome = new CompletableFuture<>();
+        private R result;
+
+        Member(TraversalContext<BE, ?> context, CanonicalPath[] paths, TransactionPayload.Committing<R, BE> payload) {
+            this.context = context;
+            this.paths = paths;
+            this.payload = payload;
+        }
+
+        void setResult(R result) {
+            this.result = result;
+        }
+
+        void complete(List<EntityAndPendingNotifications<BE, ?>> sentNotifications) {
+            outcome.complete(new Traversal.ResultWithNofifications<>(result, sentNotifications));
+        }
+    }
+
+    private static final class BackendExecutor<BE> implements Executor<BE> {
+        @Override
+        public <R> Traversal.ResultWithNofifications<R, BE> runAlone(TraversalContext<BE, ?> context,
+                                                                     TransactionPayload.Committing<R, BE> payload) {
+            return Traversal.underWriteLock(context, () -> Traversal.inCommittableTxWithNotifications(context,
+                    payload));
+        }
+
+        @Override
+        public List<EntityAndPendingNotifications<BE, ?>> runTogether(List<Member<?, BE>> group) throws Exception {
+            TraversalContext<BE, ?> leaderContext = group.get(0).context;
+            WriteLocks writeLocks = leaderContext.inventory.getWriteLocks();
+            List<Lock> locks = writeLocks == null ? Collections.emptyList()
+                    : writeLocks.locksFor(group.stream().map(m -> m.paths).collect(toList()));
+
+            locks.forEach(Lock::lock);
+            try {
+                return runTogether(leaderContext, group);
+            } finally {
+                for (int i = locks.size() - 1; i >= 0; --i) {
+                    locks.get(i).unlock();
+                }
+            }
+        }
+
+        private List<EntityAndPendingNotifications<BE, ?>> runTogether(TraversalContext<BE, ?> leaderContext,
+                                                                      List<Member<?, BE>> group) throws Exception {
+            InventoryBackend<BE> backend = leaderContext.inventory.getBackend().startTransaction();
+            Transaction.PreCommit<BE> groupPreCommit = new BasePreCommit<>();
+
+            try {
+                for (Member<?, BE> m : group) {
+                    run(m, backend, groupPreCommit);
+                }
+
+                Transaction.Committable<BE> tx = Transaction.Committable.from(
+                        new BackendTransaction<>(new BaseInventory.TransactionIgnoringBackend<>(backend, null),
+                                groupPreCommit));
+
+                groupPreCommit.initialize(leaderContext.inventory.keepTransaction(tx), tx);
+                groupPreCommit.getActions().forEach(a -> a.accept(tx));
+                backend.commit();
+
+                return groupPreCommit.getFinalNotifications();
+            } catch (Throwable t) {
+                try {
+                    backend.rollback();
+                } catch (Throwable rollbackFailure) {
+                    Log.LOGGER.debugf(rollbackFailure, "Failed to roll back a failed group of transactions.");
+                }
+                throw t;
+            }
+        }
+
+        @Override
+        public void notifyCommitted(TraversalContext<BE, ?> context,
+                                    List<EntityAndPendingNotifications<BE, ?>> notifications) {
+            context.notifyCommitted(notifications);
+        }
+
+        private static <R, BE> void run(Member<R, BE> member, InventoryBackend<BE> groupBackend,
+                                        Transaction.PreCommit<BE> groupPreCommit) throws Exception {
+            BaseInventory.HidingPrecommit<BE> preCommit = new BaseInventory.HidingPrecommit<>();
+
+            Runnable onCommit = () -> {
+                //the actions and notifications are processed once the whole group is about to be committed
+                preCommit.getHiddenActions().forEach(groupPreCommit::addAction);
+                preCommit.getHiddenNotifications().forEach(groupPreCommit::addNotifications);
+            };
+
+            Transaction<BE> tx = new BackendTransaction<>(
+                    new BaseInventory.TransactionIgnoringBackend<>(groupBackend, onCommit), preCommit);
+            preCommit.initialize(member.context.inventory.keepTransaction(tx), tx);
+
+            member.setResult(member.payload.run(Transaction.Committable.from(tx)));
+        }
+    }
+}
@@ -78,7 +78,8 @@ abstract class Mutator<BE, E extends Entity<?, U>, B extends Blueprint, U extend
      * @return the created entity
      */
     protected final E doCreate(B blueprint) {
-        ResultWithNofifications<E, BE> result = inTxWithNotifications(tx -> doCreate(blueprint, tx).getEntity());
+        ResultWithNofifications<E, BE> result =
+                inGroupableTxWithNotifications(tx -> doCreate(blueprint, tx).getEntity());
 
         E entity = result.getResult();
 
@@ -188,7 +189,7 @@ abstract class Mutator<BE, E extends Entity<?, U>, B extends Blueprint, U extend
     }
 
     public final void update(Id id, U update) throws EntityNotFoundException {
-        inTx(tx -> {
+        inGroupableTx(tx -> {
             Query q = id == null ? context.select().get() : context.select().with(id(id.toString())).get();
             Util.update(context.discriminator(), context.entityClass, tx, q, update, (e, u, t) -> preUpdate(id, e, u, t), this::postUpdate
             );
@@ -197,7 +198,7 @@ abstract class Mutator<BE, E extends Entity<?, U>, B extends Blueprint, U extend
     }
 
     public final void delete(Id id) throws EntityNotFoundException {
-        inTx(tx -> {
+        inGroupableTx(tx -> {
             Query q = id == null ? context.select().get() : context.select().with(id(id.toString())).get();
             Util.delete(context.discriminator(), context.entityClass, tx, q, (e, t) -> preDelete(id, e, t),
                     this::postDelete, false);
@@ -206,7 +207,7 @@ abstract class Mutator<BE, E extends Entity<?, U>, B extends Blueprint, U extend
     }
 
     public final void eradicate(Id id) throws EntityNotFoundException {
-        inTx(tx -> {
+        inGroupableTx(tx -> {
             Query q = id == null ? context.select().get() : context.select().with(id(id.toString())).get();
             Util.delete(context.discriminator(), context.entityClass, tx, q, (e, t) -> preDelete(id, e, t),
                     this::postDelete, true);
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hawkular.inventory.api.Action;
+import org.hawkular.inventory.api.model.AbstractElement;
+import org.hawkular.inventory.paths.CanonicalPath;
+
+/**
+ * Coalesces the notifications of a single transaction so that the subscribers are not flooded with the intermediate
+ * states of the entities.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+final class Notifications {
+
+    private Notifications() {
+
+    }
+
+    /**
+     * Coalesces the notifications per entity:
+     * <ul>
+     *     <li>the updates of an entity created in the same transaction are folded into the creation notification,
+     *     which then carries the latest state of the entity,
+     *     <li>only the last of the repeated hash changes of the same kind is kept.
+     * </ul>
+     * The rest of the notifications is kept intact in the original order.
+     *
+     * @param changes the changes made in a transaction
+     * @return the coalesced list of notifications to send out
+     */
+    static List<Notification<?, ?>> coalesce(List<? extends EntityAndPendingNotifications<?, ?>> changes) {
+        List<Notification<?, ?>> ret = new ArrayList<>();
+        Map<CanonicalPath, Integer> creations = new HashMap<>();
+        Map<List<Object>, Integer> hashChanges = new HashMap<>();
+
+        for (EntityAndPendingNotifications<?, ?> change : changes) {
+            for (Notification<?, ?> n : change.getNotifications()) {
+                Object value = n.getValue();
+                if (!(value instanceof AbstractElement)) {
+                    ret.add(n);
+                    continue;
+                }
+
+                CanonicalPath path = ((AbstractElement<?, ?>) value).getPath();
+                Action.Enumerated action = n.getAction().asEnum();
+
+                switch (action) {
+                    case CREATED:
+                        creations.put(path, ret.size());
+                        ret.add(n);
+                        break;
+                    case UPDATED:
+                        Integer created = creations.get(path);
+                        if (created == null) {
+                            ret.add(n);
+                        } else {
+                            ret.set(created, new Notification<>(value, value, Action.created()));
+                        }
+                        break;
+                    case DELETED:
+                        creations.remove(path);
+                        hashChanges.remove(Arrays.asList(Action.Enumerated.SYNC_HASH_CHANGED, path));
+                        hashChanges.remove(Arrays.asList(Action.Enumerated.IDENTITY_HASH_CHANGED, path));
+                        hashChanges.remove(Arrays.asList(Action.Enumerated.CONTENT_HASH_CHANGED, path));
+                        ret.add(n);
+                        break;
+                    case SYNC_HASH_CHANGED:
+                    case IDENTITY_HASH_CHANGED:
+                    case CONTENT_HASH_CHANGED:
+                        List<Object> key = Arrays.asList(action, path);
+                        Integer previous = hashChanges.get(key);
+                        if (previous == null) {
+                            hashChanges.put(key, ret.size());
+                            ret.add(n);
+                        } else {
+                            ret.set(previous, n);
+                        }
+                        break;
+                    default:
+                        ret.add(n);
+                }
+            }
+        }
+
+        return ret;
+    }
+}
@@ -37,7 +37,11 @@ import org.hawkular.inventory.api.Relationships;
 import org.hawkular.inventory.api.model.Environment;
 import org.hawkular.inventory.api.model.Feed;
 import org.hawkular.inventory.api.model.MetadataPack;
+import org.hawkular.inventory.base.spi.BreadthFirstClosure;
 import org.hawkular.inventory.base.spi.Discriminator;
+import org.hawkular.inventory.base.spi.ElementNotFoundException;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.inventory.paths.SegmentType;
 
 /**
  * Some well-known relationships have certain semantic rules that need to be checked for when creating/deleting them.
@@ -141,28 +145,103 @@ public final class RelationshipRules {
         }
 
         if (direction == Relationships.Direction.incoming) {
-            Iterator<E> closure = backend.getTransitiveClosureOver(discriminator, origin, outgoing, relationship);
-
-            while (closure.hasNext()) {
-                E e = closure.next();
-                if (e.equals(target)) {
-                    throw new IllegalArgumentException("The target and the source (indirectly) form a loop while" +
-                            " traversing over '" + relationship + "' relationships. This is illegal for that" +
-                            " relationship.");
-                }
+            if (isAncestor(discriminator, backend, origin, target, relationship)) {
+                throw new IllegalArgumentException("The target and the source (indirectly) form a loop while" +
+                        " traversing over '" + relationship + "' relationships. This is illegal for that" +
+                        " relationship.");
             }
         } else if (direction == outgoing) {
-            Iterator<E> closure = backend.getTransitiveClosureOver(discriminator, origin, incoming, relationship);
-
-            while (closure.hasNext()) {
-                E e = closure.next();
-                if (e.equals(target)) {
-                    throw new IllegalArgumentException("The source and the target (indirectly) form a loop while" +
-                            " traversing over '" + relationship + "' relationships. This is illegal for that" +
-                            " relationship.");
-                }
+            if (isAncestor(discriminator, backend, target, origin, relationship)) {
+                throw new IllegalArgumentException("The source and the target (indirectly) form a loop while" +
+                        " traversing over '" + relationship + "' relationships. This is illegal for that" +
+                        " relationship.");
+            }
+        }
+    }
+
+    /**
+     * Checks whether the candidate is an ancestor of the entity in the hierarchy formed by the relationships of the
+     * provided name.
+     *
+     * <p>For the tree-shaped well-known relationships, the canonical paths of the entities serve as an ancestry index
+     * that is always maintained by the backend, so that we don't have to traverse the hierarchy.
+     */
+    private static <E> boolean isAncestor(Discriminator discriminator, Transaction<E> backend, E candidate, E entity,
+                                          String relationship) {
+        if (contains.name().equals(relationship)) {
+            return isContainsAncestor(discriminator, backend, candidate, entity);
+        }
+
+        if (isParentOf.name().equals(relationship)) {
+            //a resource contained in another resource is always also its child, but the isParentOf hierarchy is
+            //not a tree, so the canonical paths can only give us a definite answer in one direction...
+            CanonicalPath candidatePath = backend.extractCanonicalPath(candidate);
+            CanonicalPath entityPath = backend.extractCanonicalPath(entity);
+            if (candidatePath.getSegment().getElementType() == SegmentType.r
+                    && entityPath.getSegment().getElementType() == SegmentType.r
+                    && candidatePath.isParentOf(entityPath)) {
+                return true;
+            }
+
+            //... or if the candidate has no children at all, which is always the case when creating a new resource
+            if (!backend.hasRelationship(discriminator, candidate, outgoing, relationship)) {
+                return false;
+            }
+        }
+
+        Iterator<E> closure = backend.streamTransitiveClosureOver(discriminator, entity, incoming,
+                BreadthFirstClosure.UNLIMITED_DEPTH, relationship);
+
+        while (closure.hasNext()) {
+            if (closure.next().equals(candidate)) {
+                return true;
             }
         }
+
+        return false;
+    }
+
+    /**
+     * The {@code contains} relationships form a tree (see {@link #checkDiamonds(Discriminator, Transaction, Object,
+     * Relationships.Direction, String, Object)}) that, within a tenant, exactly follows the canonical paths of the
+     * entities. Only the tenants can be explicitly made contained in other entities, because they are the only
+     * entities without a parent.
+     *
+     * <p>Therefore, to find out whether the candidate is an ancestor of the entity, we only need to compare the
+     * canonical paths and walk up the (usually empty) chain of the tenants.
+     */
+    private static <E> boolean isContainsAncestor(Discriminator discriminator, Transaction<E> backend, E candidate,
+                                                  E entity) {
+        CanonicalPath candidatePath = backend.extractCanonicalPath(candidate);
+
+        E current = entity;
+        while (true) {
+            CanonicalPath currentPath = backend.extractCanonicalPath(current);
+            if (candidatePath.equals(currentPath) || candidatePath.isParentOf(currentPath)) {
+                return true;
+            }
+
+            String tenantId = currentPath.ids().getTenantId();
+            if (tenantId == null) {
+                return false;
+            }
+
+            E tenant;
+            try {
+                tenant = backend.find(discriminator, CanonicalPath.of().tenant(tenantId).get());
+            } catch (ElementNotFoundException e) {
+                return false;
+            }
+
+            Iterator<E> parents = backend.getRelationships(discriminator, tenant, incoming, contains.name())
+                    .iterator();
+
+            if (!parents.hasNext()) {
+                return false;
+            }
+
+            current = backend.getRelationshipSource(discriminator, parents.next());
+        }
     }
 
     private static <E> void disallowDelete(Discriminator discriminator, Transaction<E> backend, E origin, Relationships.Direction direction,
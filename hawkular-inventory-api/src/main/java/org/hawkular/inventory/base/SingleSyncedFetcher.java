@@ -68,11 +68,11 @@ import org.hawkular.inventory.api.model.SyncConfiguration;
 import org.hawkular.inventory.api.model.SyncHash;
 import org.hawkular.inventory.api.model.SyncRequest;
 import org.hawkular.inventory.api.model.Syncable;
+import org.hawkular.inventory.base.spi.BreadthFirstClosure;
 import org.hawkular.inventory.base.spi.ElementNotFoundException;
 import org.hawkular.inventory.paths.CanonicalPath;
 import org.hawkular.inventory.paths.DataRole;
 import org.hawkular.inventory.paths.ElementTypeVisitor;
-import org.hawkular.inventory.paths.Path;
 import org.hawkular.inventory.paths.RelativePath;
 import org.hawkular.inventory.paths.SegmentType;
 
@@ -90,7 +90,7 @@ abstract class SingleSyncedFetcher<BE, E extends Entity<B, U> & Syncable, B exte
     }
 
     @Override public void synchronize(SyncRequest<B> syncRequest) {
-        inTx(tx -> {
+        underWriteLock(context, () -> inTx(tx -> {
             BE root = tx.querySingle(context.discriminator(), context.select().get());
 
             boolean rootFullyInitialized = true;
@@ -115,15 +115,21 @@ abstract class SingleSyncedFetcher<BE, E extends Entity<B, U> & Syncable, B exte
 
             SyncHash.Tree currentTree = structAndTree.getValue();
             InventoryStructure<B> currentStructure = structAndTree.getKey();
-            InventoryStructure<B> newStructure =
-                    mergeTree(currentStructure, syncRequest.getInventoryStructure(), syncRequest.getConfiguration());
+            InventoryStructure<B> newStructure;
+            if (rootFullyInitialized) {
+                newStructure = mergeTree(currentStructure, syncRequest.getInventoryStructure(),
+                        syncRequest.getConfiguration());
+            } else {
+                //there's nothing to merge with under a freshly created root
+                newStructure = InventoryStructure.Compact.copy(syncRequest.getInventoryStructure());
+            }
 
             SyncHash.Tree newTree = SyncHash.treeOf(newStructure, rootPath);
 
             syncTrees(tx, rootPath, root, currentTree, newTree, newStructure);
 
             return null;
-        });
+        }));
     }
 
     @Override public SyncHash.Tree treeHash() {
@@ -131,60 +137,9 @@ abstract class SingleSyncedFetcher<BE, E extends Entity<B, U> & Syncable, B exte
     }
 
     private InventoryStructure<B> mergeTree(InventoryStructure<B> currentTree, InventoryStructure<B> newTree,
-                                    SyncConfiguration configuration) {
-        if (configuration.isDeepSearch()) {
-            return mergeDeepTree(InventoryStructure.Offline.copy(currentTree).asBuilder(),
-                    InventoryStructure.Offline.copy(newTree).asBuilder(), configuration.getSyncedTypes()).build();
-        } else {
-            return mergeShallowTree(InventoryStructure.Offline.copy(currentTree).asBuilder(),
-                    InventoryStructure.Offline.copy(newTree).asBuilder(), configuration.getSyncedTypes()).build();
-        }
-    }
-
-    @SuppressWarnings("unchecked")
-    private InventoryStructure.Builder<B> mergeShallowTree(InventoryStructure.AbstractBuilder<?> currentTree,
-                                                           InventoryStructure.AbstractBuilder<?> newTree,
-                                                           Set<SegmentType> mergedTypes) {
-
-        Set<Path.Segment> currentChildPaths = currentTree.getChildrenPaths();
-        Set<Path.Segment> newChildPaths = newTree.getChildrenPaths();
-
-        for (Path.Segment ccp : currentChildPaths) {
-            if (newChildPaths.contains(ccp)) {
-                mergeShallowTree(currentTree.getChild(ccp), newTree.getChild(ccp), mergedTypes);
-            } else if (!mergedTypes.contains(ccp.getElementType())) {
-                newTree.addChild(currentTree.getChild(ccp), true);
-            }
-        }
-
-        if (newTree instanceof InventoryStructure.Builder) {
-            return (InventoryStructure.Builder<B>) newTree;
-        } else {
-            return null;
-        }
-    }
-
-    @SuppressWarnings("unchecked")
-    private InventoryStructure.Builder<B> mergeDeepTree(InventoryStructure.AbstractBuilder<?> currentTree,
-                                                        InventoryStructure.AbstractBuilder<?> newTree,
-                                                        Set<SegmentType> mergedTypes) {
-        Set<Path.Segment> currentChildPaths = currentTree.getChildrenPaths();
-        Set<Path.Segment> newChildPaths = newTree.getChildrenPaths();
-
-        for (Path.Segment ccp : currentChildPaths) {
-            if (newChildPaths.contains(ccp)) {
-                mergeDeepTree(currentTree.getChild(ccp), newTree.getChild(ccp), mergedTypes);
-            } else if (!mergedTypes.contains(ccp.getElementType())) {
-                newTree.addChild(currentTree.getChild(ccp).getBlueprint());
-                mergeDeepTree(currentTree.getChild(ccp), newTree.getChild(ccp), mergedTypes);
-            }
-        }
-
-        if (newTree instanceof InventoryStructure.Builder) {
-            return (InventoryStructure.Builder<B>) newTree;
-        } else {
-            return null;
-        }
+                                            SyncConfiguration configuration) {
+        return InventoryStructure.Compact.merge(currentTree, newTree, configuration.getSyncedTypes(),
+                configuration.isDeepSearch());
     }
 
     @SuppressWarnings("unchecked")
@@ -402,8 +357,9 @@ abstract class SingleSyncedFetcher<BE, E extends Entity<B, U> & Syncable, B exte
 
         bld.withPath(RelativePath.empty().get()).withHash(entity.getSyncHash());
 
-        //the closure is returned in a breadth-first manner
-        Iterator<BE> closure = tx.getTransitiveClosureOver(context.discriminator(), root, outgoing, contains.name());
+        //the closure is returned in a breadth-first manner and evaluated lazily as we progress through the tree
+        Iterator<BE> closure = tx.streamTransitiveClosureOver(context.discriminator(), root, outgoing,
+                BreadthFirstClosure.UNLIMITED_DEPTH, contains.name());
 
         if (closure.hasNext()) {
             Function<BE, Entity<? extends Entity.Blueprint, ?>> convert =
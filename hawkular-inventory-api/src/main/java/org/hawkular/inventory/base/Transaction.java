@@ -126,6 +126,10 @@ public interface Transaction<E> {
                                          Relationships.Direction direction,
                                          String... relationshipNames);
 
+    Iterator<E> streamTransitiveClosureOver(Discriminator discriminator, E startingPoint,
+                                            Relationships.Direction direction, int maxDepth,
+                                            String... relationshipNames);
+
     boolean hasRelationship(Discriminator discriminator, E entity, Relationships.Direction direction,
                             String relationshipName);
 
@@ -150,6 +154,8 @@ public interface Transaction<E> {
 
     E querySingle(Discriminator discriminator, Query query);
 
+    long count(Discriminator discriminator, Query query);
+
     E relate(Discriminator discriminator, E sourceEntity, E targetEntity, String name,
              Map<String, Object> properties);
 
@@ -17,6 +17,8 @@
 package org.hawkular.inventory.base;
 
 import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
 
 import org.hawkular.inventory.api.EntityNotFoundException;
 import org.hawkular.inventory.api.Query;
@@ -91,6 +93,74 @@ public abstract class Traversal<BE, E extends AbstractElement<?, ?>> {
         return inCommittableTxWithNotifications(context, TransactionPayload.Committing.committing(payload));
     }
 
+    /**
+     * Identical to {@link #inTx(TransactionPayload)} but marks the payload as an independent write that can be run
+     * together with other concurrent writes in a single backend transaction, if the group commit is enabled.
+     *
+     * @param payload the payload to run within a transaction
+     * @param <R> the type of the result returned from the payload
+     * @return the result of the payload
+     * @see BaseInventory#GROUP_COMMIT_WINDOW
+     */
+    protected <R> R inGroupableTx(TransactionPayload<R, BE> payload) {
+        return inGroupableTx(context, payload);
+    }
+
+    /**
+     * A combination of {@link #inGroupableTx(TransactionPayload)} and
+     * {@link #inTxWithNotifications(TransactionPayload)}.
+     *
+     * @param payload the payload to run within a transaction
+     * @param <R> the type of the result returned from the payload
+     * @return the result of the payload together with the notifications sent as a result of the transaction
+     */
+    protected <R> ResultWithNofifications<R, BE> inGroupableTxWithNotifications(TransactionPayload<R, BE> payload) {
+        return inGroupableTxWithNotifications(context, payload);
+    }
+
+    protected static <R, BE, E extends AbstractElement<?, ?>>
+    R inGroupableTx(TraversalContext<BE, E> context, TransactionPayload<R, BE> payload) {
+        return inGroupableTxWithNotifications(context, payload).getResult();
+    }
+
+    protected static <R, BE, E extends AbstractElement<?, ?>>
+    ResultWithNofifications<R, BE> inGroupableTxWithNotifications(TraversalContext<BE, E> context,
+                                                                    TransactionPayload<R, BE> payload) {
+        GroupCommit<BE> groupCommit = context.inventory.getGroupCommit();
+        TransactionPayload.Committing<R, BE> committing = TransactionPayload.Committing.committing(payload);
+
+        //the group commit takes the write locks itself once it knows the group, so that the lock is not held while
+        //waiting for the others to join
+        return groupCommit == null
+                ? underWriteLock(context, () -> inCommittableTxWithNotifications(context, committing))
+                : groupCommit.submit(context, committing);
+    }
+
+    /**
+     * Runs the action while holding the in-process write lock of the subtree the context points to, if write locks
+     * are enabled.
+     *
+     * @param context the context of the write
+     * @param action  the action performing the write
+     * @param <R>     the type of the result of the action
+     * @return the result of the action
+     * @see BaseInventory#WRITE_LOCK_DEPTH
+     */
+    protected static <R> R underWriteLock(TraversalContext<?, ?> context, Supplier<R> action) {
+        WriteLocks writeLocks = context.inventory.getWriteLocks();
+        Lock lock = writeLocks == null ? null : writeLocks.lockFor(context.select().get());
+        if (lock == null) {
+            return action.get();
+        }
+
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
     protected static <R, BE, E extends AbstractElement<?, ?>>
     R inTx(TraversalContext<BE, E> context, TransactionPayload<R, BE> payload) {
         return inCommittableTx(context, TransactionPayload.Committing.committing(payload));
@@ -106,7 +176,7 @@ public abstract class Traversal<BE, E extends AbstractElement<?, ?>> {
             R v = payload.run(tx);
 
             //k, now the transaction finished, we can send out the notifications
-            tx.getPreCommit().getFinalNotifications().forEach(context::notifyAll);
+            context.notifyCommitted(tx.getPreCommit().getFinalNotifications());
 
             return v;
         });
@@ -121,7 +191,7 @@ public abstract class Traversal<BE, E extends AbstractElement<?, ?>> {
             List<EntityAndPendingNotifications<BE, ?>> notifs = tx.getPreCommit().getFinalNotifications();
 
             //k, now the transaction finished, we can send out the notifications
-            notifs.forEach(context::notifyAll);
+            context.notifyCommitted(notifs);
 
             return new ResultWithNofifications<>(v, notifs);
         });
@@ -132,7 +202,7 @@ public abstract class Traversal<BE, E extends AbstractElement<?, ?>> {
         private final List<EntityAndPendingNotifications<BE, ?>> sentNotifications;
 
 
-        private ResultWithNofifications(R result, List<EntityAndPendingNotifications<BE, ?>> sentNotifications) {
+        ResultWithNofifications(R result, List<EntityAndPendingNotifications<BE, ?>> sentNotifications) {
             this.result = result;
             this.sentNotifications = sentNotifications;
         }
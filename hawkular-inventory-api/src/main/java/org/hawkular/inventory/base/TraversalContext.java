@@ -19,14 +19,17 @@ package org.hawkular.inventory.base;
 import static org.hawkular.inventory.api.filters.With.type;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.function.BiConsumer;
 
 import javax.annotation.Nullable;
 
 import org.hawkular.inventory.api.Action;
 import org.hawkular.inventory.api.Configuration;
+import org.hawkular.inventory.api.Interest;
 import org.hawkular.inventory.api.Parents;
 import org.hawkular.inventory.api.Query;
 import org.hawkular.inventory.api.Relationships;
@@ -342,12 +345,32 @@ public final class TraversalContext<BE, E extends AbstractElement<?, ?>> {
     }
 
     /**
-     * Sends out all the pending notifications in the supplied object.
+     * Sends out the notifications of a committed transaction. The notifications are first
+     * {@link Notifications#coalesce(List) coalesced} and, if there is any interest in it, a single
+     * {@link Action#committed()} event with the whole change set of the transaction is sent out after them.
      *
-     * @param entityAndNotifications the list of pending notifications
+     * @param changes the changes made in the transaction with their pending notifications
      */
-    void notifyAll(EntityAndPendingNotifications<BE, ?> entityAndNotifications) {
-        entityAndNotifications.getNotifications().forEach(this::notify);
+    void notifyCommitted(List<? extends EntityAndPendingNotifications<BE, ?>> changes) {
+        List<Notification<?, ?>> notifications = Notifications.coalesce(changes);
+        notifications.forEach(this::notify);
+
+        if (notifications.isEmpty() || !observableContext.isObserved(Interest.in(Action.TransactionCommit.class)
+                .being(Action.committed()))) {
+            return;
+        }
+
+        List<Action.TransactionCommit.Event<?, ?>> events = new ArrayList<>(notifications.size());
+        for (Notification<?, ?> n : notifications) {
+            events.add(toEvent(n));
+        }
+
+        notify(new Action.TransactionCommit(events), Action.committed());
+    }
+
+    private static <C, V> Action.TransactionCommit.Event<C, V> toEvent(Notification<C, V> notification) {
+        return new Action.TransactionCommit.Event<>(notification.getAction(), notification.getValue(),
+                notification.getActionContext());
     }
 
     /**
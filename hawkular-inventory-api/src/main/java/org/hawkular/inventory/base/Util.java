@@ -37,10 +37,13 @@ import org.hawkular.inventory.api.EntityNotFoundException;
 import org.hawkular.inventory.api.InventoryException;
 import org.hawkular.inventory.api.Log;
 import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.QueryFragment;
 import org.hawkular.inventory.api.RelationAlreadyExistsException;
 import org.hawkular.inventory.api.RelationNotFoundException;
 import org.hawkular.inventory.api.Relationships;
+import org.hawkular.inventory.api.filters.Filter;
 import org.hawkular.inventory.api.filters.Marker;
+import org.hawkular.inventory.api.filters.Related;
 import org.hawkular.inventory.api.filters.With;
 import org.hawkular.inventory.api.model.AbstractElement;
 import org.hawkular.inventory.api.model.Relationship;
@@ -284,6 +287,44 @@ final class Util {
         }
     }
 
+    /**
+     * Finds the deepest canonical paths that are known to contain all the elements selected by the query, without
+     * consulting the backend. These are the paths of the last canonical path filter in the query, provided the rest of
+     * the query only narrows down the elements or descends into their subtrees.
+     *
+     * @param query the query to examine
+     * @return the paths of the selected elements or of their ancestors or null if they cannot be determined
+     */
+    public static CanonicalPath[] resolvedPaths(Query query) {
+        if (!query.getSubTrees().isEmpty()) {
+            return null;
+        }
+
+        CanonicalPath[] ret = null;
+        for (QueryFragment fragment : query.getFragments()) {
+            Filter filter = fragment.getFilter();
+            if (filter instanceof With.CanonicalPaths) {
+                ret = ((With.CanonicalPaths) filter).getPaths();
+            } else if (!(filter instanceof With.Types || filter instanceof With.Ids
+                    || filter instanceof With.PropertyValues || isDescendingContains(filter))) {
+                ret = null;
+            }
+        }
+
+        return ret == null || ret.length == 0 ? null : ret;
+    }
+
+    private static boolean isDescendingContains(Filter filter) {
+        if (!(filter instanceof Related)) {
+            return false;
+        }
+
+        Related related = (Related) filter;
+        return related.getEntityPath() == null && related.getRelationshipId() == null
+                && related.getEntityRole() == Related.EntityRole.SOURCE
+                && contains.name().equals(related.getRelationshipName());
+    }
+
     @SuppressWarnings("unchecked")
     public static <BE, E extends AbstractElement<?, U>, U extends AbstractElement.Update> void update(
             Discriminator discriminator, Class<E> entityClass,
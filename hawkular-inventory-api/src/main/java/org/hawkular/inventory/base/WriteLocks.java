@@ -0,0 +1,140 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.base;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.inventory.paths.Path;
+import org.hawkular.inventory.paths.SegmentType;
+
+/**
+ * Serializes the writers to the same subtree of the inventory within this process, so that they don't conflict with
+ * each other at commit time and don't have to wait out the retries.
+ *
+ * <p>The subtree is identified by the prefix of the canonical path of the written entity of the configured depth.
+ * E.g. with the depth of 2, all the writes under a single feed or environment are serialized, while the writes to
+ * different feeds or environments can proceed in parallel. The locks are striped, so the writes into different
+ * subtrees can occasionally wait for each other, too.
+ *
+ * <p>The written entity is determined from the deepest canonical path the query resolves to without consulting the
+ * backend (see {@link Util#resolvedPaths(Query)}).
+ *
+ * <p>This is just an optimization. The writes for which the subtree cannot be determined without consulting the
+ * backend are not locked at all and the transactions still have to cope with the conflicts with the other processes
+ * accessing the same backend.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+final class WriteLocks {
+    private final int depth;
+    private final Lock[] stripes;
+
+    /**
+     * @param depth   the number of path segments identifying the locked subtree
+     * @param stripes the number of locks to distribute the subtrees over
+     */
+    WriteLocks(int depth, int stripes) {
+        this.depth = depth;
+        this.stripes = new Lock[stripes];
+        for (int i = 0; i < stripes; ++i) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @param query the query to the element being written to
+     * @return the lock to hold while writing or null if the written subtree cannot be determined from the query
+     */
+    Lock lockFor(Query query) {
+        int stripe = stripeOf(Util.resolvedPaths(query));
+        return stripe < 0 ? null : stripes[stripe];
+    }
+
+    /**
+     * Returns the locks to hold while performing several writes at once. The locks are returned in the order in which
+     * they need to be taken so that the concurrent callers of this method cannot deadlock each other.
+     *
+     * @param writes the paths written to by each of the writes, as returned by {@link Util#resolvedPaths(Query)}
+     * @return the locks to hold, never null
+     */
+    List<Lock> locksFor(List<CanonicalPath[]> writes) {
+        return writes.stream().mapToInt(this::stripeOf).filter(i -> i >= 0).distinct().sorted()
+                .mapToObj(i -> stripes[i]).collect(toList());
+    }
+
+    /**
+     * @param query the query to the element being written to
+     * @return the path identifying the locked subtree or null if it cannot be determined from the query
+     */
+    CanonicalPath subtreeOf(Query query) {
+        return subtreeOf(Util.resolvedPaths(query));
+    }
+
+    private int stripeOf(CanonicalPath[] paths) {
+        CanonicalPath subtree = subtreeOf(paths);
+        if (subtree == null) {
+            return -1;
+        }
+
+        int hash = subtree.hashCode();
+        hash ^= (hash >>> 16);
+
+        return Math.floorMod(hash, stripes.length);
+    }
+
+    private CanonicalPath subtreeOf(CanonicalPath[] paths) {
+        if (paths == null) {
+            return null;
+        }
+
+        CanonicalPath ret = null;
+        for (CanonicalPath cp : paths) {
+            CanonicalPath prefix = prefixOf(cp);
+            if (prefix == null || (ret != null && !ret.equals(prefix))) {
+                //multiple subtrees could be written to... let's not bother with locking them all
+                return null;
+            }
+            ret = prefix;
+        }
+
+        return ret;
+    }
+
+    private CanonicalPath prefixOf(CanonicalPath cp) {
+        if (SegmentType.rl.equals(cp.getSegment().getElementType())) {
+            return null;
+        }
+
+        CanonicalPath.Extender prefix = CanonicalPath.empty();
+        int i = 0;
+        for (Path.Segment seg : cp.getPath()) {
+            if (i++ == depth) {
+                break;
+            }
+            prefix.extend(seg);
+        }
+
+        return prefix.get();
+    }
+}
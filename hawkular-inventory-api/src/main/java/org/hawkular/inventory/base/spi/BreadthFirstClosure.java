@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.base.spi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A lazy, breadth-first iterator over the transitive closure of some starting element.
+ *
+ * <p>The closure is evaluated level by level. The elements of the current level are split into chunks of at most
+ * {@code chunkSize} elements and the next level is computed by calling the expansion function on the chunks one by
+ * one, only as the caller progresses through the results. Each element is returned at most once - the elements are
+ * deduplicated using the provided id extractor. The starting element is never returned.
+ *
+ * <p>Only the ids of the seen elements, the current chunk of results and the next level of the closure are kept in
+ * memory, so the callers can stop iterating at any time without the rest of the closure ever being computed.
+ *
+ * @param <E> the type of the backend elements
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+public final class BreadthFirstClosure<E> implements Iterator<E> {
+    /**
+     * The value of max depth signifying that the whole closure should be traversed.
+     */
+    public static final int UNLIMITED_DEPTH = -1;
+
+    private final int maxDepth;
+    private final int chunkSize;
+    private final Function<E, ?> idExtractor;
+    private final Function<List<E>, List<E>> expansion;
+    private final Set<Object> seen = new HashSet<>();
+
+    private List<E> currentLevel;
+    private int currentLevelIndex;
+    private List<E> nextLevel = new ArrayList<>();
+    private Iterator<E> currentChunk = Collections.emptyIterator();
+    private int depth = 1;
+    private E next;
+
+    /**
+     * @param startingPoint the element to start the traversal from
+     * @param maxDepth      the maximum number of hops from the starting point to traverse or
+     *                      {@link #UNLIMITED_DEPTH}
+     * @param chunkSize     the maximum number of elements to pass to a single invocation of the expansion function
+     * @param idExtractor   extracts the backend id out of an element, used for deduplication
+     * @param expansion     given a chunk of elements, returns all the elements directly reachable from them. The
+     *                      returned list may contain duplicates or already seen elements.
+     */
+    public BreadthFirstClosure(E startingPoint, int maxDepth, int chunkSize, Function<E, ?> idExtractor,
+                               Function<List<E>, List<E>> expansion) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive.");
+        }
+
+        this.maxDepth = maxDepth;
+        this.chunkSize = chunkSize;
+        this.idExtractor = idExtractor;
+        this.expansion = expansion;
+
+        seen.add(idExtractor.apply(startingPoint));
+        currentLevel = maxDepth == 0 ? Collections.emptyList() : Collections.singletonList(startingPoint);
+    }
+
+    @Override public boolean hasNext() {
+        if (next == null) {
+            next = advance();
+        }
+
+        return next != null;
+    }
+
+    @Override public E next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        E ret = next;
+        next = null;
+        return ret;
+    }
+
+    private E advance() {
+        while (true) {
+            while (currentChunk.hasNext()) {
+                E candidate = currentChunk.next();
+                if (seen.add(idExtractor.apply(candidate))) {
+                    if (maxDepth == UNLIMITED_DEPTH || depth < maxDepth) {
+                        nextLevel.add(candidate);
+                    }
+                    return candidate;
+                }
+            }
+
+            if (currentLevelIndex < currentLevel.size()) {
+                int end = Math.min(currentLevel.size(), currentLevelIndex + chunkSize);
+                currentChunk = expansion.apply(currentLevel.subList(currentLevelIndex, end)).iterator();
+                currentLevelIndex = end;
+                continue;
+            }
+
+            if (nextLevel.isEmpty()) {
+                return null;
+            }
+
+            currentLevel = nextLevel;
+            currentLevelIndex = 0;
+            nextLevel = new ArrayList<>();
+            depth++;
+        }
+    }
+}
@@ -68,4 +68,9 @@ public final class Discriminator {
     public Discriminator excludeDeletedInMillisecond() {
         return new Discriminator(time, false);
     }
+
+    @Override public String toString() {
+        return "Discriminator[" + "time=" + (queryLatest ? "latest" : time) + ", preferExistence=" + preferExistence
+                + ']';
+    }
 }
@@ -18,12 +18,15 @@ package org.hawkular.inventory.base.spi;
 
 import java.io.InputStream;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
 
 import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.QueryExplanation;
 import org.hawkular.inventory.api.Relationships;
 import org.hawkular.inventory.api.model.AbstractElement;
 import org.hawkular.inventory.api.model.Blueprint;
@@ -91,6 +94,39 @@ public interface InventoryBackend<E> extends AutoCloseable {
      */
     Page<E> query(Discriminator discriminator, Query query, Pager pager);
 
+    /**
+     * Counts the elements matching the query. The elements are counted as if they were returned from
+     * {@link #query(Discriminator, Query, Pager, Function, Function)} with no filter.
+     *
+     * <p>The default implementation runs the query for a single-element page and returns its total size. The backends
+     * are encouraged to count the elements without loading them.
+     *
+     * @param discriminator the discriminator to apply on the query
+     * @param query         the query to count the results of
+     * @return the number of the elements matching the query
+     */
+    default long count(Discriminator discriminator, Query query) {
+        try (Page<E> page = query(discriminator, query, Pager.single(), Function.identity(), null)) {
+            return page.getTotalSize();
+        }
+    }
+
+    /**
+     * Explains how the query is translated to the backend-specific representation and how it is executed.
+     *
+     * <p>The default implementation only provides the query itself. The backends are encouraged to describe the
+     * translation.
+     *
+     * @param discriminator the discriminator to apply on the query
+     * @param query         the query to explain
+     * @param pager         the page of the results the query would be executed for
+     * @param profile       whether to also execute the query for the page and gather the statistics of the execution
+     * @return the explanation of the query
+     */
+    default QueryExplanation explain(Discriminator discriminator, Query query, Pager pager, boolean profile) {
+        return new QueryExplanation(query.toString(), null, null, null);
+    }
+
     E querySingle(Discriminator discriminator, Query query);
 
     /**
@@ -142,6 +178,41 @@ public interface InventoryBackend<E> extends AutoCloseable {
                                          Relationships.Direction direction,
                                          String... relationshipNames);
 
+    /**
+     * A streaming variant of
+     * {@link #getTransitiveClosureOver(Discriminator, Object, Relationships.Direction, String...)}.
+     *
+     * <p>The returned iterator is lazy - the closure is evaluated breadth-first only as the caller progresses through
+     * the results and the caller can stop iterating at any time. Each element is returned only once. Because of the
+     * lazy evaluation, the caller must not modify the relationships being traversed while iterating.
+     *
+     * <p>The default implementation is based on
+     * {@link #getRelationships(Discriminator, Object, Relationships.Direction, String...)}, the backends are
+     * encouraged to provide a more efficient one.
+     *
+     * @param discriminator     the discriminator to apply on the query
+     * @param startingPoint     the starting element
+     * @param direction         any of the valid directions including {@link Relationships.Direction#both}.
+     * @param maxDepth          the maximum number of hops from the starting point or
+     *                          {@link BreadthFirstClosure#UNLIMITED_DEPTH}
+     * @param relationshipNames the names of the relationships to follow when composing the transitive closure
+     * @return a lazy breadth-first iterator over the transitive closure
+     */
+    default Iterator<E> streamTransitiveClosureOver(Discriminator discriminator, E startingPoint,
+                                                    Relationships.Direction direction, int maxDepth,
+                                                    String... relationshipNames) {
+        return new BreadthFirstClosure<>(startingPoint, maxDepth, 1, Function.identity(), chunk -> {
+            List<E> ret = new ArrayList<>();
+            for (E e : chunk) {
+                for (E rel : getRelationships(discriminator, e, direction, relationshipNames)) {
+                    E source = getRelationshipSource(discriminator, rel);
+                    ret.add(e.equals(source) ? getRelationshipTarget(discriminator, rel) : source);
+                }
+            }
+            return ret;
+        });
+    }
+
     /**
      * Checks whether there exists any relationship in given direction relative to the given entity with given name.
      *
@@ -1094,6 +1094,47 @@ public abstract class AbstractBaseInventoryTestsuite<E> {
         }
     }
 
+    @Test
+    public void testCount() throws Exception {
+        Resources.ReadContained resources = inventory.tenants().get("com.example.tenant").environments().get("test")
+                .resources();
+
+        Assert.assertEquals(resources.getAll().entities().size(), resources.getAll().count());
+        Assert.assertEquals(inventory.tenants().getAll().entities().size(), inventory.tenants().getAll().count());
+        Assert.assertEquals(0, resources.getAll(id("nonexistent")).count());
+        Assert.assertEquals(15, inventory.count(Query.path().with(type(Resource.class)).get()));
+
+        //traversals over several hops and over relationships are counted in the backend, too
+        ResolvableToMany<?> metrics = inventory.tenants().getAll().feeds().getAll()
+                .resources().getAll().metrics().getAll();
+        Assert.assertEquals(metrics.entities().size(), metrics.count());
+
+        ResolvableToMany<?> rels = inventory.tenants().get("com.example.tenant").relationships(outgoing)
+                .named("contains");
+        Assert.assertEquals(rels.entities().size(), rels.count());
+    }
+
+    @Test
+    public void testPathsAndIds() throws Exception {
+        Resources.ReadContained resources = inventory.tenants().get("com.example.tenant").environments().get("test")
+                .resources();
+
+        Set<CanonicalPath> expectedPaths = resources.getAll().entities().stream().map(Resource::getPath)
+                .collect(toSet());
+
+        //toList() closes the pages
+        List<CanonicalPath> paths = resources.getAll().paths(Pager.unlimited(Order.unspecified())).toList();
+        Assert.assertEquals(expectedPaths, new HashSet<>(paths));
+
+        List<String> ids = resources.getAll().ids(Pager.unlimited(Order.unspecified())).toList();
+        Assert.assertEquals(expectedPaths.stream().map(p -> p.getSegment().getElementId()).collect(toSet()),
+                new HashSet<>(ids));
+
+        List<CanonicalPath> allPaths = inventory.paths(Query.path().with(type(Resource.class)).get(),
+                Pager.unlimited(Order.unspecified())).toList();
+        Assert.assertTrue(allPaths.containsAll(expectedPaths));
+    }
+
     @Test
     public void testResourcesFilteredByTypeProperty() throws Exception {
         Set<Resource> resources = inventory.tenants().get("com.example.tenant").environments().get("test")
@@ -1581,6 +1622,96 @@ public abstract class AbstractBaseInventoryTestsuite<E> {
         }
     }
 
+    @Test
+    public void testContainsLoopChecksUsePaths() throws Exception {
+        Tenant a = inventory.tenants().create(Tenant.Blueprint.builder().withId("testContainsLoopChecksUsePaths-a")
+                .build()).entity();
+        Tenant b = inventory.tenants().create(Tenant.Blueprint.builder().withId("testContainsLoopChecksUsePaths-b")
+                .build()).entity();
+
+        try {
+            Feeds.Single feed = inventory.inspect(a).feeds().create(Feed.Blueprint.builder().withId("f").build());
+            inventory.inspect(a).resourceTypes().create(ResourceType.Blueprint.builder().withId("rt").build());
+            Resource child = feed.resources()
+                    .create(Resource.Blueprint.builder().withId("parent").withResourceTypePath("/rt").build())
+                    .resources()
+                    .create(Resource.Blueprint.builder().withId("child").withResourceTypePath("/rt").build())
+                    .entity();
+
+            //the feed is an ancestor of the child by the canonical paths
+            try {
+                inventory.inspect(child).relationships(outgoing).linkWith(contains, feed.entity().getPath(), null);
+                Assert.fail("Loops in contains should be disallowed");
+            } catch (IllegalArgumentException e) {
+                //expected
+            }
+
+            //the tenants are not related by the paths, so this is fine
+            inventory.inspect(a).relationships(outgoing).linkWith(contains, b.getPath(), null);
+
+            //b is now contained in a, so the entities in b have a as their ancestor, even though their paths don't
+            //show it
+            Environment env = inventory.inspect(b).environments()
+                    .create(Environment.Blueprint.builder().withId("env").build()).entity();
+            try {
+                inventory.inspect(env).relationships(outgoing).linkWith(contains, a.getPath(), null);
+                Assert.fail("Loops in contains over the contained tenants should be disallowed");
+            } catch (IllegalArgumentException e) {
+                //expected
+            }
+        } finally {
+            inventory.tenants().delete(b.getId());
+            inventory.tenants().delete(a.getId());
+        }
+    }
+
+    @Test
+    public void testIsParentOfLoopChecks() throws Exception {
+        Tenant t = inventory.tenants().create(Tenant.Blueprint.builder().withId("testIsParentOfLoopChecks").build())
+                .entity();
+
+        try {
+            inventory.inspect(t).resourceTypes().create(ResourceType.Blueprint.builder().withId("rt").build());
+            Feeds.Single feed = inventory.inspect(t).feeds().create(Feed.Blueprint.builder().withId("f").build());
+
+            Resources.Single a = feed.resources()
+                    .create(Resource.Blueprint.builder().withId("a").withResourceTypePath("/rt").build());
+            Resources.Single b = feed.resources()
+                    .create(Resource.Blueprint.builder().withId("b").withResourceTypePath("/rt").build());
+            Resources.Single z = feed.resources()
+                    .create(Resource.Blueprint.builder().withId("z").withResourceTypePath("/rt").build());
+            Resources.Single contained = a.resources()
+                    .create(Resource.Blueprint.builder().withId("contained").withResourceTypePath("/rt").build());
+
+            //a is the parent of the contained resource by the canonical paths
+            try {
+                contained.allResources().associate(a.entity().getPath());
+                Assert.fail("Loops in isParentOf over the contained resources should be disallowed");
+            } catch (IllegalArgumentException e) {
+                //expected
+            }
+
+            //b has no children, so it cannot be an ancestor of a
+            a.allResources().associate(b.entity().getPath());
+
+            //a has children, so the hierarchy is traversed to find out that a is an ancestor of b
+            try {
+                b.allResources().associate(a.entity().getPath());
+                Assert.fail("Loops in isParentOf should be disallowed");
+            } catch (IllegalArgumentException e) {
+                //expected
+            }
+
+            //a has children but is not an ancestor of z
+            z.allResources().associate(a.entity().getPath());
+
+            Assert.assertTrue(z.allResources().getAll().entities().stream()
+                    .anyMatch(r -> r.getId().equals("a")));
+        } finally {
+            inventory.tenants().delete(t.getId());
+        }
+    }
+
     @Test
     public void testImpossibleToDeleteContainsRelationship() throws Exception {
         try {
@@ -3673,6 +3804,99 @@ public abstract class AbstractBaseInventoryTestsuite<E> {
         }
     }
 
+    @Test
+    public void testTransactionCommitNotification() throws Exception {
+        Tenant tenant = null;
+        TransactionFrame frame = inventory.newTransactionFrame();
+
+        try {
+            Inventory inv = frame.boundInventory();
+
+            List<Action.TransactionCommit> commits = new ArrayList<>();
+            List<Feed> createdFeeds = new ArrayList<>();
+            List<Feed> updatedFeeds = new ArrayList<>();
+
+            inv.observable(Interest.in(Action.TransactionCommit.class).being(Action.committed()))
+                    .subscribe(commits::add);
+            inv.observable(Interest.in(Feed.class).being(created())).subscribe(createdFeeds::add);
+            inv.observable(Interest.in(Feed.class).being(updated())).subscribe(u -> updatedFeeds.add(u.getEntity()));
+
+            tenant = inv.tenants()
+                    .create(Tenant.Blueprint.builder().withId("testTransactionCommitNotification").build())
+                    .entity();
+
+            inv.inspect(tenant).feeds().create(Feed.Blueprint.builder().withId("feed").build()).entity();
+            inv.inspect(tenant).feeds().get("feed").update(Feed.Update.builder().withName("updated").build());
+
+            Assert.assertTrue(commits.isEmpty());
+
+            frame.commit();
+
+            //the update of the entity created in the same transaction is folded into the creation
+            Assert.assertEquals(1, createdFeeds.size());
+            Assert.assertEquals("updated", createdFeeds.get(0).getName());
+            Assert.assertTrue(updatedFeeds.isEmpty());
+
+            Assert.assertEquals(1, commits.size());
+            Assert.assertTrue(commits.get(0).getEvents().stream()
+                    .anyMatch(e -> e.getAction() == Action.created() && e.getEntity() instanceof Feed));
+        } catch (Exception e) {
+            frame.rollback();
+            throw e;
+        } finally {
+            if (tenant != null) {
+                inventory.inspect(tenant).delete();
+            }
+        }
+    }
+
+    @Test
+    public void testTypeOfNewResourceReflectsTypeUpdates() throws Exception {
+        Tenant tenant = inventory.tenants()
+                .create(Tenant.Blueprint.builder().withId("testTypeOfNewResourceReflectsTypeUpdates").build())
+                .entity();
+
+        try {
+            inventory.inspect(tenant).resourceTypes().create(ResourceType.Blueprint.builder().withId("rt").build());
+            Feeds.Single feed = inventory.inspect(tenant).feeds().create(Feed.Blueprint.builder().withId("f").build());
+
+            Resource r1 = feed.resources()
+                    .create(Resource.Blueprint.builder().withId("r1").withResourceTypePath("/rt").build()).entity();
+            Assert.assertNull(r1.getType().getName());
+
+            inventory.inspect(tenant).resourceTypes().get("rt")
+                    .update(ResourceType.Update.builder().withName("renamed").build());
+
+            Resource r2 = feed.resources()
+                    .create(Resource.Blueprint.builder().withId("r2").withResourceTypePath("/rt").build()).entity();
+            Assert.assertEquals("renamed", r2.getType().getName());
+
+            TransactionFrame frame = inventory.newTransactionFrame();
+            try {
+                Inventory inv = frame.boundInventory();
+
+                inv.inspect(tenant).resourceTypes().get("rt")
+                        .update(ResourceType.Update.builder().withName("renamed again").build());
+
+                Resource r3 = inv.inspect(tenant).feeds().get("f").resources()
+                        .create(Resource.Blueprint.builder().withId("r3").withResourceTypePath("/rt").build())
+                        .entity();
+                Assert.assertEquals("renamed again", r3.getType().getName());
+
+                frame.commit();
+            } catch (Exception e) {
+                frame.rollback();
+                throw e;
+            }
+
+            Resource r4 = feed.resources()
+                    .create(Resource.Blueprint.builder().withId("r4").withResourceTypePath("/rt").build()).entity();
+            Assert.assertEquals("renamed again", r4.getType().getName());
+        } finally {
+            inventory.inspect(tenant).delete();
+        }
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     public void testExecuteQuery() throws Exception {
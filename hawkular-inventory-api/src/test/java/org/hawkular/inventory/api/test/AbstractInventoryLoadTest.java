@@ -0,0 +1,252 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.api.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import org.hawkular.inventory.api.Feeds;
+import org.hawkular.inventory.api.model.Feed;
+import org.hawkular.inventory.api.model.InventoryStructure;
+import org.hawkular.inventory.api.model.Metric;
+import org.hawkular.inventory.api.model.MetricDataType;
+import org.hawkular.inventory.api.model.MetricType;
+import org.hawkular.inventory.api.model.MetricUnit;
+import org.hawkular.inventory.api.model.Resource;
+import org.hawkular.inventory.api.model.ResourceType;
+import org.hawkular.inventory.api.model.SyncRequest;
+import org.hawkular.inventory.api.model.Tenant;
+import org.hawkular.inventory.base.BaseInventory;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Drives the inventory in-process with a workload resembling the agents and the UI, so that the backends can be
+ * compared and the regressions spotted without deploying the server.
+ *
+ * <p>A number of feeds, each handled by its own task, first sync their whole structure, then repeatedly re-sync it with
+ * a small change, create a few metrics outside of the sync and read their resources and metrics the way the UI does.
+ * The throughput and the latency percentiles of each kind of operation are printed out at the end.
+ *
+ * <p>The size of the workload is controlled by the following system properties:
+ * <ul>
+ *     <li>{@code load.feeds} - the number of feeds (default 4)
+ *     <li>{@code load.resources} - the number of resources per feed (default 20)
+ *     <li>{@code load.metrics} - the number of metrics per resource (default 2)
+ *     <li>{@code load.rounds} - the number of re-sync/create/read rounds per feed (default 5)
+ *     <li>{@code load.threads} - the number of concurrently running feeds (default 4), unless the backend doesn't
+ *     support concurrent transactions (see {@link #getThreads()})
+ * </ul>
+ * The defaults are small enough for the test to run as part of the ordinary build.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+public abstract class AbstractInventoryLoadTest<E> {
+    private static final String TENANT_ID = "load-test";
+
+    private final int feeds = Integer.getInteger("load.feeds", 4);
+    private final int resources = Integer.getInteger("load.resources", 20);
+    private final int metrics = Integer.getInteger("load.metrics", 2);
+    private final int rounds = Integer.getInteger("load.rounds", 5);
+
+    private final Map<String, Latencies> latencies = Collections.synchronizedMap(new TreeMap<>());
+
+    protected static <E> void setupInventory(BaseInventory<E> inventory) throws Exception {
+        AbstractBaseInventoryTestsuite.setupNewInventory(inventory);
+    }
+
+    protected abstract BaseInventory<E> getInventoryForTest();
+
+    /**
+     * The backends that don't support concurrent transactions should override this to return 1.
+     *
+     * @return the number of concurrently running feeds
+     */
+    protected int getThreads() {
+        return Integer.getInteger("load.threads", 4);
+    }
+
+    @Test
+    public void testAgentWorkload() throws Exception {
+        BaseInventory<E> inventory = getInventoryForTest();
+
+        if (inventory.tenants().get(TENANT_ID).exists()) {
+            inventory.tenants().delete(TENANT_ID);
+        }
+        inventory.tenants().create(Tenant.Blueprint.builder().withId(TENANT_ID).build());
+
+        try {
+            long start = System.nanoTime();
+
+            runFeeds(feed -> measure("initial sync", () -> sync(inventory, feed, 0)));
+
+            runFeeds(feed -> {
+                for (int round = 1; round <= rounds; ++round) {
+                    int generation = round;
+                    measure("re-sync", () -> sync(inventory, feed, generation));
+                    measure("metric create", () -> createMetric(inventory, feed, generation));
+                    measure("read resources", () -> readResources(inventory, feed));
+                    measure("read metrics", () -> readMetrics(inventory, feed, generation));
+                }
+            });
+
+            report(System.nanoTime() - start);
+
+            Assert.assertEquals(resources, inventory.tenants().get(TENANT_ID).feeds().get("feed-0").resources()
+                    .getAll().entities().size());
+        } finally {
+            inventory.tenants().delete(TENANT_ID);
+        }
+    }
+
+    private void runFeeds(IntConsumer work) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(getThreads());
+        try {
+            List<Future<?>> results = new ArrayList<>(feeds);
+            for (int i = 0; i < feeds; ++i) {
+                int feed = i;
+                results.add(executor.submit(() -> work.accept(feed)));
+            }
+
+            for (Future<?> result : results) {
+                //rethrows the failures of the workload
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private void sync(BaseInventory<E> inventory, int feed, int generation) {
+        Feed.Blueprint feedBlueprint = Feed.Blueprint.builder().withId("feed-" + feed).build();
+
+        InventoryStructure.Offline.Builder<Feed.Blueprint> structure = InventoryStructure.Offline.of(feedBlueprint)
+                .addChild(ResourceType.Blueprint.builder().withId("server").build())
+                .addChild(MetricType.Blueprint.builder(MetricDataType.GAUGE).withId("responseTime")
+                        .withInterval(60L).withUnit(MetricUnit.MILLISECONDS).build());
+
+        for (int r = 0; r < resources; ++r) {
+            //the small diff of each re-sync - one of the resources changes a property
+            String state = r == generation % resources ? "changed-" + generation : "initial";
+
+            InventoryStructure.Offline.ChildBuilder<?> resource = structure.startChild(Resource.Blueprint.builder()
+                    .withId("resource-" + r).withResourceTypePath("server").withProperty("state", state).build());
+
+            for (int m = 0; m < metrics; ++m) {
+                resource.addChild(Metric.Blueprint.builder().withId("metric-" + m)
+                        .withMetricTypePath("../responseTime").withInterval(60L).build());
+            }
+
+            resource.end();
+        }
+
+        Feeds.Single f = inventory.tenants().get(TENANT_ID).feeds().get(feedBlueprint.getId());
+        if (!f.exists()) {
+            f = inventory.tenants().get(TENANT_ID).feeds().create(feedBlueprint, false);
+        }
+
+        f.synchronize(SyncRequest.syncEverything(structure.build()));
+    }
+
+    private void createMetric(BaseInventory<E> inventory, int feed, int generation) {
+        inventory.tenants().get(TENANT_ID).feeds().get("feed-" + feed).metrics()
+                .create(Metric.Blueprint.builder().withId("standalone-" + generation)
+                        .withMetricTypePath("responseTime").withInterval(60L).build());
+    }
+
+    private void readResources(BaseInventory<E> inventory, int feed) {
+        inventory.tenants().get(TENANT_ID).feeds().get("feed-" + feed).resources().getAll().entities();
+    }
+
+    private void readMetrics(BaseInventory<E> inventory, int feed, int generation) {
+        inventory.tenants().get(TENANT_ID).feeds().get("feed-" + feed).resources()
+                .get("resource-" + generation % resources).metrics().getAll().entities();
+    }
+
+    private void measure(String operation, Runnable action) {
+        long start = System.nanoTime();
+        action.run();
+        long end = System.nanoTime();
+
+        latencies.computeIfAbsent(operation, o -> new Latencies()).add(start, end);
+    }
+
+    private void report(long totalNanos) {
+        StringBuilder bld = new StringBuilder();
+        bld.append(String.format("%nLoad test on %s: %d feeds, %d resources and %d metrics per resource, %d rounds, " +
+                        "%d threads, %.1f s total%n", getInventoryForTest().getClass().getSimpleName(), feeds,
+                resources, metrics, rounds, getThreads(), totalNanos / 1e9));
+        bld.append(String.format("%-16s %8s %10s %10s %10s %10s %10s%n", "operation", "count", "ops/s", "p50 ms",
+                "p90 ms", "p99 ms", "max ms"));
+
+        synchronized (latencies) {
+            latencies.forEach((operation, ls) -> {
+                long[] sorted = ls.sorted();
+                bld.append(String.format("%-16s %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n", operation, sorted.length,
+                        sorted.length / (ls.span() / 1e9), percentile(sorted, 50),
+                        percentile(sorted, 90), percentile(sorted, 99), sorted[sorted.length - 1] / 1e6));
+            });
+        }
+
+        System.out.println(bld);
+    }
+
+    private static double percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static final class Latencies {
+        private long[] values = new long[64];
+        private int count;
+        private long firstStart = Long.MAX_VALUE;
+        private long lastEnd = Long.MIN_VALUE;
+
+        synchronized void add(long start, long end) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[count++] = end - start;
+            firstStart = Math.min(firstStart, start);
+            lastEnd = Math.max(lastEnd, end);
+        }
+
+        synchronized long[] sorted() {
+            long[] ret = Arrays.copyOf(values, count);
+            Arrays.sort(ret);
+            return ret;
+        }
+
+        /**
+         * @return the wall clock time in nanoseconds between the start of the first and the end of the last operation
+         */
+        synchronized long span() {
+            return lastEnd - firstStart;
+        }
+    }
+}
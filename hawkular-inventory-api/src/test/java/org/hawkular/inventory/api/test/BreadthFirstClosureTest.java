@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.api.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.hawkular.inventory.base.spi.BreadthFirstClosure;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 2.0.0
+ */
+public class BreadthFirstClosureTest {
+
+    //      0
+    //     / \
+    //    1   2
+    //   / \ / \
+    //  3   4   5
+    //  |
+    //  0 (a loop back to the root)
+    private final Map<Integer, List<Integer>> graph = new HashMap<>();
+    {
+        graph.put(0, Arrays.asList(1, 2));
+        graph.put(1, Arrays.asList(3, 4));
+        graph.put(2, Arrays.asList(4, 5));
+        graph.put(3, Collections.singletonList(0));
+    }
+
+    private final List<List<Integer>> expandedChunks = new ArrayList<>();
+
+    private List<Integer> expand(List<Integer> chunk) {
+        expandedChunks.add(new ArrayList<>(chunk));
+        List<Integer> ret = new ArrayList<>();
+        chunk.forEach(n -> ret.addAll(graph.getOrDefault(n, Collections.emptyList())));
+        return ret;
+    }
+
+    private List<Integer> closure(int maxDepth, int chunkSize) {
+        List<Integer> ret = new ArrayList<>();
+        new BreadthFirstClosure<>(0, maxDepth, chunkSize, Function.identity(), this::expand)
+                .forEachRemaining(ret::add);
+        return ret;
+    }
+
+    @Test
+    public void testFullClosureIsBreadthFirstAndDeduplicated() throws Exception {
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5), closure(BreadthFirstClosure.UNLIMITED_DEPTH, 10));
+    }
+
+    @Test
+    public void testDepthLimit() throws Exception {
+        Assert.assertEquals(Collections.emptyList(), closure(0, 10));
+        Assert.assertEquals(Arrays.asList(1, 2), closure(1, 10));
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5), closure(2, 10));
+    }
+
+    @Test
+    public void testChunking() throws Exception {
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5), closure(BreadthFirstClosure.UNLIMITED_DEPTH, 1));
+        Assert.assertEquals(Arrays.asList(Collections.singletonList(0), Collections.singletonList(1),
+                Collections.singletonList(2), Collections.singletonList(3), Collections.singletonList(4),
+                Collections.singletonList(5)), expandedChunks);
+    }
+
+    @Test
+    public void testLazyEvaluation() throws Exception {
+        Iterator<Integer> it = new BreadthFirstClosure<>(0, BreadthFirstClosure.UNLIMITED_DEPTH, 1,
+                Function.identity(), this::expand);
+
+        Assert.assertEquals(Integer.valueOf(1), it.next());
+        Assert.assertEquals(1, expandedChunks.size());
+
+        Assert.assertEquals(Integer.valueOf(2), it.next());
+        Assert.assertEquals(Integer.valueOf(3), it.next());
+        Assert.assertEquals(2, expandedChunks.size());
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.api.test;
+
+import static org.hawkular.inventory.paths.DataRole.OperationType.returnType;
+import static org.hawkular.inventory.paths.DataRole.Resource.configuration;
+import static org.hawkular.inventory.paths.DataRole.ResourceType.configurationSchema;
+
+import org.hawkular.inventory.api.model.AbstractHashTree;
+import org.hawkular.inventory.api.model.ContentHash;
+import org.hawkular.inventory.api.model.DataEntity;
+import org.hawkular.inventory.api.model.Feed;
+import org.hawkular.inventory.api.model.IdentityHash;
+import org.hawkular.inventory.api.model.InventoryStructure;
+import org.hawkular.inventory.api.model.Metric;
+import org.hawkular.inventory.api.model.MetricDataType;
+import org.hawkular.inventory.api.model.MetricType;
+import org.hawkular.inventory.api.model.MetricUnit;
+import org.hawkular.inventory.api.model.OperationType;
+import org.hawkular.inventory.api.model.Resource;
+import org.hawkular.inventory.api.model.ResourceType;
+import org.hawkular.inventory.api.model.StructuredData;
+import org.hawkular.inventory.api.model.SyncHash;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.inventory.paths.DataRole;
+import org.hawkular.inventory.paths.Path;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The hashes are persisted and compared with the hashes computed by the agents, so they must never change. Unlike
+ * the other hash tests, this one checks the computed values against fixed constants.
+ *
+ * <p>Each of the structures is hashed both as an offline structure, which is hashed sequentially, and as a compact
+ * structure, which is hashed in parallel using the fork-join pool wherever an entity has at least 2 subtree children
+ * (resource types or resources). The hash trees of the compact structures are recorded during the parallel computation
+ * and replayed afterwards. The larger structures contain several such siblings on more levels, the data entities,
+ * whose JSON is written into the identity and content hashes at the same time, and non-ASCII ids, names, properties
+ * and data.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+public class GoldenHashTest {
+    private static final String IDENTITY_HASH = "3cc4e67e44323378114ff5376ad05d987ddafef1";
+    private static final String CONTENT_HASH = "fef89b391c392b6a673b40f65a93cb68bc123a12";
+    private static final String SYNC_HASH = "9ff29233828d6ce960d143029bae468294c2e4b";
+
+    private static final String RICH_IDENTITY_HASH = "229a73ec3bd3af7a8f40cd35b2d21eb7df39e4";
+    private static final String RICH_SYNC_HASH = "ce4ced8bb660fde3b74cd4b9f7adedf4eccde5f";
+    private static final String RICH_RESOURCE_TYPE_SYNC_HASH = "b44a54b16fa021e357b986a5bddae8db79bb9e";
+    private static final String RICH_DATA_SYNC_HASH = "b7cbffb520cf1e3dd6d1ffec9fcd45b02afd88f";
+    private static final String RICH_METRIC_TYPE_SYNC_HASH = "51fb11788fa0a96e4d498432c71c3576d385460";
+
+    private static final String RESOURCES_IDENTITY_HASH = "93c1b5cb5fe5de32b5f24bc2b2ef1d7e44f85d4";
+    private static final String RESOURCE_IDENTITY_HASH = "a15a92b12124b18abcd4365c50bbff7076a2a1f";
+    private static final String CHILD_RESOURCE_IDENTITY_HASH = "39f6ae563beae7c44d378b6e1b8622a71494f43";
+    private static final String NON_ASCII_RESOURCE_IDENTITY_HASH = "831a4655f0fb6baa6143e0ce7c91ed459a8c821";
+
+    private static final CanonicalPath FEED_PATH = CanonicalPath.of().tenant("t").feed("feed").get();
+
+    private final Feed.Blueprint feed = Feed.Blueprint.builder().withId("feed").withName("Feed")
+            .withProperty("b", "x").withProperty("a", 1).build();
+
+    private final InventoryStructure<Feed.Blueprint> structure = InventoryStructure.of(feed)
+            .addChild(ResourceType.Blueprint.builder().withId("rt").withName("RT").build())
+            .addChild(MetricType.Blueprint.builder(MetricDataType.GAUGE).withId("mt").withName("MT")
+                    .withUnit(MetricUnit.BYTES).withInterval(60L).build())
+            .build();
+
+    /**
+     * Resource types and metric types with data entities, operation types and non-ASCII texts.
+     */
+    private final InventoryStructure<Feed.Blueprint> rich = InventoryStructure
+            .of(Feed.Blueprint.builder().withId("feed").withName("Nap\u00e1je\u010d")
+                    .withProperty("m\u00edsto", "Praha \u2013 \u017di\u017ekov").build())
+            .startChild(ResourceType.Blueprint.builder().withId("rt-a").withName("Server").build())
+            /**/.addChild(DataEntity.Blueprint.<DataRole.ResourceType>builder().withRole(configurationSchema)
+                    .withValue(StructuredData.get().map()
+                            .putIntegral("port", 8080L)
+                            .putString("host", "\u00fadoln\u00ed")
+                            .putList("flags")
+                            /**/.addBool(true)
+                            /**/.addBool(false)
+                            /**/.addString("\ud83d\ude00")
+                            .closeList()
+                            .build()).build())
+            /**/.addChild(OperationType.Blueprint.builder().withId("stop").build())
+            /**/.startChild(OperationType.Blueprint.builder().withId("start").build())
+            /**//**/.addChild(DataEntity.Blueprint.<DataRole.OperationType>builder().withRole(returnType)
+                    .withValue(StructuredData.get().string("\u65e5\u672c")).build())
+            /**/.end()
+            .end()
+            .addChild(ResourceType.Blueprint.builder().withId("rt-\u010d").withProperty("k", "\u00e9").build())
+            .addChild(ResourceType.Blueprint.builder().withId("rt-b").build())
+            .addChild(MetricType.Blueprint.builder(MetricDataType.COUNTER).withId("mt-2").withUnit(MetricUnit.BYTES)
+                    .withInterval(120L).build())
+            .addChild(MetricType.Blueprint.builder(MetricDataType.GAUGE).withId("mt-1").withName("Odezva")
+                    .withUnit(MetricUnit.MILLISECONDS).withInterval(30L).build())
+            .build();
+
+    /**
+     * Nested resources with metrics and data entities.
+     */
+    private final InventoryStructure<Feed.Blueprint> resources = InventoryStructure
+            .of(Feed.Blueprint.builder().withId("feed").build())
+            .addChild(ResourceType.Blueprint.builder().withId("server").build())
+            .startChild(Resource.Blueprint.builder().withId("r-\u00e1").withResourceTypePath("server").build())
+            /**/.addChild(metric("m"))
+            .end()
+            .addChild(Resource.Blueprint.builder().withId("r-b").withResourceTypePath("server").build())
+            .startChild(Resource.Blueprint.builder().withId("r-a").withResourceTypePath("server").build())
+            /**/.addChild(DataEntity.Blueprint.<DataRole.Resource>builder().withRole(configuration)
+                    .withValue(StructuredData.get().map().putIntegral("x", 1L).build()).build())
+            /**/.addChild(Resource.Blueprint.builder().withId("c-2").withResourceTypePath("../server").build())
+            /**/.startChild(Resource.Blueprint.builder().withId("c-1").withResourceTypePath("../server").build())
+            /**//**/.addChild(metric("m"))
+            /**/.end()
+            /**/.addChild(metric("m-2"))
+            /**/.addChild(metric("m-1"))
+            .end()
+            .addChild(metric("feed-metric"))
+            .build();
+
+    @Test
+    public void testIdentityHash() throws Exception {
+        Assert.assertEquals(IDENTITY_HASH, IdentityHash.of(structure));
+        Assert.assertEquals(IDENTITY_HASH, IdentityHash.of(InventoryStructure.Compact.copy(structure)));
+    }
+
+    @Test
+    public void testContentHash() throws Exception {
+        Assert.assertEquals(CONTENT_HASH, ContentHash.of(feed, FEED_PATH));
+    }
+
+    @Test
+    public void testSyncHash() throws Exception {
+        Assert.assertEquals(SYNC_HASH, SyncHash.of(structure, FEED_PATH));
+        Assert.assertEquals(SYNC_HASH, SyncHash.of(InventoryStructure.Compact.copy(structure), FEED_PATH));
+    }
+
+    @Test
+    public void testRichIdentityHash() throws Exception {
+        Assert.assertEquals(RICH_IDENTITY_HASH, IdentityHash.of(rich));
+        Assert.assertEquals(RICH_IDENTITY_HASH, IdentityHash.of(InventoryStructure.Compact.copy(rich)));
+    }
+
+    @Test
+    public void testRichSyncHash() throws Exception {
+        Assert.assertEquals(RICH_SYNC_HASH, SyncHash.of(rich, FEED_PATH));
+        Assert.assertEquals(RICH_SYNC_HASH, SyncHash.of(InventoryStructure.Compact.copy(rich), FEED_PATH));
+    }
+
+    @Test
+    public void testRichSyncHashTree() throws Exception {
+        SyncHash.Tree offline = SyncHash.treeOf(rich, FEED_PATH);
+        SyncHash.Tree compact = SyncHash.treeOf(InventoryStructure.Compact.copy(rich), FEED_PATH);
+
+        Assert.assertEquals(RICH_SYNC_HASH, compact.getHash());
+        Assert.assertEquals(RICH_RESOURCE_TYPE_SYNC_HASH, compact.getChild(segment("rt;rt-a")).getHash());
+        Assert.assertEquals(RICH_DATA_SYNC_HASH, compact.getChild(segment("rt;rt-a"))
+                .getChild(segment("d;configurationSchema")).getHash());
+        Assert.assertEquals(RICH_METRIC_TYPE_SYNC_HASH, compact.getChild(segment("mt;mt-2")).getHash());
+
+        assertSameTrees(offline, compact);
+    }
+
+    @Test
+    public void testResourcesIdentityHash() throws Exception {
+        Assert.assertEquals(RESOURCES_IDENTITY_HASH, IdentityHash.of(resources));
+        Assert.assertEquals(RESOURCES_IDENTITY_HASH, IdentityHash.of(InventoryStructure.Compact.copy(resources)));
+    }
+
+    @Test
+    public void testResourcesIdentityHashTree() throws Exception {
+        IdentityHash.Tree offline = IdentityHash.treeOf(resources);
+        IdentityHash.Tree compact = IdentityHash.treeOf(InventoryStructure.Compact.copy(resources));
+
+        Assert.assertEquals(RESOURCES_IDENTITY_HASH, compact.getHash());
+        Assert.assertEquals(RESOURCE_IDENTITY_HASH, compact.getChild(segment("r;r-a")).getHash());
+        Assert.assertEquals(CHILD_RESOURCE_IDENTITY_HASH, compact.getChild(segment("r;r-a"))
+                .getChild(segment("r;c-1")).getHash());
+        Assert.assertEquals(NON_ASCII_RESOURCE_IDENTITY_HASH, compact.getChild(segment("r;r-\u00e1")).getHash());
+
+        assertSameTrees(offline, compact);
+    }
+
+    @Test
+    public void testRepeatedComputationsAreStable() throws Exception {
+        InventoryStructure<Feed.Blueprint> compact = InventoryStructure.Compact.copy(structure);
+        for (int i = 0; i < 100; ++i) {
+            Assert.assertEquals(SYNC_HASH, SyncHash.of(compact, FEED_PATH));
+        }
+
+        InventoryStructure<Feed.Blueprint> compactResources = InventoryStructure.Compact.copy(resources);
+        for (int i = 0; i < 100; ++i) {
+            Assert.assertEquals(RESOURCES_IDENTITY_HASH, IdentityHash.of(compactResources));
+        }
+    }
+
+    private static Metric.Blueprint metric(String id) {
+        return Metric.Blueprint.builder().withId(id).withMetricTypePath("../mt").withInterval(0L).build();
+    }
+
+    private static Path.Segment segment(String segment) {
+        return Path.Segment.from(segment);
+    }
+
+    /**
+     * The equality of the hash trees only compares the root hashes, so this compares the whole trees.
+     */
+    private static <T extends AbstractHashTree<T, ?>> void assertSameTrees(T expected, T actual) {
+        Assert.assertEquals(expected.getPath(), actual.getPath());
+        Assert.assertEquals(expected.getHash(), actual.getHash());
+        Assert.assertEquals(expected.getChildren().size(), actual.getChildren().size());
+
+        for (T child : expected.getChildren()) {
+            T actualChild = actual.getChild(child.getPath().getSegment());
+            Assert.assertNotNull("Missing child " + child.getPath(), actualChild);
+            assertSameTrees(child, actualChild);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.api.test;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import org.hawkular.inventory.api.model.Feed;
+import org.hawkular.inventory.api.model.IdentityHash;
+import org.hawkular.inventory.api.model.InventoryStructure;
+import org.hawkular.inventory.api.model.Metric;
+import org.hawkular.inventory.api.model.MetricDataType;
+import org.hawkular.inventory.api.model.MetricType;
+import org.hawkular.inventory.api.model.MetricUnit;
+import org.hawkular.inventory.api.model.Resource;
+import org.hawkular.inventory.api.model.ResourceType;
+import org.hawkular.inventory.paths.SegmentType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Measures the time and the memory needed to merge the structure of a sync into the current structure of a feed and to
+ * compute the identity hash of the result, without involving any backend. The merged structure is compared with its
+ * offline equivalent, which is how the merge used to be represented.
+ *
+ * <p>The current structure and the update each contain the given number of resources, half of which are present in
+ * both. The update replaces the resource types and the metric types, so the merge keeps the resources that are only
+ * present in the current structure.
+ *
+ * <p>The size of the workload is controlled by the following system properties:
+ * <ul>
+ *     <li>{@code load.resources} - the number of resources in each of the structures (default 200)
+ *     <li>{@code load.metrics} - the number of metrics per resource (default 5)
+ *     <li>{@code load.rounds} - the number of times each operation is measured (default 5)
+ * </ul>
+ * The average time and the memory retained by the result of each operation are printed out at the end.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+public class InventoryStructureLoadTest {
+    private static final Set<SegmentType> REPLACED_TYPES = EnumSet.of(SegmentType.rt, SegmentType.mt);
+
+    private final int resources = Integer.getInteger("load.resources", 200);
+    private final int metrics = Integer.getInteger("load.metrics", 5);
+    private final int rounds = Integer.getInteger("load.rounds", 5);
+
+    private final Map<String, long[]> figures = new TreeMap<>();
+
+    @Test
+    public void testMergeAndHash() throws Exception {
+        InventoryStructure<Feed.Blueprint> current = structure()
+                .addResources(0, resources, "current").build();
+        InventoryStructure<Feed.Blueprint> update = structure()
+                .addResources(resources / 2, resources + resources / 2, "update").build();
+        InventoryStructure<Feed.Blueprint> merged = structure()
+                .addResources(0, resources / 2, "current")
+                .addResources(resources / 2, resources + resources / 2, "update").build();
+
+        InventoryStructure<Feed.Blueprint> compact = InventoryStructure.Compact.merge(current, update,
+                REPLACED_TYPES, false);
+
+        Assert.assertEquals(InventoryStructure.Compact.copy(merged), compact);
+        Assert.assertEquals(IdentityHash.of(merged), IdentityHash.of(compact));
+
+        for (int i = 0; i < rounds; ++i) {
+            measure("compact merge", () -> InventoryStructure.Compact.merge(current, update, REPLACED_TYPES, false));
+            measure("offline copy", () -> InventoryStructure.Offline.copy(compact));
+            measure("offline hash", () -> IdentityHash.of(merged));
+            measure("compact hash", () -> IdentityHash.of(compact));
+        }
+
+        report();
+    }
+
+    private void measure(String operation, Supplier<?> action) {
+        Runtime runtime = Runtime.getRuntime();
+
+        System.gc();
+        long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.nanoTime();
+
+        Object result = action.get();
+
+        long end = System.nanoTime();
+        System.gc();
+        long usedAfter = runtime.totalMemory() - runtime.freeMemory();
+
+        //keep the result reachable until the memory is measured
+        Assert.assertNotNull(result);
+
+        long[] sums = figures.computeIfAbsent(operation, o -> new long[2]);
+        sums[0] += end - start;
+        sums[1] += usedAfter - usedBefore;
+    }
+
+    private void report() {
+        StringBuilder bld = new StringBuilder();
+        bld.append(String.format("%nStructure load test: %d resources and %d metrics per resource, %d rounds%n",
+                resources, metrics, rounds));
+        bld.append(String.format("%-16s %10s %12s%n", "operation", "avg ms", "retained kB"));
+
+        figures.forEach((operation, sums) -> bld.append(String.format("%-16s %10.2f %12d%n", operation,
+                sums[0] / 1e6 / rounds, sums[1] / 1024 / rounds)));
+
+        System.out.println(bld);
+    }
+
+    private StructureBuilder structure() {
+        return new StructureBuilder();
+    }
+
+    private final class StructureBuilder {
+        private final InventoryStructure.Offline.Builder<Feed.Blueprint> bld =
+                InventoryStructure.Offline.of(Feed.Blueprint.builder().withId("feed").build())
+                        .addChild(ResourceType.Blueprint.builder().withId("server").build())
+                        .addChild(MetricType.Blueprint.builder(MetricDataType.GAUGE).withId("responseTime")
+                                .withInterval(60L).withUnit(MetricUnit.MILLISECONDS).build());
+
+        StructureBuilder addResources(int from, int to, String state) {
+            for (int r = from; r < to; ++r) {
+                InventoryStructure.Offline.ChildBuilder<?> resource = bld.startChild(Resource.Blueprint.builder()
+                        .withId("resource-" + r).withResourceTypePath("server").withProperty("state", state)
+                        .build());
+
+                for (int m = 0; m < metrics; ++m) {
+                    resource.addChild(Metric.Blueprint.builder().withId("metric-" + m)
+                            .withMetricTypePath("../responseTime").withInterval(60L).build());
+                }
+
+                resource.end();
+            }
+
+            return this;
+        }
+
+        InventoryStructure<Feed.Blueprint> build() {
+            return bld.build();
+        }
+    }
+}
@@ -17,7 +17,9 @@
 package org.hawkular.inventory.api.test;
 
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.hawkular.inventory.api.model.Blueprint;
@@ -31,6 +33,7 @@ import org.hawkular.inventory.api.model.Resource;
 import org.hawkular.inventory.api.model.ResourceType;
 import org.hawkular.inventory.paths.Path;
 import org.hawkular.inventory.paths.RelativePath;
+import org.hawkular.inventory.paths.SegmentType;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -130,4 +133,165 @@ public class InventoryStructureOfflineBuilderTest {
         b = s.get(RelativePath.to().resource("resource").metric("metric").get());
         Assert.assertNull(b);
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCompactCopy() throws Exception {
+        InventoryStructure<Feed.Blueprint> offline = structure.build();
+        InventoryStructure<Feed.Blueprint> compact = InventoryStructure.Compact.copy(offline);
+
+        Assert.assertEquals(offline.getRoot(), compact.getRoot());
+
+        RelativePath resource = RelativePath.to().resource("resource").get();
+        Assert.assertEquals(offline.get(resource), compact.get(resource));
+        Assert.assertEquals(offline.get(RelativePath.to().resource("resource").resource("childResource").get()),
+                compact.get(RelativePath.to().resource("resource").resource("childResource").get()));
+        Assert.assertNull(compact.get(RelativePath.to().resource("nonexistent").get()));
+        Assert.assertNull(compact.get(RelativePath.to().resource("resource").metric("nonexistent").get()));
+
+        for (InventoryStructure.EntityType type : InventoryStructure.EntityType.values()) {
+            for (RelativePath parent : Arrays.asList(RelativePath.empty().get(), resource)) {
+                try (Stream<Blueprint> o = offline.getChildren(parent, (Class) type.elementType);
+                     Stream<Blueprint> c = compact.getChildren(parent, (Class) type.elementType)) {
+                    Assert.assertEquals(o.collect(Collectors.toSet()), c.collect(Collectors.toSet()));
+                }
+            }
+        }
+
+        Assert.assertEquals(compact, InventoryStructure.Compact.copy(offline));
+    }
+
+    @Test
+    public void testCompactChildrenSortedById() throws Exception {
+        structure.addChild(Resource.Blueprint.builder().withId("a").withResourceTypePath("resourceType").build())
+                .addChild(Resource.Blueprint.builder().withId("z").withResourceTypePath("resourceType").build());
+
+        InventoryStructure<Feed.Blueprint> compact = InventoryStructure.Compact.copy(structure.build());
+
+        try (Stream<Resource.Blueprint> s = compact.getChildren(RelativePath.empty().get(), Resource.class)) {
+            Assert.assertEquals(Arrays.asList("a", "resource", "z"),
+                    s.map(Resource.Blueprint::getId).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testCompactBuilder() throws Exception {
+        InventoryStructure<Feed.Blueprint> compact = InventoryStructure.Compact
+                .builder(Feed.Blueprint.builder().withId("feed").build())
+                .startChild(Metric.Blueprint.builder().withId("metric").withMetricTypePath("metricType")
+                        .withInterval(0L).build())
+                .end()
+                .startChild(Resource.Blueprint.builder().withId("resource").withResourceTypePath("resourceType")
+                        .build())
+                /**/.startChild(Metric.Blueprint.builder().withId("metric").withInterval(0L)
+                        .withMetricTypePath("../metricType").build())
+                /**/.end()
+                /**/.startChild(Resource.Blueprint.builder().withId("childResource")
+                        .withResourceTypePath("../resourceType").build())
+                /**/.end()
+                .end()
+                .startChild(MetricType.Blueprint.builder(MetricDataType.GAUGE)
+                        .withId("metricType").withInterval(0L).withUnit(MetricUnit.NONE).build())
+                .end()
+                .startChild(ResourceType.Blueprint.builder().withId("resourceType").build())
+                .end()
+                .build();
+
+        Assert.assertEquals(InventoryStructure.Compact.copy(structure.build()), compact);
+    }
+
+    @Test
+    public void testCompactBuilderKeepsLastDuplicate() throws Exception {
+        InventoryStructure<Feed.Blueprint> compact = InventoryStructure.Compact
+                .builder(Feed.Blueprint.builder().withId("feed").build())
+                .startChild(ResourceType.Blueprint.builder().withId("resourceType").withName("first").build())
+                .end()
+                .startChild(ResourceType.Blueprint.builder().withId("resourceType").withName("second").build())
+                .end()
+                .build();
+
+        try (Stream<ResourceType.Blueprint> s = compact.getChildren(RelativePath.empty().get(),
+                ResourceType.class)) {
+            Assert.assertEquals(Arrays.asList("second"),
+                    s.map(ResourceType.Blueprint::getName).collect(Collectors.toList()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompactBuilderCantAddInvalidChildren() throws Exception {
+        InventoryStructure.Compact.builder(Feed.Blueprint.builder().withId("feed").build())
+                .startChild(ResourceType.Blueprint.builder().withId("resourceType").build())
+                .startChild(Resource.Blueprint.builder().withId("resource").withResourceTypePath("../resourceType")
+                        .build());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCompactBuilderCantBuildUnendedChildren() throws Exception {
+        InventoryStructure.Compact.builder(Feed.Blueprint.builder().withId("feed").build())
+                .startChild(ResourceType.Blueprint.builder().withId("resourceType").build())
+                .build();
+    }
+
+    @Test
+    public void testCompactShallowMerge() throws Exception {
+        InventoryStructure<Feed.Blueprint> expected = InventoryStructure.Offline
+                .of(Feed.Blueprint.builder().withId("feed").build())
+                .addChild(ResourceType.Blueprint.builder().withId("resourceType").build())
+                .addChild(MetricType.Blueprint.builder(MetricDataType.GAUGE)
+                        .withId("metricType").withInterval(0L).withUnit(MetricUnit.NONE).build())
+                .startChild(Resource.Blueprint.builder().withId("resource").withResourceTypePath("resourceType")
+                        .build())
+                /**/.addChild(Resource.Blueprint.builder().withId("childResource")
+                        .withResourceTypePath("../resourceType").build())
+                /**/.addChild(Metric.Blueprint.builder().withId("metric").withInterval(0L)
+                        .withMetricTypePath("../metricType").build())
+                .end()
+                .startChild(Resource.Blueprint.builder().withId("resource2").withResourceTypePath("resourceType")
+                        .build())
+                /**/.addChild(Metric.Blueprint.builder().withId("metric2").withInterval(0L)
+                        .withMetricTypePath("../metricType").build())
+                .end()
+                .build();
+
+        InventoryStructure<Feed.Blueprint> merged = InventoryStructure.Compact.merge(structure.build(), update(),
+                EnumSet.of(SegmentType.m), false);
+
+        Assert.assertEquals(expected, InventoryStructure.Offline.copy(merged));
+    }
+
+    @Test
+    public void testCompactDeepMerge() throws Exception {
+        InventoryStructure<Feed.Blueprint> expected = InventoryStructure.Offline
+                .of(Feed.Blueprint.builder().withId("feed").build())
+                .addChild(ResourceType.Blueprint.builder().withId("resourceType").build())
+                .addChild(MetricType.Blueprint.builder(MetricDataType.GAUGE)
+                        .withId("metricType").withInterval(0L).withUnit(MetricUnit.NONE).build())
+                .startChild(Resource.Blueprint.builder().withId("resource").withResourceTypePath("resourceType")
+                        .build())
+                /**/.addChild(Resource.Blueprint.builder().withId("childResource")
+                        .withResourceTypePath("../resourceType").build())
+                .end()
+                .startChild(Resource.Blueprint.builder().withId("resource2").withResourceTypePath("resourceType")
+                        .build())
+                /**/.addChild(Metric.Blueprint.builder().withId("metric2").withInterval(0L)
+                        .withMetricTypePath("../metricType").build())
+                .end()
+                .build();
+
+        InventoryStructure<Feed.Blueprint> merged = InventoryStructure.Compact.merge(structure.build(), update(),
+                EnumSet.of(SegmentType.m), true);
+
+        Assert.assertEquals(expected, InventoryStructure.Offline.copy(merged));
+    }
+
+    private static InventoryStructure<Feed.Blueprint> update() {
+        return InventoryStructure.Offline
+                .of(Feed.Blueprint.builder().withId("feed").build())
+                .startChild(Resource.Blueprint.builder().withId("resource2").withResourceTypePath("resourceType")
+                        .build())
+                /**/.addChild(Metric.Blueprint.builder().withId("metric2").withInterval(0L)
+                        .withMetricTypePath("../metricType").build())
+                .end()
+                .build();
+    }
 }
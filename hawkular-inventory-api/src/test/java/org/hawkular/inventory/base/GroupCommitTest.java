@@ -0,0 +1,231 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.inventory.api.InventoryException;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 2.0.0
+ */
+public class GroupCommitTest {
+    private final RecordingExecutor executor = new RecordingExecutor();
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+    private final CountDownLatch releaseBlocker = new CountDownLatch(1);
+
+    @After
+    public void shutdown() {
+        releaseBlocker.countDown();
+        threads.shutdownNow();
+    }
+
+    @Test
+    public void testLoneWriterNotWaitingForGroup() throws Exception {
+        GroupCommit<Object> groupCommit = new GroupCommit<>(TimeUnit.MINUTES.toMillis(1), 10, executor);
+
+        assertEquals("a", groupCommit.submit(null, paths("/t;t/f;a"), tx -> "a").getResult());
+        assertEquals(Collections.singletonList("a"), executor.alone);
+        assertTrue(executor.groups.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentWritersGrouped() throws Exception {
+        GroupCommit<Object> groupCommit = new GroupCommit<>(TimeUnit.MINUTES.toMillis(1), 3, executor);
+        Future<?> blocker = block(groupCommit);
+
+        List<Future<Object>> results = new ArrayList<>();
+        for (String id : new String[]{"a", "b", "c"}) {
+            results.add(threads.submit(() -> groupCommit.submit(null, paths("/t;t/f;" + id), tx -> id).getResult()));
+        }
+
+        assertEquals("a", results.get(0).get(10, TimeUnit.SECONDS));
+        assertEquals("b", results.get(1).get(10, TimeUnit.SECONDS));
+        assertEquals("c", results.get(2).get(10, TimeUnit.SECONDS));
+        assertEquals(1, executor.groups.size());
+        assertEquals(3, executor.groups.get(0).size());
+
+        releaseBlocker.countDown();
+        blocker.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testLeaderStopsWaitingWhenOtherWritersFinish() throws Exception {
+        GroupCommit<Object> groupCommit = new GroupCommit<>(TimeUnit.MINUTES.toMillis(1), 3, executor);
+        Future<?> blocker = block(groupCommit);
+
+        Future<Object> result = threads.submit(() -> groupCommit.submit(null, paths("/t;t/f;a"), tx -> "a")
+                .getResult());
+
+        //give the writer the time to start waiting for the others
+        Thread.sleep(100);
+        releaseBlocker.countDown();
+        blocker.get(10, TimeUnit.SECONDS);
+
+        assertEquals("a", result.get(10, TimeUnit.SECONDS));
+        assertTrue(executor.groups.isEmpty());
+    }
+
+    @Test
+    public void testOverlappingWritersNotGrouped() throws Exception {
+        GroupCommit<Object> groupCommit = new GroupCommit<>(200, 2, executor);
+        Future<?> blocker = block(groupCommit);
+
+        Future<Object> parent = threads.submit(() -> groupCommit.submit(null, paths("/t;t/f;f"), tx -> "parent")
+                .getResult());
+        Future<Object> child = threads.submit(() -> groupCommit.submit(null, paths("/t;t/f;f/r;r"), tx -> "child")
+                .getResult());
+
+        assertEquals("parent", parent.get(10, TimeUnit.SECONDS));
+        assertEquals("child", child.get(10, TimeUnit.SECONDS));
+        assertTrue(executor.groups.isEmpty());
+
+        releaseBlocker.countDown();
+        blocker.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testFailingPayloadOnlyFailsItsCaller() throws Exception {
+        GroupCommit<Object> groupCommit = new GroupCommit<>(TimeUnit.MINUTES.toMillis(1), 3, executor);
+        Future<?> blocker = block(groupCommit);
+
+        Future<Object> a = threads.submit(() -> groupCommit.submit(null, paths("/t;t/f;a"), tx -> "a").getResult());
+        Future<Object> b = threads.submit(() -> groupCommit.submit(null, paths("/t;t/f;b"), tx -> {
+            throw new IllegalStateException("b failed");
+        }).getResult());
+        Future<Object> c = threads.submit(() -> groupCommit.submit(null, paths("/t;t/f;c"), tx -> "c").getResult());
+
+        assertEquals("a", a.get(10, TimeUnit.SECONDS));
+        assertEquals("c", c.get(10, TimeUnit.SECONDS));
+        try {
+            b.get(10, TimeUnit.SECONDS);
+            fail("The failure of the payload should have been propagated to its caller.");
+        } catch (ExecutionException e) {
+            assertEquals("b failed", e.getCause().getMessage());
+        }
+
+        //the group failed and each payload was then run on its own
+        assertEquals(1, executor.groups.size());
+        assertTrue(executor.alone.containsAll(Arrays.asList("a", "c")));
+
+        releaseBlocker.countDown();
+        blocker.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testInterruptedLeaderFailsItsPayload() throws Exception {
+        GroupCommit<Object> groupCommit = new GroupCommit<>(TimeUnit.MINUTES.toMillis(1), 3, executor);
+        Future<?> blocker = block(groupCommit);
+
+        Future<Boolean> interrupted = threads.submit(() -> {
+            Thread.currentThread().interrupt();
+            try {
+                groupCommit.submit(null, paths("/t;t/f;a"), tx -> "a");
+                return false;
+            } catch (InventoryException e) {
+                return Thread.currentThread().isInterrupted();
+            }
+        });
+
+        assertTrue(interrupted.get(10, TimeUnit.SECONDS));
+        assertTrue(executor.alone.isEmpty());
+        assertTrue(executor.groups.isEmpty());
+
+        releaseBlocker.countDown();
+        blocker.get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Starts a write that doesn't finish until released, so that the other writers have someone to wait for.
+     */
+    private Future<?> block(GroupCommit<Object> groupCommit) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Future<?> ret = threads.submit(() -> groupCommit.submit(null, paths("/t;blocker"), tx -> {
+            started.countDown();
+            releaseBlocker.await();
+            return null;
+        }));
+
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        //the blocker ran on its own, it is not a subject of the tests
+        executor.alone.clear();
+        return ret;
+    }
+
+    private static CanonicalPath[] paths(String path) {
+        return new CanonicalPath[]{CanonicalPath.fromString(path)};
+    }
+
+    private static final class RecordingExecutor implements GroupCommit.Executor<Object> {
+        final List<Object> alone = Collections.synchronizedList(new ArrayList<>());
+        final List<List<Object>> groups = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public <R> Traversal.ResultWithNofifications<R, Object> runAlone(TraversalContext<Object, ?> context,
+                TransactionPayload.Committing<R, Object> payload) {
+            try {
+                R result = payload.run((Transaction.Committable<Object>) null);
+                alone.add(result);
+                return new Traversal.ResultWithNofifications<>(result, Collections.emptyList());
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public List<EntityAndPendingNotifications<Object, ?>> runTogether(List<GroupCommit.Member<?, Object>> group)
+                throws Exception {
+            List<Object> results = new ArrayList<>();
+            groups.add(results);
+            for (GroupCommit.Member<?, Object> m : group) {
+                results.add(run(m));
+            }
+
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void notifyCommitted(TraversalContext<Object, ?> context,
+                                    List<EntityAndPendingNotifications<Object, ?>> notifications) {
+        }
+
+        private static <R> R run(GroupCommit.Member<R, Object> member) throws Exception {
+            R result = member.payload.run((Transaction.Committable<Object>) null);
+            member.setResult(result);
+            return result;
+        }
+    }
+}
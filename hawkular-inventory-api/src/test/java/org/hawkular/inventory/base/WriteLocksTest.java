@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.Relationships;
+import org.hawkular.inventory.api.filters.Related;
+import org.hawkular.inventory.api.filters.With;
+import org.hawkular.inventory.api.model.Resource;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 2.0.0
+ */
+public class WriteLocksTest {
+    private final WriteLocks locks = new WriteLocks(2, 16);
+
+    private final CanonicalPath feedA = CanonicalPath.fromString("/t;t/f;a");
+    private final CanonicalPath feedB = CanonicalPath.fromString("/t;t/f;b");
+
+    @Test
+    public void testSubtreeOfTheWrittenEntity() throws Exception {
+        assertEquals(feedA, locks.subtreeOf(Query.to(CanonicalPath.fromString("/t;t/f;a/r;r1/r;r2"))));
+        assertEquals(CanonicalPath.fromString("/t;t"), locks.subtreeOf(Query.to(CanonicalPath.fromString("/t;t"))));
+    }
+
+    @Test
+    public void testSubtreeOfTheDeepestPath() throws Exception {
+        Query query = Query.path().with(With.path(feedA)).with(Related.by(Relationships.WellKnown.isParentOf))
+                .with(With.path(CanonicalPath.fromString("/t;t/f;b/r;r"))).get();
+
+        assertEquals(feedB, locks.subtreeOf(query));
+    }
+
+    @Test
+    public void testSubtreeOfDescendants() throws Exception {
+        Query query = Query.path().with(With.path(feedA)).with(Related.by(Relationships.WellKnown.contains),
+                With.type(Resource.class)).get();
+
+        assertEquals(feedA, locks.subtreeOf(query));
+    }
+
+    @Test
+    public void testNoSubtreeWhenQueryLeavesThePath() throws Exception {
+        Query query = Query.path().with(With.path(feedA)).with(Related.by(Relationships.WellKnown.defines)).get();
+
+        assertNull(locks.subtreeOf(query));
+        assertNull(locks.lockFor(query));
+        assertNull(locks.lockFor(Query.path().with(With.paths(feedA, feedB)).get()));
+    }
+
+    @Test
+    public void testWritesToSameSubtreeContend() throws Exception {
+        Lock lock = locks.lockFor(Query.to(CanonicalPath.fromString("/t;t/f;a/r;r1")));
+        Lock other = locks.lockFor(Query.to(CanonicalPath.fromString("/t;t/f;a/r;r2")));
+        assertSame(lock, other);
+
+        ExecutorService thread = Executors.newSingleThreadExecutor();
+        lock.lock();
+        try {
+            assertFalse(thread.submit(() -> other.tryLock()).get(10, TimeUnit.SECONDS));
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            assertTrue(thread.submit(() -> {
+                boolean locked = other.tryLock();
+                if (locked) {
+                    other.unlock();
+                }
+                return locked;
+            }).get(10, TimeUnit.SECONDS));
+        } finally {
+            thread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGroupLocksDistinctAndOrdered() throws Exception {
+        CanonicalPath[] inA = {CanonicalPath.fromString("/t;t/f;a/r;r1")};
+        CanonicalPath[] alsoInA = {CanonicalPath.fromString("/t;t/f;a/r;r2")};
+        CanonicalPath[] inB = {feedB};
+
+        assertEquals(1, locks.locksFor(Arrays.asList(inA, alsoInA, null)).size());
+        assertEquals(locks.locksFor(Arrays.asList(inA, inB)), locks.locksFor(Arrays.asList(inB, inA)));
+    }
+}
@@ -29,6 +29,7 @@ public class InventoryQueryRequestMessage<T extends AbstractElement<?, ?>> exten
     private Query query;
     private Pager pager;
     private Class<T> entity;
+    private Integer chunkSize;
 
 
     public InventoryQueryRequestMessage() {
@@ -63,4 +64,28 @@ public class InventoryQueryRequestMessage<T extends AbstractElement<?, ?>> exten
     public void setPager(Pager pager) {
         this.pager = pager;
     }
+
+    /**
+     * @return the maximum number of entities in a single response message or null if the whole result should be
+     * sent in a single message
+     * @see InventoryQueryResponseMessage
+     */
+    public Integer getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * If set, the results are sent back in a series of response messages, each containing at most this number of
+     * entities.
+     *
+     * @param chunkSize the maximum number of entities in a single response message or null for no chunking
+     * @throws IllegalArgumentException if the chunk size is not positive
+     * @see InventoryQueryResponseMessage
+     */
+    public void setChunkSize(Integer chunkSize) {
+        if (chunkSize != null && chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be positive but was " + chunkSize + ".");
+        }
+        this.chunkSize = chunkSize;
+    }
 }
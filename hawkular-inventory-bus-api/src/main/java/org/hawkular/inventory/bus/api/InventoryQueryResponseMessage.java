@@ -22,6 +22,20 @@ import org.hawkular.inventory.bus.api.mixins.ResultSetMixin;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
+ * The response to the {@link InventoryQueryRequestMessage}.
+ *
+ * <p>If the request specified a {@link InventoryQueryRequestMessage#getChunkSize() chunk size}, the results are sent
+ * in a series of response messages, all having the message id of the request as their correlation id. Each of the
+ * messages contains at most the chunk size entities in its result set and is numbered by the {@link #getChunk()
+ * chunk index}. Because the messages are not guaranteed to arrive in order, the clients should use the chunk index to
+ * put the results together. The message with {@link #isLastChunk()} set to true is the last one of the series, so its
+ * chunk index + 1 is the total number of messages in the series.
+ *
+ * <p>Without chunking, there is always just a single response with chunk index 0 marked as the last chunk.
+ *
+ * <p>If the request could not be executed, the only response is the last chunk with no result and the
+ * {@link #getError() error} describing the problem.
+ *
  * @author Pavol Loffay
  * @since 0.13.0
  */
@@ -30,6 +44,9 @@ public class InventoryQueryResponseMessage<T extends AbstractElement<?, ?>> exte
 
     private ResultSet<T> result;
     private Class<? extends AbstractElement> entityClass;
+    private int chunk;
+    private boolean lastChunk = true;
+    private String error;
 
 
     private InventoryQueryResponseMessage() {
@@ -40,6 +57,14 @@ public class InventoryQueryResponseMessage<T extends AbstractElement<?, ?>> exte
         this.entityClass = entityClass;
     }
 
+    public InventoryQueryResponseMessage(ResultSet<T> result, Class<? extends AbstractElement> entityClass,
+                                         int chunk, boolean lastChunk) {
+        this.result = result;
+        this.entityClass = entityClass;
+        this.chunk = chunk;
+        this.lastChunk = lastChunk;
+    }
+
     public ResultSet<T> getResult() {
         return result;
     }
@@ -56,6 +81,39 @@ public class InventoryQueryResponseMessage<T extends AbstractElement<?, ?>> exte
         this.entityClass = entityClass;
     }
 
+    /**
+     * @return the 0-based index of this message in the series of the response messages to a single request
+     */
+    public int getChunk() {
+        return chunk;
+    }
+
+    public void setChunk(int chunk) {
+        this.chunk = chunk;
+    }
+
+    /**
+     * @return true if this is the last message in the series of the response messages to a single request
+     */
+    public boolean isLastChunk() {
+        return lastChunk;
+    }
+
+    public void setLastChunk(boolean lastChunk) {
+        this.lastChunk = lastChunk;
+    }
+
+    /**
+     * @return the description of why the request could not be executed or null if it succeeded
+     */
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
     @Override
     protected ObjectMapper buildObjectMapperForSerialization() {
         ObjectMapper objectMapper = super.buildObjectMapperForSerialization();
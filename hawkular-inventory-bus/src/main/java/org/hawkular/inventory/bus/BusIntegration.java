@@ -80,7 +80,8 @@ public final class BusIntegration {
 
         install();
 
-        this.queryListener = new QueryListener(inventory, connectionFactory, configuration.getQueryQueueName());
+        this.queryListener = new QueryListener(inventory, connectionFactory, configuration.getQueryQueueName(),
+                configuration.getQueryDefaultPageSize());
     }
 
     public void stop() throws NamingException, IOException {
@@ -33,6 +33,7 @@ public final class Configuration {
     private final String connectionFactoryJndiName;
     private final String entityChangesTopicName;
     private final String queryQueueName;
+    private final int queryDefaultPageSize;
 
     public static Configuration fromProperties(Properties properties) {
         Map<String, String> map = new HashMap<>();
@@ -59,6 +60,7 @@ public final class Configuration {
         String connectionFactoryJndiName = null;
         String entityChangesTopicName = null;
         String queryQueueName = null;
+        int queryDefaultPageSize = 0;
 
         for (Property p : Property.values()) {
             String value = map.get(p);
@@ -76,10 +78,14 @@ public final class Configuration {
                 case INVENTORY_QUERY_QUEUE_NAME:
                     queryQueueName = value;
                     break;
+                case INVENTORY_QUERY_DEFAULT_PAGE_SIZE:
+                    queryDefaultPageSize = Integer.parseInt(value);
+                    break;
             }
         }
 
-        return new Configuration(connectionFactoryJndiName, entityChangesTopicName, queryQueueName);
+        return new Configuration(connectionFactoryJndiName, entityChangesTopicName, queryQueueName,
+                queryDefaultPageSize);
     }
 
     public static Configuration getDefaultConfiguration() {
@@ -90,10 +96,12 @@ public final class Configuration {
         return new Builder();
     }
 
-    private Configuration(String connectionFactoryJndiName, String entityChangesTopicName, String queryQueueName) {
+    private Configuration(String connectionFactoryJndiName, String entityChangesTopicName, String queryQueueName,
+                          int queryDefaultPageSize) {
         this.connectionFactoryJndiName = connectionFactoryJndiName;
         this.entityChangesTopicName = entityChangesTopicName;
         this.queryQueueName = queryQueueName;
+        this.queryDefaultPageSize = queryDefaultPageSize;
     }
 
     public String getConnectionFactoryJndiName() {
@@ -108,6 +116,13 @@ public final class Configuration {
         return queryQueueName;
     }
 
+    /**
+     * @return the page size to use for the bus queries that don't specify any or ask for unlimited results
+     */
+    public int getQueryDefaultPageSize() {
+        return queryDefaultPageSize;
+    }
+
     public Builder modify() {
         EnumMap<Property, String> m = new EnumMap<>(Property.class);
         toMap().forEach((k, v) -> m.put(Property.valueOf(k), v));
@@ -120,6 +135,7 @@ public final class Configuration {
 
         ret.put(Property.CONNECTION_FACTORY_JNDI_NAME.propertyName, connectionFactoryJndiName);
         ret.put(Property.INVENTORY_CHANGES_TOPIC_NAME.propertyName, entityChangesTopicName);
+        ret.put(Property.INVENTORY_QUERY_DEFAULT_PAGE_SIZE.propertyName, Integer.toString(queryDefaultPageSize));
 
         return ret;
     }
@@ -130,7 +146,9 @@ public final class Configuration {
         INVENTORY_CHANGES_TOPIC_NAME("HawkularInventoryChanges",
                 "hawkular.inventory.bus.inventoryChangesTopicName"),
         INVENTORY_QUERY_QUEUE_NAME("HawkularInventoryQuery",
-                "hawkular.inventory.bus.inventoryQueryQueName");
+                "hawkular.inventory.bus.inventoryQueryQueName"),
+        INVENTORY_QUERY_DEFAULT_PAGE_SIZE("100",
+                "hawkular.inventory.bus.inventoryQueryDefaultPageSize");
 
         private final String defaultValue;
         private final String propertyName;
@@ -39,4 +39,8 @@ public interface Log extends BasicLogger {
     @LogMessage(level = Logger.Level.WARN)
     @Message(id = 310001, value = "Failed to send message: %s")
     void failedToSendMessage(String message);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 310002, value = "Dropping the query %s that can't be replied to: %s")
+    void droppingQuery(String messageId, String reason);
 }
@@ -17,9 +17,15 @@
 package org.hawkular.inventory.bus;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
 import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
 
 import org.hawkular.bus.common.BasicMessageWithExtraData;
 import org.hawkular.bus.common.ConnectionContextFactory;
@@ -27,13 +33,26 @@ import org.hawkular.bus.common.Endpoint;
 import org.hawkular.bus.common.MessageProcessor;
 import org.hawkular.bus.common.consumer.ConsumerConnectionContext;
 import org.hawkular.bus.common.consumer.RPCBasicMessageListener;
+import org.hawkular.bus.common.producer.ProducerConnectionContext;
 import org.hawkular.inventory.api.Inventory;
 import org.hawkular.inventory.api.paging.Page;
+import org.hawkular.inventory.api.paging.Pager;
 import org.hawkular.inventory.bus.api.InventoryQueryRequestMessage;
 import org.hawkular.inventory.bus.api.InventoryQueryResponseMessage;
 import org.hawkular.inventory.bus.api.ResultSet;
 
 /**
+ * Executes the queries received over the bus.
+ *
+ * <p>The queries that don't specify a pager or ask for unlimited results are limited to the configured default page
+ * size. If the request asks for it, the results are sent back in a series of chunks (see
+ * {@link InventoryQueryResponseMessage}). The last chunk is sent as the RPC response while all the preceding ones are
+ * sent directly to the reply-to destination of the request. All the chunks are correlated with the request message.
+ * Chunking therefore requires the request to specify the reply-to destination.
+ *
+ * <p>Invalid requests are answered with a response carrying the {@link InventoryQueryResponseMessage#getError() error}.
+ * If the request doesn't specify the reply-to destination, there is no one to answer to and the request is dropped.
+ *
  * @author Pavol Loffay
  * @since 0.13.0
  */
@@ -42,36 +61,189 @@ public class QueryListener extends
 
     private final Inventory inventory;
     private final ConsumerConnectionContext connectionContext;
+    private final MessageProcessor messageProcessor = new MessageProcessor();
+    private final int defaultPageSize;
+    private final ThreadLocal<Destination> replyTo = new ThreadLocal<>();
 
     public QueryListener(Inventory inventory, ConnectionFactory contextFactory, String queName)
             throws JMSException {
+        this(inventory, contextFactory, queName,
+                Integer.parseInt(Configuration.Property.INVENTORY_QUERY_DEFAULT_PAGE_SIZE.getDefaultValue()));
+    }
+
+    public QueryListener(Inventory inventory, ConnectionFactory contextFactory, String queName, int defaultPageSize)
+            throws JMSException {
         this.inventory = inventory;
+        this.defaultPageSize = defaultPageSize;
 
         ConnectionContextFactory factory = new ConnectionContextFactory(contextFactory);
         Endpoint endpoint = new Endpoint(Endpoint.Type.QUEUE, queName);
         connectionContext = factory.createConsumerConnectionContext(endpoint);
 
-        MessageProcessor processor = new MessageProcessor();
-        processor.listen(connectionContext, this);
+        messageProcessor.listen(connectionContext, this);
+    }
+
+    /**
+     * Creates a listener that is not connected to the bus. Only for tests that pass the messages in directly.
+     */
+    QueryListener(Inventory inventory, int defaultPageSize) {
+        this.inventory = inventory;
+        this.defaultPageSize = defaultPageSize;
+        this.connectionContext = null;
     }
 
     public void close() throws IOException {
-        connectionContext.close();
+        if (connectionContext != null) {
+            connectionContext.close();
+        }
+    }
+
+    @Override
+    public void onMessage(Message message) {
+        //we need the reply-to destination to be able to send the chunked results
+        try {
+            replyTo.set(message.getJMSReplyTo());
+        } catch (JMSException e) {
+            replyTo.remove();
+        }
+
+        try {
+            super.onMessage(message);
+        } finally {
+            replyTo.remove();
+        }
     }
 
     @Override
     public InventoryQueryResponseMessage<?> onBasicMessage(
             BasicMessageWithExtraData<InventoryQueryRequestMessage> msgWithExtraData) {
 
-        final InventoryQueryRequestMessage message = msgWithExtraData.getBasicMessage();
+        return respond(msgWithExtraData.getBasicMessage(), replyTo.get());
+    }
 
+    /**
+     * Executes the query and returns the RPC response to it, sending the preceding chunks of it directly to the
+     * reply-to destination.
+     *
+     * @param message          the query request
+     * @param replyDestination the reply-to destination of the request or null if it didn't specify any
+     * @return the (last chunk of the) response, the error response for invalid requests or null if the request is
+     * invalid and can't be replied to
+     */
+    InventoryQueryResponseMessage<?> respond(InventoryQueryRequestMessage message, Destination replyDestination) {
         Log.LOG.tracef("Query message received, entity = %s", message.getEntity().toString());
 
-        Page page = inventory.execute(message.getQuery(), message.getEntity(), message.getPager());
+        Pager pager = message.getPager();
+        if (pager == null) {
+            pager = new Pager(0, defaultPageSize);
+        } else if (!pager.isLimited()) {
+            pager = new Pager(pager.getPageNumber(), defaultPageSize, pager.getOrder());
+        }
+
+        Integer chunkSize = message.getChunkSize();
+
+        if (chunkSize != null) {
+            String error = null;
+            if (chunkSize <= 0) {
+                error = "Invalid chunk size " + chunkSize + ". The chunk size must be positive.";
+            } else if (replyDestination == null) {
+                error = "Chunked results requested without the reply-to destination to send them to.";
+            }
 
-        ResultSet resultSet = new ResultSet(page.toList(), page.getPageContext(), page.getTotalSize());
-        InventoryQueryResponseMessage<?> response = new InventoryQueryResponseMessage<>(resultSet, message.getEntity());
+            if (error != null) {
+                return error(message, replyDestination, error);
+            }
+        }
 
+        try (Page<?> page = inventory.execute(message.getQuery(), message.getEntity(), pager)) {
+            if (chunkSize == null) {
+                return response(message, page, page.toList(), 0, true);
+            }
+
+            InventoryQueryResponseMessage<?>[] lastChunk = new InventoryQueryResponseMessage<?>[1];
+            chunk(page, chunkSize, (chunk, entities, last) -> {
+                InventoryQueryResponseMessage<?> response = response(message, page, entities, chunk, last);
+                if (last) {
+                    lastChunk[0] = response;
+                } else {
+                    sendChunk(replyDestination, message, response);
+                }
+            });
+
+            return lastChunk[0];
+        }
+    }
+
+    /**
+     * Splits the results into chunks of at most {@code chunkSize} entities. There is always at least one chunk (which
+     * is empty if there are no results) and only the last chunk is marked as such. Notice that if the number of
+     * results is a multiple of the chunk size, the last chunk is full rather than an additional empty one.
+     *
+     * @param results   the results to split
+     * @param chunkSize the maximum number of entities in a chunk
+     * @param consumer  the consumer of the chunks
+     */
+    static void chunk(Iterator<?> results, int chunkSize, ChunkConsumer consumer) {
+        int chunk = 0;
+        List<Object> entities = new ArrayList<>();
+        while (results.hasNext()) {
+            entities.add(results.next());
+
+            if (entities.size() == chunkSize && results.hasNext()) {
+                consumer.accept(chunk++, entities, false);
+                entities = new ArrayList<>(chunkSize);
+            }
+        }
+
+        consumer.accept(chunk, entities, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private InventoryQueryResponseMessage<?> response(InventoryQueryRequestMessage request, Page<?> page,
+                                                      List<?> entities, int chunk, boolean last) {
+        ResultSet resultSet = new ResultSet(entities, page.getPageContext(), page.getTotalSize());
+        return new InventoryQueryResponseMessage<>(resultSet, request.getEntity(), chunk, last);
+    }
+
+    @SuppressWarnings("unchecked")
+    private InventoryQueryResponseMessage<?> error(InventoryQueryRequestMessage request, Destination replyDestination,
+                                                   String error) {
+        if (replyDestination == null) {
+            //the RPC response would not be sent anywhere either
+            Log.LOG.droppingQuery(String.valueOf(request.getMessageId()), error);
+            return null;
+        }
+
+        InventoryQueryResponseMessage<?> response = new InventoryQueryResponseMessage<>(null, request.getEntity());
+        response.setError(error);
         return response;
     }
+
+    private void sendChunk(Destination destination, InventoryQueryRequestMessage request,
+                           InventoryQueryResponseMessage<?> response) {
+        //the chunks are correlated with the request the same way as the RPC response with the last chunk is
+        response.setCorrelationId(request.getMessageId());
+
+        //we're called from within the onMessage() method of the listener, so we can use the session of the consumer
+        ProducerConnectionContext producerContext = new ProducerConnectionContext();
+        producerContext.copy(connectionContext);
+        producerContext.setDestination(destination);
+        try {
+            MessageProducer producer = connectionContext.getSession().createProducer(destination);
+            producerContext.setMessageProducer(producer);
+            try {
+                messageProcessor.send(producerContext, response);
+            } finally {
+                producer.close();
+            }
+        } catch (JMSException e) {
+            throw new IllegalStateException("Failed to send chunk " + response.getChunk() + " of the response to the"
+                    + " query " + request.getMessageId() + ".", e);
+        }
+    }
+
+    @FunctionalInterface
+    interface ChunkConsumer {
+        void accept(int chunk, List<Object> entities, boolean last);
+    }
 }
@@ -18,6 +18,7 @@ package org.hawkular.inventory.bus;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 import java.io.IOException;
@@ -403,6 +404,7 @@ public class BusTest {
                 InventoryQueryRequestMessage.class);
 
         assertThat(requestMessage.getQuery(), is(equalTo(messageFromJson.getQuery())));
+        assertThat(messageFromJson.getChunkSize(), is(nullValue()));
     }
 
     @Test
@@ -420,6 +422,24 @@ public class BusTest {
         assertThat(responseFromJson.getResult().getPageContext(), is(equalTo(response.getResult().getPageContext())));
     }
 
+    @Test
+    public void testChunkedQueryResponseSerialization() {
+        List<Tenant> tenantList = Arrays.asList(new Tenant("name", CanonicalPath.fromString("/t;tenant"), null));
+
+        ResultSet<Tenant> resultSet = new ResultSet<>(tenantList,  new PageContext(0, 100, Order.unspecified()), 156);
+
+        InventoryQueryResponseMessage<Tenant> response = new InventoryQueryResponseMessage<>(resultSet, Tenant.class,
+                2, false);
+        String json = response.toJSON();
+
+        InventoryQueryResponseMessage<Tenant> responseFromJson = InventoryQueryResponseMessage.fromJSON(json,
+                InventoryQueryResponseMessage.class);
+
+        assertThat(responseFromJson.getChunk(), is(equalTo(2)));
+        assertThat(responseFromJson.isLastChunk(), is(equalTo(false)));
+        assertThat(responseFromJson.getResult().getEntities().size(), is(equalTo(1)));
+    }
+
     private void testHeaders(ConsumerConnectionContext consumerContext, Class<? extends InventoryEvent<?>> eventClass,
                              Runnable inventoryAction, Consumer<Map<String, String>> assertions)
             throws JMSException, InterruptedException {
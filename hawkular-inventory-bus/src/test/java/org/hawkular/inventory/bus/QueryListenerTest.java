@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.bus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.jms.Destination;
+
+import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.filters.With;
+import org.hawkular.inventory.api.model.Tenant;
+import org.hawkular.inventory.bus.api.InventoryQueryRequestMessage;
+import org.hawkular.inventory.bus.api.InventoryQueryResponseMessage;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 2.0.0
+ */
+public class QueryListenerTest {
+
+    @Test
+    public void testChunksWithRemainder() throws Exception {
+        List<String> chunks = chunk(Arrays.asList(1, 2, 3, 4, 5), 2);
+
+        Assert.assertEquals(Arrays.asList("0:[1, 2]", "1:[3, 4]", "2:[5]:last"), chunks);
+    }
+
+    @Test
+    public void testChunksOfExactMultiple() throws Exception {
+        List<String> chunks = chunk(Arrays.asList(1, 2, 3, 4, 5, 6), 3);
+
+        //no empty chunk is sent after the last full one
+        Assert.assertEquals(Arrays.asList("0:[1, 2, 3]", "1:[4, 5, 6]:last"), chunks);
+    }
+
+    @Test
+    public void testSingleChunk() throws Exception {
+        Assert.assertEquals(Collections.singletonList("0:[1, 2]:last"), chunk(Arrays.asList(1, 2), 2));
+        Assert.assertEquals(Collections.singletonList("0:[1]:last"), chunk(Collections.singletonList(1), 5));
+    }
+
+    @Test
+    public void testEmptyResultsProduceEmptyLastChunk() throws Exception {
+        Assert.assertEquals(Collections.singletonList("0:[]:last"), chunk(Collections.emptyList(), 3));
+    }
+
+    @Test
+    public void testInvalidChunkSizeRejected() throws Exception {
+        InventoryQueryRequestMessage<?> request = new InventoryQueryRequestMessage<>();
+        request.setChunkSize(1);
+        request.setChunkSize(null);
+
+        for (int invalid : new int[]{0, -1}) {
+            try {
+                request.setChunkSize(invalid);
+                Assert.fail("Chunk size " + invalid + " should have been rejected.");
+            } catch (IllegalArgumentException e) {
+                //expected
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidChunkSizeRepliedWithError() throws Exception {
+        //the setter rejects the invalid chunk sizes but the listener must not rely on the request being well-behaved
+        InventoryQueryRequestMessage<Tenant> request = new InventoryQueryRequestMessage<Tenant>(allTenants(),
+                Tenant.class, null) {
+            @Override
+            public Integer getChunkSize() {
+                return 0;
+            }
+        };
+
+        InventoryQueryResponseMessage<?> response = listener().respond(request, new Destination() {
+        });
+
+        Assert.assertNotNull(response);
+        Assert.assertNotNull(response.getError());
+        Assert.assertNull(response.getResult());
+        Assert.assertEquals(Tenant.class, response.getEntityClass());
+        Assert.assertEquals(0, response.getChunk());
+        Assert.assertTrue(response.isLastChunk());
+    }
+
+    @Test
+    public void testInvalidChunkSizeWithoutReplyToDropped() throws Exception {
+        InventoryQueryRequestMessage<Tenant> request = new InventoryQueryRequestMessage<Tenant>(allTenants(),
+                Tenant.class, null) {
+            @Override
+            public Integer getChunkSize() {
+                return -1;
+            }
+        };
+
+        Assert.assertNull(listener().respond(request, null));
+    }
+
+    @Test
+    public void testChunkedQueryWithoutReplyToDropped() throws Exception {
+        InventoryQueryRequestMessage<Tenant> request = new InventoryQueryRequestMessage<>(allTenants(), Tenant.class,
+                null);
+        request.setChunkSize(2);
+
+        Assert.assertNull(listener().respond(request, null));
+    }
+
+    private static QueryListener listener() {
+        //the invalid requests are handled before touching the inventory
+        return new QueryListener(null, 10);
+    }
+
+    private static Query allTenants() {
+        return Query.filter().with(With.type(Tenant.class)).get();
+    }
+
+    private static List<String> chunk(List<Integer> results, int chunkSize) {
+        List<String> chunks = new ArrayList<>();
+        QueryListener.chunk(results.iterator(), chunkSize,
+                (chunk, entities, last) -> chunks.add(chunk + ":" + entities + (last ? ":last" : "")));
+        return chunks;
+    }
+}
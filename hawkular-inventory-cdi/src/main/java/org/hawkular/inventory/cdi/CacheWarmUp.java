@@ -0,0 +1,192 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.cdi;
+
+import static org.hawkular.inventory.cdi.Log.LOG;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+
+import org.hawkular.inventory.api.Configuration;
+import org.hawkular.inventory.api.Feeds;
+import org.hawkular.inventory.api.Inventory;
+import org.hawkular.inventory.api.MetricTypes;
+import org.hawkular.inventory.api.ResourceTypes;
+import org.hawkular.inventory.api.Tenants;
+import org.hawkular.inventory.api.paging.Order;
+import org.hawkular.inventory.api.paging.Page;
+import org.hawkular.inventory.api.paging.Pager;
+
+/**
+ * Preloads the frequently accessed parts of the inventory after it is initialized, so that the caches of the backend
+ * are warm by the time the agents start to report in.
+ *
+ * <p>The warm-up runs in a background thread and reads, tenant by tenant, the environments, feeds, resource types and
+ * metric types (both the global and the feed-local ones) together with the types identical to them (which touches
+ * the identity hash nodes). The rate of the reads is limited so that the warm-up doesn't compete with the real
+ * traffic too much.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+@ApplicationScoped
+public class CacheWarmUp {
+
+    /**
+     * Whether to warm up the caches after the inventory is initialized. Defaults to false.
+     */
+    public static final Configuration.Property ENABLED = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.warm-up.enabled")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_WARM_UP_ENABLED").build();
+
+    /**
+     * The maximum number of entities to read per second during the warm-up. Defaults to 1000.
+     */
+    public static final Configuration.Property RATE = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.warm-up.rate")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_WARM_UP_RATE").build();
+
+    private static final int PAGE_SIZE = 100;
+
+    private volatile Thread worker;
+
+    public void start(@Observes InventoryInitialized event) {
+        Inventory inventory = event.getInventory();
+        Configuration configuration = inventory.getConfiguration();
+        if (configuration == null || !configuration.getFlag(ENABLED, "false")) {
+            return;
+        }
+
+        int rate = Integer.parseInt(configuration.getProperty(RATE, "1000"));
+
+        Thread thread = new Thread(() -> warmUp(inventory, rate), "hawkular-inventory-warm-up");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        worker = thread;
+        thread.start();
+    }
+
+    public void stop(@Observes DisposingInventory event) {
+        Thread thread = worker;
+        if (thread != null) {
+            worker = null;
+            thread.interrupt();
+        }
+    }
+
+    private void warmUp(Inventory inventory, int rate) {
+        LOG.iWarmUpStarted();
+        long start = System.currentTimeMillis();
+
+        RateLimit limit = new RateLimit(rate);
+        try {
+            warm(limit, p -> inventory.tenants().getAll().entities(p), tenant -> {
+                Tenants.Single t = inventory.tenants().get(tenant.getId());
+
+                warm(limit, p -> t.environments().getAll().entities(p), null);
+
+                Feeds.Multiple feeds = t.feeds().getAll();
+                warm(limit, feeds::entities, null);
+
+                warmTypes(limit, t.resourceTypes().getAll(), t.metricTypes().getAll());
+                warmTypes(limit, feeds.resourceTypes().getAll(), feeds.metricTypes().getAll());
+            });
+
+            LOG.iWarmUpFinished(limit.count, System.currentTimeMillis() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOG.wWarmUpFailed(e.getMessage());
+            LOG.debug("Cache warm-up failed.", e);
+        }
+    }
+
+    private void warmTypes(RateLimit limit, ResourceTypes.Multiple resourceTypes, MetricTypes.Multiple metricTypes)
+            throws InterruptedException {
+        warm(limit, resourceTypes::entities, null);
+        warm(limit, p -> resourceTypes.identical().getAll().entities(p), null);
+        warm(limit, metricTypes::entities, null);
+        warm(limit, p -> metricTypes.identical().getAll().entities(p), null);
+    }
+
+    private <T> void warm(RateLimit limit, Function<Pager, Page<T>> query, Visitor<T> visitor)
+            throws InterruptedException {
+        Pager pager = new Pager(0, PAGE_SIZE, Order.unspecified());
+
+        while (true) {
+            int loaded = 0;
+            //don't keep the page (and therefore the backend transaction) open while visiting the results
+            List<T> results;
+            try (Page<T> page = query.apply(pager)) {
+                results = new ArrayList<>(PAGE_SIZE);
+                while (page.hasNext()) {
+                    results.add(page.next());
+                }
+            }
+
+            for (T result : results) {
+                limit.acquire();
+                loaded++;
+                if (visitor != null) {
+                    visitor.visit(result);
+                }
+            }
+
+            if (loaded < PAGE_SIZE) {
+                return;
+            }
+
+            pager = pager.nextPage();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Visitor<T> {
+        void visit(T result) throws InterruptedException;
+    }
+
+    private static final class RateLimit {
+        private final int rate;
+        private final long start = System.nanoTime();
+        long count;
+
+        RateLimit(int rate) {
+            this.rate = rate;
+        }
+
+        void acquire() throws InterruptedException {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            count++;
+            if (rate <= 0) {
+                return;
+            }
+
+            long dueMillis = count * 1000 / rate;
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            if (dueMillis > elapsedMillis) {
+                Thread.sleep(dueMillis - elapsedMillis);
+            }
+        }
+    }
+}
@@ -49,4 +49,16 @@ public interface Log extends BasicLogger {
     @LogMessage(level = Logger.Level.INFO)
     @Message(id = 3503, value = "Inventory initialized.")
     void iInitialized();
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 3504, value = "Warming up the inventory caches in the background.")
+    void iWarmUpStarted();
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 3505, value = "Inventory caches warmed up by reading %d entities in %d ms.")
+    void iWarmUpFinished(long entityCount, long durationMillis);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 3506, value = "Warming up the inventory caches failed with message: %s")
+    void wWarmUpFailed(String message);
 }
@@ -115,10 +115,35 @@ public final class Constants {
         __metric_interval("collectionInterval", Long.class),
 
         /**
-         * Property used to store the canonical path of an element.
+         * Property used to store the canonical path of an element. If the inventory is configured to encode the
+         * canonical paths, the entities (as well as the {@link #__sourceCp} and {@link #__targetCp} of the edges)
+         * store a short key derived from the path instead of the full path.
          */
         __cp("path", String.class),
 
+        /**
+         * When the canonical paths are stored encoded (see {@link #__cp}), this property holds the key of the canonical
+         * path of the parent entity. Together with {@link #__cpSegment} this forms the dictionary of the paths, in
+         * which each path shares the prefix with its parent.
+         */
+        __cpParent(String.class),
+
+        /**
+         * When the canonical paths are stored encoded (see {@link #__cp}), this property holds the last segment of the
+         * canonical path of the entity, i.e. the part of the path following the path of the parent entity.
+         */
+        __cpSegment(String.class),
+
+        /**
+         * The name of the encoding of the canonical paths in the graph.
+         */
+        __pathEncoding(String.class),
+
+        /**
+         * The definitions of the hot properties whose values are mirrored in the graph.
+         */
+        __hotProperties(String.class),
+
         /**
          * The type of the data stored by the structured data vertex
          */
@@ -170,7 +195,15 @@ public final class Constants {
 
         __to(Long.class),
 
-        __changeKind(int.class)
+        __changeKind(int.class),
+
+        __schemaVersion(String.class),
+
+        /**
+         * The name of the shard a tenant is stored in. Present on the shard assignment vertices in the shard
+         * directory graph.
+         */
+        __shard(String.class)
 
         ;
 
@@ -249,11 +282,12 @@ public final class Constants {
         private final Class<?> entityType;
 
         private static final List<String> identityVertexProperties =
-                Arrays.asList(Property.__type.name(), Property.__eid.name(), Property.__cp.name());
+                Arrays.asList(Property.__type.name(), Property.__eid.name(), Property.__cp.name(),
+                        Property.__cpParent.name(), Property.__cpSegment.name());
 
         Type(Class<?> entityType, Property... mappedProperties) {
             this.entityType = entityType;
-            this.mappedProperties = new String[mappedProperties.length + 3];
+            this.mappedProperties = new String[mappedProperties.length + 5];
             Arrays.setAll(this.mappedProperties, i -> {
                 switch (i) {
                     case 0:
@@ -262,8 +296,12 @@ public final class Constants {
                         return Property.__eid.name();
                     case 2:
                         return Property.__cp.name();
+                    case 3:
+                        return Property.__cpParent.name();
+                    case 4:
+                        return Property.__cpSegment.name();
                     default:
-                        return mappedProperties[i - 3].name();
+                        return mappedProperties[i - 5].name();
                 }
             });
         }
@@ -432,6 +470,6 @@ public final class Constants {
     }
 
     public enum InternalType {
-        __identityHash
+        __identityHash, __schemaVersion, __shardAssignment, __pathEncoding, __hotProperties
     }
 }
@@ -72,6 +72,18 @@ public interface GraphProvider {
      */
     void ensureIndices(Graph graph, IndexSpec... indexSpecs);
 
+    /**
+     * Describes the schema the provider sets up in {@link #ensureIndices(Graph, IndexSpec...)} on top of the indices,
+     * e.g. the tables of a relational database. The inventory skips {@link #ensureIndices(Graph, IndexSpec...)} on
+     * startup if neither the indices nor this description changed since the graph was last set up, so the description
+     * has to change with every change to that schema.
+     *
+     * @return the description of the schema or null if the provider doesn't set up anything but the indices
+     */
+    default String getSchemaDescription() {
+        return null;
+    }
+
     /**
      * Initializes new transaction for use with given graph.
      *
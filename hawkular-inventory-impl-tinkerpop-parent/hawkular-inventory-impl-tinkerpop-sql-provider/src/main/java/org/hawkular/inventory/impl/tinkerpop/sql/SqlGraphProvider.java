@@ -65,6 +65,12 @@ import org.umlg.sqlg.structure.SqlgGraph;
  * @since 0.13.0
  */
 public class SqlGraphProvider implements GraphProvider {
+    /**
+     * Bump this whenever {@link #ensureSchema(SqlgGraph)} changes in a way that is not reflected in the mapped
+     * properties of the types, e.g. when a new edge table is added.
+     */
+    private static final int SCHEMA_REVISION = 1;
+
     @Override public boolean isPreferringBigTransactions() {
         return false;
     }
@@ -94,6 +100,19 @@ public class SqlGraphProvider implements GraphProvider {
         }
     }
 
+    @Override public String getSchemaDescription() {
+        StringBuilder description = new StringBuilder().append(SCHEMA_REVISION);
+        for (Constants.Type t : Constants.Type.values()) {
+            description.append(';').append(t.name());
+            for (String p : t.getMappedProperties()) {
+                description.append(',').append(p).append(':')
+                        .append(Constants.Property.valueOf(p).getPropertyType().getSimpleName());
+            }
+        }
+
+        return description.toString();
+    }
+
     @Override public void ensureIndices(Graph graph, IndexSpec... indexSpecs) {
         SqlgGraph sqlg = (SqlgGraph) graph;
 
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop.provider;
+
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.hawkular.inventory.api.test.AbstractInventoryLoadTest;
+import org.hawkular.inventory.base.BaseInventory;
+import org.hawkular.inventory.impl.tinkerpop.TinkerpopInventory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+/**
+ * @author agent
+ * @since 2.0.0
+ */
+public class TinkerGraphLoadTest extends AbstractInventoryLoadTest<Element> {
+    private static TinkerpopInventory INVENTORY;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        System.setProperty("TinkerGraphProvider.prefersBigTxs", "false");
+        String configPath = System.getProperty("load.config");
+        System.setProperty("graph.config", configPath);
+        INVENTORY = new TinkerpopInventory();
+        setupInventory(INVENTORY);
+    }
+
+    @AfterClass
+    public static void teardown() throws Exception {
+        INVENTORY.close();
+        AbstractTinkerGraphTest.teardown(INVENTORY);
+    }
+
+    @Override
+    protected BaseInventory<Element> getInventoryForTest() {
+        return INVENTORY;
+    }
+
+    /**
+     * The TinkerGraph provider keeps a single transaction per graph, so the feeds would run into each other's
+     * transactions if they ran concurrently.
+     */
+    @Override
+    protected int getThreads() {
+        return 1;
+    }
+}
@@ -123,19 +123,22 @@ abstract class FilterApplicator<T extends Filter> {
     /**
      * Applies all the filters from the applicator tree to the provided Gremlin query.
      *
-     * @param filterTree the tree of filters to apply to the query
-     * @param q          the query to update with filters from the tree
-     * @param <S>        type of the source of the query
-     * @param <E>        type of the output of the query
+     * @param filterTree   the tree of filters to apply to the query
+     * @param q            the query to update with filters from the tree
+     * @param context      the context providing the configuration of the storage of the data in the graph
+     * @param <S>          type of the source of the query
+     * @param <E>          type of the output of the query
      */
     public static <S, E> void applyAll(Discriminator discriminator, Query filterTree, HawkularTraversal<S, E> q,
-                                       boolean inEdges) {
+                                       boolean inEdges, InventoryContext context) {
         if (filterTree == null) {
             return;
         }
 
         QueryTranslationState state = new QueryTranslationState();
         state.setInEdges(inEdges);
+        state.setPathEncoding(context.getPathEncoding());
+        state.setHotProperties(context.getHotProperties());
 
         applyAll(discriminator, filterTree, q, false, state);
     }
@@ -32,6 +32,7 @@ import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__tar
 import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__type;
 
 import java.util.Arrays;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
@@ -132,7 +133,7 @@ class FilterVisitor {
         if (related.getEntityPath() != null) {
             String prop = chooseBasedOnDirection(Constants.Property.__cp, Constants.Property.__targetCp, Constants
                     .Property.__sourceCp, TinkerpopBackend.asDirection(related.getEntityRole())).name();
-            query.has(prop, related.getEntityPath().toString());
+            query.has(prop, state.getPathEncoding().encode(related.getEntityPath().toString()));
         }
     }
 
@@ -303,6 +304,10 @@ class FilterVisitor {
 
     public void visit(Discriminator discriminator, HawkularTraversal<?, ?> query, With.PropertyValues filter,
                       QueryTranslationState state) {
+        if (applyHotPropertyFilter(discriminator, query, filter, state)) {
+            return;
+        }
+
         //if the property is mirrored, we check for its value directly at the edge and only move to the target
         //vertex afterwards. If it is not mirrored, we first move to the target vertex and then filter by the property
         boolean propertyMirrored = Constants.Property.isMirroredInEdges(filter.getName());
@@ -319,11 +324,58 @@ class FilterVisitor {
         }
     }
 
+    /**
+     * If the property is hot, its latest value is mirrored both on the identity vertices and the edges, so we can
+     * filter on it directly wherever we currently are.
+     *
+     * @return true if the filter was applied, false if the property is not hot or the mirrors cannot be used
+     */
+    private boolean applyHotPropertyFilter(Discriminator discriminator, HawkularTraversal<?, ?> query,
+                                           With.PropertyValues filter, QueryTranslationState state) {
+        HotProperties hotProperties = state.getHotProperties();
+        if (!discriminator.isQueryLatest() || !hotProperties.isHot(filter.getName())) {
+            return false;
+        }
+
+        if (state.isInEdges() && state.getComingFrom() == Direction.BOTH) {
+            //the edges lead to both the sources and targets, so no single mirror on them can be used
+            return false;
+        }
+
+        Object[] values = hotProperties.convert(filter.getName(), filter.getValues());
+        if (Stream.of(values).anyMatch(Objects::isNull)) {
+            //the value is not representable in the type of the mirror, let the state vertices decide
+            return false;
+        }
+
+        String prop = chooseBasedOnDirection(hotProperties.onVertex(filter.getName()),
+                hotProperties.onTarget(filter.getName()), hotProperties.onSource(filter.getName()),
+                state.isInEdges() ? state.getComingFrom() : null);
+
+        if (values.length == 0) {
+            query.has(prop);
+        } else if (values.length == 1) {
+            query.has(prop, values[0]);
+        } else {
+            query.has(prop, P.within(values));
+        }
+
+        goBackFromEdges(query, state);
+        query.existsAt(discriminator);
+
+        return true;
+    }
+
     @SuppressWarnings("unchecked")
     private void applyPropertyFilter(Discriminator discriminator, HawkularTraversal<?, ?> query,
                                      QueryTranslationState state, String propertyName, Object... values) {
         String mappedName = Constants.Property.mapUserDefined(propertyName);
 
+        if (__cp.name().equals(mappedName) || __sourceCp.name().equals(mappedName)
+                || __targetCp.name().equals(mappedName)) {
+            values = state.getPathEncoding().encode(values);
+        }
+
         boolean checkStateVertex = !state.isInEdges() && !Constants.Type.getIdentityVertexProperties().contains(mappedName);
 
         HawkularTraversal<?, ?> check = query;
@@ -369,7 +421,7 @@ class FilterVisitor {
                         .identityVertexLabel());
             }
 
-            query.has(prop, filter.getPaths()[0].toString());
+            query.has(prop, state.getPathEncoding().encode(filter.getPaths()[0].toString()));
         } else {
             if (prop.equals(__cp.name())) {
                 String[] labels = Stream.of(filter.getPaths())
@@ -379,7 +431,8 @@ class FilterVisitor {
                 query.has(T.label, P.within(labels));
             }
 
-            String[] paths = Stream.of(filter.getPaths()).map(Object::toString).toArray(String[]::new);
+            String[] paths = Stream.of(filter.getPaths()).map(p -> state.getPathEncoding().encode(p.toString()))
+                    .toArray(String[]::new);
 
             query.has(prop, P.within(paths));
         }
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.InternalEdge.__inState;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__hotProperties;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__to;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__type;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.hawkular.inventory.impl.tinkerpop.spi.Constants;
+import org.hawkular.inventory.impl.tinkerpop.spi.GraphProvider;
+import org.hawkular.inventory.impl.tinkerpop.spi.IndexSpec;
+
+/**
+ * The user-defined properties that are frequently used for filtering and are therefore denormalized out of the state
+ * vertices.
+ *
+ * <p>The latest value of a hot property of an entity is mirrored onto its identity vertex and onto the
+ * (non-internal) edges of that vertex, in the same way the canonical paths, ids and types are mirrored onto the
+ * edges. This makes it possible to filter by the property using an index, without the hop to the state vertex. Because
+ * only the latest value is mirrored, the mirrors can only be used by the queries for the latest state of the
+ * inventory. The queries at some point in time still have to check the state vertices.
+ *
+ * <p>The mirrored values are converted to the type declared in the configuration so that the properties can be
+ * indexed. The values of the filters on these properties are converted the same way. A value of a different type is
+ * not coerced - it is not mirrored at all and a filter with such value falls back to the state vertices, so that the
+ * results are the same as without the mirrors.
+ *
+ * <p>The configured hot properties are recorded in the graph. When a property is added to the configuration of a graph
+ * that already contains data, the mirrors of the existing entities are backfilled when the graph is opened.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+final class HotProperties {
+    static final HotProperties NONE = new HotProperties(Collections.emptyMap());
+
+    private static final String VERTEX_PREFIX = "__hot_";
+    private static final String SOURCE_PREFIX = "__sourceHot_";
+    private static final String TARGET_PREFIX = "__targetHot_";
+
+    private static final String MARKER = Constants.InternalType.__hotProperties.name();
+
+    private final Map<String, Class<?>> types;
+
+    private HotProperties(Map<String, Class<?>> types) {
+        this.types = types;
+    }
+
+    /**
+     * Parses the configuration of the hot properties. The configuration is a comma-separated list of property names,
+     * each optionally followed by a colon and the type of the property - one of {@code string} (the default),
+     * {@code long}, {@code double} or {@code boolean}.
+     *
+     * @param configuration the configuration string, may be null
+     * @return the hot properties
+     */
+    static HotProperties of(String configuration) {
+        if (configuration == null || configuration.trim().isEmpty()) {
+            return NONE;
+        }
+
+        Map<String, Class<?>> types = new LinkedHashMap<>();
+        for (String def : configuration.split(",")) {
+            def = def.trim();
+            if (def.isEmpty()) {
+                continue;
+            }
+
+            int colonIdx = def.indexOf(':');
+            String name = colonIdx < 0 ? def : def.substring(0, colonIdx).trim();
+            String type = colonIdx < 0 ? "string" : def.substring(colonIdx + 1).trim();
+
+            if (!Constants.Property.mapUserDefined(name).equals(name) || name.startsWith("__")) {
+                throw new IllegalArgumentException("Property '" + name + "' is reserved and cannot be configured as" +
+                        " a hot property.");
+            }
+
+            switch (type) {
+                case "string":
+                    types.put(name, String.class);
+                    break;
+                case "long":
+                    types.put(name, Long.class);
+                    break;
+                case "double":
+                    types.put(name, Double.class);
+                    break;
+                case "boolean":
+                    types.put(name, Boolean.class);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported type of hot property '" + name + "': '" + type +
+                            "'. Supported types are 'string', 'long', 'double' and 'boolean'.");
+            }
+        }
+
+        return new HotProperties(Collections.unmodifiableMap(types));
+    }
+
+    /**
+     * @param key the name of a property of some element
+     * @return true if the property is a mirror of a hot property and therefore not part of the user-visible data
+     */
+    static boolean isMirror(String key) {
+        return key.startsWith(VERTEX_PREFIX) || key.startsWith(SOURCE_PREFIX) || key.startsWith(TARGET_PREFIX);
+    }
+
+    boolean isHot(String propertyName) {
+        return types.containsKey(propertyName);
+    }
+
+    String onVertex(String propertyName) {
+        return VERTEX_PREFIX + propertyName;
+    }
+
+    String onSource(String propertyName) {
+        return SOURCE_PREFIX + propertyName;
+    }
+
+    String onTarget(String propertyName) {
+        return TARGET_PREFIX + propertyName;
+    }
+
+    /**
+     * @param propertyName the name of a hot property
+     * @param values       the filter values
+     * @return the values converted to the type the mirrors of the property are stored with
+     */
+    Object[] convert(String propertyName, Object... values) {
+        Object[] ret = new Object[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            ret[i] = convert(types.get(propertyName), values[i]);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Mirrors the hot properties of the latest state of an entity to its identity vertex and its live edges.
+     *
+     * @param identity the identity vertex of the entity
+     * @param state    the latest state vertex of the entity
+     */
+    void mirror(Vertex identity, Element state) {
+        if (types.isEmpty()) {
+            return;
+        }
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        types.forEach((name, type) -> values.put(name, convert(type, state.property(name).orElse(null))));
+
+        values.forEach((name, value) -> set(identity, onVertex(name), value));
+
+        mirrorToEdges(identity, Direction.OUT, values);
+        mirrorToEdges(identity, Direction.IN, values);
+    }
+
+    /**
+     * Copies the mirrored hot properties of the source and target vertices onto a newly created relationship.
+     *
+     * @param relationship the relationship edge
+     */
+    void mirror(Edge relationship) {
+        if (types.isEmpty()) {
+            return;
+        }
+
+        Vertex source = relationship.outVertex();
+        Vertex target = relationship.inVertex();
+        for (String name : types.keySet()) {
+            set(relationship, onSource(name), source.property(onVertex(name)).orElse(null));
+            set(relationship, onTarget(name), target.property(onVertex(name)).orElse(null));
+        }
+    }
+
+    /**
+     * Makes sure the mirrors of all the configured hot properties exist in the graph. If the graph records a different
+     * set of hot properties than is configured, the mirrors of the properties that were not configured before are
+     * backfilled from the latest states of all the entities and the new configuration is recorded.
+     *
+     * @param graphProvider the provider of the graph
+     * @param graph         the graph to check
+     */
+    void verify(GraphProvider graphProvider, Graph graph) {
+        String definition = definition();
+
+        graphProvider.startTransaction(graph);
+        boolean committed = false;
+        try {
+            Iterator<Vertex> markers = graph.traversal().V().hasLabel(MARKER).has(__type.name(), MARKER);
+            Vertex marker = markers.hasNext() ? markers.next() : null;
+            String recorded = marker == null ? "" : marker.<String>property(__hotProperties.name()).orElse("");
+
+            if (definition.equals(recorded)) {
+                return;
+            }
+
+            Set<String> recordedDefs = new HashSet<>(Arrays.asList(recorded.split(",")));
+            boolean added = Stream.of(definition.split(",")).anyMatch(d -> !d.isEmpty() && !recordedDefs.contains(d));
+
+            if (added) {
+                Iterator<Edge> latestStates = graph.traversal().E().hasLabel(__inState.name())
+                        .has(__to.name(), Long.MAX_VALUE);
+                while (latestStates.hasNext()) {
+                    Edge e = latestStates.next();
+                    mirror(e.outVertex(), e.inVertex());
+                }
+            }
+
+            if (marker == null) {
+                marker = graph.addVertex(T.label, MARKER);
+                marker.property(__type.name(), MARKER);
+            }
+            marker.property(__hotProperties.name(), definition);
+
+            graphProvider.commit(graph);
+            committed = true;
+        } finally {
+            if (!committed) {
+                graphProvider.rollback(graph);
+            }
+        }
+    }
+
+    /**
+     * @return the specifications of the indices of the mirrors of the hot properties
+     */
+    IndexSpec[] indexSpecs() {
+        return types.entrySet().stream().flatMap(e -> Stream.of(
+                indexSpec(Vertex.class, onVertex(e.getKey()), e.getValue()),
+                indexSpec(Edge.class, onSource(e.getKey()), e.getValue()),
+                indexSpec(Edge.class, onTarget(e.getKey()), e.getValue()))).toArray(IndexSpec[]::new);
+    }
+
+    private void mirrorToEdges(Vertex identity, Direction direction, Map<String, Object> values) {
+        Iterator<Edge> edges = identity.edges(direction);
+        while (edges.hasNext()) {
+            Edge e = edges.next();
+            if (isInternal(e) || e.<Long>property(__to.name()).orElse(Long.MAX_VALUE) != Long.MAX_VALUE) {
+                continue;
+            }
+
+            values.forEach((name, value) -> set(e, direction == Direction.OUT ? onSource(name) : onTarget(name),
+                    value));
+        }
+    }
+
+    private String definition() {
+        return types.entrySet().stream().map(e -> e.getKey() + ":" + e.getValue().getSimpleName().toLowerCase())
+                .collect(Collectors.joining(","));
+    }
+
+    private static boolean isInternal(Edge edge) {
+        for (Constants.InternalEdge ie : Constants.InternalEdge.values()) {
+            if (ie.name().equals(edge.label())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static void set(Element element, String key, Object value) {
+        if (value == null) {
+            element.property(key).remove();
+        } else {
+            element.property(key, value);
+        }
+    }
+
+    private static Object convert(Class<?> type, Object value) {
+        if (value == null || type.isInstance(value)) {
+            return value;
+        }
+
+        //only widen the numbers, anything else is a mismatch that cannot be mirrored
+        if (Long.class.equals(type) && (value instanceof Integer || value instanceof Short || value instanceof Byte)) {
+            return ((Number) value).longValue();
+        } else if (Double.class.equals(type) && value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else {
+            return null;
+        }
+    }
+
+    private static IndexSpec indexSpec(Class<? extends Element> elementType, String name, Class<?> type) {
+        return IndexSpec.builder()
+                .withElementType(elementType)
+                .withProperty(IndexSpec.Property.builder()
+                        .withName(name)
+                        .withType(type)
+                        .build())
+                .build();
+    }
+}
@@ -31,15 +31,20 @@ final class InventoryContext {
     private final Graph graph;
     private final TinkerpopInventory inventory;
     private final GraphProvider graphProvider;
+    private final PathEncoding pathEncoding;
+    private final HotProperties hotProperties;
 
-    public InventoryContext(TinkerpopInventory inventory, Graph graph, GraphProvider graphProvider) {
+    public InventoryContext(TinkerpopInventory inventory, Graph graph, GraphProvider graphProvider,
+                            PathEncoding pathEncoding, HotProperties hotProperties) {
         this.inventory = inventory;
         this.graph = graph;
         this.graphProvider = graphProvider;
+        this.pathEncoding = pathEncoding;
+        this.hotProperties = hotProperties;
     }
 
     public InventoryContext cloneWith(Graph graph) {
-        return new InventoryContext(inventory, graph, graphProvider);
+        return new InventoryContext(inventory, graph, graphProvider, pathEncoding, hotProperties);
     }
 
     public TinkerpopInventory getInventory() {
@@ -50,6 +55,21 @@ final class InventoryContext {
         return graph;
     }
 
+    public PathEncoding getPathEncoding() {
+        return pathEncoding;
+    }
+
+    public HotProperties getHotProperties() {
+        return hotProperties;
+    }
+
+    /**
+     * @return the log to record the slow queries to or null if the slow queries are not recorded
+     */
+    public SlowQueryLog getSlowQueryLog() {
+        return inventory == null ? null : inventory.getSlowQueryLog();
+    }
+
     public Graph startTransaction() {
         return graphProvider.startTransaction(graph);
     }
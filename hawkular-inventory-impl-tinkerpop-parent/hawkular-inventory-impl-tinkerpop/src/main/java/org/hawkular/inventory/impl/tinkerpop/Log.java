@@ -38,4 +38,26 @@ import org.jboss.logging.annotations.ValidIdRange;
     @LogMessage(level = Logger.Level.INFO)
     @Message(id = 1000, value = "Using graph provider: %s")
     void iUsingGraphProvider(String backend);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 1001, value = "Opening graph shard: %s")
+    void iOpeningGraphShard(String shard);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 1002, value = "Slow %s (%.1f ms, %d results) in tenant '%s':\nquery: %s\npager: %s\n" +
+            "discriminator: %s\n%s")
+    void wSlowQuery(String operation, double durationMillis, long resultCount, String tenantId, String query,
+                    String pager, String discriminator, String plan);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 1003, value = "The schema of the graph is at version %s, skipping the schema and index checks.")
+    void iSchemaUpToDate(String version);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 1004, value = "Updating the schema of the graph from version %s to %s.")
+    void iUpdatingSchema(String oldVersion, String newVersion);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 1005, value = "Graph opened and its schema ensured in %d ms.")
+    void iGraphInitialized(long durationMillis);
 }
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__cp;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__cpParent;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__cpSegment;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__pathEncoding;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__type;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.hawkular.inventory.impl.tinkerpop.spi.Constants;
+import org.hawkular.inventory.impl.tinkerpop.spi.GraphProvider;
+
+/**
+ * Defines how the canonical paths of the entities are stored in the graph.
+ *
+ * <p>By default the {@link #PLAIN plain} canonical paths are stored in the {@code __cp} property of the entity vertices
+ * and copied over to the {@code __sourceCp} and {@code __targetCp} properties of the edges.
+ *
+ * <p>With the {@link #DICTIONARY dictionary} encoding, all the indexed properties store a short key derived from the
+ * path instead. The key is a truncated cryptographic hash of the path, so any path given in a query can be encoded
+ * without consulting the dictionary first. The full paths are not stored anywhere. Instead, the entity vertices form
+ * the dictionary - each of them stores the key of the path of its parent in {@code __cpParent} and only the last
+ * segment of its own path in {@code __cpSegment}, so each path shares its prefix with the path of its parent. The
+ * path is decoded by following the parent keys up to the tenant. The decoded paths are cached, because they are
+ * needed every time an entity is converted.
+ *
+ * <p>The relationships are never encoded, because their canonical paths are short and don't repeat anywhere.
+ *
+ * <p>The encoding has to be chosen when the graph is created. The encoding is recorded in the graph and the
+ * inventory refuses to start with a different one.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+final class PathEncoding {
+    static final PathEncoding PLAIN = new PathEncoding("plain", false);
+    static final PathEncoding DICTIONARY = new PathEncoding("dictionary", true);
+
+    /**
+     * The canonical paths always start with a slash, so this cannot be confused with a plain path.
+     */
+    private static final char KEY_PREFIX = '#';
+
+    private static final String RELATIONSHIP_PATH_PREFIX = "/rl;";
+
+    /**
+     * 15 bytes = 120 bits of the hash is plenty to avoid collisions and encodes to 20 base64 characters.
+     */
+    private static final int KEY_BYTES = 15;
+
+    private static final int DECODED_CACHE_SIZE = 16 * 1024;
+
+    private static final String MARKER = Constants.InternalType.__pathEncoding.name();
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 not supported by the JVM.", e);
+        }
+    });
+
+    /**
+     * The keys are derived from the paths, so a key always decodes to the same path, regardless of the graph it
+     * comes from. This cache can therefore be shared by all the graphs and never needs to be invalidated.
+     */
+    private static final Map<String, String> DECODED = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > DECODED_CACHE_SIZE;
+        }
+    };
+
+    private final String name;
+    private final boolean encoding;
+
+    private PathEncoding(String name, boolean encoding) {
+        this.name = name;
+        this.encoding = encoding;
+    }
+
+    /**
+     * @param name the name of the encoding, either "plain" or "dictionary"
+     * @return the encoding with given name
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    static PathEncoding of(String name) {
+        switch (name) {
+            case "plain":
+                return PLAIN;
+            case "dictionary":
+                return DICTIONARY;
+            default:
+                throw new IllegalArgumentException("Unknown canonical path encoding: '" + name + "'. Supported values" +
+                        " are 'plain' and 'dictionary'.");
+        }
+    }
+
+    /**
+     * Reads the full canonical path of the element regardless of the encoding the element has been stored with.
+     *
+     * @param element the element
+     * @return the canonical path of the element or null if the element has none
+     */
+    static String pathOf(Element element) {
+        String cp = element.<String>property(__cp.name()).orElse(null);
+        if (cp == null || cp.isEmpty() || cp.charAt(0) != KEY_PREFIX) {
+            return cp;
+        }
+
+        return decode(element, cp);
+    }
+
+    /**
+     * Forgets all the decoded paths. Only useful for testing the decoding.
+     */
+    static void clearDecodedPaths() {
+        synchronized (DECODED) {
+            DECODED.clear();
+        }
+    }
+
+    private static String decode(Element element, String key) {
+        String cp;
+        synchronized (DECODED) {
+            cp = DECODED.get(key);
+        }
+
+        if (cp != null) {
+            return cp;
+        }
+
+        String segment = element.<String>property(__cpSegment.name()).orElse(null);
+        if (segment == null) {
+            throw new IllegalStateException("Element " + element + " with the encoded canonical path " + key
+                    + " doesn't store its path segment.");
+        }
+
+        String parentKey = element.<String>property(__cpParent.name()).orElse(null);
+        if (parentKey == null) {
+            cp = segment;
+        } else {
+            Iterator<Vertex> parents = element.graph().traversal().V().has(__cp.name(), parentKey);
+            if (!parents.hasNext()) {
+                throw new IllegalStateException("The parent " + parentKey + " of the element " + element
+                        + " with the encoded canonical path " + key + " doesn't exist.");
+            }
+
+            cp = decode(parents.next(), parentKey) + segment;
+        }
+
+        remember(key, cp);
+
+        return cp;
+    }
+
+    private static void remember(String key, String canonicalPath) {
+        synchronized (DECODED) {
+            DECODED.put(key, canonicalPath);
+        }
+    }
+
+    /**
+     * Finds the separator of the last segment of the path, skipping the escaped slashes in the ids.
+     *
+     * @return the index of the slash starting the last segment or 0 if the path has a single segment
+     */
+    private static int lastSegmentStart(String canonicalPath) {
+        int ret = 0;
+        for (int i = 1; i < canonicalPath.length(); ++i) {
+            char c = canonicalPath.charAt(i);
+            if (c == '\\') {
+                ++i;
+            } else if (c == '/') {
+                ret = i;
+            }
+        }
+
+        return ret;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Checks that the graph stores the paths using this encoding and records the encoding in a new graph.
+     *
+     * <p>The graphs created before the encoding was recorded are assumed to use the {@link #PLAIN plain} encoding if
+     * they contain any data.
+     *
+     * @param graphProvider the provider of the graph
+     * @param graph         the graph to check
+     * @throws IllegalStateException if the graph uses a different encoding
+     */
+    void verify(GraphProvider graphProvider, Graph graph) {
+        graphProvider.startTransaction(graph);
+        boolean committed = false;
+        try {
+            Iterator<Vertex> markers = graph.traversal().V().hasLabel(MARKER).has(__type.name(), MARKER);
+            Vertex marker = markers.hasNext() ? markers.next() : null;
+            String recorded;
+            if (marker != null) {
+                recorded = marker.<String>property(__pathEncoding.name()).orElse(null);
+            } else {
+                recorded = graph.traversal().V().has(__cp.name()).hasNext() ? PLAIN.name : null;
+            }
+
+            if (recorded != null && !recorded.equals(name)) {
+                throw new IllegalStateException("The graph stores the canonical paths using the '" + recorded
+                        + "' encoding, but the inventory is configured to use the '" + name + "' encoding. The"
+                        + " encoding cannot be changed once the graph contains data.");
+            }
+
+            if (marker == null) {
+                marker = graph.addVertex(T.label, MARKER);
+                marker.property(__type.name(), MARKER);
+                marker.property(__pathEncoding.name(), name);
+                graphProvider.commit(graph);
+                committed = true;
+            }
+        } finally {
+            if (!committed) {
+                graphProvider.rollback(graph);
+            }
+        }
+    }
+
+    /**
+     * @param canonicalPath the canonical path as a string
+     * @return the value of the path as it is stored in the graph
+     */
+    String encode(String canonicalPath) {
+        if (!encoding || canonicalPath.startsWith(RELATIONSHIP_PATH_PREFIX)) {
+            return canonicalPath;
+        }
+
+        MessageDigest digest = DIGEST.get();
+        byte[] hash = digest.digest(canonicalPath.getBytes(StandardCharsets.UTF_8));
+
+        return KEY_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, KEY_BYTES));
+    }
+
+    /**
+     * Encodes the values of the filters on the path-valued properties. Non-string values are left intact.
+     *
+     * @param values the values to encode
+     * @return the encoded values
+     */
+    Object[] encode(Object... values) {
+        if (!encoding) {
+            return values;
+        }
+
+        Object[] ret = new Object[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            ret[i] = values[i] instanceof String ? encode((String) values[i]) : values[i];
+        }
+
+        return ret;
+    }
+
+    /**
+     * Stores the canonical path on the entity vertex.
+     *
+     * @param vertex        the entity vertex
+     * @param canonicalPath the canonical path of the entity
+     */
+    void store(Vertex vertex, String canonicalPath) {
+        String key = encode(canonicalPath);
+        vertex.property(__cp.name(), key);
+        if (!encoding) {
+            return;
+        }
+
+        int segmentStart = lastSegmentStart(canonicalPath);
+        if (segmentStart > 0) {
+            vertex.property(__cpParent.name(), encode(canonicalPath.substring(0, segmentStart)));
+        }
+        vertex.property(__cpSegment.name(), canonicalPath.substring(segmentStart));
+
+        remember(key, canonicalPath);
+    }
+}
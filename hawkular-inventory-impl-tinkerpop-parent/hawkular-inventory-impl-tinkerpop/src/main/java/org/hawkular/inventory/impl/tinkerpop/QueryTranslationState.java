@@ -26,6 +26,8 @@ final class QueryTranslationState implements Cloneable {
     private boolean inEdges;
     private boolean explicitChange;
     private Direction comingFrom;
+    private PathEncoding pathEncoding = PathEncoding.PLAIN;
+    private HotProperties hotProperties = HotProperties.NONE;
 
     public boolean isInEdges() {
         return inEdges;
@@ -45,6 +47,22 @@ final class QueryTranslationState implements Cloneable {
         explicitChange = false;
     }
 
+    public PathEncoding getPathEncoding() {
+        return pathEncoding;
+    }
+
+    public void setPathEncoding(PathEncoding pathEncoding) {
+        this.pathEncoding = pathEncoding;
+    }
+
+    public HotProperties getHotProperties() {
+        return hotProperties;
+    }
+
+    public void setHotProperties(HotProperties hotProperties) {
+        this.hotProperties = hotProperties;
+    }
+
     public boolean isExplicitChange() {
         return explicitChange;
     }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__schemaVersion;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__type;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.hawkular.inventory.impl.tinkerpop.spi.Constants;
+import org.hawkular.inventory.impl.tinkerpop.spi.GraphProvider;
+import org.hawkular.inventory.impl.tinkerpop.spi.IndexSpec;
+
+/**
+ * The version of the schema and indices of the graph, persisted in a single internal marker vertex. If the version
+ * stored in the graph matches the version the inventory would create, the (potentially quite expensive) schema and
+ * index checks of the graph provider can be skipped on startup.
+ *
+ * <p>The version consists of the {@link #CURRENT revision} of the schema, which needs to be bumped with every change
+ * to the graph structure that the graph providers need to know about, and a digest of the graph provider, the
+ * {@link GraphProvider#getSchemaDescription() schema} it sets up and the index specifications (which include the
+ * configured hot properties).
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+final class SchemaVersion {
+    /**
+     * Bump this whenever the structure of the graph changes in a way the graph providers need to react to.
+     */
+    private static final int CURRENT = 1;
+
+    private static final String MARKER = Constants.InternalType.__schemaVersion.name();
+
+    private SchemaVersion() {
+
+    }
+
+    /**
+     * @param graphProvider the graph provider to ensure the indices with
+     * @param indexSpecs    the indices to be ensured
+     * @return the version of the schema corresponding to the provided inputs
+     */
+    static String of(GraphProvider graphProvider, IndexSpec... indexSpecs) {
+        StringBuilder fingerprint = new StringBuilder(graphProvider.getClass().getName());
+        fingerprint.append('|').append(graphProvider.getSchemaDescription()).append('|');
+        for (IndexSpec spec : indexSpecs) {
+            fingerprint.append(';').append(spec.getElementType().getSimpleName()).append(spec.isUnique() ? "!" : "");
+            for (IndexSpec.Property p : spec.getProperties()) {
+                fingerprint.append(',').append(p.getName()).append(':').append(p.getType().getSimpleName())
+                        .append(p.isUnique() ? "!" : "").append(p.getLabelIndex() == null ? "" : p.getLabelIndex());
+            }
+        }
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(fingerprint.toString().getBytes(StandardCharsets.UTF_8));
+            return CURRENT + "/" + new BigInteger(1, digest).toString(16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 not supported by the JVM.", e);
+        }
+    }
+
+    /**
+     * @param graphProvider the provider of the graph
+     * @param graph         the graph to read the version from
+     * @return the version stored in the graph or null if there is none
+     */
+    static String read(GraphProvider graphProvider, Graph graph) {
+        graphProvider.startTransaction(graph);
+        try {
+            Vertex marker = find(graph);
+            return marker == null ? null : marker.<String>property(__schemaVersion.name()).orElse(null);
+        } finally {
+            graphProvider.rollback(graph);
+        }
+    }
+
+    /**
+     * Stores the version in the graph.
+     *
+     * @param graphProvider the provider of the graph
+     * @param graph         the graph to store the version in
+     * @param version       the version to store
+     */
+    static void write(GraphProvider graphProvider, Graph graph, String version) {
+        graphProvider.startTransaction(graph);
+        boolean committed = false;
+        try {
+            Vertex marker = find(graph);
+            if (marker == null) {
+                marker = graph.addVertex(T.label, MARKER);
+                marker.property(__type.name(), MARKER);
+            }
+
+            marker.property(__schemaVersion.name(), version);
+
+            graphProvider.commit(graph);
+            committed = true;
+        } finally {
+            if (!committed) {
+                graphProvider.rollback(graph);
+            }
+        }
+    }
+
+    private static Vertex find(Graph graph) {
+        Iterator<Vertex> it = graph.traversal().V().hasLabel(MARKER).has(__type.name(), MARKER);
+        return it.hasNext() ? it.next() : null;
+    }
+}
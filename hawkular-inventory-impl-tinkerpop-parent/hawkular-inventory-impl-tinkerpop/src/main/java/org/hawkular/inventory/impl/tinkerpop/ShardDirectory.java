@@ -0,0 +1,112 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__eid;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__shard;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__type;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.hawkular.inventory.impl.tinkerpop.spi.Constants;
+
+/**
+ * The persistent record of which tenant is stored in which shard. The assignments are kept in a dedicated graph as
+ * one internal vertex per tenant, so that the tenants stay in the shards they were created in even if the list of the
+ * shards changes and so that all the shards holding some data are known right after the startup.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+final class ShardDirectory implements AutoCloseable {
+    private static final String MARKER = Constants.InternalType.__shardAssignment.name();
+
+    private final InventoryContext context;
+
+    ShardDirectory(InventoryContext context) {
+        this.context = context;
+    }
+
+    boolean isUniqueIndexSupported() {
+        return context.isUniqueIndexSupported();
+    }
+
+    boolean isPreferringBigTransactions() {
+        return context.isPreferringBigTransactions();
+    }
+
+    /**
+     * @return the tenant ids mapped to the names of the shards they are stored in
+     */
+    Map<String, String> load() {
+        Graph graph = context.startTransaction();
+        try {
+            Map<String, String> ret = new HashMap<>();
+            Iterator<Vertex> it = graph.traversal().V().hasLabel(MARKER).has(__type.name(), MARKER);
+            while (it.hasNext()) {
+                Vertex v = it.next();
+                ret.put(v.value(__eid.name()), v.value(__shard.name()));
+            }
+            return ret;
+        } finally {
+            context.rollback();
+        }
+    }
+
+    /**
+     * Records the assignment of the tenant to the shard. This is committed immediately, independently of the
+     * transaction that creates the tenant, because a dangling assignment of a tenant that failed to be created is
+     * harmless.
+     *
+     * @param tenantId the id of the tenant
+     * @param shard    the name of the shard
+     */
+    void store(String tenantId, String shard) {
+        Graph graph = context.startTransaction();
+        boolean committed = false;
+        try {
+            Iterator<Vertex> it = graph.traversal().V().hasLabel(MARKER).has(__type.name(), MARKER)
+                    .has(__eid.name(), tenantId);
+            Vertex assignment;
+            if (it.hasNext()) {
+                assignment = it.next();
+            } else {
+                assignment = graph.addVertex(T.label, MARKER);
+                assignment.property(__type.name(), MARKER);
+                assignment.property(__eid.name(), tenantId);
+            }
+
+            assignment.property(__shard.name(), shard);
+
+            context.commit();
+            committed = true;
+        } finally {
+            if (!committed) {
+                context.rollback();
+            }
+        }
+    }
+
+    @Override public void close() throws Exception {
+        context.getGraph().close();
+    }
+}
@@ -0,0 +1,777 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.util.wrapped.WrappedGraph;
+import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.QueryExplanation;
+import org.hawkular.inventory.api.QueryFragment;
+import org.hawkular.inventory.api.Relationships;
+import org.hawkular.inventory.api.filters.Filter;
+import org.hawkular.inventory.api.filters.With;
+import org.hawkular.inventory.api.model.AbstractElement;
+import org.hawkular.inventory.api.model.Blueprint;
+import org.hawkular.inventory.api.model.Entity;
+import org.hawkular.inventory.api.model.Hashes;
+import org.hawkular.inventory.api.model.StructuredData;
+import org.hawkular.inventory.api.paging.Order;
+import org.hawkular.inventory.api.paging.Page;
+import org.hawkular.inventory.api.paging.Pager;
+import org.hawkular.inventory.base.spi.CommitFailureException;
+import org.hawkular.inventory.base.spi.Discriminator;
+import org.hawkular.inventory.base.spi.ElementNotFoundException;
+import org.hawkular.inventory.base.spi.EntityHistory;
+import org.hawkular.inventory.base.spi.InventoryBackend;
+import org.hawkular.inventory.impl.tinkerpop.spi.Constants;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.inventory.paths.RelativePath;
+import org.hawkular.inventory.paths.SegmentType;
+
+/**
+ * An inventory backend that distributes the tenants over several graphs (shards).
+ *
+ * <p>Each shard is a full-blown {@link TinkerpopBackend} with its own graph and graph provider. The operations are
+ * dispatched to the shards by the tenant they concern - the tenant is determined from the canonical paths, from the
+ * root of the queries or from the elements the operations are performed on. The queries that cannot be attributed to
+ * a single tenant (like listing all the tenants or looking for relationships by their ids) are evaluated on all the
+ * shards and the results are merged.
+ *
+ * <p>Within a transaction, the transactions on the individual shards are started lazily, once the transaction first
+ * touches the shard. Note that the commit is NOT atomic across the shards, the shards are committed one after another.
+ * This is not a problem in practice, because no inventory operation modifies more than a single tenant.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+final class ShardedBackend implements InventoryBackend<Element> {
+    private final Shards shards;
+    private final boolean transactional;
+    private final Map<String, InventoryBackend<Element>> startedTransactions = new LinkedHashMap<>();
+
+    /**
+     * The shard the transaction last touched. Only tracked in the transactional instances, which are confined to the
+     * single transaction, never in the instance shared by all the callers.
+     */
+    private String lastShard;
+
+    ShardedBackend(Shards shards) {
+        this(shards, false);
+    }
+
+    private ShardedBackend(Shards shards, boolean transactional) {
+        this.shards = shards;
+        this.transactional = transactional;
+    }
+
+    /**
+     * Extracts the ids of the tenants the query is rooted at.
+     *
+     * @param query the query to inspect
+     * @return the set of tenant ids or null if the query cannot be attributed to a definite set of tenants
+     */
+    static Set<String> tenantsOf(Query query) {
+        QueryFragment[] fragments = query.getFragments();
+
+        if (fragments.length == 0) {
+            if (query.getSubTrees().isEmpty()) {
+                return null;
+            }
+
+            Set<String> ret = new HashSet<>();
+            for (Query subTree : query.getSubTrees()) {
+                Set<String> tenants = tenantsOf(subTree);
+                if (tenants == null) {
+                    return null;
+                }
+                ret.addAll(tenants);
+            }
+            return ret;
+        }
+
+        Filter first = fragments[0].getFilter();
+
+        if (first instanceof With.CanonicalPaths) {
+            Set<String> ret = new HashSet<>();
+            for (CanonicalPath cp : ((With.CanonicalPaths) first).getPaths()) {
+                if (SegmentType.rl.equals(cp.getSegment().getElementType()) || cp.ids().getTenantId() == null) {
+                    return null;
+                }
+                ret.add(cp.ids().getTenantId());
+            }
+            return ret;
+        }
+
+        if (first instanceof With.Types && Arrays.stream(((With.Types) first).getSegmentTypes())
+                .allMatch(SegmentType.t::equals)) {
+            //the traversals start at tenants and the tenant ids usually follow right after
+            for (int i = 1; i < fragments.length; ++i) {
+                Filter f = fragments[i].getFilter();
+                if (f instanceof With.Ids) {
+                    return new HashSet<>(Arrays.asList(((With.Ids) f).getIds()));
+                } else if (!(f instanceof With.Types)) {
+                    break;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Element> ordering(List<Order> orders) {
+        Comparator<Element> ret = null;
+        for (Order o : orders) {
+            if (!o.isSpecific()) {
+                continue;
+            }
+
+            String prop = Constants.Property.mapUserDefined(o.getField());
+            Comparator<Element> cmp = Comparator.comparing(e -> (Comparable) e.property(prop).orElse(null),
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+
+            if (!o.isAscending()) {
+                cmp = cmp.reversed();
+            }
+
+            ret = ret == null ? cmp : ret.thenComparing(cmp);
+        }
+
+        return ret;
+    }
+
+    private InventoryBackend<Element> backend(String shard) {
+        if (!transactional) {
+            return shards.get(shard);
+        }
+
+        lastShard = shard;
+        return startedTransactions.computeIfAbsent(shard, s -> shards.get(s).startTransaction());
+    }
+
+    private InventoryBackend<Element> backendOf(String tenantId) {
+        return backend(shards.shardOf(tenantId));
+    }
+
+    private InventoryBackend<Element> backendOf(CanonicalPath path) {
+        return backendOf(path.ids().getTenantId());
+    }
+
+    private InventoryBackend<Element> backendOf(Element element) {
+        String shard = shards.shardOf(element.graph());
+        if (shard == null) {
+            String cp = PathEncoding.pathOf(element instanceof Edge ? ((Edge) element).outVertex() : element);
+            if (cp != null) {
+                shard = shards.shardOf(CanonicalPath.fromString(cp).ids().getTenantId());
+            } else if (lastShard != null) {
+                //structured data don't have canonical paths, but they're always accessed through their data entity
+                shard = lastShard;
+            } else {
+                throw new IllegalArgumentException("Could not determine the shard of element " + element);
+            }
+        }
+
+        return backend(shard);
+    }
+
+    private Collection<String> shardsOf(Query query) {
+        Set<String> tenants = tenantsOf(query);
+        if (tenants == null) {
+            return shards.all();
+        }
+
+        Set<String> ret = new LinkedHashSet<>();
+        tenants.forEach(t -> ret.add(shards.shardOf(t)));
+        return ret;
+    }
+
+    private <R> Page<R> fanOut(Collection<String> shardNames, Pager pager, Function<R, Element> elementOf,
+                               BiFunction<InventoryBackend<Element>, Pager, Page<R>> query) {
+        //each shard needs to return everything up to the end of the requested page, because we don't know up front
+        //how the results of the different shards are going to interleave
+        Pager shardPager = pager.isLimited() ? new Pager(0, pager.getEnd(), pager.getOrder()) : pager;
+
+        List<R> results = new ArrayList<>();
+        long total = 0;
+        for (String shard : shardNames) {
+            Page<R> page = query.apply(backend(shard), shardPager);
+            total += page.getTotalSize();
+            results.addAll(page.toList());
+        }
+
+        Comparator<Element> ordering = ordering(pager.getOrder());
+        if (ordering != null) {
+            results.sort(Comparator.comparing(elementOf, ordering));
+        }
+
+        int from = Math.min(pager.getStart(), results.size());
+        int to = Math.min(pager.getEnd(), results.size());
+
+        return new Page<>(results.subList(from, to).iterator(), pager, total);
+    }
+
+    @Override public boolean isUniqueIndexSupported() {
+        return shards.isUniqueIndexSupported();
+    }
+
+    @Override public boolean isPreferringBigTransactions() {
+        return shards.isPreferringBigTransactions();
+    }
+
+    @Override public InventoryBackend<Element> startTransaction() {
+        return new ShardedBackend(shards, true);
+    }
+
+    @Override
+    public Element find(Discriminator discriminator, CanonicalPath element) throws ElementNotFoundException {
+        if (!SegmentType.rl.equals(element.getSegment().getElementType())) {
+            return backendOf(element).find(discriminator, element);
+        }
+
+        //relationships are not tied to tenants by their paths
+        for (String shard : shards.all()) {
+            try {
+                return backend(shard).find(discriminator, element);
+            } catch (ElementNotFoundException e) {
+                //try the next shard
+            }
+        }
+
+        throw new ElementNotFoundException();
+    }
+
+    @Override public Page<Element> query(Discriminator discriminator, Query query, Pager pager) {
+        Collection<String> shardNames = shardsOf(query);
+        if (shardNames.size() == 1) {
+            return backend(shardNames.iterator().next()).query(discriminator, query, pager);
+        }
+
+        return fanOut(shardNames, pager, Function.identity(), (b, p) -> b.query(discriminator, query, p));
+    }
+
+    @Override public Element querySingle(Discriminator discriminator, Query query) {
+        for (String shard : shardsOf(query)) {
+            Element ret = backend(shard).querySingle(discriminator, query);
+            if (ret != null) {
+                return ret;
+            }
+        }
+
+        return null;
+    }
+
+    @Override public long count(Discriminator discriminator, Query query) {
+        long ret = 0;
+        for (String shard : shardsOf(query)) {
+            ret += backend(shard).count(discriminator, query);
+        }
+
+        return ret;
+    }
+
+    /**
+     * The queries that fan out over several shards are translated the same way on each of them, so only the first
+     * shard is explained. If the query doesn't touch any shard, there is nothing to translate.
+     */
+    @Override public QueryExplanation explain(Discriminator discriminator, Query query, Pager pager,
+                                              boolean profile) {
+        Iterator<String> shardNames = shardsOf(query).iterator();
+        if (!shardNames.hasNext()) {
+            return new QueryExplanation(query.toString(), null, null, profile ? Collections.emptyList() : null);
+        }
+
+        return backend(shardNames.next()).explain(discriminator, query, pager, profile);
+    }
+
+    @Override
+    public Page<Element> traverse(Discriminator discriminator, Element startingPoint, Query query, Pager pager) {
+        return backendOf(startingPoint).traverse(discriminator, startingPoint, query, pager);
+    }
+
+    @Override public Element traverseToSingle(Discriminator discriminator, Element startingPoint, Query query) {
+        return backendOf(startingPoint).traverseToSingle(discriminator, startingPoint, query);
+    }
+
+    @Override
+    public <T> Page<T> query(Discriminator discriminator, Query query, Pager pager, Function<Element, T> conversion,
+                             Function<T, Boolean> filter) {
+        Collection<String> shardNames = shardsOf(query);
+        if (shardNames.size() == 1) {
+            return backend(shardNames.iterator().next()).query(discriminator, query, pager, conversion, filter);
+        }
+
+        //we need to keep the elements around so that we can order the merged results
+        Page<Converted<T>> page = fanOut(shardNames, pager, c -> c.element,
+                (b, p) -> b.query(discriminator, query, p, e -> new Converted<>(e, conversion.apply(e)),
+                        filter == null ? null : c -> filter.apply(c.converted)));
+
+        List<T> results = new ArrayList<>();
+        page.forEachRemaining(c -> results.add(c.converted));
+
+        return new Page<>(results.iterator(), pager, page.getTotalSize());
+    }
+
+    @Override
+    public Iterator<Element> getTransitiveClosureOver(Discriminator discriminator, Element startingPoint,
+                                                      Relationships.Direction direction,
+                                                      String... relationshipNames) {
+        return backendOf(startingPoint).getTransitiveClosureOver(discriminator, startingPoint, direction,
+                relationshipNames);
+    }
+
+    @Override
+    public Iterator<Element> streamTransitiveClosureOver(Discriminator discriminator, Element startingPoint,
+                                                         Relationships.Direction direction, int maxDepth,
+                                                         String... relationshipNames) {
+        return backendOf(startingPoint).streamTransitiveClosureOver(discriminator, startingPoint, direction,
+                maxDepth, relationshipNames);
+    }
+
+    @Override
+    public boolean hasRelationship(Discriminator discriminator, Element entity, Relationships.Direction direction,
+                                   String relationshipName) {
+        return backendOf(entity).hasRelationship(discriminator, entity, direction, relationshipName);
+    }
+
+    @Override
+    public boolean hasRelationship(Discriminator discriminator, Element source, Element target,
+                                   String relationshipName) {
+        return backendOf(source).hasRelationship(discriminator, source, target, relationshipName);
+    }
+
+    @Override
+    public Set<Element> getRelationships(Discriminator discriminator, Element entity,
+                                         Relationships.Direction direction, String... names) {
+        return backendOf(entity).getRelationships(discriminator, entity, direction, names);
+    }
+
+    @Override
+    public Element getRelationship(Discriminator discriminator, Element source, Element target,
+                                   String relationshipName) throws ElementNotFoundException {
+        return backendOf(source).getRelationship(discriminator, source, target, relationshipName);
+    }
+
+    @Override public Element getRelationshipSource(Discriminator discriminator, Element relationship) {
+        return backendOf(relationship).getRelationshipSource(discriminator, relationship);
+    }
+
+    @Override public Element getRelationshipTarget(Discriminator discriminator, Element relationship) {
+        return backendOf(relationship).getRelationshipTarget(discriminator, relationship);
+    }
+
+    @Override public String extractRelationshipName(Element relationship) {
+        return backendOf(relationship).extractRelationshipName(relationship);
+    }
+
+    @Override public String extractId(Element entityRepresentation) {
+        return backendOf(entityRepresentation).extractId(entityRepresentation);
+    }
+
+    @Override public Class<?> extractType(Element entityRepresentation) {
+        return backendOf(entityRepresentation).extractType(entityRepresentation);
+    }
+
+    @Override public CanonicalPath extractCanonicalPath(Element entityRepresentation) {
+        return backendOf(entityRepresentation).extractCanonicalPath(entityRepresentation);
+    }
+
+    @Override public String extractIdentityHash(Discriminator discriminator, Element entityRepresentation) {
+        return backendOf(entityRepresentation).extractIdentityHash(discriminator, entityRepresentation);
+    }
+
+    @Override public String extractContentHash(Discriminator discriminator, Element entityRepresentation) {
+        return backendOf(entityRepresentation).extractContentHash(discriminator, entityRepresentation);
+    }
+
+    @Override public String extractSyncHash(Discriminator discriminator, Element entityRepresentation) {
+        return backendOf(entityRepresentation).extractSyncHash(discriminator, entityRepresentation);
+    }
+
+    @Override
+    public <T> T convert(Discriminator discriminator, Element entityRepresentation, Class<T> entityType) {
+        return backendOf(entityRepresentation).convert(discriminator, entityRepresentation, entityType);
+    }
+
+    @Override
+    public Element descendToData(Discriminator discriminator, Element dataEntityRepresentation,
+                                 RelativePath dataPath) {
+        return backendOf(dataEntityRepresentation).descendToData(discriminator, dataEntityRepresentation, dataPath);
+    }
+
+    @Override
+    public Element relate(Discriminator discriminator, Element sourceEntity, Element targetEntity, String name,
+                          Map<String, Object> properties) {
+        InventoryBackend<Element> source = backendOf(sourceEntity);
+        if (source != backendOf(targetEntity)) {
+            throw new IllegalArgumentException("Cannot create relationship '" + name + "' between entities stored" +
+                    " in different shards.");
+        }
+
+        return source.relate(discriminator, sourceEntity, targetEntity, name, properties);
+    }
+
+    @Override public Element persist(Discriminator discriminator, CanonicalPath path, Blueprint blueprint) {
+        return backend(shards.assign(path.ids().getTenantId())).persist(discriminator, path, blueprint);
+    }
+
+    @Override public Element persist(StructuredData structuredData) {
+        if (lastShard == null) {
+            throw new IllegalStateException("Structured data can only be persisted together with their data entity.");
+        }
+
+        //the structured data is always persisted right after its data entity
+        return backend(lastShard).persist(structuredData);
+    }
+
+    @Override public void update(Discriminator discriminator, Element entity, AbstractElement.Update update) {
+        backendOf(entity).update(discriminator, entity, update);
+    }
+
+    @Override public void updateHashes(Discriminator discriminator, Element entity, Hashes hashes) {
+        backendOf(entity).updateHashes(discriminator, entity, hashes);
+    }
+
+    @Override public void markDeleted(Discriminator discriminator, Element entity) {
+        backendOf(entity).markDeleted(discriminator, entity);
+    }
+
+    @Override public void eradicate(Element entity) {
+        backendOf(entity).eradicate(entity);
+    }
+
+    @Override public void deleteStructuredData(Element dataRepresentation) {
+        backendOf(dataRepresentation).deleteStructuredData(dataRepresentation);
+    }
+
+    @Override public void commit() throws CommitFailureException {
+        //if a shard fails to commit, it is left in the map together with the shards that haven't been committed yet, so
+        //that the subsequent rollback only affects those
+        Iterator<InventoryBackend<Element>> it = startedTransactions.values().iterator();
+        while (it.hasNext()) {
+            it.next().commit();
+            it.remove();
+        }
+    }
+
+    @Override public void rollback() {
+        RuntimeException failure = null;
+        for (InventoryBackend<Element> tx : startedTransactions.values()) {
+            try {
+                tx.rollback();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        startedTransactions.clear();
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override public boolean requiresRollbackAfterFailure(Throwable t) {
+        return startedTransactions.values().stream().anyMatch(tx -> tx.requiresRollbackAfterFailure(t));
+    }
+
+    @Override public boolean isBackendInternal(Element element) {
+        return backendOf(element).isBackendInternal(element);
+    }
+
+    @Override public InputStream getGraphSON(Discriminator discriminator, String tenantId) {
+        return backendOf(tenantId).getGraphSON(discriminator, tenantId);
+    }
+
+    @Override
+    public <T extends Entity<?, ?>> Iterator<T> getTransitiveClosureOver(Discriminator discriminator,
+                                                                         CanonicalPath startingPoint,
+                                                                         Relationships.Direction direction,
+                                                                         Class<T> clazz,
+                                                                         String... relationshipNames) {
+        return backendOf(startingPoint).getTransitiveClosureOver(discriminator, startingPoint, direction, clazz,
+                relationshipNames);
+    }
+
+    @Override public <T extends Entity<?, U>, U extends Entity.Update>
+    EntityHistory<T> getHistory(Element entity, Class<T> entityType, Instant from, Instant to) {
+        return backendOf(entity).getHistory(entity, entityType, from, to);
+    }
+
+    @Override public void close() throws Exception {
+        if (!transactional) {
+            shards.close();
+        }
+    }
+
+    private static final class Converted<T> {
+        final Element element;
+        final T converted;
+
+        Converted(Element element, T converted) {
+            this.element = element;
+            this.converted = converted;
+        }
+    }
+
+    /**
+     * The shards and the mapping of the tenants to them. This is shared by all the transactions.
+     *
+     * <p>Once a tenant is stored in a shard, the assignment is recorded in the {@link ShardDirectory} kept in the graph
+     * named {@link #DIRECTORY}. The recorded assignments take precedence over the configuration, so changing the list
+     * of the shards only affects the placement of the new tenants. The shards of the recorded assignments are known
+     * right after the startup, so the queries spanning all the tenants see all the persisted tenants.
+     */
+    static final class Shards implements AutoCloseable {
+        /**
+         * The shard name that means that each tenant not explicitly assigned to a shard gets a shard of its own.
+         */
+        static final String PER_TENANT = "*";
+
+        /**
+         * The name of the graph holding the shard directory. It cannot be used as a name of a shard.
+         */
+        static final String DIRECTORY = "_directory";
+
+        private final List<String> names;
+        private final boolean perTenant;
+        private final Map<String, String> configured;
+        private final Map<String, String> recorded;
+        private final ShardDirectory directory;
+        private final Function<String, InventoryContext> contextFactory;
+        private final Map<String, TinkerpopBackend> backends = new ConcurrentHashMap<>();
+        private final Map<Graph, String> graphs = Collections.synchronizedMap(new IdentityHashMap<>());
+
+        /**
+         * @param shardNames     the comma-separated list of the shard names, possibly including {@link #PER_TENANT}
+         * @param assignments    the comma-separated list of {@code tenantId=shardName} pairs, may be null
+         * @param contextFactory the function to open the graph of the shard with given name
+         * @throws IllegalStateException if the configured assignments contradict the assignments recorded in the
+         *                               directory
+         */
+        Shards(String shardNames, String assignments, Function<String, InventoryContext> contextFactory) {
+            this.contextFactory = contextFactory;
+
+            Set<String> names = new LinkedHashSet<>();
+            boolean perTenant = false;
+            for (String name : shardNames.split(",")) {
+                name = name.trim();
+                if (PER_TENANT.equals(name)) {
+                    perTenant = true;
+                } else if (!name.isEmpty()) {
+                    names.add(name);
+                }
+            }
+
+            Map<String, String> assigned = new HashMap<>();
+            if (assignments != null) {
+                for (String assignment : assignments.split(",")) {
+                    if (assignment.trim().isEmpty()) {
+                        continue;
+                    }
+
+                    int eq = assignment.indexOf('=');
+                    if (eq < 0) {
+                        throw new IllegalArgumentException("Invalid shard assignment '" + assignment + "'. The " +
+                                "assignments should have the form 'tenantId=shardName'.");
+                    }
+
+                    String shard = assignment.substring(eq + 1).trim();
+                    assigned.put(assignment.substring(0, eq).trim(), shard);
+                    names.add(shard);
+                }
+            }
+
+            if (names.isEmpty() && !perTenant) {
+                throw new IllegalArgumentException("No shards defined.");
+            }
+
+            if (names.contains(DIRECTORY)) {
+                throw new IllegalArgumentException("'" + DIRECTORY + "' cannot be used as a shard name.");
+            }
+
+            Log.LOG.iOpeningGraphShard(DIRECTORY);
+            this.directory = new ShardDirectory(contextFactory.apply(DIRECTORY));
+            this.recorded = new ConcurrentHashMap<>(directory.load());
+
+            for (Map.Entry<String, String> e : assigned.entrySet()) {
+                String shard = recorded.get(e.getKey());
+                if (shard != null && !shard.equals(e.getValue())) {
+                    throw new IllegalStateException("Tenant '" + e.getKey() + "' is configured to be stored in shard '"
+                            + e.getValue() + "' but it is already stored in shard '" + shard + "'. Moving the tenants"
+                            + " between the shards is not supported.");
+                }
+            }
+
+            this.names = new ArrayList<>(names);
+            this.perTenant = perTenant;
+            this.configured = assigned;
+
+            //open the explicitly configured shards eagerly so that we fail fast on configuration errors
+            this.names.forEach(this::get);
+        }
+
+        String shardOf(String tenantId) {
+            String shard = recorded.get(tenantId);
+            if (shard == null) {
+                shard = configured.get(tenantId);
+            }
+            if (shard != null) {
+                return shard;
+            }
+
+            if (perTenant) {
+                if (DIRECTORY.equals(tenantId)) {
+                    throw new IllegalArgumentException("Tenant '" + DIRECTORY + "' cannot be stored in a shard of its"
+                            + " own.");
+                }
+                return tenantId;
+            }
+
+            return names.get(Math.floorMod(tenantId.hashCode(), names.size()));
+        }
+
+        /**
+         * Determines the shard of the tenant and records the assignment in the directory if it hasn't been recorded
+         * yet. This is called before storing anything in the shard.
+         *
+         * @param tenantId the id of the tenant
+         * @return the name of the shard the tenant is stored in
+         */
+        String assign(String tenantId) {
+            String shard = recorded.get(tenantId);
+            if (shard != null) {
+                return shard;
+            }
+
+            synchronized (directory) {
+                shard = recorded.get(tenantId);
+                if (shard == null) {
+                    shard = shardOf(tenantId);
+                    directory.store(tenantId, shard);
+                    recorded.put(tenantId, shard);
+                }
+            }
+
+            return shard;
+        }
+
+        String shardOf(Graph graph) {
+            return graphs.get(graph);
+        }
+
+        /**
+         * @return the names of all the configured shards and all the shards the directory knows tenants of
+         */
+        Collection<String> all() {
+            Set<String> ret = new LinkedHashSet<>(names);
+            ret.addAll(recorded.values());
+            //the tenants created before the directory existed are only known once their shard has been opened
+            ret.addAll(backends.keySet());
+            return ret;
+        }
+
+        /**
+         * All the shards use the same graph provider as the directory, so the directory answers for all of them, even
+         * if there are no shards yet.
+         */
+        boolean isUniqueIndexSupported() {
+            return directory.isUniqueIndexSupported();
+        }
+
+        boolean isPreferringBigTransactions() {
+            return directory.isPreferringBigTransactions();
+        }
+
+        InventoryBackend<Element> get(String shard) {
+            return backends.computeIfAbsent(shard, this::open);
+        }
+
+        private TinkerpopBackend open(String shard) {
+            Log.LOG.iOpeningGraphShard(shard);
+
+            InventoryContext context = contextFactory.apply(shard);
+
+            Graph graph = context.getGraph();
+            graphs.put(graph, shard);
+            //the elements of the wrapped graphs might report the underlying graph as the graph they belong to
+            while (graph instanceof WrappedGraph) {
+                graph = ((WrappedGraph<?>) graph).getBaseGraph();
+                graphs.put(graph, shard);
+            }
+
+            return new TinkerpopBackend(context);
+        }
+
+        @Override public void close() throws Exception {
+            Exception failure = null;
+            for (TinkerpopBackend backend : backends.values()) {
+                try {
+                    backend.close();
+                } catch (Exception e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+
+            try {
+                directory.close();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+
+            backends.clear();
+            graphs.clear();
+
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.hawkular.inventory.api.SlowQuery;
+import org.hawkular.inventory.api.paging.Pager;
+import org.hawkular.inventory.base.spi.Discriminator;
+
+/**
+ * Records the queries that took longer than the configured threshold. The slow queries are logged and the most recent
+ * of them are kept in a bounded in-memory ring.
+ *
+ * <p>Obtaining the query plan is not free, so the plan is only included with a configured fraction of the slow queries.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+final class SlowQueryLog {
+    private final long thresholdNanos;
+    private final int capacity;
+    private final double planSampleRate;
+    private final Deque<SlowQuery> recent;
+
+    /**
+     * @param thresholdMillis the minimum duration of a query in milliseconds for it to be considered slow
+     * @param capacity        the maximum number of the slow queries to keep in memory, 0 to only log them
+     * @param planSampleRate  the fraction (0 to 1) of the slow queries to obtain the query plan for
+     */
+    SlowQueryLog(long thresholdMillis, int capacity, double planSampleRate) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.capacity = capacity;
+        this.planSampleRate = planSampleRate;
+        this.recent = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * Records the query if it took too long.
+     *
+     * @param startNanos    the value of {@link System#nanoTime()} when the query started
+     * @param operation     the backend operation that executed the query
+     * @param tenantId      the supplier of the tenant the query was confined to, only called for the slow queries
+     * @param query         the description of the query
+     * @param pager         the pager used or null
+     * @param discriminator the discriminator of the query
+     * @param resultCount   the total number of results of the query
+     * @param plan          the supplier of the plan of the query, only called for the sampled slow queries, may be null
+     */
+    void record(long startNanos, String operation, Supplier<String> tenantId, Object query, Pager pager,
+                Discriminator discriminator, long resultCount, Supplier<String> plan) {
+        long durationNanos = System.nanoTime() - startNanos;
+        if (durationNanos < thresholdNanos) {
+            return;
+        }
+
+        String planDescription = null;
+        if (plan != null && ThreadLocalRandom.current().nextDouble() < planSampleRate) {
+            try {
+                planDescription = plan.get();
+            } catch (RuntimeException e) {
+                Log.LOG.debug("Failed to obtain the plan of a slow query.", e);
+            }
+        }
+
+        SlowQuery slowQuery = new SlowQuery(System.currentTimeMillis(), tenantId.get(), operation,
+                String.valueOf(query), pager == null ? null : pager.toString(), String.valueOf(discriminator),
+                resultCount, durationNanos / 1_000_000d, planDescription);
+
+        Log.LOG.wSlowQuery(operation, slowQuery.getDurationMillis(), resultCount, slowQuery.getTenantId(),
+                slowQuery.getQuery(), slowQuery.getPager(), slowQuery.getDiscriminator(),
+                planDescription == null ? "" : planDescription);
+
+        if (capacity == 0) {
+            return;
+        }
+
+        synchronized (recent) {
+            if (recent.size() == capacity) {
+                recent.removeFirst();
+            }
+            recent.addLast(slowQuery);
+        }
+    }
+
+    /**
+     * @return the recorded slow queries, the oldest first
+     */
+    List<SlowQuery> getRecent() {
+        synchronized (recent) {
+            return new ArrayList<>(recent);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.QueryExplanation;
+import org.hawkular.inventory.api.Relationships;
+import org.hawkular.inventory.api.model.AbstractElement;
+import org.hawkular.inventory.api.model.Entity;
+import org.hawkular.inventory.api.model.Hashes;
+import org.hawkular.inventory.api.paging.Page;
+import org.hawkular.inventory.api.paging.Pager;
+import org.hawkular.inventory.base.DelegatingInventoryBackend;
+import org.hawkular.inventory.base.spi.Discriminator;
+import org.hawkular.inventory.base.spi.ElementNotFoundException;
+import org.hawkular.inventory.base.spi.EntityHistory;
+import org.hawkular.inventory.base.spi.InventoryBackend;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.inventory.paths.RelativePath;
+import org.hawkular.inventory.paths.SegmentType;
+
+/**
+ * The backend used by the inventory views returned from {@link TinkerpopInventory#at(Instant)}.
+ *
+ * <p>The reads performed at the time the view was set up to look at are served from the {@link SnapshotCache snapshots}
+ * of the tenants, if possible. Everything else (i.e. the reads that cannot be attributed to a single tenant, the reads
+ * with a different discriminator and all the writes) is passed to the live backend.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+final class SnapshotBackend extends DelegatingInventoryBackend<Element> {
+    private final SnapshotCache snapshots;
+    private final Instant time;
+
+    SnapshotBackend(InventoryBackend<Element> backend, SnapshotCache snapshots, Instant time) {
+        super(backend);
+        this.snapshots = snapshots;
+        this.time = time;
+    }
+
+    InventoryBackend<Element> getLiveBackend() {
+        return backend;
+    }
+
+    private InventoryBackend<Element> snapshotOf(Discriminator discriminator, String tenantId) {
+        if (tenantId == null || !snapshots.isEligible(discriminator, time)) {
+            return null;
+        }
+
+        return snapshots.get(backend, tenantId, time);
+    }
+
+    private InventoryBackend<Element> snapshotOf(Discriminator discriminator, CanonicalPath path) {
+        if (SegmentType.rl.equals(path.getSegment().getElementType())) {
+            return null;
+        }
+
+        return snapshotOf(discriminator, path.ids().getTenantId());
+    }
+
+    private InventoryBackend<Element> snapshotOf(Discriminator discriminator, Query query) {
+        Set<String> tenants = ShardedBackend.tenantsOf(query);
+        if (tenants == null || tenants.size() != 1) {
+            return null;
+        }
+
+        return snapshotOf(discriminator, tenants.iterator().next());
+    }
+
+    private InventoryBackend<Element> backendOf(Element element) {
+        return SnapshotCache.isSnapshotElement(element) ? snapshots.backendOf(element) : backend;
+    }
+
+    private InventoryBackend<Element> liveBackendOf(Element element) {
+        if (SnapshotCache.isSnapshotElement(element)) {
+            throw new UnsupportedOperationException("The snapshots of inventory are read-only.");
+        }
+
+        return backend;
+    }
+
+    @Override public InventoryBackend<Element> startTransaction() {
+        return new SnapshotBackend(backend.startTransaction(), snapshots, time);
+    }
+
+    @Override
+    public Element find(Discriminator discriminator, CanonicalPath element) throws ElementNotFoundException {
+        InventoryBackend<Element> snapshot = snapshotOf(discriminator, element);
+        return (snapshot == null ? backend : snapshot).find(discriminator, element);
+    }
+
+    @Override public Page<Element> query(Discriminator discriminator, Query query, Pager pager) {
+        InventoryBackend<Element> snapshot = snapshotOf(discriminator, query);
+        return (snapshot == null ? backend : snapshot).query(discriminator, query, pager);
+    }
+
+    @Override public Element querySingle(Discriminator discriminator, Query query) {
+        InventoryBackend<Element> snapshot = snapshotOf(discriminator, query);
+        return (snapshot == null ? backend : snapshot).querySingle(discriminator, query);
+    }
+
+    @Override public long count(Discriminator discriminator, Query query) {
+        InventoryBackend<Element> snapshot = snapshotOf(discriminator, query);
+        return (snapshot == null ? backend : snapshot).count(discriminator, query);
+    }
+
+    @Override public QueryExplanation explain(Discriminator discriminator, Query query, Pager pager,
+                                              boolean profile) {
+        InventoryBackend<Element> snapshot = snapshotOf(discriminator, query);
+        return (snapshot == null ? backend : snapshot).explain(discriminator, query, pager, profile);
+    }
+
+    @Override
+    public <T> Page<T> query(Discriminator discriminator, Query query, Pager pager, Function<Element, T> conversion,
+                             Function<T, Boolean> filter) {
+        InventoryBackend<Element> snapshot = snapshotOf(discriminator, query);
+        return (snapshot == null ? backend : snapshot).query(discriminator, query, pager, conversion, filter);
+    }
+
+    @Override
+    public Page<Element> traverse(Discriminator discriminator, Element startingPoint, Query query, Pager pager) {
+        return backendOf(startingPoint).traverse(discriminator, startingPoint, query, pager);
+    }
+
+    @Override public Element traverseToSingle(Discriminator discriminator, Element startingPoint, Query query) {
+        return backendOf(startingPoint).traverseToSingle(discriminator, startingPoint, query);
+    }
+
+    @Override
+    public <T extends Entity<?, ?>> Iterator<T> getTransitiveClosureOver(Discriminator discriminator,
+                                                                         CanonicalPath startingPoint,
+                                                                         Relationships.Direction direction,
+                                                                         Class<T> clazz,
+                                                                         String... relationshipNames) {
+        InventoryBackend<Element> snapshot = snapshotOf(discriminator, startingPoint);
+        return (snapshot == null ? backend : snapshot).getTransitiveClosureOver(discriminator, startingPoint,
+                direction, clazz, relationshipNames);
+    }
+
+    @Override
+    public Iterator<Element> getTransitiveClosureOver(Discriminator discriminator, Element startingPoint,
+                                                      Relationships.Direction direction,
+                                                      String... relationshipNames) {
+        return backendOf(startingPoint).getTransitiveClosureOver(discriminator, startingPoint, direction,
+                relationshipNames);
+    }
+
+    @Override
+    public Iterator<Element> streamTransitiveClosureOver(Discriminator discriminator, Element startingPoint,
+                                                         Relationships.Direction direction, int maxDepth,
+                                                         String... relationshipNames) {
+        return backendOf(startingPoint).streamTransitiveClosureOver(discriminator, startingPoint, direction,
+                maxDepth, relationshipNames);
+    }
+
+    @Override
+    public boolean hasRelationship(Discriminator discriminator, Element entity, Relationships.Direction direction,
+                                   String relationshipName) {
+        return backendOf(entity).hasRelationship(discriminator, entity, direction, relationshipName);
+    }
+
+    @Override
+    public boolean hasRelationship(Discriminator discriminator, Element source, Element target,
+                                   String relationshipName) {
+        return backendOf(source).hasRelationship(discriminator, source, target, relationshipName);
+    }
+
+    @Override
+    public Set<Element> getRelationships(Discriminator discriminator, Element entity,
+                                         Relationships.Direction direction, String... names) {
+        return backendOf(entity).getRelationships(discriminator, entity, direction, names);
+    }
+
+    @Override
+    public Element getRelationship(Discriminator discriminator, Element source, Element target,
+                                   String relationshipName) throws ElementNotFoundException {
+        return backendOf(source).getRelationship(discriminator, source, target, relationshipName);
+    }
+
+    @Override public Element getRelationshipSource(Discriminator discriminator, Element relationship) {
+        return backendOf(relationship).getRelationshipSource(discriminator, relationship);
+    }
+
+    @Override public Element getRelationshipTarget(Discriminator discriminator, Element relationship) {
+        return backendOf(relationship).getRelationshipTarget(discriminator, relationship);
+    }
+
+    @Override public String extractRelationshipName(Element relationship) {
+        return backendOf(relationship).extractRelationshipName(relationship);
+    }
+
+    @Override public String extractId(Element entityRepresentation) {
+        return backendOf(entityRepresentation).extractId(entityRepresentation);
+    }
+
+    @Override public Class<?> extractType(Element entityRepresentation) {
+        return backendOf(entityRepresentation).extractType(entityRepresentation);
+    }
+
+    @Override public CanonicalPath extractCanonicalPath(Element entityRepresentation) {
+        return backendOf(entityRepresentation).extractCanonicalPath(entityRepresentation);
+    }
+
+    @Override public String extractIdentityHash(Discriminator discriminator, Element entityRepresentation) {
+        return backendOf(entityRepresentation).extractIdentityHash(discriminator, entityRepresentation);
+    }
+
+    @Override public String extractContentHash(Discriminator discriminator, Element entityRepresentation) {
+        return backendOf(entityRepresentation).extractContentHash(discriminator, entityRepresentation);
+    }
+
+    @Override public String extractSyncHash(Discriminator discriminator, Element entityRepresentation) {
+        return backendOf(entityRepresentation).extractSyncHash(discriminator, entityRepresentation);
+    }
+
+    @Override
+    public <T> T convert(Discriminator discriminator, Element entityRepresentation, Class<T> entityType) {
+        return backendOf(entityRepresentation).convert(discriminator, entityRepresentation, entityType);
+    }
+
+    @Override
+    public Element descendToData(Discriminator discriminator, Element dataEntityRepresentation,
+                                 RelativePath dataPath) {
+        return backendOf(dataEntityRepresentation).descendToData(discriminator, dataEntityRepresentation, dataPath);
+    }
+
+    @Override public boolean isBackendInternal(Element element) {
+        return backendOf(element).isBackendInternal(element);
+    }
+
+    @Override public <T extends Entity<?, U>, U extends Entity.Update>
+    EntityHistory<T> getHistory(Element entity, Class<T> entityType, Instant from, Instant to) {
+        if (SnapshotCache.isSnapshotElement(entity)) {
+            //the history is not part of the snapshots, so we need to look at the live element
+            CanonicalPath cp = extractCanonicalPath(entity);
+            try {
+                entity = backend.find(Discriminator.time(time), cp);
+            } catch (ElementNotFoundException e) {
+                throw new IllegalStateException("Entity " + cp + " in the snapshot has no live counterpart.", e);
+            }
+        }
+
+        return backend.getHistory(entity, entityType, from, to);
+    }
+
+    @Override
+    public Element relate(Discriminator discriminator, Element sourceEntity, Element targetEntity, String name,
+                          Map<String, Object> properties) {
+        liveBackendOf(targetEntity);
+        return liveBackendOf(sourceEntity).relate(discriminator, sourceEntity, targetEntity, name, properties);
+    }
+
+    @Override public void update(Discriminator discriminator, Element entity, AbstractElement.Update update) {
+        liveBackendOf(entity).update(discriminator, entity, update);
+    }
+
+    @Override public void updateHashes(Discriminator discriminator, Element entity, Hashes hashes) {
+        liveBackendOf(entity).updateHashes(discriminator, entity, hashes);
+    }
+
+    @Override public void markDeleted(Discriminator discriminator, Element entity) {
+        liveBackendOf(entity).markDeleted(discriminator, entity);
+    }
+
+    @Override public void eradicate(Element entity) {
+        liveBackendOf(entity).eradicate(entity);
+    }
+
+    @Override public void deleteStructuredData(Element dataRepresentation) {
+        liveBackendOf(dataRepresentation).deleteStructuredData(dataRepresentation);
+    }
+}
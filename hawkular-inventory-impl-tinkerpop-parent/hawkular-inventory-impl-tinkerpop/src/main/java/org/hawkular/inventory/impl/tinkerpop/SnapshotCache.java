@@ -0,0 +1,342 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__cp;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__eid;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__from;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__to;
+import static org.hawkular.inventory.impl.tinkerpop.spi.Constants.Property.__type;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.hawkular.inventory.api.Configuration;
+import org.hawkular.inventory.base.spi.Discriminator;
+import org.hawkular.inventory.base.spi.ElementNotFoundException;
+import org.hawkular.inventory.base.spi.InventoryBackend;
+import org.hawkular.inventory.impl.tinkerpop.spi.GraphProvider;
+import org.hawkular.inventory.impl.tinkerpop.spi.IndexSpec;
+import org.hawkular.inventory.paths.CanonicalPath;
+
+/**
+ * A size-bounded LRU cache of the read-only snapshots of the tenants at fixed points in time.
+ *
+ * <p>A snapshot is an in-memory copy of all the elements of a tenant that existed at given time. Only the states and
+ * relationships valid at that time are copied over, so while the snapshot has the same structure as the live graph
+ * (and can therefore be queried by an ordinary {@link TinkerpopBackend}), the temporal checks performed on it are
+ * trivial. The relationships crossing the tenant boundary are not part of the snapshot.
+ *
+ * <p>The size of the cache is measured in the number of the vertices and edges of all the snapshots in it, so that
+ * a couple of snapshots of large tenants cannot exhaust the memory. A snapshot larger than the whole cache is made
+ * for the caller but not kept. The snapshots of the tenants that didn't exist at given time are not cached either.
+ *
+ * <p>Because the history can still change for a while (the transactions in flight can write with a timestamp in
+ * the recent past), the snapshots are only made for the points in time older than the configured minimum age.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+final class SnapshotCache {
+    private static final String SNAPSHOT_MARKER = "hawkular.inventory.snapshot";
+
+    private static final GraphProvider SNAPSHOT_GRAPH_PROVIDER = new GraphProvider() {
+        @Override public boolean isPreferringBigTransactions() {
+            return false;
+        }
+
+        @Override public boolean needsDraining() {
+            return false;
+        }
+
+        @Override public boolean isUniqueIndexSupported() {
+            return false;
+        }
+
+        @Override public Graph instantiateGraph(Configuration configuration) {
+            BaseConfiguration conf = new BaseConfiguration();
+            conf.setProperty(SNAPSHOT_MARKER, true);
+            return TinkerGraph.open(conf);
+        }
+
+        @Override public void ensureIndices(Graph graph, IndexSpec... indexSpecs) {
+            TinkerGraph g = (TinkerGraph) graph;
+            g.createIndex(__cp.name(), Vertex.class);
+            g.createIndex(__eid.name(), Vertex.class);
+            g.createIndex(__type.name(), Vertex.class);
+            g.createIndex(__eid.name(), Edge.class);
+        }
+    };
+
+    private final TinkerpopInventory inventory;
+    private final long maxElements;
+    private final long minAge;
+    private final Map<String, Snapshot> snapshots = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Graph, Snapshot> snapshotsByGraph = new IdentityHashMap<>();
+    private long elements;
+    private final PathEncoding pathEncoding;
+    private final HotProperties hotProperties;
+
+    /**
+     * @param inventory     the inventory the snapshots are made of
+     * @param maxElements   the maximum total number of vertices and edges in the cached snapshots
+     * @param minAge        the minimum age of a point in time in milliseconds for it to be eligible for a snapshot
+     * @param pathEncoding  the encoding of the canonical paths in the live graph, which the snapshots share
+     * @param hotProperties the hot properties mirrored in the live graph, which the snapshots share
+     */
+    SnapshotCache(TinkerpopInventory inventory, long maxElements, long minAge, PathEncoding pathEncoding,
+                  HotProperties hotProperties) {
+        this.inventory = inventory;
+        this.maxElements = maxElements;
+        this.minAge = minAge;
+        this.pathEncoding = pathEncoding;
+        this.hotProperties = hotProperties;
+    }
+
+    /**
+     * @param element the element to check
+     * @return true if the element comes from a snapshot, false if it comes from the live graph
+     */
+    static boolean isSnapshotElement(Element element) {
+        Graph graph = element.graph();
+        return graph instanceof TinkerGraph && graph.configuration().getBoolean(SNAPSHOT_MARKER, false);
+    }
+
+    /**
+     * @param discriminator the discriminator of an operation
+     * @param time          the point in time the caller is set up to look at
+     * @return true if the operation with the discriminator can be served from the snapshot of the provided time
+     */
+    boolean isEligible(Discriminator discriminator, Instant time) {
+        return discriminator != null && !discriminator.isQueryLatest() && discriminator.getTime().equals(time)
+                && time.toEpochMilli() < System.currentTimeMillis() - minAge;
+    }
+
+    /**
+     * @param snapshotElement an element of some snapshot
+     * @return the backend to access the snapshot the element comes from
+     */
+    InventoryBackend<Element> backendOf(Element snapshotElement) {
+        Graph graph = snapshotElement.graph();
+        synchronized (snapshots) {
+            Snapshot snapshot = snapshotsByGraph.get(graph);
+            if (snapshot != null) {
+                return snapshot.backend;
+            }
+        }
+
+        //the snapshot has been evicted while the caller was still working with its elements
+        return newBackend(graph);
+    }
+
+    /**
+     * @return the number of the snapshots in the cache
+     */
+    int size() {
+        synchronized (snapshots) {
+            return snapshotsByGraph.size();
+        }
+    }
+
+    /**
+     * @return the total number of vertices and edges of the cached snapshots
+     */
+    long elements() {
+        synchronized (snapshots) {
+            return elements;
+        }
+    }
+
+    /**
+     * Returns the backend to access the snapshot of the tenant at given time, creating the snapshot if necessary.
+     *
+     * @param live     the backend to read the live graph with if the snapshot needs to be created
+     * @param tenantId the id of the tenant
+     * @param time     the point in time
+     * @return the backend of the snapshot or null if the tenant didn't exist at the time
+     */
+    InventoryBackend<Element> get(InventoryBackend<Element> live, String tenantId, Instant time) {
+        String key = time.toEpochMilli() + "/" + tenantId;
+        Snapshot snapshot;
+        synchronized (snapshots) {
+            snapshot = snapshots.computeIfAbsent(key, k -> new Snapshot());
+        }
+
+        //the snapshot is made outside of the cache lock so that the snapshots of different tenants or times can be
+        //made concurrently, while the concurrent readers of the same snapshot wait for it to be made only once
+        synchronized (snapshot) {
+            if (!snapshot.initialized) {
+                try {
+                    make(live, tenantId, time, snapshot);
+                } catch (RuntimeException e) {
+                    synchronized (snapshots) {
+                        snapshots.remove(key, snapshot);
+                    }
+                    throw e;
+                }
+
+                snapshot.initialized = true;
+
+                synchronized (snapshots) {
+                    if (snapshot.backend == null || snapshot.elements > maxElements) {
+                        snapshots.remove(key, snapshot);
+                    } else {
+                        snapshotsByGraph.put(snapshot.graph, snapshot);
+                        elements += snapshot.elements;
+                        evict(snapshot);
+                    }
+                }
+            }
+
+            return snapshot.backend;
+        }
+    }
+
+    /**
+     * Evicts the least recently used snapshots until the cache fits its limit again. Must be called with the cache
+     * lock held.
+     *
+     * @param added the just added snapshot, which is never evicted
+     */
+    private void evict(Snapshot added) {
+        Iterator<Snapshot> it = snapshots.values().iterator();
+        while (elements > maxElements && it.hasNext()) {
+            Snapshot snapshot = it.next();
+            //the snapshots being made are not accounted for yet
+            if (snapshot != added && snapshotsByGraph.remove(snapshot.graph) != null) {
+                it.remove();
+                elements -= snapshot.elements;
+            }
+        }
+    }
+
+    private void make(InventoryBackend<Element> live, String tenantId, Instant time, Snapshot snapshot) {
+        Element tenant;
+        try {
+            tenant = live.find(Discriminator.time(time), CanonicalPath.of().tenant(tenantId).get());
+        } catch (ElementNotFoundException e) {
+            return;
+        }
+
+        Graph graph = SNAPSHOT_GRAPH_PROVIDER.instantiateGraph(null);
+        SNAPSHOT_GRAPH_PROVIDER.ensureIndices(graph);
+
+        snapshot.elements = copy((Vertex) tenant, graph, time.toEpochMilli());
+        snapshot.graph = graph;
+        snapshot.backend = newBackend(graph);
+    }
+
+    private TinkerpopBackend newBackend(Graph graph) {
+        return new TinkerpopBackend(new InventoryContext(inventory, graph, SNAPSHOT_GRAPH_PROVIDER, pathEncoding,
+                hotProperties));
+    }
+
+    /**
+     * Copies the tenant vertex and everything reachable from it at given time to the target graph. Because everything
+     * in the tenant is (transitively) contained in it and all the internal structures hang off the entities, following
+     * the outgoing edges is enough to reach the whole tenant.
+     *
+     * @return the number of the copied vertices and edges
+     */
+    private static long copy(Vertex tenant, Graph target, long time) {
+        String tenantCp = PathEncoding.pathOf(tenant);
+        String tenantPrefix = tenantCp + "/";
+
+        Map<Object, Vertex> copies = new HashMap<>();
+        Deque<Vertex> todo = new ArrayDeque<>();
+        long edgeCount = 0;
+
+        copies.put(tenant.id(), copyVertex(tenant, target));
+        todo.add(tenant);
+
+        while (!todo.isEmpty()) {
+            Vertex source = todo.poll();
+            Vertex sourceCopy = copies.get(source.id());
+
+            Iterator<Edge> edges = source.edges(Direction.OUT);
+            while (edges.hasNext()) {
+                Edge edge = edges.next();
+                if (!existsAt(edge, time)) {
+                    continue;
+                }
+
+                Vertex edgeTarget = edge.inVertex();
+                Vertex targetCopy = copies.get(edgeTarget.id());
+                if (targetCopy == null) {
+                    String cp = PathEncoding.pathOf(edgeTarget);
+                    if (cp != null && !cp.startsWith(tenantPrefix)) {
+                        //a relationship to another tenant
+                        continue;
+                    }
+
+                    targetCopy = copyVertex(edgeTarget, target);
+                    copies.put(edgeTarget.id(), targetCopy);
+                    todo.add(edgeTarget);
+                }
+
+                Edge edgeCopy = sourceCopy.addEdge(edge.label(), targetCopy);
+                edge.properties().forEachRemaining(p -> edgeCopy.property(p.key(), p.value()));
+                edgeCount++;
+            }
+        }
+
+        return copies.size() + edgeCount;
+    }
+
+    private static Vertex copyVertex(Vertex vertex, Graph target) {
+        Vertex copy = target.addVertex(T.label, vertex.label());
+        vertex.properties().forEachRemaining(p -> copy.property(p.key(), p.value()));
+        return copy;
+    }
+
+    /**
+     * This is deliberately more lenient than the restrictions applied by the discriminators so that the snapshot
+     * contains everything that any discriminator for the given time could see.
+     */
+    private static boolean existsAt(Edge edge, long time) {
+        Long from = edge.<Long>property(__from.name()).orElse(null);
+        if (from == null) {
+            //not a temporal edge
+            return true;
+        }
+
+        long to = edge.<Long>property(__to.name()).orElse(Long.MAX_VALUE);
+
+        return from <= time && (to > time || (from == time && to == time));
+    }
+
+    private static final class Snapshot {
+        boolean initialized;
+        long elements;
+        Graph graph;
+        InventoryBackend<Element> backend;
+    }
+}
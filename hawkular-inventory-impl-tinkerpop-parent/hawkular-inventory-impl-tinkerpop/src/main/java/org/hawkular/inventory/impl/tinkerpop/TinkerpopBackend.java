@@ -52,6 +52,7 @@ import java.io.PipedOutputStream;
 import java.io.Serializable;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -63,6 +64,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -74,6 +76,8 @@ import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
 import org.apache.tinkerpop.gremlin.process.traversal.lambda.TrueTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.util.Metrics;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalMetrics;
 import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Edge;
 import org.apache.tinkerpop.gremlin.structure.Element;
@@ -84,6 +88,7 @@ import org.apache.tinkerpop.gremlin.structure.util.ElementHelper;
 import org.hawkular.inventory.api.Action;
 import org.hawkular.inventory.api.EntityNotFoundException;
 import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.QueryExplanation;
 import org.hawkular.inventory.api.Relationships;
 import org.hawkular.inventory.api.filters.Filter;
 import org.hawkular.inventory.api.filters.Related;
@@ -113,6 +118,7 @@ import org.hawkular.inventory.api.model.Tenant;
 import org.hawkular.inventory.api.paging.Order;
 import org.hawkular.inventory.api.paging.Page;
 import org.hawkular.inventory.api.paging.Pager;
+import org.hawkular.inventory.base.spi.BreadthFirstClosure;
 import org.hawkular.inventory.base.spi.CommitFailureException;
 import org.hawkular.inventory.base.spi.Discriminator;
 import org.hawkular.inventory.base.spi.ElementNotFoundException;
@@ -132,8 +138,21 @@ import org.hawkular.inventory.paths.SegmentType;
  * @since 0.1.0
  */
 final class TinkerpopBackend implements InventoryBackend<Element> {
+    /**
+     * The maximum number of vertices expanded using a single query when streaming the transitive closures.
+     */
+    private static final int CLOSURE_CHUNK_SIZE = 500;
+
     private final InventoryContext context;
 
+    /**
+     * The identity vertices on the page of results that is being converted. Their states are resolved using a single
+     * traversal the first time the conversion asks for a state, so that the conversions needing the states don't look
+     * them up one by one and the rest don't pay for it. This only exists while the page is being converted, so the
+     * states cannot go stale by the subsequent modifications.
+     */
+    private PageStates pageStates;
+
     public TinkerpopBackend(InventoryContext context) {
         this.context = context;
     }
@@ -157,6 +176,12 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
             throw new IllegalArgumentException("The following properties are reserved for this type of entity: "
                     + Arrays.asList(disallowedProperties));
         }
+
+        for (String p : properties.keySet()) {
+            if (HotProperties.isMirror(p)) {
+                throw new IllegalArgumentException("Property '" + p + "' is reserved for internal use.");
+            }
+        }
     }
 
     /**
@@ -180,7 +205,8 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         Spliterator<Property<?>> sp = Spliterators.spliteratorUnknownSize(e.properties(),
                 Spliterator.NONNULL & Spliterator.IMMUTABLE);
         Property<?>[] toRemove = StreamSupport.stream(sp, false)
-                .filter((p) -> !disallowed.contains(p.key()) && !properties.containsKey(p.key()))
+                .filter((p) -> !disallowed.contains(p.key()) && !HotProperties.isMirror(p.key())
+                        && !properties.containsKey(p.key()))
                 .toArray(Property[]::new);
 
         for (Property<?> p : toRemove) {
@@ -245,7 +271,7 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         } else {
             it = hwk(context.getGraph().traversal().V())
                     .hasLabel(Constants.Type.of(path.getSegment().getElementType()).name())
-                    .has(__cp.name(), path.toString())
+                    .has(__cp.name(), context.getPathEncoding().encode(path.toString()))
                     .existsAt(discriminator);
         }
 
@@ -262,7 +288,33 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
 
         Log.LOG.debugf("Query execution (starting at %s):\nquery:\n%s\n\npipeline:\n%s", startingPoint, query, q);
 
-        return page(q, pager, Function.identity());
+        return timed(startingPoint == null ? "query" : "traverse", discriminator, startingPoint, query, pager,
+                () -> page(q, pager, Function.identity()));
+    }
+
+    private <T> Page<T> timed(String operation, Discriminator discriminator, Element startingPoint, Query query,
+                              Pager pager, Supplier<Page<T>> execution) {
+        SlowQueryLog slowQueries = context.getSlowQueryLog();
+        if (slowQueries == null) {
+            return execution.get();
+        }
+
+        long start = System.nanoTime();
+        Page<T> ret = execution.get();
+        slowQueries.record(start, operation, () -> tenantOf(startingPoint, query), query, pager, discriminator,
+                ret.getTotalSize(), () -> translate(discriminator, startingPoint, query).explain().prettyPrint());
+
+        return ret;
+    }
+
+    private static String tenantOf(Element startingPoint, Query query) {
+        if (startingPoint != null) {
+            String cp = startingPoint instanceof Vertex ? PathEncoding.pathOf(startingPoint) : null;
+            return cp == null ? null : CanonicalPath.fromString(cp).ids().getTenantId();
+        }
+
+        Set<String> tenants = query == null ? null : ShardedBackend.tenantsOf(query);
+        return tenants == null || tenants.size() != 1 ? null : tenants.iterator().next();
     }
 
     @Override public Element traverseToSingle(Discriminator discriminator, Element startingPoint, Query query) {
@@ -285,6 +337,59 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         return traverseToSingle(discriminator, null, query);
     }
 
+    @Override
+    public long count(Discriminator discriminator, Query query) {
+        HawkularTraversal<?, ? extends Element> q = translate(discriminator, null, query);
+        q.filter(e -> !isBackendInternal(e.get()));
+
+        HawkularTraversal<?, Long> count = q.count();
+
+        SlowQueryLog slowQueries = context.getSlowQueryLog();
+        long start = System.nanoTime();
+        long ret = drainAfter(count, count::next);
+        if (slowQueries != null) {
+            slowQueries.record(start, "count", () -> tenantOf(null, query), query, null, discriminator, ret,
+                    () -> translate(discriminator, null, query).count().explain().prettyPrint());
+        }
+
+        return ret;
+    }
+
+    @Override
+    public QueryExplanation explain(Discriminator discriminator, Query query, Pager pager, boolean profile) {
+        HawkularTraversal<?, ? extends Element> q = translate(discriminator, null, query);
+        q.filter(e -> !isBackendInternal(e.get()));
+        applyOrdering(q, pager);
+        if (pager.isLimited()) {
+            //only profile the requested page, the whole result set might be arbitrarily large
+            q.range(pager.getStart(), pager.getEnd());
+        }
+
+        String translation = q.toString();
+        String plan = q.explain().prettyPrint();
+
+        List<QueryExplanation.Step> steps = null;
+        if (profile) {
+            HawkularTraversal<?, TraversalMetrics> profiled = q.profile();
+            TraversalMetrics metrics = drainAfter(profiled, profiled::next);
+            steps = toSteps(metrics.getMetrics());
+        }
+
+        return new QueryExplanation(query.toString(), translation, plan, steps);
+    }
+
+    private static List<QueryExplanation.Step> toSteps(Collection<? extends Metrics> metrics) {
+        return metrics.stream().map(m -> {
+            Long count = m.getCount(TraversalMetrics.ELEMENT_COUNT_ID);
+            Long traversers = m.getCount(TraversalMetrics.TRAVERSER_COUNT_ID);
+            Object percent = m.getAnnotation(TraversalMetrics.PERCENT_DURATION_KEY);
+
+            return new QueryExplanation.Step(m.getName(), count == null ? 0 : count,
+                    traversers == null ? 0 : traversers, m.getDuration(TimeUnit.MICROSECONDS) / 1000d,
+                    percent instanceof Number ? ((Number) percent).doubleValue() : 0, toSteps(m.getNested()));
+        }).collect(toList());
+    }
+
     private HawkularTraversal<?, ? extends Element> translate(Discriminator discriminator, Element startingPoint,
                                                               Query query) {
         GraphTraversal<?, ? extends Element> q;
@@ -316,7 +421,7 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
 
         HawkularTraversal<?, ? extends Element> ret = hwk(q);
 
-        FilterApplicator.applyAll(discriminator, query, ret, inEdges);
+        FilterApplicator.applyAll(discriminator, query, ret, inEdges, context);
 
         return ret;
     }
@@ -331,7 +436,8 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         q.filter(e -> !isBackendInternal(e.get()));
 
         if (filter == null) {
-            return page(q, pager, conversion);
+            return timed("query", discriminator, null, query, pager,
+                    () -> page(q, pager, discriminator, conversion));
         } else {
             //the ResultFilter interface requires an entity to check its applicability and can rule out some of the
             //entities from the result set, which affects the total count. We therefore need to convert to entity first
@@ -340,9 +446,9 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
             //to have stable ids, it needs to have the "canonical" path to the entity, which the inventory traversal
             //path might not be. The transformation of a non-canonical to canonical path is essentially identical
             //operation to converting the vertex to the entity.
-            return page(
+            return timed("query", discriminator, null, query, pager, () -> page(
                     q.map(t -> conversion.apply(t.get())).filter(t -> filter.apply(t.get())),
-                    pager, Function.identity());
+                    pager, Function.identity()));
         }
     }
 
@@ -351,7 +457,50 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
                                                       Relationships.Direction direction,
                                                       String... relationshipNames) {
 
-        return getTransitiveClosureOverImpl(discriminator, startingPoint, direction, relationshipNames).iterator();
+        SlowQueryLog slowQueries = context.getSlowQueryLog();
+        if (slowQueries == null) {
+            return getTransitiveClosureOverImpl(discriminator, startingPoint, direction, relationshipNames).iterator();
+        }
+
+        long start = System.nanoTime();
+        List<Element> ret = getTransitiveClosureOverImpl(discriminator, startingPoint, direction, relationshipNames);
+        slowQueries.record(start, "transitive closure", () -> tenantOf(startingPoint, null),
+                direction + " over " + Arrays.toString(relationshipNames), null, discriminator, ret.size(), null);
+
+        return ret.iterator();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<Element> streamTransitiveClosureOver(Discriminator discriminator, Element startingPoint,
+                                                         Relationships.Direction direction, int maxDepth,
+                                                         String... relationshipNames) {
+        if (!(startingPoint instanceof Vertex)) {
+            return Collections.emptyIterator();
+        }
+
+        //each chunk of the frontier is expanded using a single query. The query results are read out eagerly so that
+        //no traversal stays open (and the Sqlg connection with it) while the caller is consuming the results.
+        return new BreadthFirstClosure<>(startingPoint, maxDepth, CLOSURE_CHUNK_SIZE, Element::id, chunk -> {
+            HawkularTraversal<?, Vertex> q = hwk(context.getGraph().traversal().V(chunk.stream().map(Element::id)
+                    .toArray()));
+
+            switch (direction) {
+                case incoming:
+                    q = q.in(relationshipNames);
+                    break;
+                case outgoing:
+                    q = q.out(relationshipNames);
+                    break;
+                case both:
+                    q = q.both(relationshipNames);
+                    break;
+                default:
+                    throw new IllegalStateException("Unhandled traversal direction: " + direction);
+            }
+
+            return (List<Element>) (List) q.existsAt(discriminator).toList();
+        });
     }
 
     @Override
@@ -366,8 +515,18 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
                 return Collections.emptyIterator();
             }
 
-            return getTransitiveClosureOverImpl(discriminator, startingElement, direction, relationshipNames).stream()
-                    .map(vertex -> convert(discriminator, vertex, clazz)).iterator();
+            Iterator<Element> closure = streamTransitiveClosureOver(discriminator, startingElement, direction,
+                    BreadthFirstClosure.UNLIMITED_DEPTH, relationshipNames);
+
+            return new Iterator<T>() {
+                @Override public boolean hasNext() {
+                    return closure.hasNext();
+                }
+
+                @Override public T next() {
+                    return convert(discriminator, closure.next(), clazz);
+                }
+            };
 
         } catch (ElementNotFoundException e) {
             throw new EntityNotFoundException(clazz, null);
@@ -530,7 +689,7 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
 
     @Override
     public CanonicalPath extractCanonicalPath(Element entityRepresentation) {
-        String cp = entityRepresentation.<String>property(__cp.name()).orElse(null);
+        String cp = PathEncoding.pathOf(entityRepresentation);
         if (cp == null) {
             throw new IllegalArgumentException("Element is not representable using a canonical path. Element type is "
                     + extractType(entityRepresentation).getSimpleName() + ", element id is '"
@@ -595,8 +754,9 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         CanonicalPath cp = extractCanonicalPath(entity);
         String tenantId = cp.ids().getTenantId();
 
-        Vertex tenantVertex = context.getGraph().traversal().V()
-                .has(__cp.name(), CanonicalPath.of().tenant(tenantId).get().toString()).next();
+        String tenantCp = context.getPathEncoding().encode(CanonicalPath.of().tenant(tenantId).get().toString());
+
+        Vertex tenantVertex = context.getGraph().traversal().V().has(__cp.name(), tenantCp).next();
 
         Iterator<Vertex> hashNodesIt = __(tenantVertex).outE(Constants.InternalEdge.__containsIdentityHash.name())
                 .has(Constants.Property.__targetIdentityHash.name(), identityHash).inV();
@@ -634,18 +794,16 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
                                     "with more than 1 hash node.");
                 }
 
-                //XXX do we need to do this check? It might be quite expensive to determine the count
-                //An alternative might be a periodical clean job.
-
-                //check if were are the last user of the hash node
+                //check if were are the last user of the hash node. We don't need the full count for that, it is
+                //enough to see if there is any other user. This keeps the check cheap even for the hashes shared by
+                //a huge number of entities (like the same resource type in many feeds).
                 Vertex hashNode = hashNodeEdge.inVertex();
-                Iterator<Edge> entitiesWithSameHash =
-                        hashNode.edges(Direction.IN, Constants.InternalEdge.__withIdentityHash.name());
+                GraphTraversal<Vertex, Long> usersUpToTwo = __(hashNode)
+                        .inE(Constants.InternalEdge.__withIdentityHash.name()).limit(2).count();
 
-                Spliterator<Edge> sp = Spliterators.spliteratorUnknownSize(entitiesWithSameHash,
-                        Spliterator.IMMUTABLE & Spliterator.NONNULL);
+                long users = closeAfter(usersUpToTwo, usersUpToTwo::next);
 
-                if (StreamSupport.stream(sp, false).count() == 1) {
+                if (users <= 1) {
                     hashNode.remove();
                 } else {
                     hashNodeEdge.remove();
@@ -657,6 +815,18 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
     }
 
     private Vertex getStateOf(Element identityVertex, Discriminator discriminator) {
+        PageStates page = pageStates;
+        if (page != null && page.isFor(discriminator)) {
+            if (page.states == null) {
+                page.states = loadStates(page.discriminator, page.identities);
+            }
+
+            Vertex state = page.states.get(identityVertex.id());
+            if (state != null) {
+                return state;
+            }
+        }
+
         HawkularTraversal<?, Vertex> q = hwk__(identityVertex).outE(__inState.name()).restrictTo(discriminator)
                 .inV();
 
@@ -756,7 +926,7 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         List<String> mappedProps = Arrays.asList(type.getMappedProperties());
         Map<String, Object> filteredProperties = new HashMap<>();
         stateElement.properties().forEachRemaining(p -> {
-            if (!mappedProps.contains(p.key())) {
+            if (!mappedProps.contains(p.key()) && !HotProperties.isMirror(p.key())) {
                 filteredProperties.put(p.key(), p.value());
             }
         });
@@ -843,7 +1013,7 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
 
         HawkularTraversal<Element, Element> pipeline = hwk__(dataEntityRepresentation);
 
-        FilterApplicator.applyAll(discriminator, q, pipeline, false);
+        FilterApplicator.applyAll(discriminator, q, pipeline, false, context);
 
         return drainAfter(pipeline, () -> {
             if (pipeline.hasNext()) {
@@ -885,6 +1055,8 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         e.property(__from.name(), discriminator.getTime().toEpochMilli());
         e.property(__to.name(), Long.MAX_VALUE);
 
+        context.getHotProperties().mirror(e);
+
         return e;
     }
 
@@ -984,7 +1156,7 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
                     //check that there is no deleted vertex on our path...
                     Iterator<Vertex> check = hwk(context.getGraph().traversal().V())
                             .hasLabel(type.name())
-                            .has(__cp.name(), cp)
+                            .has(__cp.name(), context.getPathEncoding().encode(cp))
                             .doesntExistAt(discriminator);
 
                     Vertex identity = closeAfter(check, () -> {
@@ -992,7 +1164,7 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
                             return check.next();
                         } else {
                             Vertex ret = context.getGraph().addVertex(type.name());
-                            ret.property(__cp.name(), cp);
+                            context.getPathEncoding().store(ret, cp);
                             ret.property(__type.name(), Constants.Type.of(cls).name());
                             ret.property(__eid.name(), path.getSegment().getElementId());
 
@@ -1007,6 +1179,8 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
                         properties.forEach(state::property);
                     }
 
+                    context.getHotProperties().mirror(identity, state);
+
                     Edge stateEdge = identity.addEdge(__inState.name(), state);
                     stateEdge.property(__from.name(), discriminator.getTime().toEpochMilli());
                     stateEdge.property(__to.name(), Long.MAX_VALUE);
@@ -1247,6 +1421,8 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
                 setNonNullProperty(state, Constants.Property.name.name(), name);
                 updateProperties(state, properties, disallowedProperties);
 
+                context.getHotProperties().mirror((Vertex) entity, state);
+
                 Edge newStateEdge = ((Vertex) entity).addEdge(__inState.name(), state);
                 newStateEdge.property(__from.name(), time);
                 newStateEdge.property(__to.name(), Long.MAX_VALUE);
@@ -1633,7 +1809,37 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         return ret;
     }
 
+    /**
+     * Resolves the states of all the identity vertices in a single traversal.
+     */
+    private Map<Object, Vertex> loadStates(Discriminator discriminator, Object[] identities) {
+        if (identities.length < 2) {
+            return Collections.emptyMap();
+        }
+
+        HawkularTraversal<?, Map<String, Vertex>> q = hwk(context.getGraph().traversal().V(identities))
+                .as("identity").outE(__inState.name()).restrictTo(discriminator).inV().as("state")
+                .select("identity", "state");
+
+        Map<Object, Vertex> states = new HashMap<>();
+        drainAfter(q, () -> {
+            q.forEachRemaining(m -> states.putIfAbsent(m.get("identity").id(), m.get("state")));
+            return null;
+        });
+
+        return states;
+    }
+
     private <T, U> Page<U> page(GraphTraversal<?, ? extends T> traversal, Pager pager, Function<T, U> transform) {
+        return page(traversal, pager, null, transform);
+    }
+
+    /**
+     * @param statesAt if not null, the page is converted eagerly and the conversion can resolve the states of all the
+     *                 entities on the page at once as of this discriminator
+     */
+    private <T, U> Page<U> page(GraphTraversal<?, ? extends T> traversal, Pager pager, Discriminator statesAt,
+                                Function<T, U> transform) {
         @SuppressWarnings("unchecked")
         GraphTraversal<?, Map<String, Object>> paged = applyOrdering(traversal, pager)
                 .fold().as("results", "total").select("results", "total")
@@ -1653,7 +1859,17 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         @SuppressWarnings("unchecked")
         List<T> results = res instanceof List ? (List<T>) res : Collections.singletonList((T) res);
 
-        return new Page<>(results.stream().map(transform).iterator(), pager, total);
+        if (statesAt == null) {
+            return new Page<>(results.stream().map(transform).iterator(), pager, total);
+        }
+
+        PageStates previous = pageStates;
+        pageStates = new PageStates(statesAt, results.stream().filter(e -> e instanceof Vertex).toArray());
+        try {
+            return new Page<>(results.stream().map(transform).collect(toList()).iterator(), pager, total);
+        } finally {
+            pageStates = previous;
+        }
     }
 
     private <S, E> GraphTraversal<S, E> applyOrdering(GraphTraversal<S, E> traversal, Pager pager) {
@@ -1672,6 +1888,33 @@ final class TinkerpopBackend implements InventoryBackend<Element> {
         return traversal;
     }
 
+    private static final class PageStates {
+        final Discriminator discriminator;
+        final Object[] identities;
+        Map<Object, Vertex> states;
+
+        PageStates(Discriminator discriminator, Object[] identities) {
+            this.discriminator = discriminator;
+            this.identities = identities;
+        }
+
+        /**
+         * The states can be reused for a different discriminator instance if it restricts the states the same way.
+         */
+        boolean isFor(Discriminator other) {
+            if (discriminator == null || other == null) {
+                return discriminator == other;
+            }
+
+            if (discriminator.isQueryLatest() || other.isQueryLatest()) {
+                return discriminator.isQueryLatest() && other.isQueryLatest();
+            }
+
+            return discriminator.getTime().equals(other.getTime())
+                    && discriminator.isPreferExistence() == other.isPreferExistence();
+        }
+    }
+
     private static final class Pair<F, S> {
         public F first;
         public S second;
@@ -16,6 +16,12 @@
  */
 package org.hawkular.inventory.impl.tinkerpop;
 
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.ServiceLoader;
 
 import org.apache.tinkerpop.gremlin.structure.Edge;
@@ -23,6 +29,7 @@ import org.apache.tinkerpop.gremlin.structure.Element;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.hawkular.inventory.api.Configuration;
+import org.hawkular.inventory.api.SlowQuery;
 import org.hawkular.inventory.base.BaseInventory;
 import org.hawkular.inventory.base.TransactionConstructor;
 import org.hawkular.inventory.base.spi.InventoryBackend;
@@ -39,6 +46,108 @@ public final class TinkerpopInventory extends BaseInventory<Element> {
             .withPropertyNameAndSystemProperty("hawkular.inventory.tinkerpop.graph-provider-impl")
             .withEnvironmentVariables("HAWKULAR_INVENTORY_TINKERPOP_GRAPH_PROVIDER_IMPL").build();
 
+    /**
+     * The comma-separated list of the names of the graph shards to distribute the tenants over. If not specified, all
+     * the tenants are stored in a single graph. The special name {@code *} means that each tenant gets a graph of its
+     * own (unless it is explicitly assigned to a shard using {@link #SHARD_ASSIGNMENTS}).
+     *
+     * <p>The configuration of each shard is the configuration of the inventory with all the occurrences of
+     * {@link #SHARD_NAME_PLACEHOLDER} replaced by the name of the shard and with the
+     * {@link #SHARD_CONFIGURATION_PREFIX prefixed} per-shard properties applied on top.
+     *
+     * <p>The shard each tenant is stored in is recorded in an additional graph, configured the same way as a shard
+     * named {@code _directory}. Once stored, a tenant stays in its shard even if the list of the shards changes.
+     */
+    public static final Configuration.Property SHARDS = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.tinkerpop.shards")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TINKERPOP_SHARDS").build();
+
+    /**
+     * The comma-separated list of {@code tenantId=shardName} pairs assigning the tenants to the shards explicitly.
+     * The tenants that are not assigned explicitly are distributed among the shards by the hash of their id. The
+     * inventory refuses to start if an assignment contradicts the shard the tenant is already stored in.
+     */
+    public static final Configuration.Property SHARD_ASSIGNMENTS = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.tinkerpop.shard-assignments")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TINKERPOP_SHARD_ASSIGNMENTS").build();
+
+    /**
+     * The properties starting with this prefix followed by the name of the shard and a dot override the configuration
+     * of that shard. E.g. {@code hawkular.inventory.tinkerpop.shard.a.sql.url} sets the {@code sql.url} property of the
+     * shard named {@code a}.
+     */
+    public static final String SHARD_CONFIGURATION_PREFIX = "hawkular.inventory.tinkerpop.shard.";
+
+    /**
+     * The placeholder in the configuration values that is replaced by the name of the shard.
+     */
+    public static final String SHARD_NAME_PLACEHOLDER = "${shard}";
+
+    /**
+     * The maximum total number of vertices and edges of the tenant snapshots to keep in memory for serving the reads
+     * from the inventory views obtained using {@link #at(Instant)}. The snapshots are evicted in the least recently
+     * used order. The default is 0, which disables the snapshots and the views read the live graph.
+     */
+    public static final Configuration.Property SNAPSHOT_CACHE_MAX_ELEMENTS = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.tinkerpop.snapshot-cache-max-elements")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TINKERPOP_SNAPSHOT_CACHE_MAX_ELEMENTS").build();
+
+    /**
+     * How old (in milliseconds) must a point in time be so that the inventory can be considered settled at that time
+     * and a snapshot can be made of it. Defaults to 1 minute.
+     */
+    public static final Configuration.Property SNAPSHOT_MIN_AGE = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.tinkerpop.snapshot-min-age")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TINKERPOP_SNAPSHOT_MIN_AGE").build();
+
+    /**
+     * How the canonical paths are stored in the graph. Either {@code plain} (the default), which stores the full path
+     * in every indexed property, or {@code dictionary}, which uses short fixed-length keys in the indices and stores
+     * only the last segment of the path with each entity, sharing the rest with the parent entity. The encoding is
+     * recorded in the graph and cannot be changed once the graph contains data.
+     */
+    public static final Configuration.Property PATH_ENCODING = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.tinkerpop.path-encoding")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TINKERPOP_PATH_ENCODING").build();
+
+    /**
+     * The comma-separated list of the user-defined properties that are frequently used in the filters. The latest
+     * values of these properties are mirrored onto the entity identity vertices and relationship edges and indexed, so
+     * that filtering by them doesn't need to inspect the entity states. Each property name can be followed by a colon
+     * and the type the property is indexed with - {@code string} (the default), {@code long}, {@code double} or
+     * {@code boolean}. E.g. {@code hostname,port:long}.
+     *
+     * <p>The properties need to be configured before the entities having them are created or updated.
+     */
+    public static final Configuration.Property HOT_PROPERTIES = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.tinkerpop.hot-properties")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TINKERPOP_HOT_PROPERTIES").build();
+
+    /**
+     * The queries taking longer than this number of milliseconds are logged and recorded as slow queries. Not set by
+     * default, which disables the recording.
+     */
+    public static final Configuration.Property SLOW_QUERY_THRESHOLD = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.tinkerpop.slow-query-threshold")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TINKERPOP_SLOW_QUERY_THRESHOLD").build();
+
+    /**
+     * The number of the most recent slow queries to keep in memory. Defaults to 100.
+     */
+    public static final Configuration.Property SLOW_QUERY_LOG_SIZE = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.tinkerpop.slow-query-log-size")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TINKERPOP_SLOW_QUERY_LOG_SIZE").build();
+
+    /**
+     * The fraction (between 0 and 1) of the slow queries that are recorded together with their query plan. Defaults
+     * to 0.1.
+     */
+    public static final Configuration.Property SLOW_QUERY_PLAN_SAMPLE_RATE = Configuration.Property.builder()
+            .withPropertyNameAndSystemProperty("hawkular.inventory.tinkerpop.slow-query-plan-sample-rate")
+            .withEnvironmentVariables("HAWKULAR_INVENTORY_TINKERPOP_SLOW_QUERY_PLAN_SAMPLE_RATE").build();
+
+    private SnapshotCache snapshots;
+    private SlowQueryLog slowQueries;
 
     public TinkerpopInventory() {
     }
@@ -46,16 +155,86 @@ public final class TinkerpopInventory extends BaseInventory<Element> {
     private TinkerpopInventory(BaseInventory<Element> orig, InventoryBackend<Element> backend,
                                TransactionConstructor<Element> transactionConstructor) {
         super(orig, backend, transactionConstructor);
+        if (orig instanceof TinkerpopInventory) {
+            this.snapshots = ((TinkerpopInventory) orig).snapshots;
+            this.slowQueries = ((TinkerpopInventory) orig).slowQueries;
+        }
     }
 
     @Override protected TinkerpopInventory cloneWith(TransactionConstructor<Element> transactionCtor) {
         return new TinkerpopInventory(this, null, transactionCtor);
     }
 
+    @Override public BaseInventory<Element> at(Instant time) {
+        InventoryBackend<Element> backend = getBackend();
+        if (snapshots == null || time == null || backend == null) {
+            return super.at(time);
+        }
+
+        if (backend instanceof SnapshotBackend) {
+            backend = ((SnapshotBackend) backend).getLiveBackend();
+        }
+
+        return new TinkerpopInventory(this, new SnapshotBackend(backend, snapshots, time), null).atWithBackend(time);
+    }
+
+    private BaseInventory<Element> atWithBackend(Instant time) {
+        return super.at(time);
+    }
+
+    @Override public List<SlowQuery> getSlowQueries() {
+        return slowQueries == null ? Collections.emptyList() : slowQueries.getRecent();
+    }
+
+    SlowQueryLog getSlowQueryLog() {
+        return slowQueries;
+    }
+
     @Override
     protected InventoryBackend<Element> doInitialize(Configuration configuration) {
-        InventoryContext context = loadGraph(configuration);
-        return new TinkerpopBackend(context);
+        long snapshotCacheMaxElements = Long.parseLong(configuration.getProperty(SNAPSHOT_CACHE_MAX_ELEMENTS, "0"));
+        if (snapshotCacheMaxElements > 0) {
+            snapshots = new SnapshotCache(this, snapshotCacheMaxElements,
+                    Long.parseLong(configuration.getProperty(SNAPSHOT_MIN_AGE, "60000")), pathEncoding(configuration),
+                    hotProperties(configuration));
+        }
+
+        String slowQueryThreshold = configuration.getProperty(SLOW_QUERY_THRESHOLD, null);
+        if (slowQueryThreshold != null && !slowQueryThreshold.trim().isEmpty()) {
+            slowQueries = new SlowQueryLog(Long.parseLong(slowQueryThreshold.trim()),
+                    Integer.parseInt(configuration.getProperty(SLOW_QUERY_LOG_SIZE, "100")),
+                    Double.parseDouble(configuration.getProperty(SLOW_QUERY_PLAN_SAMPLE_RATE, "0.1")));
+        }
+
+        String shards = configuration.getProperty(SHARDS, null);
+        if (shards == null || shards.trim().isEmpty()) {
+            InventoryContext context = loadGraph(configuration);
+            return new TinkerpopBackend(context);
+        }
+
+        return new ShardedBackend(new ShardedBackend.Shards(shards, configuration.getProperty(SHARD_ASSIGNMENTS, null),
+                shard -> loadGraph(shardConfiguration(configuration, shard))));
+    }
+
+    private static Configuration shardConfiguration(Configuration configuration, String shard) {
+        String prefix = SHARD_CONFIGURATION_PREFIX + shard + ".";
+
+        Map<String, String> conf = new HashMap<>();
+        Map<String, String> overrides = new HashMap<>();
+
+        configuration.getImplementationConfiguration(Collections.emptySet()).forEach((k, v) -> {
+            String value = v.replace(SHARD_NAME_PLACEHOLDER, shard);
+            if (k.startsWith(prefix)) {
+                overrides.put(k.substring(prefix.length()), value);
+            } else {
+                conf.put(k, value);
+            }
+        });
+
+        conf.putAll(overrides);
+
+        return Configuration.builder().withFeedIdStrategy(configuration.getFeedIdStrategy())
+                .withResultFilter(configuration.getResultFilter()).withConfiguration(conf).build();
     }
 
     private InventoryContext loadGraph(Configuration configuration) {
@@ -65,13 +244,29 @@ public final class TinkerpopInventory extends BaseInventory<Element> {
 
         Graph g = ensureIndices(gp, configuration);
 
-        return new InventoryContext(this, g, gp);
+        PathEncoding pathEncoding = pathEncoding(configuration);
+        pathEncoding.verify(gp, g);
+
+        HotProperties hotProperties = hotProperties(configuration);
+        hotProperties.verify(gp, g);
+
+        return new InventoryContext(this, g, gp, pathEncoding, hotProperties);
+    }
+
+    private static HotProperties hotProperties(Configuration configuration) {
+        return HotProperties.of(configuration.getProperty(HOT_PROPERTIES, null));
+    }
+
+    private static PathEncoding pathEncoding(Configuration configuration) {
+        return PathEncoding.of(configuration.getProperty(PATH_ENCODING, "plain").trim());
     }
 
     private Graph ensureIndices(GraphProvider graphProvider, Configuration config) {
+        long start = System.currentTimeMillis();
+
         Graph graph = graphProvider.instantiateGraph(config);
 
-        graphProvider.ensureIndices(graph,
+        IndexSpec[] coreIndices = new IndexSpec[]{
                 IndexSpec.builder()
                         .withElementType(Vertex.class)
                         .withProperty(IndexSpec.Property.builder()
@@ -198,7 +393,33 @@ public final class TinkerpopInventory extends BaseInventory<Element> {
                                 .withName(Constants.Property.__to.name())
                                 .withType(Long.class)
                                 .build())
-                        .build());
+                        .build()};
+
+        IndexSpec[] hotPropertyIndices = hotProperties(config).indexSpecs();
+
+        IndexSpec[] allIndices = Arrays.copyOf(coreIndices, coreIndices.length + hotPropertyIndices.length);
+        System.arraycopy(hotPropertyIndices, 0, allIndices, coreIndices.length, hotPropertyIndices.length);
+
+        //the schema and index checks can take a long time with some providers, so let's skip them if the graph has
+        //already been set up by this very version of the code with this very configuration
+        String version = SchemaVersion.of(graphProvider, allIndices);
+        String storedVersion = SchemaVersion.read(graphProvider, graph);
+
+        if (version.equals(storedVersion)) {
+            Log.LOG.iSchemaUpToDate(version);
+        } else {
+            Log.LOG.iUpdatingSchema(storedVersion, version);
+
+            graphProvider.ensureIndices(graph, coreIndices);
+
+            if (hotPropertyIndices.length > 0) {
+                graphProvider.ensureIndices(graph, hotPropertyIndices);
+            }
+
+            SchemaVersion.write(graphProvider, graph, version);
+        }
+
+        Log.LOG.iGraphInitialized(System.currentTimeMillis() - start);
 
         return graph;
     }
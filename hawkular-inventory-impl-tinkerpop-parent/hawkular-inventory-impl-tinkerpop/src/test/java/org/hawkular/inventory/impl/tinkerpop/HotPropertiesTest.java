@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.time.Instant;
+
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.Relationships;
+import org.hawkular.inventory.api.filters.SwitchElementType;
+import org.hawkular.inventory.api.filters.With;
+import org.hawkular.inventory.api.model.Feed;
+import org.hawkular.inventory.api.model.Tenant;
+import org.hawkular.inventory.base.spi.Discriminator;
+import org.hawkular.inventory.base.spi.InventoryBackend;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 2.0.0
+ */
+public class HotPropertiesTest {
+    private final TinkerGraph graph = TinkerGraph.open();
+
+    private final CanonicalPath tenant = CanonicalPath.of().tenant("t").get();
+    private final CanonicalPath feed = CanonicalPath.of().tenant("t").feed("f").get();
+
+    @Test
+    public void testValuesOfDifferentTypeNotCoerced() throws Exception {
+        HotProperties hot = HotProperties.of("s,l:long,d:double,b:boolean");
+
+        assertArrayEquals(new Object[]{"x", null}, hot.convert("s", "x", 1));
+        assertArrayEquals(new Object[]{5L, 5L, null, null}, hot.convert("l", 5L, 5, "5", 5.0));
+        assertArrayEquals(new Object[]{5.0, 5.0, null}, hot.convert("d", 5, 5.0, "5"));
+        assertArrayEquals(new Object[]{true, null, null}, hot.convert("b", true, "true", 1));
+    }
+
+    @Test
+    public void testFilterOnEdgesInBothDirectionsFallsBackToStates() throws Exception {
+        HotProperties hot = HotProperties.of("kind");
+        InventoryBackend<Element> backend = backend(hot);
+        hot.verify(new NonTransactionalGraphProvider(), graph);
+        createTenantAndFeed(backend);
+
+        Query q = Query.path().with(With.path(tenant), new SwitchElementType(Relationships.Direction.both, false),
+                With.propertyValue("kind", "x")).get();
+
+        assertEquals(backend(HotProperties.NONE).count(Discriminator.latest(), q),
+                backend.count(Discriminator.latest(), q));
+    }
+
+    @Test
+    public void testMirrorsBackfilledWhenPropertyAdded() throws Exception {
+        createTenantAndFeed(backend(HotProperties.NONE));
+
+        HotProperties hot = HotProperties.of("kind");
+        assertFalse(graph.traversal().V().has(hot.onVertex("kind")).hasNext());
+
+        hot.verify(new NonTransactionalGraphProvider(), graph);
+
+        Vertex feedVertex = graph.traversal().V().has(hot.onVertex("kind"), "x").next();
+        assertEquals(feed.toString(), PathEncoding.pathOf(feedVertex));
+        Edge contains = graph.traversal().E().has(hot.onTarget("kind"), "x").next();
+        assertEquals("contains", contains.label());
+
+        //the backfilled graph records the configuration so that it is not backfilled again
+        feedVertex.property(hot.onVertex("kind")).remove();
+        hot.verify(new NonTransactionalGraphProvider(), graph);
+        assertFalse(feedVertex.property(hot.onVertex("kind")).isPresent());
+    }
+
+    private InventoryBackend<Element> backend(HotProperties hotProperties) {
+        return new TinkerpopBackend(new InventoryContext(null, graph, new NonTransactionalGraphProvider(),
+                PathEncoding.PLAIN, hotProperties));
+    }
+
+    private void createTenantAndFeed(InventoryBackend<Element> backend) throws Exception {
+        InventoryBackend<Element> tx = backend.startTransaction();
+        Element t = tx.persist(Discriminator.time(Instant.now()), tenant, Tenant.Blueprint.builder().withId("t")
+                .build());
+        Element f = tx.persist(Discriminator.time(Instant.now()), feed, Feed.Blueprint.builder().withId("f")
+                .withProperty("kind", "x").build());
+        tx.relate(Discriminator.time(Instant.now()), t, f, "contains", null);
+        tx.commit();
+    }
+}
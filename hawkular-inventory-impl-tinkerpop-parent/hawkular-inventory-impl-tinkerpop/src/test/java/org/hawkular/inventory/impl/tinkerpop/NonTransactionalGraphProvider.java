@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.hawkular.inventory.api.Configuration;
+import org.hawkular.inventory.impl.tinkerpop.spi.GraphProvider;
+import org.hawkular.inventory.impl.tinkerpop.spi.IndexSpec;
+
+/**
+ * TinkerGraph doesn't support transactions, so this provider doesn't try to open them.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+class NonTransactionalGraphProvider implements GraphProvider {
+    @Override public boolean isPreferringBigTransactions() {
+        return false;
+    }
+
+    @Override public boolean needsDraining() {
+        return false;
+    }
+
+    @Override public boolean isUniqueIndexSupported() {
+        return false;
+    }
+
+    @Override public Graph instantiateGraph(Configuration configuration) {
+        return TinkerGraph.open();
+    }
+
+    @Override public void ensureIndices(Graph graph, IndexSpec... indexSpecs) {
+    }
+
+    @Override public Graph startTransaction(Graph graph) {
+        return graph;
+    }
+
+    @Override public void commit(Graph graph) {
+    }
+
+    @Override public void rollback(Graph graph) {
+    }
+}
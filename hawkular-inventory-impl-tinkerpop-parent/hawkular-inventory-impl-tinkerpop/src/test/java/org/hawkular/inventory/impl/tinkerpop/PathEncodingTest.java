@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Instant;
+
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.hawkular.inventory.api.model.Feed;
+import org.hawkular.inventory.api.model.Tenant;
+import org.hawkular.inventory.base.spi.Discriminator;
+import org.hawkular.inventory.base.spi.InventoryBackend;
+import org.hawkular.inventory.impl.tinkerpop.spi.Constants;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 2.0.0
+ */
+public class PathEncodingTest {
+    private final TinkerGraph graph = TinkerGraph.open();
+
+    @After
+    public void clearCache() {
+        PathEncoding.clearDecodedPaths();
+    }
+
+    @Test
+    public void testPlainPathsStoredAsIs() throws Exception {
+        String cp = CanonicalPath.of().tenant("t").feed("f").get().toString();
+        Vertex v = graph.addVertex(T.label, "entity");
+        PathEncoding.PLAIN.store(v, cp);
+
+        assertEquals(cp, v.property(Constants.Property.__cp.name()).value());
+        assertEquals(cp, PathEncoding.pathOf(v));
+        assertFalse(v.property(Constants.Property.__cpSegment.name()).isPresent());
+    }
+
+    @Test
+    public void testDictionaryStoresOnlyTheLastSegment() throws Exception {
+        CanonicalPath tenant = CanonicalPath.of().tenant("tenant").get();
+        CanonicalPath feed = CanonicalPath.of().tenant("tenant").feed("feed").get();
+        CanonicalPath resource = CanonicalPath.of().tenant("tenant").feed("feed").resource("r").get();
+
+        Vertex t = store(tenant);
+        Vertex f = store(feed);
+        Vertex r = store(resource);
+
+        assertEquals(tenant.toString(), t.property(Constants.Property.__cpSegment.name()).value());
+        assertFalse(t.property(Constants.Property.__cpParent.name()).isPresent());
+
+        String resourceSegment = r.<String>property(Constants.Property.__cpSegment.name()).value();
+        assertFalse(resourceSegment.contains("tenant"));
+        assertFalse(resourceSegment.contains("feed"));
+        assertEquals(f.property(Constants.Property.__cp.name()).value(),
+                r.property(Constants.Property.__cpParent.name()).value());
+
+        //no property of the vertices stores the full path
+        r.properties().forEachRemaining(p -> assertNotEquals(resource.toString(), p.value()));
+
+        PathEncoding.clearDecodedPaths();
+
+        assertEquals(resource.toString(), PathEncoding.pathOf(r));
+        assertEquals(feed.toString(), PathEncoding.pathOf(f));
+        assertEquals(tenant.toString(), PathEncoding.pathOf(t));
+    }
+
+    @Test
+    public void testDictionaryHandlesEscapedSlashes() throws Exception {
+        CanonicalPath tenant = CanonicalPath.of().tenant("a/b").get();
+        CanonicalPath feed = CanonicalPath.of().tenant("a/b").feed("c/d").get();
+
+        store(tenant);
+        Vertex f = store(feed);
+
+        PathEncoding.clearDecodedPaths();
+
+        assertEquals(feed.toString(), PathEncoding.pathOf(f));
+        assertEquals(PathEncoding.DICTIONARY.encode(tenant.toString()),
+                f.property(Constants.Property.__cpParent.name()).value());
+    }
+
+    @Test
+    public void testDictionaryEncodedBackend() throws Exception {
+        InventoryBackend<Element> backend = new TinkerpopBackend(new InventoryContext(null, graph,
+                new NonTransactionalGraphProvider(), PathEncoding.DICTIONARY, HotProperties.NONE));
+
+        CanonicalPath tenant = CanonicalPath.of().tenant("t").get();
+        CanonicalPath feed = CanonicalPath.of().tenant("t").feed("f").get();
+
+        InventoryBackend<Element> tx = backend.startTransaction();
+        tx.persist(Discriminator.time(Instant.now()), tenant, Tenant.Blueprint.builder().withId("t").build());
+        tx.persist(Discriminator.time(Instant.now()), feed, Feed.Blueprint.builder().withId("f").build());
+        tx.commit();
+
+        PathEncoding.clearDecodedPaths();
+
+        Element feedElement = backend.find(Discriminator.latest(), feed);
+        assertEquals(feed, backend.extractCanonicalPath(feedElement));
+    }
+
+    @Test
+    public void testEncodingRecordedAndMismatchRefused() throws Exception {
+        PathEncoding.DICTIONARY.verify(new NonTransactionalGraphProvider(), graph);
+        PathEncoding.DICTIONARY.verify(new NonTransactionalGraphProvider(), graph);
+
+        try {
+            PathEncoding.PLAIN.verify(new NonTransactionalGraphProvider(), graph);
+            fail("Changing the path encoding of a graph should have been refused.");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testGraphWithDataAndNoRecordAssumedPlain() throws Exception {
+        PathEncoding.PLAIN.store(graph.addVertex(T.label, "entity"), "/t;t");
+
+        try {
+            PathEncoding.DICTIONARY.verify(new NonTransactionalGraphProvider(), graph);
+            fail("Existing plain data should have prevented the dictionary encoding.");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+
+        PathEncoding.PLAIN.verify(new NonTransactionalGraphProvider(), graph);
+        assertTrue(graph.traversal().V().hasLabel(Constants.InternalType.__pathEncoding.name()).hasNext());
+    }
+
+    private Vertex store(CanonicalPath cp) {
+        Vertex v = graph.addVertex(T.label, "entity");
+        PathEncoding.DICTIONARY.store(v, cp.toString());
+        return v;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.hawkular.inventory.impl.tinkerpop.spi.GraphProvider;
+import org.hawkular.inventory.impl.tinkerpop.spi.IndexSpec;
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 2.0.0
+ */
+public class SchemaVersionTest {
+    private final GraphProvider provider = new NonTransactionalGraphProvider();
+
+    @Test
+    public void testSameInputsSameVersion() throws Exception {
+        assertEquals(SchemaVersion.of(provider, index(Vertex.class, "a")),
+                SchemaVersion.of(new NonTransactionalGraphProvider(), index(Vertex.class, "a")));
+    }
+
+    @Test
+    public void testIndicesChangeVersion() throws Exception {
+        String version = SchemaVersion.of(provider, index(Vertex.class, "a"));
+
+        assertNotEquals(version, SchemaVersion.of(provider, index(Vertex.class, "b")));
+        assertNotEquals(version, SchemaVersion.of(provider, index(Edge.class, "a")));
+        assertNotEquals(version, SchemaVersion.of(provider, index(Vertex.class, "a"), index(Vertex.class, "b")));
+    }
+
+    @Test
+    public void testProviderSchemaChangesVersion() throws Exception {
+        GraphProvider withSchema = new NonTransactionalGraphProvider() {
+            @Override public String getSchemaDescription() {
+                return "tables-v2";
+            }
+        };
+
+        GraphProvider withOtherSchema = new NonTransactionalGraphProvider() {
+            @Override public String getSchemaDescription() {
+                return "tables-v3";
+            }
+        };
+
+        assertNotEquals(SchemaVersion.of(withSchema, index(Vertex.class, "a")),
+                SchemaVersion.of(withOtherSchema, index(Vertex.class, "a")));
+    }
+
+    @Test
+    public void testVersionStoredInGraph() throws Exception {
+        TinkerGraph graph = TinkerGraph.open();
+        assertNull(SchemaVersion.read(provider, graph));
+
+        SchemaVersion.write(provider, graph, "1/abc");
+        SchemaVersion.write(provider, graph, "1/def");
+
+        assertEquals("1/def", SchemaVersion.read(provider, graph));
+        assertEquals(1L, (long) graph.traversal().V().count().next());
+    }
+
+    private static IndexSpec index(Class<? extends Element> elementType, String property) {
+        return IndexSpec.builder().withElementType(elementType)
+                .withProperty(IndexSpec.Property.builder().withName(property).withType(String.class).build())
+                .build();
+    }
+}
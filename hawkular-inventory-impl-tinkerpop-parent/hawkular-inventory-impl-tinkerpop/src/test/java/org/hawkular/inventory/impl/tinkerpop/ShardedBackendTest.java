@@ -0,0 +1,233 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import static org.hawkular.inventory.api.filters.With.id;
+import static org.hawkular.inventory.api.filters.With.type;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.QueryExplanation;
+import org.hawkular.inventory.api.model.StructuredData;
+import org.hawkular.inventory.api.model.Tenant;
+import org.hawkular.inventory.api.paging.Pager;
+import org.hawkular.inventory.base.spi.Discriminator;
+import org.hawkular.inventory.base.spi.InventoryBackend;
+import org.hawkular.inventory.impl.tinkerpop.spi.Constants;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 2.0.0
+ */
+public class ShardedBackendTest {
+    /**
+     * The graphs of the shards by their names. The graphs outlive the backends, so they play the role of the
+     * persistent storage.
+     */
+    private final Map<String, TinkerGraph> storage = new HashMap<>();
+
+    @Test
+    public void testExplicitAssignmentWins() throws Exception {
+        try (ShardedBackend backend = open("a,b", "t1=b")) {
+            createTenant(backend, "t1");
+
+            assertTrue(contains("b", "t1"));
+            assertFalse(contains("a", "t1"));
+            assertEquals(1, backend.count(Discriminator.latest(), tenant("t1")));
+        }
+    }
+
+    @Test
+    public void testTenantsDistributedOverConfiguredShards() throws Exception {
+        try (ShardedBackend backend = open("a,b", null)) {
+            for (int i = 0; i < 10; ++i) {
+                createTenant(backend, "t" + i);
+            }
+
+            for (int i = 0; i < 10; ++i) {
+                String tenantId = "t" + i;
+                String expected = Math.floorMod(tenantId.hashCode(), 2) == 0 ? "a" : "b";
+                assertTrue(contains(expected, tenantId));
+                assertFalse(contains("a".equals(expected) ? "b" : "a", tenantId));
+            }
+        }
+    }
+
+    @Test
+    public void testQueriesSpanningAllShards() throws Exception {
+        try (ShardedBackend backend = open("*", null)) {
+            createTenant(backend, "t1");
+            createTenant(backend, "t2");
+            createTenant(backend, "t3");
+
+            Query allTenants = Query.path().with(type(Tenant.class)).get();
+
+            assertEquals(3, backend.count(Discriminator.latest(), allTenants));
+            assertEquals(3, backend.query(Discriminator.latest(), allTenants, Pager.unlimited()).toList().size());
+            assertEquals(2, backend.query(Discriminator.latest(), allTenants, new Pager(0, 2)).toList().size());
+            assertEquals(1, backend.query(Discriminator.latest(), allTenants, new Pager(1, 2)).toList().size());
+        }
+    }
+
+    @Test
+    public void testPerTenantShardsKnownAfterRestart() throws Exception {
+        try (ShardedBackend backend = open("*", null)) {
+            createTenant(backend, "t1");
+            createTenant(backend, "t2");
+        }
+
+        try (ShardedBackend backend = open("*", null)) {
+            Set<String> ids = new HashSet<>();
+            backend.query(Discriminator.latest(), Query.path().with(type(Tenant.class)).get(), Pager.unlimited())
+                    .forEachRemaining(e -> ids.add(backend.extractId(e)));
+
+            assertEquals(new HashSet<>(Arrays.asList("t1", "t2")), ids);
+        }
+    }
+
+    @Test
+    public void testTenantsStayInTheirShardsWhenShardsChange() throws Exception {
+        try (ShardedBackend backend = open("a", null)) {
+            for (int i = 0; i < 10; ++i) {
+                createTenant(backend, "t" + i);
+            }
+        }
+
+        try (ShardedBackend backend = open("a,b,c", null)) {
+            for (int i = 0; i < 10; ++i) {
+                assertEquals(1, backend.count(Discriminator.latest(), tenant("t" + i)));
+            }
+
+            createTenant(backend, "new");
+            String expected = new String[]{"a", "b", "c"}[Math.floorMod("new".hashCode(), 3)];
+            assertTrue(contains(expected, "new"));
+        }
+    }
+
+    @Test
+    public void testContradictingAssignmentRefused() throws Exception {
+        try (ShardedBackend backend = open("a,b", "t1=a")) {
+            createTenant(backend, "t1");
+        }
+
+        try {
+            open("a,b", "t1=b");
+            fail("Moving a tenant to a different shard should have been refused.");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testDefaultsWithoutAnyShard() throws Exception {
+        try (ShardedBackend backend = open("*", null)) {
+            assertFalse(backend.isUniqueIndexSupported());
+            assertFalse(backend.isPreferringBigTransactions());
+            assertEquals(0, backend.count(Discriminator.latest(), Query.path().with(type(Tenant.class)).get()));
+        }
+    }
+
+    @Test
+    public void testExplainWithoutAnyShard() throws Exception {
+        try (ShardedBackend backend = open("*", null)) {
+            QueryExplanation explanation = backend.explain(Discriminator.latest(), tenant("t1"), Pager.unlimited(),
+                    true);
+
+            assertNull(explanation.getTranslation());
+            assertTrue(explanation.getProfile().isEmpty());
+        }
+    }
+
+    @Test
+    public void testProfileLimitedToThePage() throws Exception {
+        try (ShardedBackend backend = open("a", null)) {
+            for (int i = 0; i < 5; ++i) {
+                createTenant(backend, "t" + i);
+            }
+
+            List<QueryExplanation.Step> steps = backend.explain(Discriminator.latest(),
+                    Query.path().with(type(Tenant.class)).get(), new Pager(1, 2), true).getProfile();
+
+            assertEquals(2, steps.get(steps.size() - 1).getCount());
+        }
+    }
+
+    @Test
+    public void testStructuredDataFollowTheirTransaction() throws Exception {
+        try (ShardedBackend backend = open("a,b", "t1=a,t2=b")) {
+            InventoryBackend<Element> tx1 = backend.startTransaction();
+            InventoryBackend<Element> tx2 = backend.startTransaction();
+
+            persistTenant(tx1, "t1");
+            persistTenant(tx2, "t2");
+
+            Element data1 = tx1.persist(StructuredData.get().integral(1L));
+            Element data2 = tx2.persist(StructuredData.get().integral(2L));
+
+            assertSame(storage.get("a"), data1.graph());
+            assertSame(storage.get("b"), data2.graph());
+
+            tx1.commit();
+            tx2.commit();
+        }
+    }
+
+    private ShardedBackend open(String shards, String assignments) {
+        return new ShardedBackend(new ShardedBackend.Shards(shards, assignments,
+                name -> new InventoryContext(null, storage.computeIfAbsent(name, n -> TinkerGraph.open()),
+                        new NonTransactionalGraphProvider(), PathEncoding.PLAIN, HotProperties.NONE)));
+    }
+
+    private boolean contains(String shard, String tenantId) {
+        TinkerGraph graph = storage.get(shard);
+        return graph != null && graph.traversal().V()
+                .has(Constants.Property.__type.name(), Constants.Type.tenant.name())
+                .has(Constants.Property.__eid.name(), tenantId).hasNext();
+    }
+
+    private static Query tenant(String id) {
+        return Query.path().with(type(Tenant.class), id(id)).get();
+    }
+
+    private static void createTenant(InventoryBackend<Element> backend, String id) throws Exception {
+        InventoryBackend<Element> tx = backend.startTransaction();
+        persistTenant(tx, id);
+        tx.commit();
+    }
+
+    private static void persistTenant(InventoryBackend<Element> tx, String id) {
+        tx.persist(Discriminator.time(Instant.now()), CanonicalPath.of().tenant(id).get(),
+                Tenant.Blueprint.builder().withId(id).build());
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Instant;
+
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.hawkular.inventory.api.model.Tenant;
+import org.hawkular.inventory.base.spi.Discriminator;
+import org.hawkular.inventory.base.spi.InventoryBackend;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 2.0.0
+ */
+public class SnapshotBackendTest {
+    private final Instant created = Instant.now().minusSeconds(120);
+    private final Instant snapshotTime = Instant.now().minusSeconds(60);
+
+    private InventoryBackend<Element> live;
+
+    @Before
+    public void setup() throws Exception {
+        live = new TinkerpopBackend(new InventoryContext(null, TinkerGraph.open(),
+                new NonTransactionalGraphProvider(), PathEncoding.PLAIN, HotProperties.NONE));
+
+        createTenant("t1");
+        createTenant("t2");
+    }
+
+    @Test
+    public void testReadsAtTheSnapshotTimeServedFromSnapshot() throws Exception {
+        SnapshotCache cache = cache(Long.MAX_VALUE);
+        SnapshotBackend backend = new SnapshotBackend(live, cache, snapshotTime);
+
+        Element tenant = backend.find(Discriminator.time(snapshotTime), tenant("t1"));
+
+        assertTrue(SnapshotCache.isSnapshotElement(tenant));
+        assertEquals("t1", backend.extractId(tenant));
+        assertEquals(tenant("t1"), backend.extractCanonicalPath(tenant));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testOtherReadsServedFromLiveGraph() throws Exception {
+        SnapshotCache cache = cache(Long.MAX_VALUE);
+        SnapshotBackend backend = new SnapshotBackend(live, cache, snapshotTime);
+
+        assertFalse(SnapshotCache.isSnapshotElement(backend.find(Discriminator.latest(), tenant("t1"))));
+        assertFalse(SnapshotCache.isSnapshotElement(backend.find(Discriminator.time(snapshotTime.minusSeconds(1)),
+                tenant("t1"))));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testTooRecentTimeNotSnapshotted() throws Exception {
+        Instant recent = Instant.now().minusSeconds(1);
+        SnapshotCache cache = new SnapshotCache(null, Long.MAX_VALUE, 60000, PathEncoding.PLAIN,
+                HotProperties.NONE);
+        SnapshotBackend backend = new SnapshotBackend(live, cache, recent);
+
+        assertFalse(SnapshotCache.isSnapshotElement(backend.find(Discriminator.time(recent), tenant("t1"))));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSnapshotsAreReadOnly() throws Exception {
+        SnapshotBackend backend = new SnapshotBackend(live, cache(Long.MAX_VALUE), snapshotTime);
+
+        Element tenant = backend.find(Discriminator.time(snapshotTime), tenant("t1"));
+
+        try {
+            backend.update(Discriminator.time(snapshotTime), tenant, Tenant.Update.builder().withName("x").build());
+            fail("Snapshot elements should not be updatable.");
+        } catch (UnsupportedOperationException e) {
+            //expected
+        }
+
+        try {
+            backend.markDeleted(Discriminator.time(snapshotTime), tenant);
+            fail("Snapshot elements should not be deletable.");
+        } catch (UnsupportedOperationException e) {
+            //expected
+        }
+
+        try {
+            backend.eradicate(tenant);
+            fail("Snapshot elements should not be eradicable.");
+        } catch (UnsupportedOperationException e) {
+            //expected
+        }
+
+        //the live graph is still writable through the same backend
+        Element liveTenant = backend.find(Discriminator.latest(), tenant("t1"));
+        backend.update(Discriminator.time(Instant.now()), liveTenant, Tenant.Update.builder().withName("x").build());
+    }
+
+    @Test
+    public void testBackendOfSnapshotElementReused() throws Exception {
+        SnapshotCache cache = cache(Long.MAX_VALUE);
+        SnapshotBackend backend = new SnapshotBackend(live, cache, snapshotTime);
+
+        Element tenant = backend.find(Discriminator.time(snapshotTime), tenant("t1"));
+
+        assertSame(cache.backendOf(tenant), cache.backendOf(tenant));
+        assertSame(cache.get(live, "t1", snapshotTime), cache.backendOf(tenant));
+    }
+
+    @Test
+    public void testNonExistentTenantNotCached() throws Exception {
+        SnapshotCache cache = cache(Long.MAX_VALUE);
+
+        assertNull(cache.get(live, "nonexistent", snapshotTime));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.elements());
+    }
+
+    @Test
+    public void testCacheBoundedByElements() throws Exception {
+        SnapshotCache unbounded = cache(Long.MAX_VALUE);
+        unbounded.get(live, "t1", snapshotTime);
+        long snapshotSize = unbounded.elements();
+        assertTrue(snapshotSize > 0);
+
+        //both tenants have the same structure, so only one of the snapshots fits in
+        SnapshotCache cache = cache(snapshotSize);
+        InventoryBackend<Element> t1 = cache.get(live, "t1", snapshotTime);
+        assertSame(t1, cache.get(live, "t1", snapshotTime));
+
+        assertNotNull(cache.get(live, "t2", snapshotTime));
+        assertEquals(1, cache.size());
+        assertEquals(snapshotSize, cache.elements());
+
+        //t1 has been evicted, so it needs to be made again
+        assertNotSame(t1, cache.get(live, "t1", snapshotTime));
+    }
+
+    @Test
+    public void testSnapshotLargerThanCacheNotKept() throws Exception {
+        SnapshotCache cache = cache(1);
+
+        InventoryBackend<Element> t1 = cache.get(live, "t1", snapshotTime);
+
+        assertNotNull(t1);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.elements());
+    }
+
+    private SnapshotCache cache(long maxElements) {
+        return new SnapshotCache(null, maxElements, 0, PathEncoding.PLAIN, HotProperties.NONE);
+    }
+
+    private void createTenant(String id) throws Exception {
+        InventoryBackend<Element> tx = live.startTransaction();
+        tx.persist(Discriminator.time(created), tenant(id), Tenant.Blueprint.builder().withId(id).build());
+        tx.commit();
+    }
+
+    private static CanonicalPath tenant(String id) {
+        return CanonicalPath.of().tenant(id).get();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.impl.tinkerpop;
+
+import static org.hawkular.inventory.api.filters.With.type;
+import static org.junit.Assert.assertEquals;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.model.Tenant;
+import org.hawkular.inventory.api.paging.Pager;
+import org.hawkular.inventory.base.spi.Discriminator;
+import org.hawkular.inventory.base.spi.InventoryBackend;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 2.0.0
+ */
+public class TinkerpopBackendTest {
+    private final InventoryBackend<Element> backend = new TinkerpopBackend(new InventoryContext(null,
+            TinkerGraph.open(), new NonTransactionalGraphProvider(), PathEncoding.PLAIN, HotProperties.NONE));
+
+    @Test
+    public void testStatesOfConvertedPageNotReusedAfterUpdate() throws Exception {
+        InventoryBackend<Element> tx = backend.startTransaction();
+        for (String id : new String[]{"t1", "t2"}) {
+            tx.persist(Discriminator.time(Instant.now()), CanonicalPath.of().tenant(id).get(),
+                    Tenant.Blueprint.builder().withId(id).withName("old").build());
+        }
+        tx.commit();
+
+        tx = backend.startTransaction();
+        InventoryBackend<Element> conversionTx = tx;
+        List<Element> tenants = tx.query(Discriminator.latest(), Query.path().with(type(Tenant.class)).get(),
+                Pager.unlimited(), e -> {
+                    assertEquals("old", conversionTx.convert(Discriminator.latest(), e, Tenant.class).getName());
+                    return e;
+                }, null).toList();
+
+        Element t1 = tenants.get(0);
+        tx.update(Discriminator.time(Instant.now()), t1, Tenant.Update.builder().withName("new").build());
+
+        assertEquals("new", tx.convert(Discriminator.latest(), t1, Tenant.class).getName());
+        tx.commit();
+    }
+}
@@ -142,6 +142,7 @@ public final class InventoryJacksonConfig {
         objectMapper.addMixIn(OperationType.class, OperationTypeMixin.class);
         objectMapper.addMixIn(Entity.Blueprint.class, EntityBlueprintMixin.class);
         objectMapper.addMixIn(InventoryStructure.class, InventoryStructureMixin.class);
+        objectMapper.addMixIn(InventoryStructure.Offline.class, InventoryStructureMixin.OfflineMixin.class);
         objectMapper.addMixIn(IdentityHash.Tree.class, IdentityHashTreeMixin.class);
         objectMapper.addMixIn(SyncHash.Tree.class, SyncHashTreeMixin.class);
         objectMapper.addMixIn(MetricType.Blueprint.class, MetricTypeBlueprintMixin.class);
@@ -17,121 +17,228 @@
 package org.hawkular.inventory.json;
 
 import java.io.IOException;
-import java.util.Iterator;
-import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.hawkular.inventory.api.model.Entity;
 import org.hawkular.inventory.api.model.InventoryStructure;
 
-import com.fasterxml.jackson.core.JsonLocation;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 /**
+ * Reads the inventory structure straight from the parser, without reading the whole document into a tree first. The
+ * blueprints are fed into the {@link InventoryStructure.Compact.Builder} as they are parsed, so the result is the
+ * compact structure itself and the memory needed on top of it is proportional to the depth of the tree rather than to
+ * the size of the document.
+ *
+ * <p>The "type" of the root and the "data" of each entity are expected to precede its "children" (which is how
+ * {@link InventoryStructureSerializer} writes them). If they don't, the out-of-order parts of the document are buffered
+ * until they can be processed.
+ *
  * @author Lukas Krejci
  * @since 0.15.0
  */
-public class InventoryStructureDeserializer extends JsonDeserializer<InventoryStructure.Offline<?>> {
+public class InventoryStructureDeserializer extends JsonDeserializer<InventoryStructure<?>> {
 
     public static final String LEGAL_ENTITY_TYPES = Stream.of(InventoryStructure.EntityType.values())
             .map(Enum::name)
             .collect(Collectors.joining("', '", "'", "'"));
 
-    @Override public InventoryStructure.Offline<?> deserialize(JsonParser jsonParser,
-                                                               DeserializationContext deserializationContext)
+    @Override public InventoryStructure<?> deserialize(JsonParser jsonParser,
+                                                       DeserializationContext deserializationContext)
             throws IOException {
 
-
-        JsonNode tree = jsonParser.readValueAsTree();
-        if (tree == null) {
+        JsonToken token = jsonParser.getCurrentToken();
+        if (token == null || token == JsonToken.VALUE_NULL) {
             throw new JsonParseException("Inventory structure expected but got nothing.",
                     jsonParser.getCurrentLocation());
         }
 
-        JsonToken token = tree.asToken();
         if (token != JsonToken.START_OBJECT) {
-            throw new JsonParseException("Expected object but got " + token.asString(), JsonLocation.NA);
+            throw new JsonParseException("Expected object but got " + token.asString(),
+                    jsonParser.getCurrentLocation());
         }
 
-        JsonNode typeNode = tree.get("type");
-        if (!typeNode.isTextual()) {
-            throw new JsonParseException("'type' must be a text", JsonLocation.NA);
+        InventoryStructure.EntityType type = null;
+        TokenBuffer data = null;
+        TokenBuffer children = null;
+        InventoryStructure.Compact.Builder<?> bld = null;
+
+        while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = jsonParser.getCurrentName();
+            jsonParser.nextToken();
+
+            switch (field) {
+                case "type":
+                    if (jsonParser.getCurrentToken() != JsonToken.VALUE_STRING) {
+                        throw new JsonParseException("'type' must be a text", jsonParser.getCurrentLocation());
+                    }
+                    type = parseType(jsonParser.getText(), jsonParser);
+                    break;
+                case "data":
+                    if (type == null) {
+                        data = buffer(jsonParser);
+                    } else {
+                        bld = InventoryStructure.Compact.builder(readBlueprint(jsonParser, type,
+                                deserializationContext));
+                    }
+                    break;
+                case "children":
+                    if (bld == null) {
+                        children = buffer(jsonParser);
+                    } else {
+                        parseChildren(jsonParser, bld, deserializationContext);
+                    }
+                    break;
+                default:
+                    jsonParser.skipChildren();
+            }
         }
 
-        String typeName = typeNode.textValue();
-
-        InventoryStructure.EntityType type;
-        try {
-            type = InventoryStructure.EntityType.valueOf(typeName);
-        } catch (IllegalArgumentException e) {
-            throw new JsonParseException("Unrecognized value of 'type'. Supported values are " + LEGAL_ENTITY_TYPES
-                    + " but got '" + typeName + "'.", JsonLocation.NA);
+        if (type == null) {
+            throw new JsonParseException("'type' must be a text", jsonParser.getCurrentLocation());
         }
 
-        Entity.Blueprint root = deserializationContext.readValue(
-                prepareTraverse(tree.get("data"), deserializationContext), type.blueprintType);
+        if (bld == null) {
+            if (data == null) {
+                throw new JsonParseException("The 'data' of the root entity is missing.",
+                        jsonParser.getCurrentLocation());
+            }
+
+            bld = InventoryStructure.Compact.builder(readBlueprint(replay(data, jsonParser), type,
+                    deserializationContext));
+        }
 
-        InventoryStructure.Builder bld = InventoryStructure.Offline.of(root);
-        parseChildren(tree, bld, deserializationContext);
+        if (children != null) {
+            parseChildren(replay(children, jsonParser), bld, deserializationContext);
+        }
 
         return bld.build();
     }
 
-    private void parseChildren(JsonNode root, InventoryStructure.AbstractBuilder<?> bld, DeserializationContext mapper)
-            throws IOException {
+    private void parseChildren(JsonParser parser, InventoryStructure.Compact.Builder<?> bld,
+                               DeserializationContext ctx) throws IOException {
 
-        JsonNode children = root.get("children");
-        if (children == null) {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_NULL) {
             return;
         }
 
-        if (!children.isObject()) {
-            throw new JsonParseException("The 'children' is supposed to be an object.", JsonLocation.NA);
-        } else {
-            Iterator<Map.Entry<String, JsonNode>> fields = children.fields();
-            while (fields.hasNext()) {
-                Map.Entry<String, JsonNode> e = fields.next();
-                String typeName = e.getKey();
-                JsonNode childrenNode = e.getValue();
-
-                if (!childrenNode.isArray()) {
-                    continue;
-                }
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException("The 'children' is supposed to be an object.", parser.getCurrentLocation());
+        }
 
-                InventoryStructure.EntityType type;
-                try {
-                    type = InventoryStructure.EntityType.valueOf(typeName);
-                } catch (IllegalArgumentException ex) {
-                    throw new JsonParseException("Unrecognized value of 'type'. Supported values are "
-                            + LEGAL_ENTITY_TYPES + " but got '" + typeName + "'.", JsonLocation.NA);
-                }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String typeName = parser.getCurrentName();
 
-                Iterator<JsonNode> childrenNodes = childrenNode.elements();
-                while (childrenNodes.hasNext()) {
-                    JsonNode childNode = childrenNodes.next();
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
 
-                    Entity.Blueprint bl = mapper.readValue(prepareTraverse(childNode.get("data"), mapper),
-                            type.blueprintType);
+            InventoryStructure.EntityType type = parseType(typeName, parser);
 
-                    InventoryStructure.ChildBuilder<?> childBld = bld.startChild(bl);
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new JsonParseException("The children of type '" + typeName
+                            + "' are supposed to be objects but got " + token + ".", parser.getCurrentLocation());
+                }
+
+                parseChild(parser, type, bld, ctx);
+            }
+        }
+    }
 
-                    parseChildren(childNode, childBld, mapper);
+    private void parseChild(JsonParser parser, InventoryStructure.EntityType type,
+                            InventoryStructure.Compact.Builder<?> bld, DeserializationContext ctx)
+            throws IOException {
 
-                    childBld.end();
-                }
+        TokenBuffer children = null;
+        boolean started = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+
+            switch (field) {
+                case "data":
+                    if (started) {
+                        throw new JsonParseException("The 'data' of a child entity of type '" + type.name()
+                                + "' is specified more than once.", parser.getCurrentLocation());
+                    }
+                    bld.startChild(readBlueprint(parser, type, ctx));
+                    started = true;
+                    break;
+                case "children":
+                    if (started) {
+                        parseChildren(parser, bld, ctx);
+                    } else {
+                        children = buffer(parser);
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
             }
         }
+
+        if (!started) {
+            throw new JsonParseException("The 'data' of a child entity of type '" + type.name() + "' is missing.",
+                    parser.getCurrentLocation());
+        }
+
+        if (children != null) {
+            parseChildren(replay(children, parser), bld, ctx);
+        }
+
+        bld.end();
+    }
+
+    private static Entity.Blueprint readBlueprint(JsonParser parser, InventoryStructure.EntityType type,
+                                                  DeserializationContext ctx) throws IOException {
+        return ctx.readValue(parser, type.blueprintType);
+    }
+
+    private static InventoryStructure.EntityType parseType(String typeName, JsonParser parser)
+            throws JsonParseException {
+        try {
+            return InventoryStructure.EntityType.valueOf(typeName);
+        } catch (IllegalArgumentException e) {
+            throw new JsonParseException("Unrecognized value of 'type'. Supported values are " + LEGAL_ENTITY_TYPES
+                    + " but got '" + typeName + "'.", parser.getCurrentLocation());
+        }
     }
 
-    private static JsonParser prepareTraverse(JsonNode node, DeserializationContext ctx) throws IOException {
-        JsonParser parser = node.traverse(ctx.getParser().getCodec());
+    /**
+     * Copies the structure starting at the current token of the parser so that it can be processed later.
+     */
+    private static TokenBuffer buffer(JsonParser parser) throws IOException {
+        TokenBuffer buffer = new TokenBuffer(parser);
+        buffer.copyCurrentStructure(parser);
+        return buffer;
+    }
+
+    private static JsonParser replay(TokenBuffer buffer, JsonParser original) throws IOException {
+        JsonParser parser = buffer.asParser(original.getCodec());
         parser.nextToken();
         return parser;
     }
+
+    /**
+     * Used when an {@link InventoryStructure.Offline} is explicitly asked for. The structure is read the same way and
+     * then copied.
+     */
+    public static final class Offline extends JsonDeserializer<InventoryStructure.Offline<?>> {
+        private final InventoryStructureDeserializer delegate = new InventoryStructureDeserializer();
+
+        @Override public InventoryStructure.Offline<?> deserialize(JsonParser jsonParser,
+                                                                   DeserializationContext deserializationContext)
+                throws IOException {
+            return InventoryStructure.Offline.copy(delegate.deserialize(jsonParser, deserializationContext));
+        }
+    }
 }
@@ -29,4 +29,8 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 @JsonSerialize(using = InventoryStructureSerializer.class)
 @JsonDeserialize(using = InventoryStructureDeserializer.class)
 public class InventoryStructureMixin {
+
+    @JsonDeserialize(using = InventoryStructureDeserializer.Offline.class)
+    public static class OfflineMixin {
+    }
 }
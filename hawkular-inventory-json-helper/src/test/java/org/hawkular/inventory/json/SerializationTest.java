@@ -84,6 +84,7 @@ import org.junit.Test;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -618,6 +619,49 @@ public class SerializationTest {
         test(s);
     }
 
+    @Test
+    public void testInventoryStructureWithFieldsOutOfOrder() throws Exception {
+        InventoryStructure<?> expected = InventoryStructure.Offline
+                .of(Feed.Blueprint.builder().withId("feed").build())
+                .startChild(ResourceType.Blueprint.builder().withId("resourceType").build())
+                .addChild(OperationType.Blueprint.builder().withId("operationType").build())
+                .end()
+                .build();
+
+        String json = "{\"children\": {\"resourceType\": [{\"children\": {\"operationType\": [{\"data\": " +
+                "{\"id\": \"operationType\"}}]}, \"data\": {\"id\": \"resourceType\"}}]}, " +
+                "\"data\": {\"id\": \"feed\"}, \"type\": \"feed\"}";
+
+        Assert.assertEquals(InventoryStructure.Compact.copy(expected), deserialize(json, InventoryStructure.class));
+        Assert.assertEquals(expected, deserialize(json, InventoryStructure.Offline.class));
+    }
+
+    @Test
+    public void testInventoryStructureDeserializedAsCompact() throws Exception {
+        InventoryStructure<?> s = InventoryStructure.Offline.of(Feed.Blueprint.builder().withId("feed").build())
+                .addChild(ResourceType.Blueprint.builder().withId("resourceType").build())
+                .addChild(Resource.Blueprint.builder().withId("r2").withResourceTypePath("resourceType").build())
+                .startChild(Resource.Blueprint.builder().withId("r1").withResourceTypePath("resourceType").build())
+                .addChild(Resource.Blueprint.builder().withId("childResource").withResourceTypePath("../.resourceType")
+                        .build())
+                .end()
+                .build();
+
+        InventoryStructure<?> deserialized = deserialize(serialize(s), InventoryStructure.class);
+
+        Assert.assertTrue(deserialized instanceof InventoryStructure.Compact);
+        Assert.assertEquals(InventoryStructure.Compact.copy(s), deserialized);
+        Assert.assertEquals(IdentityHash.of(s), IdentityHash.of(deserialized));
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void testInventoryStructureWithNonObjectChild() throws Exception {
+        String json = "{\"type\": \"feed\", \"data\": {\"id\": \"feed\"}, \"children\": {\"resourceType\": " +
+                "[{\"data\": {\"id\": \"rt1\"}}, 42, {\"data\": {\"id\": \"rt2\"}}]}}";
+
+        deserialize(json, InventoryStructure.class);
+    }
+
     @Test
     public void testIdentityHashTree() throws Exception {
         InventoryStructure<?> s = InventoryStructure.Offline.of(Feed.Blueprint.builder().withId("feed").build())
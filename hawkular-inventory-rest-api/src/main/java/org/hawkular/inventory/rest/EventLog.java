@@ -0,0 +1,363 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.rest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.hawkular.inventory.api.Action;
+import org.hawkular.inventory.api.Configuration;
+import org.hawkular.inventory.api.Interest;
+import org.hawkular.inventory.api.Inventory;
+import org.hawkular.inventory.api.model.AbstractElement;
+import org.hawkular.inventory.api.model.Relationship;
+import org.hawkular.inventory.rest.cdi.AutoTenant;
+
+import rx.Subscription;
+
+/**
+ * An in-memory log of the events emitted by inventory.
+ *
+ * <p>Each tenant has its own size-bounded ring buffer of events. Each event in the buffer is assigned a monotonically
+ * increasing sequence number so that the clients can resume reading the events where they left off, even if the
+ * events were emitted while they were not listening.
+ *
+ * <p>The log subscribes to inventory only once per each {@link Interest} and fans the events out to all the
+ * listeners, i.e. the long polls of {@link RestEvents} and the websocket sessions.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+@ApplicationScoped
+public class EventLog {
+
+    @Inject
+    @AutoTenant
+    private Inventory inventory;
+
+    @Inject
+    private Configuration configuration;
+
+    private final Map<Interest<?, ?>, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final Map<String, TenantLog> tenantLogs = new ConcurrentHashMap<>();
+    private int capacity;
+
+    public EventLog() {
+    }
+
+    EventLog(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @PostConstruct
+    public void init() {
+        capacity = Integer.parseInt(configuration.getProperty(RestConfiguration.Keys.EVENT_LOG_SIZE,
+                RestConfiguration.Keys.EVENT_LOG_SIZE.getDefaultValue()));
+    }
+
+    @PreDestroy
+    public void close() {
+        subscriptions.values().forEach(Subscription::unsubscribe);
+        subscriptions.clear();
+    }
+
+    /**
+     * Makes sure the events of given interest are being recorded in the log. The events emitted prior to the first
+     * call of this method for given interest are not recorded.
+     *
+     * @param interest the interest to record the events of
+     */
+    public void record(Interest<?, ?> interest) {
+        subscriptions.computeIfAbsent(interest, i -> inventory.observable(i).subscribe(e -> append(i, e)));
+    }
+
+    /**
+     * @param tenantId the tenant
+     * @return the sequence number of the latest event recorded for the tenant, 0 if there is none
+     */
+    public long getLatestSequence(String tenantId) {
+        TenantLog log = tenantLogs.get(tenantId);
+        return log == null ? 0 : log.getLatestSequence();
+    }
+
+    /**
+     * Returns the events of given interest that are newer than the provided sequence number. If there are no such
+     * events, the provided listener is registered to be notified about the future events of the interest.
+     *
+     * <p>The check and the registration happen atomically so that no event can be missed between the two.
+     *
+     * @param tenantId the tenant to get the events of
+     * @param interest the interest in the events
+     * @param since    the sequence number of the last event the caller has seen
+     * @param listener the listener to register if there are no newer events, may be null
+     * @return the events newer than {@code since}, possibly empty, never null. If this is empty and the listener was
+     * provided, the returned registration can be used to stop listening.
+     */
+    public Poll poll(String tenantId, Interest<?, ?> interest, long since, Consumer<Entry> listener) {
+        record(interest);
+        return getTenantLog(tenantId).poll(interest, since, listener);
+    }
+
+    /**
+     * Registers the listener to be notified about all the future events of the interest in the tenant.
+     *
+     * @param tenantId the tenant
+     * @param interest the interest in the events
+     * @param listener the listener
+     * @return the registration object to use to stop listening
+     */
+    public Registration listen(String tenantId, Interest<?, ?> interest, Consumer<Entry> listener) {
+        record(interest);
+        return getTenantLog(tenantId).listen(interest, listener);
+    }
+
+    /**
+     * Extracts the ID of the tenant the event object of given action belongs to.
+     *
+     * @param action the action
+     * @param event  the event object (aka action context)
+     * @return the tenant id
+     */
+    public static String tenantOf(Action<?, ?> action, Object event) {
+        if (action == Action.updated()) {
+            return ((AbstractElement<?, ?>) ((Action.Update<?, ?>) event).getOriginalEntity()).getPath().ids()
+                    .getTenantId();
+        } else if (action == Action.copied()) {
+            return ((Action.EnvironmentCopy) event).getSource().getPath().ids().getTenantId();
+        } else if (event instanceof Relationship) {
+            return ((Relationship) event).getSource().ids().getTenantId();
+        } else {
+            return ((AbstractElement<?, ?>) event).getPath().ids().getTenantId();
+        }
+    }
+
+    private void append(Interest<?, ?> interest, Object event) {
+        String tenantId = tenantOf(interest.getAction(), event);
+        if (tenantId != null) {
+            getTenantLog(tenantId).append(interest, event);
+        }
+    }
+
+    /**
+     * Parses the sequence number provided by a client.
+     *
+     * @param value the string representation of the sequence number
+     * @return the sequence number
+     * @throws IllegalArgumentException if the value is not a valid sequence number
+     */
+    public static long parseSequence(String value) {
+        long ret;
+        try {
+            ret = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid sequence number: '" + value + "'.");
+        }
+
+        if (ret < 0) {
+            throw new IllegalArgumentException("Invalid sequence number: '" + value + "'. The sequence numbers are"
+                    + " not negative.");
+        }
+
+        return ret;
+    }
+
+    TenantLog getTenantLog(String tenantId) {
+        return tenantLogs.computeIfAbsent(tenantId, t -> new TenantLog(capacity));
+    }
+
+    /**
+     * A single recorded event.
+     */
+    public static final class Entry {
+        private final long sequence;
+        private final Interest<?, ?> interest;
+        private final Object event;
+
+        private Entry(long sequence, Interest<?, ?> interest, Object event) {
+            this.sequence = sequence;
+            this.interest = interest;
+            this.event = event;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public Interest<?, ?> getInterest() {
+            return interest;
+        }
+
+        public Object getEvent() {
+            return event;
+        }
+    }
+
+    /**
+     * Represents a registered listener.
+     */
+    public interface Registration {
+        Registration NOOP = () -> {};
+
+        /**
+         * Stops the listener from receiving further events. Calling this multiple times has no further effect.
+         */
+        void cancel();
+    }
+
+    /**
+     * The result of {@link #poll(String, Interest, long, Consumer)}.
+     */
+    public static final class Poll {
+        private final List<Entry> entries;
+        private final long latestSequence;
+        private final boolean eventsLost;
+        private final Registration registration;
+
+        private Poll(List<Entry> entries, long latestSequence, boolean eventsLost, Registration registration) {
+            this.entries = entries;
+            this.latestSequence = latestSequence;
+            this.eventsLost = eventsLost;
+            this.registration = registration;
+        }
+
+        /**
+         * @return the events newer than the requested sequence number
+         */
+        public List<Entry> getEntries() {
+            return entries;
+        }
+
+        /**
+         * @return the sequence number of the latest event in the tenant's log at the time of the poll
+         */
+        public long getLatestSequence() {
+            return latestSequence;
+        }
+
+        /**
+         * @return true if some of the events newer than the requested sequence number are no longer in the log,
+         * either because they have been overwritten by the newer events or because they were recorded before the log
+         * was restarted
+         */
+        public boolean isEventsLost() {
+            return eventsLost;
+        }
+
+        /**
+         * @return the registration of the listener, if it was registered, otherwise a no-op registration
+         */
+        public Registration getRegistration() {
+            return registration;
+        }
+    }
+
+    static final class TenantLog {
+        private final Entry[] ring;
+        private final List<Listener> listeners = new ArrayList<>();
+        private long latestSequence;
+
+        TenantLog(int capacity) {
+            ring = new Entry[capacity];
+        }
+
+        void append(Interest<?, ?> interest, Object event) {
+            Entry entry;
+            List<Listener> toNotify;
+            synchronized (this) {
+                entry = new Entry(++latestSequence, interest, event);
+                ring[(int) (entry.sequence % ring.length)] = entry;
+
+                toNotify = new ArrayList<>(listeners.size());
+                for (Listener l : listeners) {
+                    if (l.interest.equals(interest)) {
+                        toNotify.add(l);
+                    }
+                }
+            }
+
+            //notify outside of the lock so that slow listeners don't block the other writers
+            toNotify.forEach(l -> l.accept(entry));
+        }
+
+        synchronized long getLatestSequence() {
+            return latestSequence;
+        }
+
+        synchronized Poll poll(Interest<?, ?> interest, long since, Consumer<Entry> listener) {
+            boolean lost = false;
+            if (since > latestSequence) {
+                //the client has seen events from a previous incarnation of the log (i.e. before a restart), let's
+                //give it everything we have
+                since = 0;
+                lost = true;
+            }
+
+            //the oldest sequence number still available in the ring
+            long oldest = latestSequence - ring.length + 1;
+            lost |= since + 1 < oldest;
+
+            long start = Math.max(since + 1, oldest);
+
+            List<Entry> ret = new ArrayList<>();
+            for (long seq = Math.max(start, 1); seq <= latestSequence; ++seq) {
+                Entry e = ring[(int) (seq % ring.length)];
+                if (e.interest.equals(interest)) {
+                    ret.add(e);
+                }
+            }
+
+            if (ret.isEmpty() && listener != null) {
+                return new Poll(Collections.emptyList(), latestSequence, lost, listen(interest, listener));
+            } else {
+                return new Poll(ret, latestSequence, lost, Registration.NOOP);
+            }
+        }
+
+        synchronized Registration listen(Interest<?, ?> interest, Consumer<Entry> listener) {
+            Listener l = new Listener(interest, listener);
+            listeners.add(l);
+            return () -> {
+                synchronized (TenantLog.this) {
+                    listeners.remove(l);
+                }
+            };
+        }
+    }
+
+    private static final class Listener implements Consumer<Entry> {
+        final Interest<?, ?> interest;
+        final Consumer<Entry> consumer;
+
+        Listener(Interest<?, ?> interest, Consumer<Entry> consumer) {
+            this.interest = interest;
+            this.consumer = consumer;
+        }
+
+        @Override public void accept(Entry entry) {
+            consumer.accept(entry);
+        }
+    }
+}
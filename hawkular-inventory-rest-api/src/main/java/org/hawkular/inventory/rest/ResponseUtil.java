@@ -113,12 +113,27 @@ public final class ResponseUtil {
 
     public static <T> Response.ResponseBuilder pagedResponse(Response.ResponseBuilder response, UriInfo uriInfo,
                                                              ObjectMapper mapper, Page<T> page) {
+        return pagedResponse(response, uriInfo, mapper, page, MediaType.APPLICATION_OCTET_STREAM_TYPE);
+    }
+
+    /**
+     * Streams the page serialized by the provided mapper as the response.
+     *
+     * @param response  the response builder
+     * @param uriInfo   the uri info of the current request
+     * @param mapper    the mapper to serialize the page elements with
+     * @param page      the page to serialize
+     * @param mediaType the media type of the data produced by the mapper
+     * @return the response builder with the entity set
+     */
+    public static <T> Response.ResponseBuilder pagedResponse(Response.ResponseBuilder response, UriInfo uriInfo,
+                                                             ObjectMapper mapper, Page<T> page, MediaType mediaType) {
         InputStream data = null;
         try {
             //extract the data out of the page
             data = pageToStream(page, mapper, () -> {
                 // the page iterator should be depleted by this time so the total size should be correctly set
-                response.type(MediaType.APPLICATION_OCTET_STREAM_TYPE);
+                response.type(mediaType);
                 createPagingHeader(response, uriInfo, page);
             });
         } catch (IOException e) {
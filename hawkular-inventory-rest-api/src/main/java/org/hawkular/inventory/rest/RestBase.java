@@ -20,7 +20,9 @@ import static org.hawkular.inventory.api.filters.With.path;
 import static org.hawkular.inventory.rest.Utils.createUnder;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
+import java.lang.reflect.Method;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
@@ -28,7 +30,12 @@ import java.util.Map;
 import java.util.Optional;
 
 import javax.inject.Inject;
+import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.container.ResourceInfo;
 import javax.ws.rs.core.PathSegment;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
@@ -47,6 +54,8 @@ import org.hawkular.inventory.paths.SegmentType;
 import org.hawkular.inventory.rest.cdi.AutoTenant;
 import org.hawkular.inventory.rest.cdi.Our;
 import org.hawkular.inventory.rest.cdi.TenantAware;
+import org.hawkular.inventory.rest.json.BinaryFormat;
+import org.hawkular.inventory.rest.json.EmbeddedObjectMapper;
 import org.hawkular.inventory.rest.security.Security;
 import org.hawkular.inventory.rest.security.TenantId;
 import org.jboss.resteasy.annotations.GZIP;
@@ -85,6 +94,12 @@ public class RestBase {
     @Inject @TenantAware
     private ObjectMapper defaultMapper;
 
+    @Context
+    private HttpHeaders httpHeaders;
+
+    @Context
+    private ResourceInfo resourceInfo;
+
     private final int pathLength;
 
     /**
@@ -108,13 +123,25 @@ public class RestBase {
                                                          ObjectMapper mapper, Page<T> page) {
         boolean streaming = config.getFlag(RestConfiguration.Keys.STREAMING_SERIALIZATION, RestConfiguration.Keys
                 .STREAMING_SERIALIZATION.getDefaultValue());
+
+        BinaryFormat format = getResponseFormat();
+        if (format != null) {
+            mapper = getMapper(mapper, format);
+        }
+
         if (streaming) {
-            return ResponseUtil.pagedResponse(response, uriInfo, mapper, page);
+            return format == null
+                    ? ResponseUtil.pagedResponse(response, uriInfo, mapper, page)
+                    : ResponseUtil.pagedResponse(response, uriInfo, mapper, page, format.getMediaType());
         } else {
             try {
                 RestApiLogger.LOGGER.debug("Fetching data from backend");
                 List<?> data = page.toList();
                 RestApiLogger.LOGGER.debug("Finished fetching data from backend");
+                if (format != null) {
+                    return ResponseUtil.pagedResponse(response.type(format.getMediaType()), uriInfo, page,
+                            mapper.writeValueAsBytes(data));
+                }
                 return ResponseUtil.pagedResponse(response, uriInfo, page, mapper.writeValueAsString(data));
             } catch (JsonProcessingException e) {
                 RestApiLogger.LOGGER.warn(e);
@@ -190,9 +217,21 @@ public class RestBase {
 
     protected Object create(CanonicalPath parentPath, SegmentType elementType, UriInfo uriInfo, Reader input)
             throws IOException {
-        Class<?> blueprintType = Inventory.types().bySegment(elementType).getBlueprintType();
+        return create(parentPath, elementType, uriInfo, getMapper().readTree(input));
+    }
 
-        JsonNode data = getMapper().readTree(input);
+    /**
+     * Same as {@link #create(CanonicalPath, SegmentType, UriInfo, Reader)} but reads the data in the format of the
+     * request, which can also be one of the {@link BinaryFormat binary formats}.
+     */
+    protected Object create(CanonicalPath parentPath, SegmentType elementType, UriInfo uriInfo, InputStream input)
+            throws IOException {
+        return create(parentPath, elementType, uriInfo, getRequestMapper().readTree(input));
+    }
+
+    private Object create(CanonicalPath parentPath, SegmentType elementType, UriInfo uriInfo, JsonNode data)
+            throws IOException {
+        Class<?> blueprintType = Inventory.types().bySegment(elementType).getBlueprintType();
 
         setupMapper(parentPath);
 
@@ -233,6 +272,87 @@ public class RestBase {
         }
     }
 
+    /**
+     * @return the mapper to read the body of the current request with, taking into account its content type
+     */
+    protected ObjectMapper getRequestMapper() {
+        BinaryFormat format = httpHeaders == null ? null : BinaryFormat.of(httpHeaders.getMediaType());
+        return format == null ? getMapper() : getMapper(getMapper(), format);
+    }
+
+    /**
+     * @param jsonMapper the JSON mapper to find the counterpart of
+     * @param format     the binary format
+     * @return the mapper configured the same as the provided JSON mapper that uses the binary format
+     */
+    private ObjectMapper getMapper(ObjectMapper jsonMapper, BinaryFormat format) {
+        if (jsonMapper instanceof EmbeddedObjectMapper) {
+            return format.getConfig().getContext(EmbeddedObjectMapper.class);
+        } else if (jsonMapper == defaultMapper) {
+            return format.getConfig().getContext(TenantAware.class);
+        } else {
+            return format.getConfig().getContext(ObjectMapper.class);
+        }
+    }
+
+    /**
+     * The resources serializing the data themselves need to honor the binary format requested by the client, if it is
+     * declared as produced by the resource. This returns the first such format acceptable by the client, unless the
+     * client prefers JSON.
+     *
+     * @return the binary format to produce in the response or null if the response should be JSON
+     */
+    private BinaryFormat getResponseFormat() {
+        if (httpHeaders == null) {
+            return null;
+        }
+
+        for (MediaType acceptable : httpHeaders.getAcceptableMediaTypes()) {
+            BinaryFormat format = BinaryFormat.of(acceptable);
+            if (format != null && isProduced(resourceInfo == null ? null : resourceInfo.getResourceMethod(),
+                    getClass(), format)) {
+                return format;
+            } else if (acceptable.isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
+                return null;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * As in JAX-RS, the {@link Produces} annotation on the resource method takes precedence over the one on the
+     * resource class.
+     *
+     * @param resourceMethod the resource method handling the request or null if not known
+     * @param resourceClass  the class of the resource
+     * @param format         the format to check
+     * @return true if the resource method produces the format
+     */
+    static boolean isProduced(Method resourceMethod, Class<?> resourceClass, BinaryFormat format) {
+        Produces produces = resourceMethod == null ? null : resourceMethod.getAnnotation(Produces.class);
+
+        //walk up the hierarchy, because we might be called on a CDI proxy
+        for (Class<?> cls = resourceClass; produces == null && cls != null; cls = cls.getSuperclass()) {
+            produces = cls.getAnnotation(Produces.class);
+        }
+
+        if (produces == null) {
+            return false;
+        }
+
+        for (String type : produces.value()) {
+            //a single value can contain several comma-separated media types
+            for (String t : type.split(",")) {
+                if (BinaryFormat.of(MediaType.valueOf(t.trim())) == format) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
     protected void setupMapper(CanonicalPath relativePathOrigin) {
         DetypedPathDeserializer.setCurrentCanonicalOrigin(getTenantPath());
         DetypedPathDeserializer.setCurrentRelativePathOrigin(relativePathOrigin);
@@ -248,6 +368,24 @@ public class RestBase {
                 : inventory.at(time);
     }
 
+    /**
+     * If the request contains the {@code explain=true} or {@code profile=true} query parameter, the caller is not
+     * interested in the results of the query but in how the backend evaluates it.
+     *
+     * @param uriInfo the request info
+     * @param query   the query that would be executed by the request
+     * @return the response with the explanation of the query or null if no explanation was requested
+     */
+    protected Response explainIfRequested(UriInfo uriInfo, Query query) {
+        MultivaluedMap<String, String> params = uriInfo.getQueryParameters();
+        boolean profile = Boolean.parseBoolean(params.getFirst("profile"));
+        if (!profile && !Boolean.parseBoolean(params.getFirst("explain"))) {
+            return null;
+        }
+
+        return Response.ok(inventory(uriInfo).explain(query, RequestUtil.extractPaging(uriInfo), profile)).build();
+    }
+
     protected Optional<Instant> parseTime(String timestampOrDateTime) {
         if (timestampOrDateTime == null) {
             return Optional.empty();
@@ -24,6 +24,9 @@ import static javax.ws.rs.core.Response.Status.FORBIDDEN;
 import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
 import static javax.ws.rs.core.Response.Status.NOT_FOUND;
 
+import static org.hawkular.inventory.rest.json.BinaryFormat.APPLICATION_CBOR;
+import static org.hawkular.inventory.rest.json.BinaryFormat.APPLICATION_SMILE;
+
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
@@ -86,8 +89,8 @@ import io.swagger.annotations.ApiResponses;
  * @since 0.4.0
  */
 @javax.ws.rs.Path("/bulk")
-@Produces(APPLICATION_JSON)
-@Consumes(APPLICATION_JSON)
+@Produces({APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_CBOR})
+@Consumes({APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_CBOR})
 @Api(value = "/bulk", description = "Endpoint for bulk operations on inventory entities", tags = "Bulk Create")
 public class RestBulk extends RestBase {
 
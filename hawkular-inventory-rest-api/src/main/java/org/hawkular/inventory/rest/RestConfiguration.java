@@ -31,7 +31,9 @@ public class RestConfiguration {
 
     public enum Keys implements Configuration.Property {
         STREAMING_SERIALIZATION(PROPERTY_PREFIX + "streaming.serialization", "false",
-                "hawkular.inventory.rest.streaming.serialization");
+                "hawkular.inventory.rest.streaming.serialization"),
+        EVENT_LOG_SIZE(PROPERTY_PREFIX + "events.log.size", "1000", "hawkular.inventory.rest.events.log.size",
+                "HAWKULAR_INVENTORY_REST_EVENTS_LOG_SIZE");
 
         private final String propertyName;
         private final List<String> systemPropertyName;
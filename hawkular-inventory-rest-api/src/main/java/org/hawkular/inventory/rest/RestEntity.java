@@ -19,9 +19,11 @@ package org.hawkular.inventory.rest;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
 import static org.hawkular.inventory.rest.Utils.getSegmentTypeFromSimpleName;
+import static org.hawkular.inventory.rest.json.BinaryFormat.APPLICATION_CBOR;
+import static org.hawkular.inventory.rest.json.BinaryFormat.APPLICATION_SMILE;
 
 import java.io.IOException;
-import java.io.Reader;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
 
@@ -37,9 +39,11 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
 import org.hawkular.inventory.api.Inventory;
+import org.hawkular.inventory.api.Query;
 import org.hawkular.inventory.api.Relationships;
 import org.hawkular.inventory.api.ResolvableToSingle;
 import org.hawkular.inventory.api.Synced;
+import org.hawkular.inventory.api.filters.With;
 import org.hawkular.inventory.api.model.AbstractElement;
 import org.hawkular.inventory.api.model.Change;
 import org.hawkular.inventory.api.model.Relationship;
@@ -58,8 +62,8 @@ import io.swagger.annotations.ApiResponses;
  * @since 0.16.0
  */
 @Path("/entity")
-@Produces(APPLICATION_JSON)
-@Consumes(APPLICATION_JSON)
+@Produces({APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_CBOR})
+@Consumes({APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_CBOR})
 public class RestEntity extends RestBase {
 
     public RestEntity() {
@@ -91,6 +95,13 @@ public class RestEntity extends RestBase {
         CanonicalPath path = CanonicalPath.fromPartiallyUntypedString(getPath(uriInfo), getTenantPath(),
                 AbstractElement.class);
 
+        if (!SegmentType.rl.equals(path.getSegment().getElementType())) {
+            Response explanation = explainIfRequested(uriInfo, Query.path().with(With.path(path)).get());
+            if (explanation != null) {
+                return explanation;
+            }
+        }
+
         return inventory(uriInfo).inspect(path, ResolvableToSingle.class).entity();
     }
 
@@ -107,7 +118,7 @@ public class RestEntity extends RestBase {
     @POST
     @Path("{path:.+}")
     @SuppressWarnings("unchecked")
-    public Response post(@Context UriInfo uriInfo, Reader input) throws Exception {
+    public Response post(@Context UriInfo uriInfo, InputStream input) throws Exception {
         String pathAndType = getPath(uriInfo);
 
         int slashIdx = pathAndType.lastIndexOf('/');
@@ -144,7 +155,7 @@ public class RestEntity extends RestBase {
 
     @PUT
     @Path("{path:.+}")
-    public Response put(@Context UriInfo uriInfo, Reader input) throws Exception {
+    public Response put(@Context UriInfo uriInfo, InputStream input) throws Exception {
         String path = getPath(uriInfo);
 
         CanonicalPath entityPath = CanonicalPath.fromPartiallyUntypedString(path, getTenantPath(),
@@ -194,9 +205,9 @@ public class RestEntity extends RestBase {
     }
 
     private <U extends AbstractElement.Update> void doPut(CanonicalPath path, Class<U> updateType, UriInfo uriInfo,
-                                                          Reader data) throws IOException {
+                                                          InputStream data) throws IOException {
         setupMapper(path);
-        U update = getMapper().reader().forType(updateType).readValue(data);
+        U update = getRequestMapper().reader().forType(updateType).readValue(data);
         inventory(uriInfo).inspect(path, Inventory.types().byUpdate(updateType).getSingleAccessorType()).update(update);
     }
 
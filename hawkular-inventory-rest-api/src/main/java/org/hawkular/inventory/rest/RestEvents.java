@@ -16,11 +16,16 @@
  */
 package org.hawkular.inventory.rest;
 
+import static java.util.stream.Collectors.toList;
+
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
@@ -31,15 +36,13 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.CompletionCallback;
 import javax.ws.rs.container.Suspended;
-import javax.ws.rs.container.TimeoutHandler;
 import javax.ws.rs.core.Response;
 
 import org.hawkular.inventory.api.Action;
 import org.hawkular.inventory.api.Interest;
 import org.hawkular.inventory.api.Inventory;
-import org.hawkular.inventory.api.model.AbstractElement;
-import org.hawkular.inventory.api.model.Relationship;
 import org.hawkular.inventory.paths.SegmentType;
 import org.hawkular.inventory.rest.deprecated.RestRelationships;
 import org.hawkular.inventory.rest.json.ApiError;
@@ -48,7 +51,7 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
-import rx.Subscription;
+import io.swagger.annotations.ResponseHeader;
 import rx.functions.Func1;
 
 /**
@@ -60,25 +63,46 @@ import rx.functions.Func1;
 @Api(value = "/events", description = "Work with the events emitted by inventory", tags = "Events")
 public class RestEvents extends RestBase {
 
+    public static final String SEQUENCE_HEADER = "X-Event-Sequence";
+    public static final String EVENTS_LOST_HEADER = "X-Events-Lost";
+
     @Inject
     private RestRelationships restRelationships;
 
+    @Inject
+    private EventLog eventLog;
+
     public RestEvents() {
         super("/events".length());
     }
 
+    RestEvents(EventLog eventLog) {
+        this();
+        this.eventLog = eventLog;
+    }
+
     @GET
     @Path("/")
-    @ApiOperation("Listen on stream of the events")
+    @ApiOperation(value = "Listen on stream of the events",
+            notes = "If the \"since\" parameter is provided, all the recorded events newer than that sequence " +
+                    "number are returned immediately. If there are no such events, the request waits for at most " +
+                    "20 seconds for a new event to happen.")
     @ApiResponses({
-            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 200, message = "OK", responseHeaders = {@ResponseHeader(name = SEQUENCE_HEADER,
+                    description = "The sequence number of the latest returned event. Pass it as the \"since\" " +
+                            "parameter in the next request to not miss any events.", response = Long.class),
+                    @ResponseHeader(name = EVENTS_LOST_HEADER, description = "Present and set to true if some of " +
+                            "the events newer than \"since\" are no longer available.", response = Boolean.class)}),
+            @ApiResponse(code = 400, message = "Unknown type or action or negative \"since\"",
+                    response = String.class),
             @ApiResponse(code = 401, message = "Unauthorized access"),
             @ApiResponse(code = 404, message = "Tenant doesn't exist", response = ApiError.class),
             @ApiResponse(code = 500, message = "Server error", response = ApiError.class)
     })
     public void getEvents(@Suspended AsyncResponse asyncResponse,
                           @QueryParam("type") @DefaultValue("resource") String type,
-                          @QueryParam("action") @DefaultValue("created") String actionString) {
+                          @QueryParam("action") @DefaultValue("created") String actionString,
+                          @QueryParam("since") Long since) {
 
         String tenantId = getTenantId();
 
@@ -89,6 +113,7 @@ public class RestEvents extends RestBase {
         if (cls == null) {
             asyncResponse.resume(Response.status(BAD_REQUEST).entity("Unknown type: " + type)
                     .build());
+            return;
         }
         Action.Enumerated actionEnumItem;
         try {
@@ -103,36 +128,57 @@ public class RestEvents extends RestBase {
         }
         Action<?, ?> action = actionEnumItem.getAction();
 
-        final Subscription subscribe = inventory.observable(Interest.in(cls).being(action))
-                .filter(getFilter(action, tenantId))
-                .buffer(20, TimeUnit.SECONDS)
-                .subscribe((x) -> {
-                    asyncResponse.resume(x);
-                });
-
-        asyncResponse.setTimeout(21, TimeUnit.SECONDS);
-        asyncResponse.setTimeoutHandler(new TimeoutHandler() {
-            @Override public void handleTimeout(AsyncResponse asyncResponse) {
-                if (!subscribe.isUnsubscribed()) {
-                    subscribe.unsubscribe();
-                }
-            }
+        @SuppressWarnings("unchecked")
+        Interest<?, ?> interest = Interest.in(cls).being(action);
+
+        poll(asyncResponse, tenantId, interest, since);
+    }
+
+    void poll(AsyncResponse asyncResponse, String tenantId, Interest<?, ?> interest, Long since) {
+        if (since != null && since < 0) {
+            asyncResponse.resume(Response.status(BAD_REQUEST).entity("Invalid sequence number: '" + since
+                    + "'. The sequence numbers are not negative.").build());
+            return;
+        }
+
+        //without the "since" the client is only interested in the events that are going to happen from now on
+        long lastSeen = since == null ? eventLog.getLatestSequence(tenantId) : since;
+
+        //the listener can be called before the poll returns, so it needs to wait for it to find out whether some
+        //events were lost
+        CompletableFuture<EventLog.Poll> polled = new CompletableFuture<>();
+
+        EventLog.Poll poll = eventLog.poll(tenantId, interest, lastSeen, e -> polled.thenAccept(p ->
+                asyncResponse.resume(eventsResponse(Collections.singletonList(e), e.getSequence(),
+                        p.isEventsLost()))));
+
+        polled.complete(poll);
+
+        if (!poll.getEntries().isEmpty()) {
+            asyncResponse.resume(eventsResponse(poll.getEntries(), poll.getLatestSequence(), poll.isEventsLost()));
+            return;
+        }
+
+        EventLog.Registration registration = poll.getRegistration();
+
+        asyncResponse.setTimeout(20, TimeUnit.SECONDS);
+        asyncResponse.setTimeoutHandler(r -> {
+            registration.cancel();
+            r.resume(eventsResponse(Collections.emptyList(), poll.getLatestSequence(), poll.isEventsLost()));
         });
+        asyncResponse.register((CompletionCallback) t -> registration.cancel());
     }
 
-    public static Func1<Object, Boolean> getFilter(Action<?, ?> action, String tenantId) {
-        if (action == Action.updated()) {
-            return (e) -> tenantId.equals(((AbstractElement) ((Action.Update) e).getOriginalEntity())
-                    .getPath().ids().getTenantId());
-        } else if (action == Action.copied()) {
-            return (e) -> tenantId.equals(((Action.EnvironmentCopy) e).getSource().getPath().ids().getTenantId());
-        } else {
-            return (e) -> {
-                if (e instanceof Relationship) {
-                    return tenantId.equals(((Relationship) e).getSource().ids().getTenantId());
-                }
-                return tenantId.equals(((AbstractElement) e).getPath().ids().getTenantId());
-            };
+    private static Response eventsResponse(List<EventLog.Entry> entries, long latestSequence, boolean eventsLost) {
+        List<Object> events = entries.stream().map(EventLog.Entry::getEvent).collect(toList());
+        Response.ResponseBuilder bld = Response.ok(events).header(SEQUENCE_HEADER, latestSequence);
+        if (eventsLost) {
+            bld.header(EVENTS_LOST_HEADER, true);
         }
+        return bld.build();
+    }
+
+    public static Func1<Object, Boolean> getFilter(Action<?, ?> action, String tenantId) {
+        return (e) -> tenantId.equals(EventLog.tenantOf(action, e));
     }
 }
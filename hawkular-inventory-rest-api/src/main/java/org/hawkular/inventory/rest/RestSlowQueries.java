@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.rest;
+
+import static java.util.stream.Collectors.toList;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+import static org.hawkular.inventory.rest.json.BinaryFormat.APPLICATION_CBOR;
+import static org.hawkular.inventory.rest.json.BinaryFormat.APPLICATION_SMILE;
+
+import java.util.List;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.UriInfo;
+
+import org.hawkular.inventory.api.SlowQuery;
+import org.hawkular.inventory.rest.json.ApiError;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+
+/**
+ * @author agent
+ * @since 2.0.0
+ */
+@Path("/slow-queries")
+@Produces({APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_CBOR})
+@Api(value = "/slow-queries", description = "Recently recorded slow queries of the tenant.", tags = "Slow Queries")
+public class RestSlowQueries extends RestBase {
+
+    public RestSlowQueries() {
+        super("/slow-queries".length());
+    }
+
+    @GET
+    @Path("/")
+    @ApiOperation("Gets the most recent queries of the tenant that took longer than the configured threshold. The" +
+            " queries are recorded only if the backend is configured to do so.")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 401, message = "Unauthorized access"),
+            @ApiResponse(code = 500, message = "Server error", response = ApiError.class)
+    })
+    public List<SlowQuery> get(@Context UriInfo uriInfo) {
+        String tenantId = getTenantId();
+        return inventory(uriInfo).getSlowQueries().stream().filter(q -> tenantId.equals(q.getTenantId()))
+                .collect(toList());
+    }
+}
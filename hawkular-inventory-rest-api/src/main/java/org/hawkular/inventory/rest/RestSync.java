@@ -18,6 +18,9 @@ package org.hawkular.inventory.rest;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
+import static org.hawkular.inventory.rest.json.BinaryFormat.APPLICATION_CBOR;
+import static org.hawkular.inventory.rest.json.BinaryFormat.APPLICATION_SMILE;
+
 import java.util.List;
 
 import javax.ws.rs.Consumes;
@@ -47,8 +50,8 @@ import io.swagger.annotations.ApiResponses;
  * @since 0.15.0
  */
 @Path("/sync")
-@Produces(value = APPLICATION_JSON)
-@Consumes(value = APPLICATION_JSON)
+@Produces({APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_CBOR})
+@Consumes({APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_CBOR})
 @Api(value = "/sync", description = "Synchronization of entity trees", tags = "Sync")
 public class RestSync extends RestBase {
 
@@ -18,8 +18,17 @@ package org.hawkular.inventory.rest;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
+import static org.hawkular.inventory.rest.json.BinaryFormat.APPLICATION_CBOR;
+import static org.hawkular.inventory.rest.json.BinaryFormat.APPLICATION_SMILE;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.HEAD;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
@@ -30,14 +39,17 @@ import org.hawkular.inventory.api.Query;
 import org.hawkular.inventory.api.model.AbstractElement;
 import org.hawkular.inventory.api.paging.Page;
 import org.hawkular.inventory.api.paging.Pager;
+import org.hawkular.inventory.api.paging.TransformingPage;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.jboss.resteasy.spi.BadRequestException;
 
 /**
  * @author Lukas Krejci
  * @since 0.16.0
  */
 @Path("/traversal")
-@Produces(APPLICATION_JSON)
-@Consumes(APPLICATION_JSON)
+@Produces({APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_CBOR})
+@Consumes({APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_CBOR})
 public class RestTraversal extends RestBase {
 
     public RestTraversal() {
@@ -52,11 +64,72 @@ public class RestTraversal extends RestBase {
 
         Query q = traverser.navigate(getPath(uriInfo));
 
+        Response explanation = explainIfRequested(uriInfo, q);
+        if (explanation != null) {
+            return explanation;
+        }
+
         Pager pager = RequestUtil.extractPaging(uriInfo);
 
+        String fields = uriInfo.getQueryParameters().getFirst("fields");
+        if (fields != null) {
+            List<String> fieldNames = Arrays.asList(fields.split("\\s*,\\s*"));
+            fieldNames.forEach(RestTraversal::checkField);
+
+            Page<Map<String, String>> projected = new TransformingPage<>(inventory(uriInfo).paths(q, pager),
+                    cp -> project(cp, fieldNames));
+
+            return pagedResponse(Response.ok(), uriInfo, projected).build();
+        }
+
         @SuppressWarnings("unchecked")
         Page<AbstractElement<?, ?>> results = inventory(uriInfo).execute(q, (Class) AbstractElement.class, pager);
 
         return pagedResponse(Response.ok(), uriInfo, results).build();
     }
+
+    private static void checkField(String field) {
+        switch (field) {
+            case "path":
+            case "id":
+            case "type":
+                return;
+            default:
+                throw new BadRequestException("Unsupported field '" + field + "'. Only 'path', 'id' and 'type' can" +
+                        " be requested.");
+        }
+    }
+
+    private static Map<String, String> project(CanonicalPath cp, List<String> fields) {
+        Map<String, String> ret = new LinkedHashMap<>(fields.size());
+        for (String field : fields) {
+            switch (field) {
+                case "path":
+                    ret.put(field, cp.toString());
+                    break;
+                case "id":
+                    ret.put(field, cp.getSegment().getElementId());
+                    break;
+                case "type":
+                    ret.put(field, cp.getSegment().getElementType().getSimpleName());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported field: " + field);
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Only counts the results of the traversal without loading them. The count is returned in the
+     * {@code X-Total-Count} header, same as with the GET requests.
+     */
+    @HEAD
+    @Path("{path:.+}")
+    public Response count(@Context UriInfo uriInfo) throws Exception {
+        Query q = getTraverser(uriInfo).navigate(getPath(uriInfo));
+
+        return Response.ok().header("X-Total-Count", inventory(uriInfo).count(q)).build();
+    }
 }
@@ -19,6 +19,7 @@ package org.hawkular.inventory.rest.cdi;
 import java.io.InputStream;
 import java.time.Instant;
 import java.util.Iterator;
+import java.util.List;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Produces;
@@ -31,7 +32,9 @@ import org.hawkular.inventory.api.EntityNotFoundException;
 import org.hawkular.inventory.api.Interest;
 import org.hawkular.inventory.api.Inventory;
 import org.hawkular.inventory.api.Query;
+import org.hawkular.inventory.api.QueryExplanation;
 import org.hawkular.inventory.api.Relationships;
+import org.hawkular.inventory.api.SlowQuery;
 import org.hawkular.inventory.api.Tenants;
 import org.hawkular.inventory.api.TransactionFrame;
 import org.hawkular.inventory.api.filters.Filter;
@@ -185,5 +188,25 @@ public class AutoTenantInventoryProducer {
         public <T extends AbstractElement> Page<T> execute(Query query, Class<T> requestedEntity, Pager pager) {
                 return inventory.execute(query, requestedEntity, pager);
         }
+
+        @Override
+        public Page<CanonicalPath> paths(Query query, Pager pager) {
+            return inventory.paths(query, pager);
+        }
+
+        @Override
+        public long count(Query query) {
+            return inventory.count(query);
+        }
+
+        @Override
+        public QueryExplanation explain(Query query, Pager pager, boolean profile) {
+            return inventory.explain(query, pager, profile);
+        }
+
+        @Override
+        public List<SlowQuery> getSlowQueries() {
+            return inventory.getSlowQueries();
+        }
     }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.rest.json;
+
+import java.util.function.Supplier;
+
+import javax.ws.rs.core.MediaType;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * The binary data formats the REST API can use instead of JSON. The data model is the same as with JSON, only the
+ * encoding differs, so the mappers of each format are configured the same way as the JSON ones in
+ * {@link JacksonConfig}.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+public enum BinaryFormat {
+    SMILE(BinaryFormat.APPLICATION_SMILE, SmileFactory::new),
+    CBOR(BinaryFormat.APPLICATION_CBOR, CBORFactory::new);
+
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+    public static final String APPLICATION_CBOR = "application/cbor";
+
+    private final MediaType mediaType;
+    private final JacksonConfig config;
+
+    BinaryFormat(String mediaType, Supplier<JsonFactory> factory) {
+        this.mediaType = MediaType.valueOf(mediaType);
+        this.config = new JacksonConfig(factory);
+    }
+
+    /**
+     * @param mediaType the media type to find the format for
+     * @return the binary format of the media type or null if the media type doesn't denote any (wildcards don't match
+     * any binary format)
+     */
+    public static BinaryFormat of(MediaType mediaType) {
+        if (mediaType == null) {
+            return null;
+        }
+
+        for (BinaryFormat f : values()) {
+            if (f.mediaType.getType().equalsIgnoreCase(mediaType.getType())
+                    && f.mediaType.getSubtype().equalsIgnoreCase(mediaType.getSubtype())) {
+                return f;
+            }
+        }
+
+        return null;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return the configuration providing the mappers using this format in the same way as the default configuration
+     * provides the JSON mappers
+     */
+    public JacksonConfig getConfig() {
+        return config;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.rest.json;
+
+import static org.hawkular.inventory.rest.json.BinaryFormat.APPLICATION_CBOR;
+import static org.hawkular.inventory.rest.json.BinaryFormat.APPLICATION_SMILE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads and writes the entities in the {@link BinaryFormat binary formats}. The mappers are chosen the same way as
+ * the JSON provider chooses them using the {@link JacksonConfig}, so the binary representation has the same structure
+ * as the JSON one.
+ *
+ * @author agent
+ * @since 2.0.0
+ */
+@Provider
+@Consumes({APPLICATION_SMILE, APPLICATION_CBOR})
+@Produces({APPLICATION_SMILE, APPLICATION_CBOR})
+public class BinaryJacksonProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+    /**
+     * The raw data are read and written by the standard providers even if they are in a binary format (e.g. the
+     * already serialized pages or the request bodies the resources parse themselves).
+     */
+    private static boolean isRaw(Class<?> type) {
+        return InputStream.class.isAssignableFrom(type) || Reader.class.isAssignableFrom(type)
+                || StreamingOutput.class.isAssignableFrom(type) || String.class.equals(type)
+                || byte[].class.equals(type);
+    }
+
+    private static ObjectMapper mapperFor(Class<?> type, MediaType mediaType) {
+        return BinaryFormat.of(mediaType).getConfig().getContext(type);
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return !isRaw(type) && BinaryFormat.of(mediaType) != null;
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                           MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        ObjectMapper mapper = mapperFor(type, mediaType);
+        return mapper.readValue(entityStream, mapper.getTypeFactory().constructType(genericType));
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return !isRaw(type) && BinaryFormat.of(mediaType) != null;
+    }
+
+    @Override
+    public long getSize(Object o, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(Object o, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        ObjectMapper mapper = mapperFor(type, mediaType);
+
+        //the container owns the entity stream, so we must not close it
+        JsonGenerator generator = mapper.getFactory().createGenerator(entityStream);
+        mapper.writeValue(generator, o);
+        generator.flush();
+    }
+}
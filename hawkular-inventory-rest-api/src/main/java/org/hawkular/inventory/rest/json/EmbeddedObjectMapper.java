@@ -18,6 +18,7 @@ package org.hawkular.inventory.rest.json;
 
 import org.hawkular.inventory.api.model.Relationship;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.Version;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
@@ -29,6 +30,11 @@ import com.fasterxml.jackson.databind.module.SimpleModule;
 public class EmbeddedObjectMapper extends ObjectMapper {
 
     public EmbeddedObjectMapper() {
+        this(null);
+    }
+
+    public EmbeddedObjectMapper(JsonFactory factory) {
+        super(factory);
         JacksonConfig.initializeObjectMapper(this);
         SimpleModule relationshipModule = new SimpleModule("RelationshipEmbeddedModule", new Version(0, 1, 0, null,
                                                            "org.hawkular.inventory", "inventory-rest-api"));
@@ -16,6 +16,8 @@
  */
 package org.hawkular.inventory.rest.json;
 
+import java.util.function.Supplier;
+
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.ext.ContextResolver;
@@ -29,6 +31,7 @@ import org.hawkular.inventory.paths.RelativePath;
 import org.hawkular.inventory.rest.cdi.TenantAware;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.Version;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -47,9 +50,17 @@ public class JacksonConfig implements ContextResolver<ObjectMapper> {
     private EmbeddedObjectMapper embeddedRelationshipsMapper;
 
     public JacksonConfig() {
-        this.deprecatedObjectMapper = new ObjectMapper();
-        this.defaultObjectMapper = new ObjectMapper();
-        this.embeddedRelationshipsMapper = new EmbeddedObjectMapper();
+        this(null);
+    }
+
+    /**
+     * @param factory the supplier of the factories the mappers use to read and write the data, e.g. to use a binary
+     *                data format. If null, the mappers read and write JSON.
+     */
+    public JacksonConfig(Supplier<JsonFactory> factory) {
+        this.deprecatedObjectMapper = new ObjectMapper(newFactory(factory));
+        this.defaultObjectMapper = new ObjectMapper(newFactory(factory));
+        this.embeddedRelationshipsMapper = new EmbeddedObjectMapper(newFactory(factory));
         initializeObjectMapper(this.deprecatedObjectMapper);
         initializeObjectMapper(this.defaultObjectMapper);
         initializeObjectMapper(this.embeddedRelationshipsMapper);
@@ -67,6 +78,11 @@ public class JacksonConfig implements ContextResolver<ObjectMapper> {
         this.defaultObjectMapper.addMixIn(Path.class, PathSerializationMixin.class);
     }
 
+    private static JsonFactory newFactory(Supplier<JsonFactory> factory) {
+        //each mapper needs its own factory instance, because the factory is bound to the mapper as its codec
+        return factory == null ? null : factory.get();
+    }
+
     public static void initializeObjectMapper(ObjectMapper mapper) {
         mapper.enable(SerializationFeature.INDENT_OUTPUT);
         mapper.disable(SerializationFeature.WRITE_NULL_MAP_VALUES);
@@ -20,6 +20,8 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
@@ -34,7 +36,7 @@ import org.hawkular.inventory.api.Action;
 import org.hawkular.inventory.api.Interest;
 import org.hawkular.inventory.api.Inventory;
 import org.hawkular.inventory.paths.SegmentType;
-import org.hawkular.inventory.rest.RestEvents;
+import org.hawkular.inventory.rest.EventLog;
 import org.hawkular.inventory.rest.Utils;
 import org.hawkular.inventory.rest.cdi.AutoTenant;
 import org.hawkular.inventory.rest.cdi.Our;
@@ -43,8 +45,6 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Maps;
 
-import rx.Subscription;
-
 /**
  * @author Jirka Kremser
  */
@@ -53,7 +53,7 @@ import rx.Subscription;
 @ServerEndpoint("/ws/events")
 public class WebsocketEvents {
 
-    private Map<Session, Subscription> subscriptions = Maps.newHashMap();
+    private Map<Session, EventLog.Registration> registrations = new ConcurrentHashMap<>();
 
     @Inject
     @AutoTenant
@@ -62,6 +62,9 @@ public class WebsocketEvents {
     @Inject @Our
     protected ObjectMapper mapper;
 
+    @Inject
+    private EventLog eventLog;
+
     @OnOpen
     public void open(Session session) {
 
@@ -100,26 +103,59 @@ public class WebsocketEvents {
         }
         Action<?, ?> action = actionEnumItem.getAction();
 
-        final Subscription subscription = inventory.observable(Interest.in(cls).being(action))
-                .filter(RestEvents.getFilter(action, tenantId))
-                .subscribe((x) -> {
-                    try {
-                        session.getAsyncRemote().sendText(mapper.writeValueAsString(x));
-                    } catch (JsonProcessingException e) {
-                        session.getAsyncRemote().sendText("Unable to serialize JSON.");
-                        WebsocketApiLogger.LOGGER.serializationFailed(e);
-                        closeSession(session);
-                    }
-                });
-        subscriptions.put(session, subscription);
+        @SuppressWarnings("unchecked")
+        Interest<?, ?> interest = Interest.in(cls).being(action);
+
+        Consumer<EventLog.Entry> sender = e -> {
+            try {
+                session.getAsyncRemote().sendText(mapper.writeValueAsString(e.getEvent()));
+            } catch (JsonProcessingException ex) {
+                session.getAsyncRemote().sendText("Unable to serialize JSON.");
+                WebsocketApiLogger.LOGGER.serializationFailed(ex);
+                closeSession(session);
+            }
+        };
+
+        String sinceString = queryParamStringMap.get(QueryParam.since.name());
+        EventLog.Registration registration;
+        if (sinceString == null) {
+            registration = eventLog.listen(tenantId, interest, sender);
+        } else {
+            long since;
+            try {
+                since = EventLog.parseSequence(sinceString);
+            } catch (IllegalArgumentException e) {
+                session.getAsyncRemote().sendText(e.getMessage());
+                closeSession(session);
+                return;
+            }
+
+            //replay the events the client hasn't seen yet and continue with the new ones. The poll only registers
+            //the listener if there is nothing to replay, so we need to loop until we catch up.
+            EventLog.Poll poll;
+            while (true) {
+                poll = eventLog.poll(tenantId, interest, since, sender);
+                if (poll.isEventsLost()) {
+                    session.getAsyncRemote().sendText(eventsLostMessage(since, poll.getLatestSequence()));
+                }
+                if (poll.getEntries().isEmpty()) {
+                    break;
+                }
+                poll.getEntries().forEach(sender);
+                since = poll.getLatestSequence();
+            }
+            registration = poll.getRegistration();
+        }
+
+        registrations.put(session, registration);
     }
 
     @OnClose
     public void close(Session session) {
         WebsocketApiLogger.LOGGER.sessionClosed(session.getId());
-        Subscription subscription = subscriptions.get(session);
-        if (subscription != null && !subscription.isUnsubscribed()) {
-            subscription.unsubscribe();
+        EventLog.Registration registration = registrations.remove(session);
+        if (registration != null) {
+            registration.cancel();
         }
     }
 
@@ -133,6 +169,18 @@ public class WebsocketEvents {
         WebsocketApiLogger.LOGGER.onMessage(session.getId(), message);
     }
 
+    /**
+     * The message telling the client that some of the events it asked for are no longer available, so that it can
+     * resynchronize its state with inventory.
+     *
+     * @param since          the sequence number the client asked to resume from
+     * @param latestSequence the latest sequence number in the log
+     * @return the JSON message
+     */
+    static String eventsLostMessage(long since, long latestSequence) {
+        return "{\"eventsLost\":true,\"since\":" + since + ",\"latestSequence\":" + latestSequence + "}";
+    }
+
     private void closeSession(Session session) {
         try {
             session.close();
@@ -168,6 +216,7 @@ public class WebsocketEvents {
 
     private enum QueryParam {
         tenantId,
+        since,
         type("resource"),
         action("created");
 
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.hawkular.inventory.api.Action;
+import org.hawkular.inventory.api.Interest;
+import org.hawkular.inventory.api.model.Resource;
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 2.0.0
+ */
+public class EventLogTest {
+    private static final Interest<?, ?> CREATED = Interest.in(Resource.class).being(Action.created());
+
+    @Test
+    public void testPollReturnsNewerEvents() throws Exception {
+        EventLog.TenantLog log = logWith(3, 2);
+
+        EventLog.Poll poll = log.poll(CREATED, 1, null);
+
+        assertEquals(1, poll.getEntries().size());
+        assertEquals(2, poll.getEntries().get(0).getSequence());
+        assertEquals(2, poll.getLatestSequence());
+        assertFalse(poll.isEventsLost());
+    }
+
+    @Test
+    public void testOverflowReportedAsLostEvents() throws Exception {
+        EventLog.TenantLog log = logWith(3, 5);
+
+        EventLog.Poll poll = log.poll(CREATED, 1, null);
+
+        assertTrue(poll.isEventsLost());
+        assertEquals(3, poll.getEntries().size());
+        assertEquals(3, poll.getEntries().get(0).getSequence());
+
+        //the events 3, 4 and 5 are still in the log
+        assertFalse(log.poll(CREATED, 2, null).isEventsLost());
+    }
+
+    @Test
+    public void testSequenceFromBeforeRestartReportedAsLostEvents() throws Exception {
+        EventLog.TenantLog log = logWith(3, 1);
+
+        EventLog.Poll poll = log.poll(CREATED, 10, null);
+
+        assertTrue(poll.isEventsLost());
+        assertEquals(1, poll.getEntries().size());
+    }
+
+    @Test
+    public void testParseSequence() throws Exception {
+        assertEquals(42, EventLog.parseSequence("42"));
+        assertEquals(0, EventLog.parseSequence(" 0 "));
+
+        for (String invalid : new String[]{"", "abc", "-1", "1.5", "99999999999999999999"}) {
+            try {
+                EventLog.parseSequence(invalid);
+                fail("'" + invalid + "' should have been rejected.");
+            } catch (IllegalArgumentException e) {
+                //expected
+            }
+        }
+    }
+
+    private static EventLog.TenantLog logWith(int capacity, int eventCount) {
+        EventLog.TenantLog log = new EventLog.TenantLog(capacity);
+        for (int i = 0; i < eventCount; ++i) {
+            log.append(CREATED, "event" + i);
+        }
+        return log;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.rest;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+import static org.hawkular.inventory.rest.json.BinaryFormat.APPLICATION_CBOR;
+import static org.hawkular.inventory.rest.json.BinaryFormat.APPLICATION_SMILE;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+
+import javax.ws.rs.Produces;
+
+import org.hawkular.inventory.rest.json.BinaryFormat;
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 2.0.0
+ */
+public class ResponseFormatTest {
+
+    @Test
+    public void testClassLevelProduces() throws Exception {
+        Method m = BinaryResource.class.getMethod("inherited");
+
+        assertTrue(RestBase.isProduced(m, BinaryResource.class, BinaryFormat.SMILE));
+        assertTrue(RestBase.isProduced(m, BinaryResource.class, BinaryFormat.CBOR));
+    }
+
+    @Test
+    public void testMethodLevelProducesTakesPrecedence() throws Exception {
+        Method m = BinaryResource.class.getMethod("jsonOnly");
+
+        assertFalse(RestBase.isProduced(m, BinaryResource.class, BinaryFormat.SMILE));
+        assertFalse(RestBase.isProduced(m, BinaryResource.class, BinaryFormat.CBOR));
+
+        m = JsonResource.class.getMethod("smileOnly");
+
+        assertTrue(RestBase.isProduced(m, JsonResource.class, BinaryFormat.SMILE));
+        assertFalse(RestBase.isProduced(m, JsonResource.class, BinaryFormat.CBOR));
+    }
+
+    @Test
+    public void testProducesOfSuperclassUsedForProxies() throws Exception {
+        assertTrue(RestBase.isProduced(null, BinaryResourceProxy.class, BinaryFormat.CBOR));
+        assertFalse(RestBase.isProduced(null, JsonResource.class, BinaryFormat.CBOR));
+    }
+
+    @Test
+    public void testCommaSeparatedMediaTypes() throws Exception {
+        Method m = JsonResource.class.getMethod("commaSeparated");
+
+        assertTrue(RestBase.isProduced(m, JsonResource.class, BinaryFormat.CBOR));
+    }
+
+    @Produces({APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_CBOR})
+    public static class BinaryResource {
+        public void inherited() {
+        }
+
+        @Produces(APPLICATION_JSON)
+        public void jsonOnly() {
+        }
+    }
+
+    public static class BinaryResourceProxy extends BinaryResource {
+    }
+
+    @Produces(APPLICATION_JSON)
+    public static class JsonResource {
+        @Produces({APPLICATION_JSON, APPLICATION_SMILE})
+        public void smileOnly() {
+        }
+
+        @Produces(APPLICATION_JSON + ", " + APPLICATION_CBOR)
+        public void commaSeparated() {
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Response;
+
+import org.hawkular.inventory.api.Action;
+import org.hawkular.inventory.api.Interest;
+import org.hawkular.inventory.api.model.Resource;
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 2.0.0
+ */
+public class RestEventsTest {
+    private static final String TENANT = "tenant";
+    private static final Interest<?, ?> CREATED = Interest.in(Resource.class).being(Action.created());
+    private static final Interest<?, ?> DELETED = Interest.in(Resource.class).being(Action.deleted());
+
+    private final EventLog eventLog = new EventLog(3) {
+        @Override public void record(Interest<?, ?> interest) {
+            //the events are appended by the tests directly
+        }
+    };
+
+    private final RestEvents events = new RestEvents(eventLog);
+
+    @Test
+    public void testNegativeSinceRejected() throws Exception {
+        RecordingResponse response = new RecordingResponse();
+
+        events.poll(response, TENANT, CREATED, -1L);
+
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.response.getStatus());
+    }
+
+    @Test
+    public void testLostEventsReportedWithRecordedEvents() throws Exception {
+        append(CREATED, 5);
+        RecordingResponse response = new RecordingResponse();
+
+        events.poll(response, TENANT, CREATED, 1L);
+
+        assertEquals(3, ((List<?>) response.response.getEntity()).size());
+        assertEquals(5L, response.response.getHeaders().getFirst(RestEvents.SEQUENCE_HEADER));
+        assertEquals(true, response.response.getHeaders().getFirst(RestEvents.EVENTS_LOST_HEADER));
+    }
+
+    @Test
+    public void testLostEventsReportedWithEventsWaitedFor() throws Exception {
+        //the other events push the events the client hasn't seen out of the log, but none of them is interesting
+        append(DELETED, 5);
+        RecordingResponse response = new RecordingResponse();
+
+        events.poll(response, TENANT, CREATED, 1L);
+        assertNull(response.response);
+
+        append(CREATED, 1);
+
+        assertEquals(1, ((List<?>) response.response.getEntity()).size());
+        assertEquals(6L, response.response.getHeaders().getFirst(RestEvents.SEQUENCE_HEADER));
+        assertEquals(true, response.response.getHeaders().getFirst(RestEvents.EVENTS_LOST_HEADER));
+    }
+
+    @Test
+    public void testNoLostEventsReportedWhenUpToDate() throws Exception {
+        append(CREATED, 2);
+        RecordingResponse response = new RecordingResponse();
+
+        events.poll(response, TENANT, CREATED, 2L);
+        assertNull(response.response);
+
+        append(CREATED, 1);
+
+        assertEquals(3L, response.response.getHeaders().getFirst(RestEvents.SEQUENCE_HEADER));
+        assertFalse(response.response.getHeaders().containsKey(RestEvents.EVENTS_LOST_HEADER));
+    }
+
+    @Test
+    public void testNoSinceWaitsForNewEvents() throws Exception {
+        append(CREATED, 5);
+        RecordingResponse response = new RecordingResponse();
+
+        events.poll(response, TENANT, CREATED, null);
+        assertNull(response.response);
+
+        append(CREATED, 1);
+
+        assertEquals(1, ((List<?>) response.response.getEntity()).size());
+        assertFalse(response.response.getHeaders().containsKey(RestEvents.EVENTS_LOST_HEADER));
+        assertNotNull(response.timeoutHandler);
+    }
+
+    private void append(Interest<?, ?> interest, int count) {
+        for (int i = 0; i < count; ++i) {
+            eventLog.getTenantLog(TENANT).append(interest, "event" + i);
+        }
+    }
+
+    private static final class RecordingResponse implements AsyncResponse {
+        Response response;
+        TimeoutHandler timeoutHandler;
+
+        @Override public boolean resume(Object response) {
+            if (this.response != null) {
+                return false;
+            }
+            this.response = (Response) response;
+            return true;
+        }
+
+        @Override public boolean resume(Throwable response) {
+            throw new AssertionError("Unexpected failure.", response);
+        }
+
+        @Override public boolean cancel() {
+            return false;
+        }
+
+        @Override public boolean cancel(int retryAfter) {
+            return false;
+        }
+
+        @Override public boolean cancel(Date retryAfter) {
+            return false;
+        }
+
+        @Override public boolean isSuspended() {
+            return response == null;
+        }
+
+        @Override public boolean isCancelled() {
+            return false;
+        }
+
+        @Override public boolean isDone() {
+            return response != null;
+        }
+
+        @Override public boolean setTimeout(long time, TimeUnit unit) {
+            return true;
+        }
+
+        @Override public void setTimeoutHandler(TimeoutHandler handler) {
+            timeoutHandler = handler;
+        }
+
+        @Override public Collection<Class<?>> register(Class<?> callback) {
+            return null;
+        }
+
+        @Override public Map<Class<?>, Collection<Class<?>>> register(Class<?> callback, Class<?>... callbacks) {
+            return null;
+        }
+
+        @Override public Collection<Class<?>> register(Object callback) {
+            return null;
+        }
+
+        @Override public Map<Class<?>, Collection<Class<?>>> register(Object callback, Object... callbacks) {
+            return null;
+        }
+    }
+}
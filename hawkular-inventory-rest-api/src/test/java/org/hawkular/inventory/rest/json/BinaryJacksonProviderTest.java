@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.rest.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+
+import org.hawkular.inventory.api.model.Tenant;
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 2.0.0
+ */
+public class BinaryJacksonProviderTest {
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    private final BinaryJacksonProvider provider = new BinaryJacksonProvider();
+
+    @Test
+    public void testSmileRoundTrip() throws Exception {
+        testRoundTrip(BinaryFormat.SMILE);
+    }
+
+    @Test
+    public void testCborRoundTrip() throws Exception {
+        testRoundTrip(BinaryFormat.CBOR);
+    }
+
+    @Test
+    public void testMediaTypesRecognized() throws Exception {
+        assertEquals(BinaryFormat.SMILE, BinaryFormat.of(MediaType.valueOf(BinaryFormat.APPLICATION_SMILE)));
+        assertEquals(BinaryFormat.CBOR, BinaryFormat.of(MediaType.valueOf(BinaryFormat.APPLICATION_CBOR)));
+        assertEquals(null, BinaryFormat.of(MediaType.APPLICATION_JSON_TYPE));
+        assertEquals(null, BinaryFormat.of(MediaType.WILDCARD_TYPE));
+    }
+
+    @Test
+    public void testRawDataLeftToStandardProviders() throws Exception {
+        MediaType smile = BinaryFormat.SMILE.getMediaType();
+
+        assertFalse(provider.isReadable(InputStream.class, InputStream.class, NO_ANNOTATIONS, smile));
+        assertFalse(provider.isWriteable(String.class, String.class, NO_ANNOTATIONS, smile));
+        assertFalse(provider.isWriteable(Tenant.Blueprint.class, Tenant.Blueprint.class, NO_ANNOTATIONS,
+                MediaType.APPLICATION_JSON_TYPE));
+        assertTrue(provider.isWriteable(Tenant.Blueprint.class, Tenant.Blueprint.class, NO_ANNOTATIONS, smile));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void testRoundTrip(BinaryFormat format) throws Exception {
+        Tenant.Blueprint blueprint = Tenant.Blueprint.builder().withId("tenant").withName("Tenant")
+                .withProperty("answer", 42).withProperty("question", "unknown").build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        provider.writeTo(blueprint, Tenant.Blueprint.class, Tenant.Blueprint.class, NO_ANNOTATIONS,
+                format.getMediaType(), new MultivaluedHashMap<>(), out);
+
+        byte[] data = out.toByteArray();
+        assertTrue(data.length > 0);
+        assertNotEquals("the data should not be JSON", '{', (char) data[0]);
+
+        Class<Object> type = (Class<Object>) (Class<?>) Tenant.Blueprint.class;
+        Tenant.Blueprint read = (Tenant.Blueprint) provider.readFrom(type, Tenant.Blueprint.class, NO_ANNOTATIONS,
+                format.getMediaType(), new MultivaluedHashMap<>(), new ByteArrayInputStream(data));
+
+        assertEquals(blueprint.getId(), read.getId());
+        assertEquals(blueprint.getName(), read.getName());
+        assertEquals(blueprint.getProperties(), read.getProperties());
+    }
+}
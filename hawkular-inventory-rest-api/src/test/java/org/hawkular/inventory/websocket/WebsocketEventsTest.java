@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015-2016 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.inventory.websocket;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * @author agent
+ * @since 2.0.0
+ */
+public class WebsocketEventsTest {
+
+    @Test
+    public void testEventsLostMessageIsJson() throws Exception {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> message = new ObjectMapper().readValue(WebsocketEvents.eventsLostMessage(5, 1500),
+                Map.class);
+
+        assertEquals(true, message.get("eventsLost"));
+        assertEquals(5, message.get("since"));
+        assertEquals(1500, message.get("latestSequence"));
+    }
+}